@@ -0,0 +1,138 @@
+package com.sparrow.consolidation_service.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.sparrow.consolidation_service.model.ParcelCreatedEvent;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Consumer-side cost of a parcel-created message: the whole parcel document as JSON (what parcel-service used to
+// send) against the slim typed event as JSON and as Smile, all decoded by ParcelEventDeserializer.
+// Run with: ./gradlew jmh (add -prof gc for allocations)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParcelEventDecodeBenchmark {
+
+    @Param({"document", "json", "smile"})
+    private String format;
+
+    // Embedded tracking events in the legacy document; the typed events never carry them
+    @Param({"1", "20"})
+    private int history;
+
+    private final ParcelEventDeserializer deserializer = new ParcelEventDeserializer();
+    private final RecordHeaders headers = new RecordHeaders();
+    private byte[] message;
+
+    @Setup
+    public void setUp() throws Exception {
+        deserializer.configure(Map.of(ParcelEventDeserializer.VALUE_TYPE_CONFIG, ParcelCreatedEvent.class), false);
+        // Dates as ISO strings, like the Spring Boot ObjectMapper parcel-service encodes with
+        ObjectMapper json = JsonMapper.builder().addModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS).build();
+        ObjectMapper smile = SmileMapper.builder().addModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS).build();
+
+        switch (format) {
+            case "document":
+                message = json.writeValueAsBytes(parcelDocument(history));
+                headers.add("contentType", "application/json".getBytes(StandardCharsets.UTF_8));
+                break;
+            case "json":
+                message = json.writeValueAsBytes(createdEvent());
+                headers.add("contentType", "application/json".getBytes(StandardCharsets.UTF_8));
+                break;
+            default:
+                message = smile.writeValueAsBytes(createdEvent());
+                headers.add("contentType", "application/x-jackson-smile".getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    @Benchmark
+    public Object decode() {
+        return deserializer.deserialize("parcel-created", headers, message);
+    }
+
+    private static Map<String, Object> createdEvent() {
+        Map<String, Object> event = new LinkedHashMap<>();
+        event.put("eventId", "5b1f0c1e-8d8a-4c35-9a63-7f6f2f8e9b21");
+        event.put("parcelId", "65f1c0a2e4b0a1b2c3d4e5f6");
+        event.put("trackingNumber", "TRK0A1B2C3D4E5F6G7");
+        event.put("senderId", "sender-1042");
+        event.put("recipientId", "recipient-2211");
+        event.put("origin", "Colombo");
+        event.put("destination", "Kandy");
+        event.put("weight", 2.5);
+        event.put("volume", 12000.0);
+        event.put("parcelType", "STANDARD");
+        event.put("status", "CREATED");
+        event.put("createdAt", LocalDateTime.of(2025, 3, 1, 8, 0));
+        return event;
+    }
+
+    private static Map<String, Object> parcelDocument(int history) {
+        Map<String, Object> parcel = new LinkedHashMap<>();
+        parcel.put("id", "65f1c0a2e4b0a1b2c3d4e5f6");
+        parcel.put("trackingNumber", "TRK0A1B2C3D4E5F6G7");
+        parcel.put("senderId", "sender-1042");
+        parcel.put("recipientId", "recipient-2211");
+        parcel.put("senderAddress", address("12 Galle Road", "Colombo", "Western", "00300"));
+        parcel.put("recipientAddress", address("45 Temple Street", "Kandy", "Central", "20000"));
+        parcel.put("weight", 2.5);
+        parcel.put("length", 30.0);
+        parcel.put("width", 20.0);
+        parcel.put("height", 20.0);
+        parcel.put("parcelType", "STANDARD");
+        parcel.put("status", "CREATED");
+        parcel.put("currentLocation", "Colombo");
+        List<Map<String, Object>> trackingHistory = new ArrayList<>();
+        for (int i = 0; i < history; i++) {
+            Map<String, Object> event = new LinkedHashMap<>();
+            event.put("timestamp", LocalDateTime.of(2025, 3, 1, 8, 0).plusMinutes(i * 30L));
+            event.put("location", "Colombo hub");
+            event.put("status", "IN_TRANSIT");
+            event.put("description", "Scanned at sorting facility");
+            trackingHistory.add(event);
+        }
+        parcel.put("trackingHistory", trackingHistory);
+        parcel.put("createdAt", LocalDateTime.of(2025, 3, 1, 8, 0));
+        parcel.put("updatedAt", LocalDateTime.of(2025, 3, 1, 8, 0));
+        parcel.put("estimatedDelivery", LocalDateTime.of(2025, 3, 4, 8, 0));
+        return parcel;
+    }
+
+    private static Map<String, Object> address(String street, String city, String state, String zipCode) {
+        Map<String, Object> address = new LinkedHashMap<>();
+        address.put("street", street);
+        address.put("city", city);
+        address.put("state", state);
+        address.put("zipCode", zipCode);
+        address.put("country", "Sri Lanka");
+        return address;
+    }
+}
@@ -0,0 +1,51 @@
+package com.sparrow.consolidation_service.planner;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Run with: ./gradlew jmh
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BinPackerBenchmark {
+
+    @Param({"10000", "100000"})
+    private int parcels;
+
+    @Param({"false", "true"})
+    private boolean localSearch;
+
+    private double[] weights;
+    private double[] volumes;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(11);
+        weights = new double[parcels];
+        volumes = new double[parcels];
+        for (int i = 0; i < parcels; i++) {
+            weights[i] = 0.5 + random.nextDouble() * 50;
+            volumes[i] = 0.001 + random.nextDouble() * 0.5;
+        }
+    }
+
+    @Benchmark
+    public BinPacker.PackingResult pack() {
+        return BinPacker.pack(weights, volumes, 1000, 10, localSearch);
+    }
+}
@@ -0,0 +1,92 @@
+package com.sparrow.consolidation_service.repository;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.sparrow.consolidation_service.model.Parcel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// Per-parcel save loop (the old createConsolidation write path) against the single guarded updateMulti.
+// Needs a running MongoDB: ./gradlew jmh -Dbenchmark.mongo.uri=mongodb://localhost:27017
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParcelClaimBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int parcels;
+
+    private MongoClient client;
+    private MongoTemplate mongoTemplate;
+    private ParcelRepositoryImpl repository;
+    private List<Parcel> saved;
+    private List<String> ids;
+
+    @Setup(Level.Trial)
+    public void connect() {
+        client = MongoClients.create(System.getProperty("benchmark.mongo.uri", "mongodb://localhost:27017"));
+        mongoTemplate = new MongoTemplate(client, "consolidation_benchmark");
+        repository = new ParcelRepositoryImpl(mongoTemplate);
+    }
+
+    @Setup(Level.Invocation)
+    public void insertParcels() {
+        mongoTemplate.dropCollection(Parcel.class);
+        List<Parcel> batch = new ArrayList<>(parcels);
+        for (int i = 0; i < parcels; i++) {
+            Parcel parcel = new Parcel();
+            parcel.setTrackingNumber("TRK" + i);
+            parcel.setCustomerId("c-1");
+            parcel.setWeight(BigDecimal.ONE);
+            parcel.setVolume(BigDecimal.ONE);
+            parcel.setOrigin("Colombo");
+            parcel.setDestination("Kandy");
+            parcel.setStatus(Parcel.ParcelStatus.RECEIVED);
+            batch.add(parcel);
+        }
+        saved = new ArrayList<>(mongoTemplate.insertAll(batch));
+        ids = saved.stream().map(Parcel::getId).toList();
+    }
+
+    @TearDown(Level.Trial)
+    public void disconnect() {
+        mongoTemplate.getDb().drop();
+        client.close();
+    }
+
+    @Benchmark
+    public void saveEachParcel() {
+        for (Parcel parcel : saved) {
+            parcel.setStatus(Parcel.ParcelStatus.CONSOLIDATED);
+            parcel.setUpdatedAt(LocalDateTime.now());
+            mongoTemplate.save(parcel);
+        }
+    }
+
+    @Benchmark
+    public long claimWithUpdateMulti() {
+        return repository.claimForConsolidation(ids, UUID.randomUUID().toString());
+    }
+}
@@ -4,9 +4,11 @@ package com.sparrow.consolidation_service;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.data.mongodb.config.EnableMongoAuditing;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
 @EnableMongoAuditing
+@EnableScheduling
 public class ConsolidationServiceApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,34 @@
+package com.sparrow.consolidation_service.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+// Short-lived cache in front of the statistics aggregations. Dashboards poll every few seconds,
+// so within one TTL all of them share a single pipeline run per query.
+@Component
+public class ConsolidationStatsCache {
+
+    private final Cache<String, Object> cache;
+
+    public ConsolidationStatsCache(MeterRegistry meterRegistry,
+                                   @Value("${consolidation.stats.cache.ttl:5s}") Duration ttl) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(1_000)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "consolidationStats");
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T get(String key, Supplier<T> loader) {
+        return (T) cache.get(key, ignored -> loader.get());
+    }
+}
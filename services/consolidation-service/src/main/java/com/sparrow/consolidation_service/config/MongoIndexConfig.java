@@ -0,0 +1,70 @@
+package com.sparrow.consolidation_service.config;
+
+import com.sparrow.consolidation_service.model.ConsolidatedParcel;
+import com.sparrow.consolidation_service.model.IdempotencyRecord;
+import com.sparrow.consolidation_service.model.Parcel;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+// Creates the indexes declared on the entities and refuses to start if any of them is missing afterwards.
+// Spring Boot leaves auto-index-creation off, so without this the annotations alone have no effect.
+@Slf4j
+@Configuration
+@RequiredArgsConstructor
+public class MongoIndexConfig {
+
+    private static final List<Class<?>> INDEXED_ENTITIES = List.of(ConsolidatedParcel.class, IdempotencyRecord.class);
+    private static final List<Class<?>> VERSIONED_ENTITIES = List.of(ConsolidatedParcel.class, Parcel.class);
+
+    private final MongoTemplate mongoTemplate;
+
+    @EventListener(ContextRefreshedEvent.class)
+    public void ensureIndexes() {
+        IndexResolver resolver = IndexResolver.create(mongoTemplate.getConverter().getMappingContext());
+
+        for (Class<?> entity : INDEXED_ENTITIES) {
+            IndexOperations indexOps = mongoTemplate.indexOps(entity);
+
+            Set<String> declared = new LinkedHashSet<>();
+            resolver.resolveIndexFor(entity).forEach(definition -> declared.add(indexOps.createIndex(definition)));
+
+            Set<String> existing = indexOps.getIndexInfo().stream()
+                    .map(IndexInfo::getName)
+                    .collect(Collectors.toSet());
+            declared.removeAll(existing);
+
+            if (!declared.isEmpty()) {
+                throw new IllegalStateException("Missing indexes on " + entity.getSimpleName() + ": " + declared);
+            }
+            log.info("Verified indexes on {}: {}", entity.getSimpleName(), existing);
+        }
+    }
+
+    // Documents written before @Version was introduced have no version field, which Spring Data would
+    // take for a new entity and try to insert on save
+    @EventListener(ContextRefreshedEvent.class)
+    public void backfillVersions() {
+        for (Class<?> entity : VERSIONED_ENTITIES) {
+            long updated = mongoTemplate.updateMulti(Query.query(Criteria.where("version").exists(false)),
+                    new Update().set("version", 0L), entity).getModifiedCount();
+            if (updated > 0) {
+                log.info("Initialised version on {} {} documents", updated, entity.getSimpleName());
+            }
+        }
+    }
+}
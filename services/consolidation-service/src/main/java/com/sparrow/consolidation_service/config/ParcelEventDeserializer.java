@@ -0,0 +1,71 @@
+package com.sparrow.consolidation_service.config;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import org.apache.kafka.common.config.ConfigException;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+// Reads parcel-service events, which are Smile or JSON depending on the contentType header.
+// The target class is set per listener with the parcel.event.value.type consumer property.
+public class ParcelEventDeserializer implements Deserializer<Object> {
+
+    public static final String VALUE_TYPE_CONFIG = "parcel.event.value.type";
+    private static final String CONTENT_TYPE_HEADER = "contentType";
+    private static final String SMILE = "application/x-jackson-smile";
+
+    private final ObjectMapper jsonMapper = JsonMapper.builder()
+            .findAndAddModules()
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+            .build();
+    private final ObjectMapper smileMapper = SmileMapper.builder()
+            .findAndAddModules()
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+            .build();
+
+    private Class<?> valueType;
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        Object type = configs.get(VALUE_TYPE_CONFIG);
+        if (type == null) {
+            throw new ConfigException(VALUE_TYPE_CONFIG + " must be set");
+        }
+        try {
+            valueType = type instanceof Class ? (Class<?>) type : Class.forName(type.toString());
+        } catch (ClassNotFoundException e) {
+            throw new ConfigException(VALUE_TYPE_CONFIG, type, "Class not found");
+        }
+    }
+
+    @Override
+    public Object deserialize(String topic, byte[] data) {
+        return read(jsonMapper, data);
+    }
+
+    @Override
+    public Object deserialize(String topic, Headers headers, byte[] data) {
+        Header contentType = headers.lastHeader(CONTENT_TYPE_HEADER);
+        boolean smile = contentType != null && SMILE.equals(new String(contentType.value(), StandardCharsets.UTF_8));
+        return read(smile ? smileMapper : jsonMapper, data);
+    }
+
+    private Object read(ObjectMapper mapper, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        try {
+            return mapper.readValue(data, valueType);
+        } catch (IOException e) {
+            throw new SerializationException("Error deserializing parcel event", e);
+        }
+    }
+}
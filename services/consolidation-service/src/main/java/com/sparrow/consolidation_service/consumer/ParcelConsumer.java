@@ -1,7 +1,9 @@
 package com.sparrow.consolidation_service.consumer;
 
 import com.sparrow.consolidation_service.model.Parcel;
+import com.sparrow.consolidation_service.model.ParcelCreatedEvent;
 import com.sparrow.consolidation_service.service.ParcelService;
+import com.sparrow.consolidation_service.service.StreamingConsolidator;
 import lombok.RequiredArgsConstructor;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.stereotype.Component;
@@ -11,10 +13,20 @@ import org.springframework.stereotype.Component;
 public class ParcelConsumer {
 
     private final ParcelService parcelService;
+    private final StreamingConsolidator streamingConsolidator;
 
     @KafkaListener(topics = "parcel-updates", groupId = "parcel-consolidation-group")
     public void consumeParcelUpdate(Parcel parcel) {
         System.out.println("Received parcel update: " + parcel.getTrackingNumber());
         // Process the update as needed
     }
+
+    @KafkaListener(topics = "parcel-created", groupId = "parcel-consolidation-group",
+            properties = {
+                    "value.deserializer=com.sparrow.consolidation_service.config.ParcelEventDeserializer",
+                    "parcel.event.value.type=com.sparrow.consolidation_service.model.ParcelCreatedEvent"
+            })
+    public void consumeParcelCreated(ParcelCreatedEvent event) {
+        streamingConsolidator.accept(event);
+    }
 }
\ No newline at end of file
@@ -1,14 +1,27 @@
 package com.sparrow.consolidation_service.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sparrow.consolidation_service.dto.ConsolidationPlanReport;
+import com.sparrow.consolidation_service.dto.ConsolidationStats;
+import com.sparrow.consolidation_service.dto.CursorPage;
 import com.sparrow.consolidation_service.model.ConsolidatedParcel;
+import com.sparrow.consolidation_service.service.ConsolidationPlannerService;
 import com.sparrow.consolidation_service.service.ConsolidationService;
+import com.sparrow.consolidation_service.service.ConsolidationStatsService;
+import com.sparrow.consolidation_service.service.IdempotencyService;
+import com.sparrow.consolidation_service.util.ListingResponses;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api/consolidations")
@@ -17,19 +30,70 @@ import java.util.List;
 public class ConsolidationController {
 
     private final ConsolidationService consolidationService;
+    private final ConsolidationPlannerService consolidationPlannerService;
+    private final IdempotencyService idempotencyService;
+    private final ConsolidationStatsService consolidationStatsService;
+    private final ObjectMapper objectMapper;
 
     @PostMapping
     @Operation(summary = "Create a new consolidation")
     public ResponseEntity<ConsolidatedParcel> createConsolidation(
             @RequestParam String customerId,
-            @RequestBody List<String> parcelIds) {
-        return ResponseEntity.ok(consolidationService.createConsolidation(customerId, parcelIds));
+            @RequestBody List<String> parcelIds,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return ResponseEntity.ok(consolidationService.createConsolidation(customerId, parcelIds));
+        }
+        return ResponseEntity.ok(idempotencyService.execute("createConsolidation", idempotencyKey,
+                customerId + "|" + String.join(",", parcelIds),
+                () -> consolidationService.createConsolidation(customerId, parcelIds)));
+    }
+
+    @PostMapping("/plan")
+    @Operation(summary = "Plan consolidations for all received parcels, optionally creating them")
+    public ResponseEntity<ConsolidationPlanReport> planConsolidations(
+            @RequestParam(defaultValue = "false") boolean apply) {
+        return ResponseEntity.ok(consolidationPlannerService.plan(apply));
     }
 
     @GetMapping
-    @Operation(summary = "Get all consolidations")
-    public ResponseEntity<List<ConsolidatedParcel>> getAllConsolidations() {
-        return ResponseEntity.ok(consolidationService.getAllConsolidations());
+    @Operation(summary = "Get all consolidations", description = "Pages through all consolidations in id order; pass nextCursor back as cursor. fields limits the returned properties.")
+    public ResponseEntity<CursorPage<Object>> getAllConsolidations(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") int limit,
+            @RequestParam(required = false) String fields) {
+        Set<String> projection = ListingResponses.fields(fields);
+        return ResponseEntity.ok(consolidationService.getAllConsolidations(cursor, limit, projection)
+                .map(item -> ListingResponses.project(objectMapper, item, projection)));
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Stream all consolidations", description = "Streams all consolidations as NDJSON")
+    public ResponseEntity<StreamingResponseBody> streamAllConsolidations(@RequestParam(required = false) String fields) {
+        Set<String> projection = ListingResponses.fields(fields);
+        return ListingResponses.ndjson(objectMapper, () -> consolidationService.streamAllConsolidations(projection), projection);
+    }
+
+    @GetMapping("/stats/status")
+    @Operation(summary = "Count consolidations by status")
+    public ResponseEntity<List<ConsolidationStats.StatusCount>> getStatusCounts() {
+        return ResponseEntity.ok(consolidationStatsService.countsByStatus());
+    }
+
+    @GetMapping("/stats/lanes")
+    @Operation(summary = "Total weight and volume per lane per day (defaults to the last 7 days)")
+    public ResponseEntity<List<ConsolidationStats.LaneDayTotals>> getLaneTotals(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        LocalDate end = to != null ? to : LocalDate.now();
+        LocalDate start = from != null ? from : end.minusDays(6);
+        return ResponseEntity.ok(consolidationStatsService.laneTotalsByDay(start, end));
+    }
+
+    @GetMapping("/stats/fill")
+    @Operation(summary = "Average fill ratio of sealed consolidations")
+    public ResponseEntity<ConsolidationStats.FillRatio> getFillRatio() {
+        return ResponseEntity.ok(consolidationStatsService.averageFill());
     }
 
     @GetMapping("/customer/{customerId}")
@@ -1,15 +1,21 @@
 package com.sparrow.consolidation_service.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sparrow.consolidation_service.dto.CursorPage;
 import com.sparrow.consolidation_service.model.Parcel;
 import com.sparrow.consolidation_service.service.ParcelService;
+import com.sparrow.consolidation_service.util.ListingResponses;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api/parcels")
@@ -18,6 +24,7 @@ import java.util.List;
 public class ParcelController {
 
     private final ParcelService parcelService;
+    private final ObjectMapper objectMapper;
 
     @PostMapping
     @Operation(summary = "Create a new parcel")
@@ -26,9 +33,21 @@ public class ParcelController {
     }
 
     @GetMapping
-    @Operation(summary = "Get all parcels")
-    public ResponseEntity<List<Parcel>> getAllParcels() {
-        return ResponseEntity.ok(parcelService.getAllParcels());
+    @Operation(summary = "Get all parcels", description = "Pages through all parcels in id order; pass nextCursor back as cursor. fields limits the returned properties.")
+    public ResponseEntity<CursorPage<Object>> getAllParcels(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") int limit,
+            @RequestParam(required = false) String fields) {
+        Set<String> projection = ListingResponses.fields(fields);
+        return ResponseEntity.ok(parcelService.getAllParcels(cursor, limit, projection)
+                .map(item -> ListingResponses.project(objectMapper, item, projection)));
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Stream all parcels", description = "Streams all parcels as NDJSON")
+    public ResponseEntity<StreamingResponseBody> streamAllParcels(@RequestParam(required = false) String fields) {
+        Set<String> projection = ListingResponses.fields(fields);
+        return ListingResponses.ndjson(objectMapper, () -> parcelService.streamAllParcels(projection), projection);
     }
 
     @GetMapping("/{id}")
@@ -0,0 +1,37 @@
+package com.sparrow.consolidation_service.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Outcome of one planner run. Fill ratios are the per-consolidation share of the binding limit,
+// lowerBound is ceil(max(total weight / max weight, total volume / max volume)) per lane.
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ConsolidationPlanReport {
+    private boolean applied;
+    private int parcels;
+    private int unplaceable;
+    private int consolidations;
+    private int lowerBound;
+    private double averageFill;
+    private double averageWeightFill;
+    private double averageVolumeFill;
+    private long planningMillis;
+    private List<LaneReport> lanes = new ArrayList<>();
+    private List<String> consolidationIds;
+
+    @Data
+    public static class LaneReport {
+        private String origin;
+        private String destination;
+        private int parcels;
+        private int unplaceable;
+        private int consolidations;
+        private int lowerBound;
+        private double averageFill;
+        private double minFill;
+    }
+}
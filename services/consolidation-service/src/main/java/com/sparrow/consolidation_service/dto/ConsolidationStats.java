@@ -0,0 +1,36 @@
+package com.sparrow.consolidation_service.dto;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+// Result rows of the consolidation statistics aggregations
+public final class ConsolidationStats {
+
+    private ConsolidationStats() {
+    }
+
+    @Data
+    public static class StatusCount {
+        private String status;
+        private long count;
+    }
+
+    @Data
+    public static class LaneDayTotals {
+        private String origin;
+        private String destination;
+        private String day; // yyyy-MM-dd, UTC
+        private long consolidations;
+        private BigDecimal totalWeight;
+        private BigDecimal totalVolume;
+    }
+
+    @Data
+    public static class FillRatio {
+        private long consolidations;
+        private double averageFill;
+        private double averageWeightFill;
+        private double averageVolumeFill;
+    }
+}
@@ -3,6 +3,8 @@ package com.sparrow.consolidation_service.model;
 
 import lombok.Data;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
 import jakarta.validation.constraints.*;
 import java.math.BigDecimal;
@@ -11,10 +13,14 @@ import java.util.List;
 
 @Data
 @Document(collection = "consolidated_parcels")
+@CompoundIndex(name = "status_builder_idx", def = "{'status': 1, 'builderId': 1}")
 public class ConsolidatedParcel {
     @Id
     private String id;
 
+    @Version
+    private Long version;
+
     @NotBlank(message = "Consolidation ID is required")
     private String consolidationId;
 
@@ -39,10 +45,13 @@ public class ConsolidatedParcel {
     private String destination;
 
     private ConsolidationStatus status;
+    private String builderId; // instance that owns an OPEN consolidation
+    private LocalDateTime publishedAt; // parcel-consolidated acknowledged by Kafka; see ConsolidationPublisher
+    private LocalDateTime publishAttemptedAt;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
 
     public enum ConsolidationStatus {
-        PENDING, PROCESSING, COMPLETED, SHIPPED
+        OPEN, PENDING, PROCESSING, COMPLETED, SHIPPED
     }
 }
\ No newline at end of file
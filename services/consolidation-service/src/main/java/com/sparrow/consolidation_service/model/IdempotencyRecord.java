@@ -0,0 +1,28 @@
+package com.sparrow.consolidation_service.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+import java.time.LocalDateTime;
+
+// Result of a POST made with an Idempotency-Key header, kept so client retries get the same answer
+@Data
+@Document(collection = "idempotency_keys")
+public class IdempotencyRecord {
+    @Id
+    private String id; // operation + ":" + client key
+
+    private String requestHash;
+    private Status status;
+    private String owner; // attempt currently running the request; only it may extend, complete or release the key
+    private LocalDateTime leasedUntil; // extended while the request runs; past it the key may be taken over
+    private ConsolidatedParcel response;
+
+    @Indexed(name = "idempotency_expiry_idx", expireAfter = "24h")
+    private LocalDateTime createdAt;
+
+    public enum Status {
+        IN_PROGRESS, COMPLETED
+    }
+}
@@ -2,6 +2,7 @@ package com.sparrow.consolidation_service.model;
 
 import lombok.Data;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
 import org.springframework.data.mongodb.core.mapping.Document;
 import jakarta.validation.constraints.*;
 import java.math.BigDecimal;
@@ -13,6 +14,9 @@ public class Parcel {
     @Id
     private String id;
 
+    @Version
+    private Long version;
+
     @NotBlank(message = "Tracking number is required")
     private String trackingNumber;
 
@@ -25,7 +29,7 @@ public class Parcel {
 
     @NotNull(message = "Volume is required")
     @Positive(message = "Volume must be positive")
-    private BigDecimal volume;
+    private BigDecimal volume; // m³, the unit of consolidation.planner.max-volume
 
     @NotBlank(message = "Origin is required")
     private String origin;
@@ -34,6 +38,7 @@ public class Parcel {
     private String destination;
 
     private ParcelStatus status;
+    private String consolidationId;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
 
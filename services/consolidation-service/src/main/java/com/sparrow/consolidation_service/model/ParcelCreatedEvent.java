@@ -0,0 +1,20 @@
+package com.sparrow.consolidation_service.model;
+
+import lombok.Data;
+import java.time.LocalDateTime;
+
+// Payload of the parcel-created topic published by parcel-service
+@Data
+public class ParcelCreatedEvent {
+    private String eventId;
+    private String parcelId;
+    private String trackingNumber;
+    private String senderId;
+    private String recipientId;
+    private String origin;
+    private String destination;
+    private Double weight;
+    private Double volume;
+    private String status;
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,167 @@
+package com.sparrow.consolidation_service.planner;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Arrays;
+
+// Two-resource (weight, volume) bin packing over primitive arrays.
+// First-fit-decreasing ordered by the dominant resource, with first-fit lookups answered by a
+// max segment tree over remaining bin capacity, then an optional pass that tries to empty the
+// least-filled bins into the others.
+public final class BinPacker {
+
+    public static final int UNPLACED = -1;
+
+    private static final double EPS = 1e-9;
+
+    private BinPacker() {
+    }
+
+    public static PackingResult pack(double[] weights, double[] volumes,
+                                     double maxWeight, double maxVolume, boolean localSearch) {
+        if (weights.length != volumes.length) {
+            throw new IllegalArgumentException("weights and volumes must have the same length");
+        }
+        if (maxWeight <= 0 || maxVolume <= 0) {
+            throw new IllegalArgumentException("Bin limits must be positive");
+        }
+
+        int n = weights.length;
+        int[] binOf = new int[n];
+        Arrays.fill(binOf, UNPLACED);
+
+        // Sort key packs the quantised dominant share into the high bits and the index into the low bits,
+        // so a single primitive sort orders the items without boxing
+        long[] order = new long[n];
+        int placeable = 0;
+        int unplaced = 0;
+        for (int i = 0; i < n; i++) {
+            double w = weights[i];
+            double v = volumes[i];
+            if (!(w >= 0 && v >= 0) || w > maxWeight + EPS || v > maxVolume + EPS) {
+                unplaced++;
+                continue;
+            }
+            double share = Math.min(1.0, Math.max(w / maxWeight, v / maxVolume));
+            long quantised = (long) (share * Integer.MAX_VALUE);
+            order[placeable++] = (quantised << 32) | i;
+        }
+        Arrays.sort(order, 0, placeable);
+
+        CapacityTree tree = new CapacityTree(Math.max(placeable, 1), maxWeight, maxVolume);
+        int binCount = 0;
+        for (int k = placeable - 1; k >= 0; k--) {
+            int i = (int) order[k];
+            int bin = tree.firstFit(weights[i], volumes[i]);
+            tree.consume(bin, weights[i], volumes[i]);
+            binOf[i] = bin;
+            if (bin >= binCount) {
+                binCount = bin + 1;
+            }
+        }
+
+        if (localSearch && binCount > 1) {
+            binCount = evacuateSparseBins(weights, volumes, binOf, binCount, tree, maxWeight, maxVolume);
+        }
+
+        double[] binWeight = new double[binCount];
+        double[] binVolume = new double[binCount];
+        for (int i = 0; i < n; i++) {
+            if (binOf[i] != UNPLACED) {
+                binWeight[binOf[i]] += weights[i];
+                binVolume[binOf[i]] += volumes[i];
+            }
+        }
+        return new PackingResult(binOf, binCount, binWeight, binVolume, unplaced);
+    }
+
+    // Visits bins from the least to the most filled and moves all of a bin's items into other open bins
+    // when every one of them fits; otherwise the moves are rolled back. Returns the compacted bin count.
+    private static int evacuateSparseBins(double[] weights, double[] volumes, int[] binOf, int binCount,
+                                          CapacityTree tree, double maxWeight, double maxVolume) {
+        int n = binOf.length;
+        int[] head = new int[binCount];
+        int[] next = new int[n];
+        Arrays.fill(head, -1);
+        for (int i = 0; i < n; i++) {
+            if (binOf[i] != UNPLACED) {
+                next[i] = head[binOf[i]];
+                head[binOf[i]] = i;
+            }
+        }
+
+        // Unopened leaves must not receive items, otherwise an evacuation would just open a new bin
+        tree.closeFrom(binCount);
+
+        long[] byFill = new long[binCount];
+        for (int b = 0; b < binCount; b++) {
+            double fill = Math.max(1 - tree.remainingWeight(b) / maxWeight, 1 - tree.remainingVolume(b) / maxVolume);
+            byFill[b] = ((long) (Math.max(0, fill) * Integer.MAX_VALUE) << 32) | b;
+        }
+        Arrays.sort(byFill);
+
+        boolean[] emptied = new boolean[binCount];
+        int[] movedItems = new int[n];
+        int[] movedTargets = new int[n];
+        for (long entry : byFill) {
+            int bin = (int) entry;
+            double savedWeight = tree.remainingWeight(bin);
+            double savedVolume = tree.remainingVolume(bin);
+            tree.set(bin, -1, -1);
+
+            int moves = 0;
+            boolean evacuated = true;
+            for (int i = head[bin]; i != -1; i = next[i]) {
+                int target = tree.firstFit(weights[i], volumes[i]);
+                if (target < 0) {
+                    evacuated = false;
+                    break;
+                }
+                tree.consume(target, weights[i], volumes[i]);
+                movedItems[moves] = i;
+                movedTargets[moves++] = target;
+            }
+
+            if (evacuated) {
+                // The emptied bin stays closed in the tree so nothing is moved back into it
+                head[bin] = -1;
+                emptied[bin] = true;
+                for (int m = 0; m < moves; m++) {
+                    int i = movedItems[m];
+                    int target = movedTargets[m];
+                    binOf[i] = target;
+                    next[i] = head[target];
+                    head[target] = i;
+                }
+            } else {
+                for (int m = 0; m < moves; m++) {
+                    tree.consume(movedTargets[m], -weights[movedItems[m]], -volumes[movedItems[m]]);
+                }
+                tree.set(bin, savedWeight, savedVolume);
+            }
+        }
+
+        int[] remap = new int[binCount];
+        int compacted = 0;
+        for (int b = 0; b < binCount; b++) {
+            remap[b] = emptied[b] ? UNPLACED : compacted++;
+        }
+        for (int i = 0; i < n; i++) {
+            if (binOf[i] != UNPLACED) {
+                binOf[i] = remap[binOf[i]];
+            }
+        }
+        return compacted;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class PackingResult {
+        private final int[] binOf; // bin index per input item, or UNPLACED
+        private final int binCount;
+        private final double[] binWeight;
+        private final double[] binVolume;
+        private final int unplaced;
+    }
+}
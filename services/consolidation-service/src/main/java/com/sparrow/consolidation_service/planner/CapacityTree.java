@@ -0,0 +1,94 @@
+package com.sparrow.consolidation_service.planner;
+
+import java.util.Arrays;
+
+// Max segment tree over the remaining weight and volume of each bin. A subtree is only descended
+// when both of its maxima can hold the item, so first-fit lookups skip full regions of bins.
+final class CapacityTree {
+
+    private static final double EPS = 1e-9;
+
+    private final int size;
+    private final double[] maxWeight;
+    private final double[] maxVolume;
+
+    CapacityTree(int bins, double binWeight, double binVolume) {
+        int capacity = 1;
+        while (capacity < bins) {
+            capacity <<= 1;
+        }
+        size = capacity;
+        maxWeight = new double[2 * size];
+        maxVolume = new double[2 * size];
+        Arrays.fill(maxWeight, size, size + bins, binWeight);
+        Arrays.fill(maxVolume, size, size + bins, binVolume);
+        Arrays.fill(maxWeight, size + bins, 2 * size, -1);
+        Arrays.fill(maxVolume, size + bins, 2 * size, -1);
+        for (int node = size - 1; node >= 1; node--) {
+            pull(node);
+        }
+    }
+
+    // Leftmost bin that can take the item, or -1
+    int firstFit(double weight, double volume) {
+        if (!fits(1, weight, volume)) {
+            return -1;
+        }
+        return descend(1, weight, volume);
+    }
+
+    void consume(int bin, double weight, double volume) {
+        set(bin, maxWeight[size + bin] - weight, maxVolume[size + bin] - volume);
+    }
+
+    void set(int bin, double weight, double volume) {
+        int node = size + bin;
+        maxWeight[node] = weight;
+        maxVolume[node] = volume;
+        for (node >>= 1; node >= 1; node >>= 1) {
+            pull(node);
+        }
+    }
+
+    void closeFrom(int bin) {
+        for (int b = bin; b < size; b++) {
+            maxWeight[size + b] = -1;
+            maxVolume[size + b] = -1;
+        }
+        for (int node = size - 1; node >= 1; node--) {
+            pull(node);
+        }
+    }
+
+    double remainingWeight(int bin) {
+        return maxWeight[size + bin];
+    }
+
+    double remainingVolume(int bin) {
+        return maxVolume[size + bin];
+    }
+
+    private int descend(int node, double weight, double volume) {
+        if (node >= size) {
+            return node - size;
+        }
+        int left = node << 1;
+        if (fits(left, weight, volume)) {
+            int found = descend(left, weight, volume);
+            if (found >= 0) {
+                return found;
+            }
+        }
+        int right = left | 1;
+        return fits(right, weight, volume) ? descend(right, weight, volume) : -1;
+    }
+
+    private boolean fits(int node, double weight, double volume) {
+        return maxWeight[node] + EPS >= weight && maxVolume[node] + EPS >= volume;
+    }
+
+    private void pull(int node) {
+        maxWeight[node] = Math.max(maxWeight[node << 1], maxWeight[(node << 1) | 1]);
+        maxVolume[node] = Math.max(maxVolume[node << 1], maxVolume[(node << 1) | 1]);
+    }
+}
@@ -12,4 +12,5 @@ public interface ConsolidatedParcelRepository extends MongoRepository<Consolidat
     List<ConsolidatedParcel> findByCustomerId(String customerId);
     List<ConsolidatedParcel> findByStatus(ConsolidatedParcel.ConsolidationStatus status);
     Optional<ConsolidatedParcel> findByConsolidationId(String consolidationId);
+    List<ConsolidatedParcel> findByStatusAndBuilderId(ConsolidatedParcel.ConsolidationStatus status, String builderId);
 }
\ No newline at end of file
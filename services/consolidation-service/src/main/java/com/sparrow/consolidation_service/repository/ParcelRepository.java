@@ -8,7 +8,7 @@ import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface ParcelRepository extends MongoRepository<Parcel, String> {
+public interface ParcelRepository extends MongoRepository<Parcel, String>, ParcelRepositoryCustom {
     List<Parcel> findByCustomerId(String customerId);
     List<Parcel> findByStatus(Parcel.ParcelStatus status);
     Optional<Parcel> findByTrackingNumber(String trackingNumber);
@@ -0,0 +1,25 @@
+package com.sparrow.consolidation_service.repository;
+
+import com.sparrow.consolidation_service.model.Parcel;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+public interface ParcelRepositoryCustom {
+
+    // Marks every listed parcel that is not yet CONSOLIDATED as belonging to the consolidation, in one
+    // updateMulti; returns how many were claimed
+    long claimForConsolidation(Collection<String> parcelIds, String consolidationId);
+
+    // Single-parcel claim for parcels streamed from parcel-created, which may not be stored here yet: the same
+    // status guard, except that a missing parcel is inserted already claimed and claiming a parcel again for the
+    // consolidation that holds it succeeds. Returns false when another consolidation has it.
+    boolean claimForConsolidation(Parcel parcel, String consolidationId);
+
+    // IDs among parcelIds that are not held by the given consolidation
+    List<String> findNotClaimedBy(Collection<String> parcelIds, String consolidationId);
+
+    // Undoes a partial claim, restoring each parcel's status from before the claim
+    void releaseClaim(String consolidationId, Map<Parcel.ParcelStatus, List<String>> previousStatuses);
+}
@@ -0,0 +1,89 @@
+package com.sparrow.consolidation_service.repository;
+
+import com.sparrow.consolidation_service.model.Parcel;
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+@RequiredArgsConstructor
+public class ParcelRepositoryImpl implements ParcelRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public long claimForConsolidation(Collection<String> parcelIds, String consolidationId) {
+        // The status guard is evaluated per document by the server, so two concurrent claims can never
+        // both take the same parcel
+        Query query = Query.query(Criteria.where("_id").in(parcelIds)
+                .and("status").ne(Parcel.ParcelStatus.CONSOLIDATED));
+        Update update = new Update()
+                .set("status", Parcel.ParcelStatus.CONSOLIDATED)
+                .set("consolidationId", consolidationId)
+                .set("updatedAt", LocalDateTime.now())
+                .inc("version", 1);
+        return mongoTemplate.updateMulti(query, update, Parcel.class).getModifiedCount();
+    }
+
+    @Override
+    public boolean claimForConsolidation(Parcel parcel, String consolidationId) {
+        Query query = Query.query(Criteria.where("_id").is(parcel.getId()).orOperator(
+                Criteria.where("status").ne(Parcel.ParcelStatus.CONSOLIDATED),
+                Criteria.where("consolidationId").is(consolidationId)));
+        LocalDateTime now = LocalDateTime.now();
+        Update update = new Update()
+                .set("status", Parcel.ParcelStatus.CONSOLIDATED)
+                .set("consolidationId", consolidationId)
+                .set("updatedAt", now)
+                .inc("version", 1)
+                .setOnInsert("trackingNumber", parcel.getTrackingNumber())
+                .setOnInsert("customerId", parcel.getCustomerId())
+                .setOnInsert("weight", parcel.getWeight())
+                .setOnInsert("volume", parcel.getVolume())
+                .setOnInsert("origin", parcel.getOrigin())
+                .setOnInsert("destination", parcel.getDestination())
+                .setOnInsert("createdAt", now);
+        try {
+            // Either the guard matched and the parcel is claimed, or nothing matched and it was inserted claimed
+            mongoTemplate.upsert(query, update, Parcel.class);
+            return true;
+        } catch (DuplicateKeyException e) {
+            // The parcel exists but failed the guard, so the upsert tried to insert it a second time
+            return false;
+        }
+    }
+
+    @Override
+    public List<String> findNotClaimedBy(Collection<String> parcelIds, String consolidationId) {
+        Query query = Query.query(Criteria.where("_id").in(parcelIds).and("consolidationId").ne(consolidationId));
+        query.fields().include("_id");
+        return mongoTemplate.find(query, Parcel.class).stream().map(Parcel::getId).toList();
+    }
+
+    @Override
+    public void releaseClaim(String consolidationId, Map<Parcel.ParcelStatus, List<String>> previousStatuses) {
+        BulkOperations bulkOps = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Parcel.class);
+        LocalDateTime now = LocalDateTime.now();
+        previousStatuses.forEach((status, ids) -> {
+            Query query = Query.query(Criteria.where("_id").in(ids).and("consolidationId").is(consolidationId));
+            Update update = new Update().unset("consolidationId").set("updatedAt", now).inc("version", 1);
+            if (status != null) {
+                update.set("status", status);
+            } else {
+                update.unset("status");
+            }
+            bulkOps.updateMulti(query, update);
+        });
+        if (!previousStatuses.isEmpty()) {
+            bulkOps.execute();
+        }
+    }
+}
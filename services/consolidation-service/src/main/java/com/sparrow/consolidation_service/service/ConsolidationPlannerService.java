@@ -0,0 +1,155 @@
+package com.sparrow.consolidation_service.service;
+
+import com.sparrow.consolidation_service.dto.ConsolidationPlanReport;
+import com.sparrow.consolidation_service.model.ConsolidatedParcel;
+import com.sparrow.consolidation_service.model.Parcel;
+import com.sparrow.consolidation_service.planner.BinPacker;
+import com.sparrow.consolidation_service.repository.ParcelRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ConsolidationPlannerService {
+
+    private final ParcelRepository parcelRepository;
+    private final ConsolidationService consolidationService;
+
+    @Value("${consolidation.planner.max-weight:1000}")
+    private double maxWeight;
+
+    @Value("${consolidation.planner.max-volume:10}")
+    private double maxVolume;
+
+    @Value("${consolidation.planner.local-search:true}")
+    private boolean localSearch;
+
+    // Packs every RECEIVED parcel into consolidations per origin/destination lane.
+    // With apply=false only the report is produced; nothing is written.
+    public ConsolidationPlanReport plan(boolean apply) {
+        Map<String, List<Parcel>> lanes = new LinkedHashMap<>();
+        for (Parcel parcel : parcelRepository.findByStatus(Parcel.ParcelStatus.RECEIVED)) {
+            lanes.computeIfAbsent(parcel.getOrigin() + "\u0000" + parcel.getDestination(), key -> new ArrayList<>())
+                    .add(parcel);
+        }
+
+        long start = System.nanoTime();
+        ConsolidationPlanReport report = new ConsolidationPlanReport();
+        List<List<Parcel>> plannedGroups = new ArrayList<>();
+        double fillSum = 0;
+        double weightFillSum = 0;
+        double volumeFillSum = 0;
+
+        for (List<Parcel> laneParcels : lanes.values()) {
+            int n = laneParcels.size();
+            double[] weights = new double[n];
+            double[] volumes = new double[n];
+            double totalWeight = 0;
+            double totalVolume = 0;
+            for (int i = 0; i < n; i++) {
+                Parcel parcel = laneParcels.get(i);
+                weights[i] = parcel.getWeight() != null ? parcel.getWeight().doubleValue() : Double.NaN;
+                volumes[i] = parcel.getVolume() != null ? parcel.getVolume().doubleValue() : Double.NaN;
+                if (weights[i] <= maxWeight && volumes[i] <= maxVolume) {
+                    totalWeight += weights[i];
+                    totalVolume += volumes[i];
+                }
+            }
+
+            BinPacker.PackingResult result = BinPacker.pack(weights, volumes, maxWeight, maxVolume, localSearch);
+
+            ConsolidationPlanReport.LaneReport lane = new ConsolidationPlanReport.LaneReport();
+            lane.setOrigin(laneParcels.get(0).getOrigin());
+            lane.setDestination(laneParcels.get(0).getDestination());
+            lane.setParcels(n);
+            lane.setUnplaceable(result.getUnplaced());
+            lane.setConsolidations(result.getBinCount());
+            lane.setLowerBound((int) Math.ceil(Math.max(totalWeight / maxWeight, totalVolume / maxVolume) - 1e-9));
+
+            double laneFillSum = 0;
+            double minFill = result.getBinCount() > 0 ? 1 : 0;
+            for (int b = 0; b < result.getBinCount(); b++) {
+                double weightFill = result.getBinWeight()[b] / maxWeight;
+                double volumeFill = result.getBinVolume()[b] / maxVolume;
+                double fill = Math.max(weightFill, volumeFill);
+                laneFillSum += fill;
+                minFill = Math.min(minFill, fill);
+                weightFillSum += weightFill;
+                volumeFillSum += volumeFill;
+            }
+            fillSum += laneFillSum;
+            lane.setAverageFill(result.getBinCount() > 0 ? laneFillSum / result.getBinCount() : 0);
+            lane.setMinFill(minFill);
+            report.getLanes().add(lane);
+
+            report.setParcels(report.getParcels() + n);
+            report.setUnplaceable(report.getUnplaceable() + result.getUnplaced());
+            report.setConsolidations(report.getConsolidations() + result.getBinCount());
+            report.setLowerBound(report.getLowerBound() + lane.getLowerBound());
+
+            if (apply) {
+                plannedGroups.addAll(groupByBin(laneParcels, result));
+            }
+        }
+
+        int consolidations = report.getConsolidations();
+        report.setAverageFill(consolidations > 0 ? fillSum / consolidations : 0);
+        report.setAverageWeightFill(consolidations > 0 ? weightFillSum / consolidations : 0);
+        report.setAverageVolumeFill(consolidations > 0 ? volumeFillSum / consolidations : 0);
+        report.setPlanningMillis((System.nanoTime() - start) / 1_000_000);
+        log.info("Planned {} parcels across {} lanes into {} consolidations (lower bound {}) in {} ms",
+                report.getParcels(), lanes.size(), consolidations, report.getLowerBound(), report.getPlanningMillis());
+
+        if (apply) {
+            List<String> consolidationIds = new ArrayList<>(plannedGroups.size());
+            for (List<Parcel> group : plannedGroups) {
+                try {
+                    ConsolidatedParcel consolidation = consolidationService.consolidate(sharedCustomerId(group), group);
+                    consolidationIds.add(consolidation.getId());
+                } catch (ResponseStatusException e) {
+                    // Parcels consolidated by a concurrent request since the plan was computed
+                    log.warn("Skipping planned consolidation for {} -> {}: {}", group.get(0).getOrigin(),
+                            group.get(0).getDestination(), e.getReason());
+                }
+            }
+            report.setConsolidationIds(consolidationIds);
+            report.setApplied(true);
+        }
+        return report;
+    }
+
+    private List<List<Parcel>> groupByBin(List<Parcel> parcels, BinPacker.PackingResult result) {
+        List<List<Parcel>> groups = new ArrayList<>(result.getBinCount());
+        for (int b = 0; b < result.getBinCount(); b++) {
+            groups.add(new ArrayList<>());
+        }
+        int[] binOf = result.getBinOf();
+        for (int i = 0; i < binOf.length; i++) {
+            if (binOf[i] != BinPacker.UNPLACED) {
+                groups.get(binOf[i]).add(parcels.get(i));
+            }
+        }
+        return groups;
+    }
+
+    // A planned consolidation may mix customers; it is only attributed when all parcels share one
+    private String sharedCustomerId(List<Parcel> parcels) {
+        String customerId = parcels.get(0).getCustomerId();
+        for (Parcel parcel : parcels) {
+            if (!Objects.equals(customerId, parcel.getCustomerId())) {
+                return null;
+            }
+        }
+        return customerId;
+    }
+}
@@ -0,0 +1,75 @@
+package com.sparrow.consolidation_service.service;
+
+import com.sparrow.consolidation_service.model.ConsolidatedParcel;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+// Sends parcel-consolidated for stored PENDING consolidations and records the broker's acknowledgement on the
+// document. A crash or a failed send after the consolidation was stored leaves publishedAt unset, and the sweep
+// sends it again; consumers upsert by consolidation id, so a resend is harmless.
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ConsolidationPublisher {
+
+    static final String TOPIC = "parcel-consolidated";
+
+    private final MongoTemplate mongoTemplate;
+    private final KafkaProducerService kafkaProducerService;
+
+    @Value("${consolidation.publish.resend-after:PT1M}")
+    private Duration resendAfter;
+
+    @Value("${consolidation.publish.resend-batch-size:100}")
+    private int resendBatchSize;
+
+    public void publish(ConsolidatedParcel consolidation) {
+        kafkaProducerService.send(TOPIC, consolidation.getId(), consolidation).whenComplete((result, ex) -> {
+            if (ex == null) {
+                markPublished(consolidation.getId());
+            }
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${consolidation.publish.sweep-interval-ms:30000}")
+    public void republishUnacknowledged() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime cutoff = now.minus(resendAfter);
+        for (int i = 0; i < resendBatchSize; i++) {
+            // Taking each consolidation with a findAndModify keeps replicas from resending the same one, and the
+            // attempt time holds it back for another resend-after in case this send fails too
+            Query query = Query.query(Criteria.where("status").is(ConsolidatedParcel.ConsolidationStatus.PENDING)
+                    .and("publishedAt").exists(false)
+                    .and("updatedAt").lt(cutoff)
+                    .orOperator(Criteria.where("publishAttemptedAt").exists(false),
+                            Criteria.where("publishAttemptedAt").lt(cutoff)));
+            ConsolidatedParcel due = mongoTemplate.findAndModify(query,
+                    Update.update("publishAttemptedAt", now), ConsolidatedParcel.class);
+            if (due == null) {
+                return;
+            }
+            log.warn("Resending parcel-consolidated for consolidation {}, not acknowledged since {}",
+                    due.getConsolidationId(), due.getUpdatedAt());
+            publish(due);
+        }
+    }
+
+    private void markPublished(String id) {
+        try {
+            mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(id)),
+                    Update.update("publishedAt", LocalDateTime.now()), ConsolidatedParcel.class);
+        } catch (RuntimeException e) {
+            log.warn("Could not record publication of consolidation {}; it will be sent again: {}", id, e.getMessage());
+        }
+    }
+}
@@ -1,17 +1,26 @@
 package com.sparrow.consolidation_service.service;
 
 
+import com.sparrow.consolidation_service.dto.CursorPage;
 import com.sparrow.consolidation_service.model.ConsolidatedParcel;
 import com.sparrow.consolidation_service.model.Parcel;
 import com.sparrow.consolidation_service.repository.ConsolidatedParcelRepository;
 import com.sparrow.consolidation_service.repository.ParcelRepository;
+import com.sparrow.consolidation_service.util.OptimisticRetry;
 import lombok.RequiredArgsConstructor;
-import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
@@ -19,7 +28,9 @@ public class ConsolidationService {
 
     private final ConsolidatedParcelRepository consolidatedParcelRepository;
     private final ParcelRepository parcelRepository;
-    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final KafkaProducerService kafkaProducerService;
+    private final ConsolidationPublisher consolidationPublisher;
+    private final ListingService listingService;
 
     public ConsolidatedParcel createConsolidation(String customerId, List<String> parcelIds) {
         List<Parcel> parcels = parcelRepository.findAllById(parcelIds);
@@ -28,6 +39,19 @@ public class ConsolidationService {
             throw new RuntimeException("No parcels found for the provided IDs");
         }
 
+        return consolidate(customerId, parcels);
+    }
+
+    public ConsolidatedParcel consolidate(String customerId, List<Parcel> parcels) {
+        List<String> parcelIds = parcels.stream().map(Parcel::getId).toList();
+        List<String> alreadyConsolidated = parcels.stream()
+                .filter(parcel -> parcel.getStatus() == Parcel.ParcelStatus.CONSOLIDATED)
+                .map(Parcel::getId)
+                .toList();
+        if (!alreadyConsolidated.isEmpty()) {
+            throw alreadyConsolidated(alreadyConsolidated);
+        }
+
         // Calculate totals
         BigDecimal totalWeight = parcels.stream()
                 .map(Parcel::getWeight)
@@ -49,40 +73,57 @@ public class ConsolidationService {
         consolidation.setCreatedAt(LocalDateTime.now());
         consolidation.setUpdatedAt(LocalDateTime.now());
 
-        ConsolidatedParcel savedConsolidation = consolidatedParcelRepository.save(consolidation);
+        // Claim all parcels in one guarded updateMulti before the consolidation exists; if a concurrent
+        // request got to any of them first, hand back the ones this request took and reject it
+        long claimed = parcelRepository.claimForConsolidation(parcelIds, consolidation.getConsolidationId());
+        if (claimed < parcelIds.size()) {
+            List<String> conflicts = parcelRepository.findNotClaimedBy(parcelIds, consolidation.getConsolidationId());
+            parcelRepository.releaseClaim(consolidation.getConsolidationId(), previousStatuses(parcels));
+            throw alreadyConsolidated(conflicts);
+        }
 
-        // Update parcel statuses
-        parcels.forEach(parcel -> {
-            parcel.setStatus(Parcel.ParcelStatus.CONSOLIDATED);
-            parcel.setUpdatedAt(LocalDateTime.now());
-            parcelRepository.save(parcel);
-        });
+        ConsolidatedParcel savedConsolidation = consolidatedParcelRepository.save(consolidation);
 
-        // Send Kafka event
-        kafkaTemplate.send("parcel-consolidated", savedConsolidation.getId(), savedConsolidation);
+        // Send Kafka event; resent by ConsolidationPublisher until the broker acknowledges it
+        consolidationPublisher.publish(savedConsolidation);
 
         return savedConsolidation;
     }
 
-    public List<ConsolidatedParcel> getAllConsolidations() {
-        return consolidatedParcelRepository.findAll();
+    public CursorPage<ConsolidatedParcel> getAllConsolidations(String cursor, int limit, Set<String> fields) {
+        return listingService.page(ConsolidatedParcel.class, cursor, limit, fields);
+    }
+
+    public Stream<ConsolidatedParcel> streamAllConsolidations(Set<String> fields) {
+        return listingService.stream(ConsolidatedParcel.class, fields);
     }
 
     public ConsolidatedParcel updateConsolidationStatus(String id, ConsolidatedParcel.ConsolidationStatus status) {
-        return consolidatedParcelRepository.findById(id).map(consolidation -> {
+        ConsolidatedParcel updated = OptimisticRetry.run(() -> consolidatedParcelRepository.findById(id).map(consolidation -> {
             consolidation.setStatus(status);
             consolidation.setUpdatedAt(LocalDateTime.now());
+            return consolidatedParcelRepository.save(consolidation);
+        }).orElseThrow(() -> new RuntimeException("Consolidation not found with id: " + id)));
 
-            ConsolidatedParcel updated = consolidatedParcelRepository.save(consolidation);
+        // Send status update event
+        kafkaProducerService.send("consolidation-status", updated.getId(), updated);
 
-            // Send status update event
-            kafkaTemplate.send("consolidation-status", updated.getId(), updated);
-
-            return updated;
-        }).orElseThrow(() -> new RuntimeException("Consolidation not found with id: " + id));
+        return updated;
     }
 
     public List<ConsolidatedParcel> getConsolidationsByCustomerId(String customerId) {
         return consolidatedParcelRepository.findByCustomerId(customerId);
     }
+
+    private Map<Parcel.ParcelStatus, List<String>> previousStatuses(List<Parcel> parcels) {
+        Map<Parcel.ParcelStatus, List<String>> byStatus = new HashMap<>();
+        for (Parcel parcel : parcels) {
+            byStatus.computeIfAbsent(parcel.getStatus(), status -> new ArrayList<>()).add(parcel.getId());
+        }
+        return byStatus;
+    }
+
+    private ResponseStatusException alreadyConsolidated(List<String> parcelIds) {
+        return new ResponseStatusException(HttpStatus.CONFLICT, "Parcels already consolidated: " + parcelIds);
+    }
 }
@@ -0,0 +1,98 @@
+package com.sparrow.consolidation_service.service;
+
+import com.sparrow.consolidation_service.cache.ConsolidationStatsCache;
+import com.sparrow.consolidation_service.dto.ConsolidationStats;
+import com.sparrow.consolidation_service.model.ConsolidatedParcel;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AccumulatorOperators;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.ArithmeticOperators;
+import org.springframework.data.mongodb.core.aggregation.ConvertOperators;
+import org.springframework.data.mongodb.core.aggregation.DateOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.List;
+
+// Dashboard statistics computed by Mongo aggregation pipelines instead of loading every consolidation.
+// Weights and volumes are stored as BigDecimal strings, hence the $toDecimal/$toDouble conversions.
+@Service
+@RequiredArgsConstructor
+public class ConsolidationStatsService {
+
+    private static final String COLLECTION = "consolidated_parcels";
+
+    private final MongoTemplate mongoTemplate;
+    private final ConsolidationStatsCache statsCache;
+
+    @Value("${consolidation.planner.max-weight:1000}")
+    private double maxWeight;
+
+    @Value("${consolidation.planner.max-volume:10}")
+    private double maxVolume;
+
+    public List<ConsolidationStats.StatusCount> countsByStatus() {
+        return statsCache.get("status", () -> {
+            Aggregation aggregation = Aggregation.newAggregation(
+                    Aggregation.group("status").count().as("count"),
+                    Aggregation.project("count").and("_id").as("status").andExclude("_id"),
+                    Aggregation.sort(Sort.Direction.ASC, "status"));
+            return mongoTemplate.aggregate(aggregation, COLLECTION, ConsolidationStats.StatusCount.class)
+                    .getMappedResults();
+        });
+    }
+
+    // Totals per origin/destination lane per (UTC) day of creation, for days in [from, to]
+    public List<ConsolidationStats.LaneDayTotals> laneTotalsByDay(LocalDate from, LocalDate to) {
+        return statsCache.get("lanes:" + from + ":" + to, () -> {
+            Aggregation aggregation = Aggregation.newAggregation(
+                    Aggregation.match(Criteria.where("createdAt")
+                            .gte(from.atStartOfDay())
+                            .lt(to.plusDays(1).atStartOfDay())),
+                    Aggregation.project("origin", "destination")
+                            .and(DateOperators.DateToString.dateOf("createdAt").toString("%Y-%m-%d")).as("day")
+                            .and(ConvertOperators.ToDecimal.toDecimal("$totalWeight")).as("weight")
+                            .and(ConvertOperators.ToDecimal.toDecimal("$totalVolume")).as("volume"),
+                    Aggregation.group("origin", "destination", "day")
+                            .count().as("consolidations")
+                            .sum("weight").as("totalWeight")
+                            .sum("volume").as("totalVolume"),
+                    Aggregation.project("origin", "destination", "day", "consolidations", "totalWeight", "totalVolume")
+                            .andExclude("_id"),
+                    Aggregation.sort(Sort.by("day", "origin", "destination")));
+            return mongoTemplate.aggregate(aggregation, COLLECTION, ConsolidationStats.LaneDayTotals.class)
+                    .getMappedResults();
+        });
+    }
+
+    // Fill is the share of the binding limit, max(weight / max weight, volume / max volume);
+    // OPEN buckets are still filling and left out
+    public ConsolidationStats.FillRatio averageFill() {
+        return statsCache.get("fill", () -> {
+            Aggregation aggregation = Aggregation.newAggregation(
+                    Aggregation.match(Criteria.where("status").ne(ConsolidatedParcel.ConsolidationStatus.OPEN.name())),
+                    Aggregation.project()
+                            .and(ArithmeticOperators.Divide.valueOf(ConvertOperators.ToDouble.toDouble("$totalWeight"))
+                                    .divideBy(maxWeight)).as("weightFill")
+                            .and(ArithmeticOperators.Divide.valueOf(ConvertOperators.ToDouble.toDouble("$totalVolume"))
+                                    .divideBy(maxVolume)).as("volumeFill"),
+                    Aggregation.project("weightFill", "volumeFill")
+                            .and(AccumulatorOperators.Max.maxOf("weightFill").and("volumeFill")).as("fill"),
+                    Aggregation.group()
+                            .count().as("consolidations")
+                            .avg("fill").as("averageFill")
+                            .avg("weightFill").as("averageWeightFill")
+                            .avg("volumeFill").as("averageVolumeFill"),
+                    Aggregation.project("consolidations", "averageFill", "averageWeightFill", "averageVolumeFill")
+                            .andExclude("_id"));
+            ConsolidationStats.FillRatio result = mongoTemplate
+                    .aggregate(aggregation, COLLECTION, ConsolidationStats.FillRatio.class)
+                    .getUniqueMappedResult();
+            return result != null ? result : new ConsolidationStats.FillRatio();
+        });
+    }
+}
@@ -0,0 +1,148 @@
+package com.sparrow.consolidation_service.service;
+
+import com.sparrow.consolidation_service.model.ConsolidatedParcel;
+import com.sparrow.consolidation_service.model.IdempotencyRecord;
+import com.sparrow.consolidation_service.util.OptimisticRetry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.UUID;
+import java.util.concurrent.ScheduledFuture;
+import java.util.function.Supplier;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class IdempotencyService {
+
+    private static final int RESERVE_ATTEMPTS = OptimisticRetry.DEFAULT_ATTEMPTS;
+
+    private final MongoTemplate mongoTemplate;
+    private final TaskScheduler taskScheduler;
+
+    // An IN_PROGRESS record whose lease ran out is treated as left behind by a crashed request. The running request
+    // renews the lease every third of it, so a slow request keeps its key and is not run a second time.
+    @Value("${consolidation.idempotency.lease:PT1M}")
+    private Duration lease;
+
+    // Runs the work once per key. The key is reserved with an insert on _id, so concurrent retries
+    // race on the unique index rather than on the work; a failed attempt releases the key.
+    public ConsolidatedParcel execute(String operation, String key, String request, Supplier<ConsolidatedParcel> work) {
+        String id = operation + ":" + key;
+        String requestHash = hash(request);
+        String owner = UUID.randomUUID().toString();
+
+        for (int attempt = 1; !reserve(id, requestHash, owner); attempt++) {
+            IdempotencyRecord existing = mongoTemplate.findById(id, IdempotencyRecord.class);
+            if (existing == null) {
+                // Expired or released between the insert and the read; reserve again while attempts last
+                if (attempt >= RESERVE_ATTEMPTS) {
+                    throw new ResponseStatusException(HttpStatus.CONFLICT,
+                            "Idempotency-Key kept changing hands, gave up after " + attempt + " attempts");
+                }
+                continue;
+            }
+            if (!requestHash.equals(existing.getRequestHash())) {
+                throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY,
+                        "Idempotency-Key was already used with a different request");
+            }
+            if (existing.getStatus() == IdempotencyRecord.Status.COMPLETED) {
+                return existing.getResponse();
+            }
+            if (!takeOverAbandoned(id, owner)) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT,
+                        "A request with this Idempotency-Key is still being processed");
+            }
+            break;
+        }
+
+        ConsolidatedParcel response;
+        ScheduledFuture<?> renewal = taskScheduler.scheduleAtFixedRate(() -> renew(id, owner), lease.dividedBy(3));
+        try {
+            response = work.get();
+        } catch (RuntimeException e) {
+            mongoTemplate.remove(held(id, owner), IdempotencyRecord.class);
+            throw e;
+        } finally {
+            renewal.cancel(false);
+        }
+
+        mongoTemplate.updateFirst(held(id, owner),
+                new Update().set("status", IdempotencyRecord.Status.COMPLETED).set("response", response)
+                        .unset("leasedUntil"),
+                IdempotencyRecord.class);
+        return response;
+    }
+
+    private boolean reserve(String id, String requestHash, String owner) {
+        LocalDateTime now = LocalDateTime.now();
+        IdempotencyRecord record = new IdempotencyRecord();
+        record.setId(id);
+        record.setRequestHash(requestHash);
+        record.setStatus(IdempotencyRecord.Status.IN_PROGRESS);
+        record.setOwner(owner);
+        record.setLeasedUntil(now.plus(lease));
+        record.setCreatedAt(now);
+        try {
+            mongoTemplate.insert(record);
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    private boolean takeOverAbandoned(String id, String owner) {
+        LocalDateTime now = LocalDateTime.now();
+        Query query = Query.query(Criteria.where("_id").is(id)
+                .and("status").is(IdempotencyRecord.Status.IN_PROGRESS)
+                .orOperator(Criteria.where("leasedUntil").lt(now),
+                        // Reserved before leases were renewed: only the reservation time is known
+                        Criteria.where("leasedUntil").exists(false).and("createdAt").lt(now.minus(lease))));
+        Update update = new Update().set("owner", owner).set("leasedUntil", now.plus(lease));
+        return mongoTemplate.findAndModify(query, update,
+                FindAndModifyOptions.options().returnNew(true), IdempotencyRecord.class) != null;
+    }
+
+    void renew(String id, String owner) {
+        try {
+            if (mongoTemplate.updateFirst(held(id, owner), Update.update("leasedUntil", LocalDateTime.now().plus(lease)),
+                    IdempotencyRecord.class).getMatchedCount() == 0) {
+                log.warn("Lost the lease on Idempotency-Key {} while the request was still running", id);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not renew the lease on Idempotency-Key {}: {}", id, e.getMessage());
+        }
+    }
+
+    private static Query held(String id, String owner) {
+        return Query.query(Criteria.where("_id").is(id)
+                .and("status").is(IdempotencyRecord.Status.IN_PROGRESS)
+                .and("owner").is(owner));
+    }
+
+    private String hash(String request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(request.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -1,21 +1,25 @@
 package com.sparrow.consolidation_service.service;
 
 
+import com.sparrow.consolidation_service.dto.CursorPage;
 import com.sparrow.consolidation_service.model.Parcel;
 import com.sparrow.consolidation_service.repository.ParcelRepository;
+import com.sparrow.consolidation_service.util.OptimisticRetry;
 import lombok.RequiredArgsConstructor;
-import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 public class ParcelService {
 
     private final ParcelRepository parcelRepository;
-    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final KafkaProducerService kafkaProducerService;
+    private final ListingService listingService;
 
     public Parcel createParcel(Parcel parcel) {
         parcel.setCreatedAt(LocalDateTime.now());
@@ -25,13 +29,17 @@ public class ParcelService {
         Parcel savedParcel = parcelRepository.save(parcel);
 
         // Send Kafka event
-        kafkaTemplate.send("parcel-created", savedParcel.getId(), savedParcel);
+        kafkaProducerService.send("parcel-created", savedParcel.getId(), savedParcel);
 
         return savedParcel;
     }
 
-    public List<Parcel> getAllParcels() {
-        return parcelRepository.findAll();
+    public CursorPage<Parcel> getAllParcels(String cursor, int limit, Set<String> fields) {
+        return listingService.page(Parcel.class, cursor, limit, fields);
+    }
+
+    public Stream<Parcel> streamAllParcels(Set<String> fields) {
+        return listingService.stream(Parcel.class, fields);
     }
 
     public Optional<Parcel> getParcelById(String id) {
@@ -47,11 +55,11 @@ public class ParcelService {
     }
 
     public Parcel updateParcelStatus(String id, Parcel.ParcelStatus status) {
-        return parcelRepository.findById(id).map(parcel -> {
+        return OptimisticRetry.run(() -> parcelRepository.findById(id).map(parcel -> {
             parcel.setStatus(status);
             parcel.setUpdatedAt(LocalDateTime.now());
             return parcelRepository.save(parcel);
-        }).orElseThrow(() -> new RuntimeException("Parcel not found with id: " + id));
+        }).orElseThrow(() -> new RuntimeException("Parcel not found with id: " + id)));
     }
 
     public void deleteParcel(String id) {
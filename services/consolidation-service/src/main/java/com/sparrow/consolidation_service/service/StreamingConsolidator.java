@@ -0,0 +1,237 @@
+package com.sparrow.consolidation_service.service;
+
+import com.sparrow.consolidation_service.model.ConsolidatedParcel;
+import com.sparrow.consolidation_service.model.Parcel;
+import com.sparrow.consolidation_service.model.ParcelCreatedEvent;
+import com.sparrow.consolidation_service.repository.ConsolidatedParcelRepository;
+import com.sparrow.consolidation_service.repository.ParcelRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+// Builds consolidations incrementally from parcel-created events. Each origin/destination lane has at
+// most one OPEN consolidation owned by this instance; it is persisted on every change so the buckets
+// can be rebuilt from Mongo after a restart, and sealed (OPEN -> PENDING, parcel-consolidated emitted)
+// once adding a parcel would break the weight/volume limits or the bucket has been open too long.
+// Every parcel is claimed as CONSOLIDATED before it joins a bucket, so the planner and createConsolidation
+// skip it, and a redelivered event for a parcel in an already sealed bucket is dropped.
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class StreamingConsolidator {
+
+    // parcel-created reports length * width * height in cm; the limits are in m³
+    static final double CUBIC_CM_PER_CUBIC_M = 1_000_000;
+
+    private final ConsolidatedParcelRepository consolidatedParcelRepository;
+    private final ParcelRepository parcelRepository;
+    private final MongoTemplate mongoTemplate;
+    private final ConsolidationPublisher consolidationPublisher;
+
+    private final Map<String, Bucket> openBuckets = new HashMap<>();
+
+    @Value("${consolidation.planner.max-weight:1000}")
+    private double maxWeight;
+
+    @Value("${consolidation.planner.max-volume:10}")
+    private double maxVolume;
+
+    @Value("${consolidation.streaming.max-open:PT30M}")
+    private Duration maxOpen;
+
+    @Value("${consolidation.streaming.builder-id:${HOSTNAME:local}}")
+    private String builderId;
+
+    @PostConstruct
+    void recoverOpenBuckets() {
+        List<ConsolidatedParcel> open = consolidatedParcelRepository
+                .findByStatusAndBuilderId(ConsolidatedParcel.ConsolidationStatus.OPEN, builderId);
+        synchronized (this) {
+            for (ConsolidatedParcel consolidation : open) {
+                Bucket bucket = Bucket.from(consolidation);
+                Bucket previous = openBuckets.put(bucket.lane(), bucket);
+                if (previous != null) {
+                    // Only one bucket per lane is kept open; an extra one left by a crash is sealed now
+                    seal(previous);
+                }
+            }
+        }
+        log.info("Recovered {} open consolidation buckets for builder {}", openBuckets.size(), builderId);
+    }
+
+    public synchronized void accept(ParcelCreatedEvent event) {
+        if (event.getParcelId() == null || event.getWeight() == null || event.getVolume() == null) {
+            log.warn("Ignoring parcel-created event without parcel id or measurements: {}", event.getEventId());
+            return;
+        }
+
+        String lane = lane(event.getOrigin(), event.getDestination());
+        Bucket bucket = openBuckets.get(lane);
+        if (bucket != null && bucket.parcelIds.contains(event.getParcelId())) {
+            return; // redelivery
+        }
+
+        double weight = event.getWeight();
+        double volume = event.getVolume() / CUBIC_CM_PER_CUBIC_M;
+        boolean overflows = bucket != null && (bucket.weight + weight > maxWeight || bucket.volume + volume > maxVolume);
+        String consolidationId = bucket != null && !overflows ? bucket.consolidationId : UUID.randomUUID().toString();
+        if (!parcelRepository.claimForConsolidation(parcel(event, volume), consolidationId)) {
+            log.debug("Parcel {} is already consolidated; ignoring parcel-created event {}",
+                    event.getParcelId(), event.getEventId());
+            return;
+        }
+
+        if (overflows) {
+            seal(bucket);
+            openBuckets.remove(lane);
+            bucket = null;
+        }
+        if (bucket == null) {
+            bucket = open(consolidationId, event.getOrigin(), event.getDestination());
+            openBuckets.put(lane, bucket);
+        }
+
+        bucket.parcelIds.add(event.getParcelId());
+        bucket.weight += weight;
+        bucket.volume += volume;
+        append(bucket, event.getParcelId());
+
+        // A parcel that fills a bucket on its own (or exceeds the limits) ships without waiting
+        if (bucket.weight >= maxWeight || bucket.volume >= maxVolume) {
+            seal(bucket);
+            openBuckets.remove(lane);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${consolidation.streaming.sweep-interval-ms:10000}")
+    public synchronized void sealExpiredBuckets() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(maxOpen);
+        Iterator<Bucket> iterator = openBuckets.values().iterator();
+        while (iterator.hasNext()) {
+            Bucket bucket = iterator.next();
+            if (bucket.openedAt.isBefore(cutoff)) {
+                seal(bucket);
+                iterator.remove();
+            }
+        }
+    }
+
+    private Bucket open(String consolidationId, String origin, String destination) {
+        LocalDateTime now = LocalDateTime.now();
+        ConsolidatedParcel consolidation = new ConsolidatedParcel();
+        consolidation.setConsolidationId(consolidationId);
+        consolidation.setParcelIds(new ArrayList<>());
+        consolidation.setTotalWeight(BigDecimal.ZERO);
+        consolidation.setTotalVolume(BigDecimal.ZERO);
+        consolidation.setOrigin(origin);
+        consolidation.setDestination(destination);
+        consolidation.setStatus(ConsolidatedParcel.ConsolidationStatus.OPEN);
+        consolidation.setBuilderId(builderId);
+        consolidation.setCreatedAt(now);
+        consolidation.setUpdatedAt(now);
+        return Bucket.from(consolidatedParcelRepository.save(consolidation));
+    }
+
+    // Single-document update per event: the parcel id is added to the set and the running totals overwritten
+    private void append(Bucket bucket, String parcelId) {
+        Update update = new Update()
+                .addToSet("parcelIds", parcelId)
+                .set("totalWeight", BigDecimal.valueOf(bucket.weight))
+                .set("totalVolume", BigDecimal.valueOf(bucket.volume))
+                .set("updatedAt", LocalDateTime.now())
+                .inc("version", 1);
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(bucket.id)), update, ConsolidatedParcel.class);
+    }
+
+    // The status change is persisted before the event is sent; if the send is lost, ConsolidationPublisher
+    // resends it for the PENDING consolidation
+    private void seal(Bucket bucket) {
+        Query query = Query.query(Criteria.where("_id").is(bucket.id)
+                .and("status").is(ConsolidatedParcel.ConsolidationStatus.OPEN));
+        Update update = new Update()
+                .set("status", ConsolidatedParcel.ConsolidationStatus.PENDING)
+                .set("updatedAt", LocalDateTime.now())
+                .inc("version", 1);
+        ConsolidatedParcel sealed = mongoTemplate.findAndModify(query, update,
+                FindAndModifyOptions.options().returnNew(true),
+                ConsolidatedParcel.class);
+        if (sealed == null) {
+            log.warn("Open consolidation {} was changed elsewhere; not sealing", bucket.id);
+            return;
+        }
+        consolidationPublisher.publish(sealed);
+        log.info("Sealed consolidation {} ({} -> {}) with {} parcels", sealed.getConsolidationId(),
+                sealed.getOrigin(), sealed.getDestination(), bucket.parcelIds.size());
+    }
+
+    private static Parcel parcel(ParcelCreatedEvent event, double volume) {
+        Parcel parcel = new Parcel();
+        parcel.setId(event.getParcelId());
+        parcel.setTrackingNumber(event.getTrackingNumber());
+        parcel.setCustomerId(event.getSenderId());
+        parcel.setWeight(BigDecimal.valueOf(event.getWeight()));
+        parcel.setVolume(BigDecimal.valueOf(volume));
+        parcel.setOrigin(event.getOrigin());
+        parcel.setDestination(event.getDestination());
+        return parcel;
+    }
+
+    private static String lane(String origin, String destination) {
+        return origin + "\u0000" + destination;
+    }
+
+    private static final class Bucket {
+        private final String id;
+        private final String consolidationId;
+        private final String origin;
+        private final String destination;
+        private final LocalDateTime openedAt;
+        private final Set<String> parcelIds;
+        private double weight;
+        private double volume;
+
+        private Bucket(String id, String consolidationId, String origin, String destination, LocalDateTime openedAt,
+                       Set<String> parcelIds) {
+            this.id = id;
+            this.consolidationId = consolidationId;
+            this.origin = origin;
+            this.destination = destination;
+            this.openedAt = openedAt;
+            this.parcelIds = parcelIds;
+        }
+
+        static Bucket from(ConsolidatedParcel consolidation) {
+            Bucket bucket = new Bucket(consolidation.getId(), consolidation.getConsolidationId(),
+                    consolidation.getOrigin(), consolidation.getDestination(),
+                    consolidation.getCreatedAt() != null ? consolidation.getCreatedAt() : LocalDateTime.now(),
+                    consolidation.getParcelIds() != null ? new HashSet<>(consolidation.getParcelIds()) : new HashSet<>());
+            bucket.weight = consolidation.getTotalWeight() != null ? consolidation.getTotalWeight().doubleValue() : 0;
+            bucket.volume = consolidation.getTotalVolume() != null ? consolidation.getTotalVolume().doubleValue() : 0;
+            return bucket;
+        }
+
+        String lane() {
+            return StreamingConsolidator.lane(origin, destination);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.sparrow.consolidation_service.util;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+// Opaque position in an _id-ordered listing: the encoded _id of the last item returned.
+// Not the parcel-service cursor, which pairs createdAt with _id for its newest-first searches;
+// the two formats are not interchangeable.
+@Data
+@AllArgsConstructor
+public class KeysetCursor {
+    private String id;
+
+    public String encode() {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(id.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static KeysetCursor decode(String cursor) {
+        try {
+            String id = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (id.isEmpty()) {
+                throw new IllegalArgumentException("Empty cursor");
+            }
+            return new KeysetCursor(id);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor: " + cursor);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.sparrow.consolidation_service.util;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.function.Supplier;
+
+// Re-runs a read-modify-save against @Version entities until it wins or the attempts run out.
+// The supplier must re-read the document on every call.
+@Slf4j
+public final class OptimisticRetry {
+
+    public static final int DEFAULT_ATTEMPTS = 5;
+
+    private OptimisticRetry() {
+    }
+
+    public static <T> T run(Supplier<T> update) {
+        return run(update, DEFAULT_ATTEMPTS);
+    }
+
+    public static <T> T run(Supplier<T> update, int maxAttempts) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return update.get();
+            } catch (OptimisticLockingFailureException e) {
+                if (attempt >= maxAttempts) {
+                    throw new ResponseStatusException(HttpStatus.CONFLICT,
+                            "Concurrent modification, gave up after " + attempt + " attempts", e);
+                }
+                log.debug("Version conflict on attempt {}, retrying: {}", attempt, e.getMessage());
+            }
+        }
+    }
+}
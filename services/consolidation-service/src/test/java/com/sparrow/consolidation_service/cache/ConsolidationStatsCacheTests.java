@@ -0,0 +1,39 @@
+package com.sparrow.consolidation_service.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ConsolidationStatsCacheTests {
+
+	@Test
+	void sharesOneLoadPerKeyWithinTheTtl() {
+		ConsolidationStatsCache cache = new ConsolidationStatsCache(new SimpleMeterRegistry(), Duration.ofMinutes(1));
+		AtomicInteger loads = new AtomicInteger();
+
+		for (int i = 0; i < 5; i++) {
+			assertEquals("status", cache.get("status", () -> {
+				loads.incrementAndGet();
+				return "status";
+			}));
+		}
+		cache.get("fill", () -> loads.incrementAndGet());
+
+		assertEquals(2, loads.get());
+	}
+
+	@Test
+	void reloadsOnceTheTtlHasPassed() throws InterruptedException {
+		ConsolidationStatsCache cache = new ConsolidationStatsCache(new SimpleMeterRegistry(), Duration.ofMillis(50));
+		AtomicInteger loads = new AtomicInteger();
+
+		cache.get("fill", loads::incrementAndGet);
+		Thread.sleep(100);
+
+		assertEquals(2, (int) cache.get("fill", loads::incrementAndGet));
+	}
+}
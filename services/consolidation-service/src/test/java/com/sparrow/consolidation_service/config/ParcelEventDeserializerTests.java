@@ -0,0 +1,100 @@
+package com.sparrow.consolidation_service.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.sparrow.consolidation_service.model.ParcelCreatedEvent;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ParcelEventDeserializerTests {
+
+	private static final LocalDateTime CREATED_AT = LocalDateTime.of(2025, 3, 1, 8, 0, 15);
+
+	// parcel-service's EventCodec writes with Spring Boot's ObjectMapper, or a Smile copy of it
+	private final ObjectMapper jsonMapper = new ObjectMapper().findAndRegisterModules()
+			.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+	private final ObjectMapper smileMapper = jsonMapper.copyWith(new SmileFactory());
+
+	private final ParcelEventDeserializer deserializer = new ParcelEventDeserializer();
+
+	@BeforeEach
+	void configure() {
+		deserializer.configure(Map.of(ParcelEventDeserializer.VALUE_TYPE_CONFIG, ParcelCreatedEvent.class.getName()), false);
+	}
+
+	@Test
+	void readsSmileWhenTheHeaderSaysSo() throws Exception {
+		RecordHeaders headers = headers("application/x-jackson-smile");
+
+		ParcelCreatedEvent event = (ParcelCreatedEvent) deserializer.deserialize("parcel-created", headers,
+				smileMapper.writeValueAsBytes(published()));
+
+		assertPublished(event);
+	}
+
+	@Test
+	void readsJsonWhenTheHeaderSaysSo() throws Exception {
+		RecordHeaders headers = headers("application/json");
+
+		ParcelCreatedEvent event = (ParcelCreatedEvent) deserializer.deserialize("parcel-created", headers,
+				jsonMapper.writeValueAsBytes(published()));
+
+		assertPublished(event);
+	}
+
+	@Test
+	void readsRecordsPublishedBeforeTheHeaderAsJson() throws Exception {
+		byte[] legacy = jsonMapper.writeValueAsBytes(published());
+
+		assertPublished((ParcelCreatedEvent) deserializer.deserialize("parcel-created", new RecordHeaders(), legacy));
+		assertPublished((ParcelCreatedEvent) deserializer.deserialize("parcel-created", legacy));
+	}
+
+	@Test
+	void tombstonesStayNull() {
+		assertNull(deserializer.deserialize("parcel-created", headers("application/x-jackson-smile"), (byte[]) null));
+	}
+
+	// The parcel-created payload as parcel-service sends it, including fields this service does not map
+	private static Map<String, Object> published() {
+		Map<String, Object> event = new LinkedHashMap<>();
+		event.put("eventId", "e-1");
+		event.put("parcelId", "p-1");
+		event.put("trackingNumber", "TRK-p-1");
+		event.put("origin", "Colombo");
+		event.put("destination", "Galle");
+		event.put("weight", 2.5);
+		event.put("volume", 6000.0);
+		event.put("parcelType", "STANDARD");
+		event.put("status", "CREATED");
+		event.put("createdAt", CREATED_AT);
+		return event;
+	}
+
+	private static void assertPublished(ParcelCreatedEvent event) {
+		assertEquals("e-1", event.getEventId());
+		assertEquals("p-1", event.getParcelId());
+		assertEquals("Colombo", event.getOrigin());
+		assertEquals("Galle", event.getDestination());
+		assertEquals(2.5, event.getWeight());
+		assertEquals(6000.0, event.getVolume());
+		assertEquals("CREATED", event.getStatus());
+		assertEquals(CREATED_AT, event.getCreatedAt());
+	}
+
+	private static RecordHeaders headers(String contentType) {
+		RecordHeaders headers = new RecordHeaders();
+		headers.add("contentType", contentType.getBytes(StandardCharsets.UTF_8));
+		return headers;
+	}
+}
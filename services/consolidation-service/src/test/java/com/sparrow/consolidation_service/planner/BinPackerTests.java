@@ -0,0 +1,88 @@
+package com.sparrow.consolidation_service.planner;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BinPackerTests {
+
+	private static final double MAX_WEIGHT = 1000;
+	private static final double MAX_VOLUME = 10;
+
+	@Test
+	void respectsLimitsAndPlacesEveryFittingParcel() {
+		double[] weights = {600, 500, 400, 300, 1200, 100};
+		double[] volumes = {1, 2, 6, 5, 1, 9};
+
+		BinPacker.PackingResult result = BinPacker.pack(weights, volumes, MAX_WEIGHT, MAX_VOLUME, true);
+
+		assertEquals(1, result.getUnplaced());
+		assertEquals(BinPacker.UNPLACED, result.getBinOf()[4]);
+		assertLimits(result, weights, volumes);
+	}
+
+	@Test
+	void localSearchNeverUsesMoreBins() {
+		Random random = new Random(42);
+		double[] weights = new double[5_000];
+		double[] volumes = new double[5_000];
+		for (int i = 0; i < weights.length; i++) {
+			weights[i] = 1 + random.nextDouble() * 300;
+			volumes[i] = 0.01 + random.nextDouble() * 3;
+		}
+
+		BinPacker.PackingResult plain = BinPacker.pack(weights, volumes, MAX_WEIGHT, MAX_VOLUME, false);
+		BinPacker.PackingResult improved = BinPacker.pack(weights, volumes, MAX_WEIGHT, MAX_VOLUME, true);
+
+		assertTrue(improved.getBinCount() <= plain.getBinCount());
+		assertLimits(improved, weights, volumes);
+	}
+
+	@Test
+	void packsHundredThousandParcelsCloseToTheLowerBound() {
+		Random random = new Random(7);
+		int n = 100_000;
+		double[] weights = new double[n];
+		double[] volumes = new double[n];
+		double totalWeight = 0;
+		double totalVolume = 0;
+		for (int i = 0; i < n; i++) {
+			weights[i] = 0.5 + random.nextDouble() * 50;
+			volumes[i] = 0.001 + random.nextDouble() * 0.5;
+			totalWeight += weights[i];
+			totalVolume += volumes[i];
+		}
+
+		long start = System.nanoTime();
+		BinPacker.PackingResult result = BinPacker.pack(weights, volumes, MAX_WEIGHT, MAX_VOLUME, true);
+		long millis = (System.nanoTime() - start) / 1_000_000;
+
+		int lowerBound = (int) Math.ceil(Math.max(totalWeight / MAX_WEIGHT, totalVolume / MAX_VOLUME));
+		assertLimits(result, weights, volumes);
+		assertTrue(result.getBinCount() <= lowerBound * 1.05 + 1,
+				"bins " + result.getBinCount() + " vs lower bound " + lowerBound);
+		assertTrue(millis < 5_000, "took " + millis + " ms");
+	}
+
+	private void assertLimits(BinPacker.PackingResult result, double[] weights, double[] volumes) {
+		double[] binWeight = new double[result.getBinCount()];
+		double[] binVolume = new double[result.getBinCount()];
+		for (int i = 0; i < weights.length; i++) {
+			int bin = result.getBinOf()[i];
+			if (bin == BinPacker.UNPLACED) {
+				assertTrue(weights[i] > MAX_WEIGHT || volumes[i] > MAX_VOLUME);
+				continue;
+			}
+			binWeight[bin] += weights[i];
+			binVolume[bin] += volumes[i];
+		}
+		for (int b = 0; b < result.getBinCount(); b++) {
+			assertTrue(binWeight[b] > 0, "bin " + b + " is empty");
+			assertTrue(binWeight[b] <= MAX_WEIGHT + 1e-6 && binVolume[b] <= MAX_VOLUME + 1e-6);
+			assertEquals(binWeight[b], result.getBinWeight()[b], 1e-6);
+		}
+	}
+}
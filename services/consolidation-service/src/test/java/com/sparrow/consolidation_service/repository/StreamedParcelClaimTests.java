@@ -0,0 +1,83 @@
+package com.sparrow.consolidation_service.repository;
+
+import com.sparrow.consolidation_service.model.Parcel;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataMongoTest
+class StreamedParcelClaimTests {
+
+	@Autowired
+	private ParcelRepository parcelRepository;
+
+	@BeforeEach
+	void setUp() {
+		parcelRepository.deleteAll();
+	}
+
+	@Test
+	void unknownParcelsAreInsertedAlreadyClaimed() {
+		assertTrue(parcelRepository.claimForConsolidation(parcel("p-1"), "c-1"));
+
+		Parcel stored = parcelRepository.findById("p-1").orElseThrow();
+		assertEquals(Parcel.ParcelStatus.CONSOLIDATED, stored.getStatus());
+		assertEquals("c-1", stored.getConsolidationId());
+		assertEquals(0, new BigDecimal("0.024").compareTo(stored.getVolume()));
+		// The planner only packs RECEIVED parcels
+		assertTrue(parcelRepository.findByStatus(Parcel.ParcelStatus.RECEIVED).isEmpty());
+	}
+
+	@Test
+	void claimingAgainForTheSameConsolidationSucceeds() {
+		parcelRepository.claimForConsolidation(parcel("p-1"), "c-1");
+
+		assertTrue(parcelRepository.claimForConsolidation(parcel("p-1"), "c-1"));
+		assertFalse(parcelRepository.claimForConsolidation(parcel("p-1"), "c-2"));
+		assertEquals("c-1", parcelRepository.findById("p-1").orElseThrow().getConsolidationId());
+	}
+
+	@Test
+	void parcelsTakenByCreateConsolidationAreNotStreamed() {
+		Parcel received = parcel("p-1");
+		received.setStatus(Parcel.ParcelStatus.RECEIVED);
+		parcelRepository.save(received);
+		assertEquals(1, parcelRepository.claimForConsolidation(List.of("p-1"), "c-api"));
+
+		assertFalse(parcelRepository.claimForConsolidation(parcel("p-1"), "c-stream"));
+	}
+
+	@Test
+	void receivedParcelsAreClaimedInPlace() {
+		Parcel received = parcel("p-1");
+		received.setStatus(Parcel.ParcelStatus.RECEIVED);
+		received.setCustomerId("customer-7");
+		parcelRepository.save(received);
+
+		assertTrue(parcelRepository.claimForConsolidation(parcel("p-1"), "c-1"));
+
+		Parcel stored = parcelRepository.findById("p-1").orElseThrow();
+		assertEquals(Parcel.ParcelStatus.CONSOLIDATED, stored.getStatus());
+		assertEquals("customer-7", stored.getCustomerId());
+	}
+
+	private static Parcel parcel(String id) {
+		Parcel parcel = new Parcel();
+		parcel.setId(id);
+		parcel.setTrackingNumber("TRK-" + id);
+		parcel.setCustomerId("s-1");
+		parcel.setWeight(new BigDecimal("2.0"));
+		parcel.setVolume(new BigDecimal("0.024"));
+		parcel.setOrigin("Colombo");
+		parcel.setDestination("Kandy");
+		return parcel;
+	}
+}
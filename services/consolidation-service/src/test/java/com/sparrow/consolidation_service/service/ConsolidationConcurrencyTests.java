@@ -0,0 +1,123 @@
+package com.sparrow.consolidation_service.service;
+
+import com.sparrow.consolidation_service.model.ConsolidatedParcel;
+import com.sparrow.consolidation_service.model.Parcel;
+import com.sparrow.consolidation_service.repository.ConsolidatedParcelRepository;
+import com.sparrow.consolidation_service.repository.ParcelRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataMongoTest
+@Import(ConsolidationService.class)
+class ConsolidationConcurrencyTests {
+
+	private static final int PARCELS = 300;
+	private static final int REQUESTS = 64;
+	private static final int PARCELS_PER_REQUEST = 25;
+
+	@Autowired
+	private ConsolidationService consolidationService;
+
+	@Autowired
+	private ParcelRepository parcelRepository;
+
+	@Autowired
+	private ConsolidatedParcelRepository consolidatedParcelRepository;
+
+	@MockitoBean
+	private KafkaProducerService kafkaProducerService;
+
+	@MockitoBean
+	private ConsolidationPublisher consolidationPublisher;
+
+	private final List<String> parcelIds = new ArrayList<>();
+
+	@BeforeEach
+	void setUp() {
+		parcelRepository.deleteAll();
+		consolidatedParcelRepository.deleteAll();
+		List<Parcel> parcels = new ArrayList<>();
+		for (int i = 0; i < PARCELS; i++) {
+			Parcel parcel = new Parcel();
+			parcel.setTrackingNumber("TRK" + i);
+			parcel.setCustomerId("c-1");
+			parcel.setWeight(BigDecimal.ONE);
+			parcel.setVolume(BigDecimal.ONE);
+			parcel.setOrigin("Colombo");
+			parcel.setDestination("Kandy");
+			parcel.setStatus(Parcel.ParcelStatus.RECEIVED);
+			parcel.setCreatedAt(LocalDateTime.now());
+			parcels.add(parcel);
+		}
+		parcelRepository.saveAll(parcels).forEach(parcel -> parcelIds.add(parcel.getId()));
+	}
+
+	@Test
+	void overlappingRequestsNeverShareAParcel() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		CountDownLatch start = new CountDownLatch(1);
+		Random random = new Random(3);
+		List<Future<ConsolidatedParcel>> results = new ArrayList<>();
+
+		try {
+			for (int r = 0; r < REQUESTS; r++) {
+				List<String> requested = new ArrayList<>(parcelIds);
+				Collections.shuffle(requested, random);
+				List<String> subset = requested.subList(0, PARCELS_PER_REQUEST);
+				results.add(executor.submit(() -> {
+					start.await();
+					try {
+						return consolidationService.createConsolidation("c-1", subset);
+					} catch (ResponseStatusException e) {
+						return null;
+					}
+				}));
+			}
+			start.countDown();
+
+			Map<String, String> owner = new HashMap<>();
+			for (Future<ConsolidatedParcel> result : results) {
+				ConsolidatedParcel consolidation = result.get();
+				if (consolidation == null) {
+					continue;
+				}
+				for (String parcelId : consolidation.getParcelIds()) {
+					String previous = owner.put(parcelId, consolidation.getConsolidationId());
+					assertNull(previous, "Parcel " + parcelId + " is in two consolidations");
+				}
+			}
+
+			assertTrue(!owner.isEmpty());
+			for (Parcel parcel : parcelRepository.findAll()) {
+				String expected = owner.get(parcel.getId());
+				assertEquals(expected, parcel.getConsolidationId());
+				assertEquals(expected != null ? Parcel.ParcelStatus.CONSOLIDATED : Parcel.ParcelStatus.RECEIVED,
+						parcel.getStatus());
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+}
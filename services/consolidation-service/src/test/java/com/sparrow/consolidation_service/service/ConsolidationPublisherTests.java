@@ -0,0 +1,84 @@
+package com.sparrow.consolidation_service.service;
+
+import com.sparrow.consolidation_service.model.ConsolidatedParcel;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ConsolidationPublisherTests {
+
+	@Mock
+	private MongoTemplate mongoTemplate;
+
+	@Mock
+	private KafkaProducerService kafkaProducerService;
+
+	@InjectMocks
+	private ConsolidationPublisher publisher;
+
+	@BeforeEach
+	void setUp() {
+		ReflectionTestUtils.setField(publisher, "resendAfter", Duration.ofMinutes(1));
+		ReflectionTestUtils.setField(publisher, "resendBatchSize", 100);
+	}
+
+	@Test
+	void acknowledgedSendsAreRecorded() {
+		when(kafkaProducerService.send(eq(ConsolidationPublisher.TOPIC), eq("c-1"), any()))
+				.thenReturn(CompletableFuture.completedFuture(null));
+
+		publisher.publish(consolidation("c-1"));
+
+		verify(mongoTemplate).updateFirst(any(Query.class), any(Update.class), eq(ConsolidatedParcel.class));
+	}
+
+	@Test
+	void failedSendsStayUnpublished() {
+		when(kafkaProducerService.send(eq(ConsolidationPublisher.TOPIC), eq("c-1"), any()))
+				.thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker down")));
+
+		publisher.publish(consolidation("c-1"));
+
+		verify(mongoTemplate, never()).updateFirst(any(Query.class), any(Update.class), eq(ConsolidatedParcel.class));
+	}
+
+	@Test
+	void sweepResendsEveryUnacknowledgedConsolidation() {
+		when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), eq(ConsolidatedParcel.class)))
+				.thenReturn(consolidation("c-1"), consolidation("c-2"), null);
+		when(kafkaProducerService.send(eq(ConsolidationPublisher.TOPIC), any(), any()))
+				.thenReturn(CompletableFuture.completedFuture(null));
+
+		publisher.republishUnacknowledged();
+
+		verify(kafkaProducerService).send(eq(ConsolidationPublisher.TOPIC), eq("c-1"), any());
+		verify(kafkaProducerService).send(eq(ConsolidationPublisher.TOPIC), eq("c-2"), any());
+		verify(mongoTemplate, times(2)).updateFirst(any(Query.class), any(Update.class), eq(ConsolidatedParcel.class));
+	}
+
+	private static ConsolidatedParcel consolidation(String id) {
+		ConsolidatedParcel consolidation = new ConsolidatedParcel();
+		consolidation.setId(id);
+		consolidation.setConsolidationId("consolidation-" + id);
+		consolidation.setStatus(ConsolidatedParcel.ConsolidationStatus.PENDING);
+		return consolidation;
+	}
+}
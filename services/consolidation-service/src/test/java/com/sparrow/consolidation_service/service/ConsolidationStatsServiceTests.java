@@ -0,0 +1,124 @@
+package com.sparrow.consolidation_service.service;
+
+import com.sparrow.consolidation_service.cache.ConsolidationStatsCache;
+import com.sparrow.consolidation_service.dto.ConsolidationStats;
+import com.sparrow.consolidation_service.model.ConsolidatedParcel;
+import com.sparrow.consolidation_service.repository.ConsolidatedParcelRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.context.annotation.Import;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// A zero TTL turns the stats cache off so every call runs its pipeline
+@DataMongoTest(properties = {
+		"consolidation.stats.cache.ttl=0s",
+		"consolidation.planner.max-weight=1000",
+		"consolidation.planner.max-volume=10"
+})
+@Import({ConsolidationStatsService.class, ConsolidationStatsCache.class, SimpleMeterRegistry.class})
+class ConsolidationStatsServiceTests {
+
+	private static final LocalDate DAY = LocalDate.of(2025, 3, 1);
+
+	@Autowired
+	private ConsolidationStatsService statsService;
+
+	@Autowired
+	private ConsolidatedParcelRepository consolidatedParcelRepository;
+
+	@BeforeEach
+	void setUp() {
+		consolidatedParcelRepository.deleteAll();
+	}
+
+	@Test
+	void countsEveryStatusInOrder() {
+		save(ConsolidatedParcel.ConsolidationStatus.PENDING, "Colombo", "Kandy", "100", "1", DAY.atTime(9, 0));
+		save(ConsolidatedParcel.ConsolidationStatus.PENDING, "Colombo", "Kandy", "100", "1", DAY.atTime(9, 0));
+		save(ConsolidatedParcel.ConsolidationStatus.SHIPPED, "Colombo", "Kandy", "100", "1", DAY.atTime(9, 0));
+		save(ConsolidatedParcel.ConsolidationStatus.OPEN, "Colombo", "Kandy", "100", "1", DAY.atTime(9, 0));
+
+		List<ConsolidationStats.StatusCount> counts = statsService.countsByStatus();
+
+		assertEquals(List.of("OPEN", "PENDING", "SHIPPED"),
+				counts.stream().map(ConsolidationStats.StatusCount::getStatus).toList());
+		assertEquals(List.of(1L, 2L, 1L), counts.stream().map(ConsolidationStats.StatusCount::getCount).toList());
+	}
+
+	@Test
+	void sumsDecimalTotalsPerLaneAndDayWithinTheRange() {
+		save(ConsolidatedParcel.ConsolidationStatus.PENDING, "Colombo", "Kandy", "100.10", "1.25", DAY.atTime(0, 0));
+		save(ConsolidatedParcel.ConsolidationStatus.PENDING, "Colombo", "Kandy", "200.20", "2.50", DAY.atTime(23, 59));
+		save(ConsolidatedParcel.ConsolidationStatus.PENDING, "Colombo", "Galle", "50", "0.5", DAY.atTime(12, 0));
+		save(ConsolidatedParcel.ConsolidationStatus.PENDING, "Colombo", "Kandy", "70", "0.7", DAY.plusDays(1).atTime(8, 0));
+		// Outside [from, to]
+		save(ConsolidatedParcel.ConsolidationStatus.PENDING, "Colombo", "Kandy", "999", "9", DAY.minusDays(1).atTime(23, 59));
+		save(ConsolidatedParcel.ConsolidationStatus.PENDING, "Colombo", "Kandy", "999", "9", DAY.plusDays(2).atTime(0, 0));
+
+		List<ConsolidationStats.LaneDayTotals> totals = statsService.laneTotalsByDay(DAY, DAY.plusDays(1));
+
+		assertEquals(3, totals.size());
+		assertLane(totals.get(0), "2025-03-01", "Galle", 1, "50", "0.5");
+		assertLane(totals.get(1), "2025-03-01", "Kandy", 2, "300.30", "3.75");
+		assertLane(totals.get(2), "2025-03-02", "Kandy", 1, "70", "0.7");
+	}
+
+	@Test
+	void averageFillUsesTheBindingLimitAndSkipsOpenBuckets() {
+		// weight-bound: 0.8 by weight, 0.2 by volume
+		save(ConsolidatedParcel.ConsolidationStatus.PENDING, "Colombo", "Kandy", "800", "2", DAY.atTime(9, 0));
+		// volume-bound: 0.1 by weight, 0.6 by volume
+		save(ConsolidatedParcel.ConsolidationStatus.SHIPPED, "Colombo", "Kandy", "100", "6", DAY.atTime(9, 0));
+		save(ConsolidatedParcel.ConsolidationStatus.OPEN, "Colombo", "Kandy", "10", "0.1", DAY.atTime(9, 0));
+
+		ConsolidationStats.FillRatio fill = statsService.averageFill();
+
+		assertEquals(2, fill.getConsolidations());
+		assertEquals(0.7, fill.getAverageFill(), 1e-9);
+		assertEquals(0.45, fill.getAverageWeightFill(), 1e-9);
+		assertEquals(0.4, fill.getAverageVolumeFill(), 1e-9);
+	}
+
+	@Test
+	void averageFillIsZeroWithoutConsolidations() {
+		ConsolidationStats.FillRatio fill = statsService.averageFill();
+
+		assertEquals(0, fill.getConsolidations());
+		assertEquals(0.0, fill.getAverageFill());
+	}
+
+	private static void assertLane(ConsolidationStats.LaneDayTotals lane, String day, String destination,
+								   long consolidations, String weight, String volume) {
+		assertEquals(day, lane.getDay());
+		assertEquals("Colombo", lane.getOrigin());
+		assertEquals(destination, lane.getDestination());
+		assertEquals(consolidations, lane.getConsolidations());
+		assertEquals(0, new BigDecimal(weight).compareTo(lane.getTotalWeight()), "weight " + lane.getTotalWeight());
+		assertEquals(0, new BigDecimal(volume).compareTo(lane.getTotalVolume()), "volume " + lane.getTotalVolume());
+	}
+
+	private void save(ConsolidatedParcel.ConsolidationStatus status, String origin, String destination,
+					  String weight, String volume, LocalDateTime createdAt) {
+		ConsolidatedParcel consolidation = new ConsolidatedParcel();
+		consolidation.setConsolidationId(UUID.randomUUID().toString());
+		consolidation.setParcelIds(List.of("p-1"));
+		consolidation.setCustomerId("c-1");
+		consolidation.setTotalWeight(new BigDecimal(weight));
+		consolidation.setTotalVolume(new BigDecimal(volume));
+		consolidation.setOrigin(origin);
+		consolidation.setDestination(destination);
+		consolidation.setStatus(status);
+		consolidation.setCreatedAt(createdAt);
+		consolidatedParcelRepository.save(consolidation);
+	}
+}
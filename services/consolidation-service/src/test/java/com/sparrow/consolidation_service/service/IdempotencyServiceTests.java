@@ -0,0 +1,216 @@
+package com.sparrow.consolidation_service.service;
+
+import com.mongodb.client.result.UpdateResult;
+import com.sparrow.consolidation_service.model.ConsolidatedParcel;
+import com.sparrow.consolidation_service.model.IdempotencyRecord;
+import com.sparrow.consolidation_service.util.OptimisticRetry;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class IdempotencyServiceTests {
+
+	private static final String REQUEST = "c-1|p-1,p-2";
+
+	@Mock
+	private MongoTemplate mongoTemplate;
+
+	@Mock
+	private TaskScheduler taskScheduler;
+
+	@Mock
+	private ScheduledFuture<?> renewal;
+
+	@InjectMocks
+	private IdempotencyService idempotencyService;
+
+	private final AtomicInteger runs = new AtomicInteger();
+	private final ConsolidatedParcel result = new ConsolidatedParcel();
+
+	@BeforeEach
+	void setUp() {
+		ReflectionTestUtils.setField(idempotencyService, "lease", Duration.ofMinutes(1));
+		doReturn(renewal).when(taskScheduler).scheduleAtFixedRate(any(Runnable.class), any(Duration.class));
+		when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(IdempotencyRecord.class)))
+				.thenReturn(UpdateResult.acknowledged(1, 1L, null));
+	}
+
+	@Test
+	void firstRequestRunsTheWorkAndStoresTheResponse() {
+		assertSame(result, idempotencyService.execute("createConsolidation", "k-1", REQUEST, this::work));
+
+		assertEquals(1, runs.get());
+		verify(mongoTemplate).updateFirst(any(Query.class), any(Update.class), eq(IdempotencyRecord.class));
+		verify(renewal).cancel(false);
+	}
+
+	@Test
+	void reusingAKeyWithADifferentRequestIsRejected() {
+		alreadyReserved(record(IdempotencyRecord.Status.COMPLETED, "c-1|p-9"));
+
+		ResponseStatusException e = assertThrows(ResponseStatusException.class,
+				() -> idempotencyService.execute("createConsolidation", "k-1", REQUEST, this::work));
+
+		assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, e.getStatusCode());
+		assertEquals(0, runs.get());
+	}
+
+	@Test
+	void completedKeysReturnTheStoredResponse() {
+		IdempotencyRecord completed = record(IdempotencyRecord.Status.COMPLETED, REQUEST);
+		completed.setResponse(result);
+		alreadyReserved(completed);
+
+		assertSame(result, idempotencyService.execute("createConsolidation", "k-1", REQUEST, this::work));
+		assertEquals(0, runs.get());
+	}
+
+	@Test
+	void keysStillLeasedByARunningRequestAreBusy() {
+		alreadyReserved(record(IdempotencyRecord.Status.IN_PROGRESS, REQUEST));
+		when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+				eq(IdempotencyRecord.class))).thenReturn(null);
+
+		ResponseStatusException e = assertThrows(ResponseStatusException.class,
+				() -> idempotencyService.execute("createConsolidation", "k-1", REQUEST, this::work));
+
+		assertEquals(HttpStatus.CONFLICT, e.getStatusCode());
+		assertEquals(0, runs.get());
+	}
+
+	@Test
+	void expiredLeasesAreTakenOverAndTheWorkRunsOnce() {
+		IdempotencyRecord abandoned = record(IdempotencyRecord.Status.IN_PROGRESS, REQUEST);
+		alreadyReserved(abandoned);
+		when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+				eq(IdempotencyRecord.class))).thenReturn(abandoned);
+
+		assertSame(result, idempotencyService.execute("createConsolidation", "k-1", REQUEST, this::work));
+		assertEquals(1, runs.get());
+
+		// The takeover only matches records whose lease has run out
+		ArgumentCaptor<Query> takeover = ArgumentCaptor.forClass(Query.class);
+		verify(mongoTemplate).findAndModify(takeover.capture(), any(Update.class), any(FindAndModifyOptions.class),
+				eq(IdempotencyRecord.class));
+		assertTrue(takeover.getValue().getQueryObject().get("$or").toString().contains("leasedUntil"));
+	}
+
+	@Test
+	void aKeyReleasedBetweenInsertAndReadIsReservedAgain() {
+		when(mongoTemplate.insert(any(IdempotencyRecord.class)))
+				.thenThrow(new DuplicateKeyException("duplicate key"))
+				.thenReturn(null);
+
+		assertSame(result, idempotencyService.execute("createConsolidation", "k-1", REQUEST, this::work));
+
+		assertEquals(1, runs.get());
+		verify(mongoTemplate, times(2)).insert(any(IdempotencyRecord.class));
+	}
+
+	@Test
+	void givesUpWithAConflictWhenTheKeyKeepsChangingHands() {
+		// Every insert collides, and every read finds the record already gone
+		when(mongoTemplate.insert(any(IdempotencyRecord.class))).thenThrow(new DuplicateKeyException("duplicate key"));
+
+		ResponseStatusException e = assertThrows(ResponseStatusException.class,
+				() -> idempotencyService.execute("createConsolidation", "k-1", REQUEST, this::work));
+
+		assertEquals(HttpStatus.CONFLICT, e.getStatusCode());
+		assertEquals(0, runs.get());
+		verify(mongoTemplate, times(OptimisticRetry.DEFAULT_ATTEMPTS)).insert(any(IdempotencyRecord.class));
+	}
+
+	@Test
+	void leaseIsRenewedWhileTheRequestRuns() {
+		ArgumentCaptor<Runnable> renew = ArgumentCaptor.forClass(Runnable.class);
+		ArgumentCaptor<Duration> period = ArgumentCaptor.forClass(Duration.class);
+
+		idempotencyService.execute("createConsolidation", "k-1", REQUEST, () -> {
+			verify(taskScheduler).scheduleAtFixedRate(renew.capture(), period.capture());
+			renew.getValue().run();
+			renew.getValue().run();
+			return work();
+		});
+
+		assertEquals(Duration.ofSeconds(20), period.getValue());
+		ArgumentCaptor<Update> updates = ArgumentCaptor.forClass(Update.class);
+		verify(mongoTemplate, times(3)).updateFirst(any(Query.class), updates.capture(), eq(IdempotencyRecord.class));
+		assertTrue(updates.getAllValues().get(0).getUpdateObject().get("$set", Document.class).containsKey("leasedUntil"));
+		verify(renewal).cancel(false);
+	}
+
+	@Test
+	void failedRequestsReleaseTheKey() {
+		assertThrows(IllegalStateException.class, () -> idempotencyService.execute("createConsolidation", "k-1",
+				REQUEST, () -> {
+					throw new IllegalStateException("parcel already consolidated");
+				}));
+
+		verify(mongoTemplate).remove(any(Query.class), eq(IdempotencyRecord.class));
+		verify(mongoTemplate, never()).updateFirst(any(Query.class), any(Update.class), eq(IdempotencyRecord.class));
+		verify(renewal).cancel(false);
+	}
+
+	private ConsolidatedParcel work() {
+		runs.incrementAndGet();
+		return result;
+	}
+
+	private void alreadyReserved(IdempotencyRecord existing) {
+		when(mongoTemplate.insert(any(IdempotencyRecord.class))).thenThrow(new DuplicateKeyException("duplicate key"));
+		when(mongoTemplate.findById("createConsolidation:k-1", IdempotencyRecord.class)).thenReturn(existing);
+	}
+
+	private static IdempotencyRecord record(IdempotencyRecord.Status status, String request) {
+		IdempotencyRecord record = new IdempotencyRecord();
+		record.setId("createConsolidation:k-1");
+		record.setRequestHash(sha256(request));
+		record.setStatus(status);
+		return record;
+	}
+
+	private static String sha256(String value) {
+		try {
+			return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8)));
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
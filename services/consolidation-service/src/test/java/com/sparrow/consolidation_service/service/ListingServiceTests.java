@@ -0,0 +1,103 @@
+package com.sparrow.consolidation_service.service;
+
+import com.sparrow.consolidation_service.dto.CursorPage;
+import com.sparrow.consolidation_service.model.ConsolidatedParcel;
+import com.sparrow.consolidation_service.util.KeysetCursor;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// The listing code is copied into warehouse-, pricing- and payment-service; this is where it is tested
+@DataMongoTest
+@Import(ListingService.class)
+class ListingServiceTests {
+
+	@Autowired
+	private MongoTemplate mongoTemplate;
+
+	@Autowired
+	private ListingService listingService;
+
+	private final List<String> ids = new ArrayList<>();
+
+	@BeforeEach
+	void setUp() {
+		mongoTemplate.dropCollection(ConsolidatedParcel.class);
+		// No ids set, so Mongo stores ObjectIds and the cursor has to turn its string back into one
+		for (int i = 0; i < 5; i++) {
+			ids.add(mongoTemplate.insert(consolidation("c-" + i)).getId());
+		}
+		ids.sort(null);
+	}
+
+	@Test
+	void walksEveryDocumentOnceInIdOrder() {
+		List<String> seen = new ArrayList<>();
+		List<Integer> pageSizes = new ArrayList<>();
+		String cursor = null;
+		do {
+			CursorPage<ConsolidatedParcel> page = listingService.page(ConsolidatedParcel.class, cursor, 2, Set.of());
+			page.getItems().forEach(item -> seen.add(item.getId()));
+			pageSizes.add(page.getItems().size());
+			cursor = page.getNextCursor();
+		} while (cursor != null);
+
+		assertTrue(ObjectId.isValid(ids.get(0)));
+		assertEquals(ids, seen);
+		assertEquals(List.of(2, 2, 1), pageSizes);
+	}
+
+	@Test
+	void aCursorPointingAtTheLastDocumentGivesAnEmptyPage() {
+		String cursor = new KeysetCursor(ids.get(ids.size() - 1)).encode();
+
+		CursorPage<ConsolidatedParcel> page = listingService.page(ConsolidatedParcel.class, cursor, 2, Set.of());
+
+		assertEquals(List.of(), page.getItems());
+		assertNull(page.getNextCursor());
+	}
+
+	@Test
+	void readsOnlyTheRequestedFields() {
+		CursorPage<ConsolidatedParcel> page = listingService.page(ConsolidatedParcel.class, null, 0,
+				Set.of("consolidationId", "id"));
+
+		ConsolidatedParcel item = page.getItems().get(0);
+		assertEquals(ids.get(0), item.getId());
+		assertEquals("c-0", item.getConsolidationId());
+		assertNull(item.getOrigin());
+		assertEquals(new KeysetCursor(ids.get(0)), KeysetCursor.decode(page.getNextCursor()));
+	}
+
+	@Test
+	void streamsEveryDocumentInIdOrder() {
+		try (Stream<ConsolidatedParcel> items = listingService.stream(ConsolidatedParcel.class, Set.of())) {
+			assertEquals(ids, items.map(ConsolidatedParcel::getId).collect(Collectors.toList()));
+		}
+	}
+
+	private static ConsolidatedParcel consolidation(String consolidationId) {
+		ConsolidatedParcel consolidation = new ConsolidatedParcel();
+		consolidation.setConsolidationId(consolidationId);
+		consolidation.setParcelIds(List.of("p-" + consolidationId));
+		consolidation.setCustomerId("cust-1");
+		consolidation.setOrigin("Colombo");
+		consolidation.setDestination("Galle");
+		consolidation.setStatus(ConsolidatedParcel.ConsolidationStatus.PENDING);
+		return consolidation;
+	}
+}
@@ -0,0 +1,159 @@
+package com.sparrow.consolidation_service.service;
+
+import com.sparrow.consolidation_service.model.ConsolidatedParcel;
+import com.sparrow.consolidation_service.model.Parcel;
+import com.sparrow.consolidation_service.model.ParcelCreatedEvent;
+import com.sparrow.consolidation_service.repository.ConsolidatedParcelRepository;
+import com.sparrow.consolidation_service.repository.ParcelRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class StreamingConsolidatorTests {
+
+	@Mock
+	private ConsolidatedParcelRepository consolidatedParcelRepository;
+
+	@Mock
+	private ParcelRepository parcelRepository;
+
+	@Mock
+	private MongoTemplate mongoTemplate;
+
+	@Mock
+	private ConsolidationPublisher consolidationPublisher;
+
+	@InjectMocks
+	private StreamingConsolidator consolidator;
+
+	@BeforeEach
+	void setUp() {
+		ReflectionTestUtils.setField(consolidator, "maxWeight", 1000.0);
+		ReflectionTestUtils.setField(consolidator, "maxVolume", 10.0);
+		ReflectionTestUtils.setField(consolidator, "maxOpen", Duration.ofMinutes(30));
+		ReflectionTestUtils.setField(consolidator, "builderId", "builder-1");
+	}
+
+	@Test
+	void parcelVolumesInCubicCentimetresAreComparedInCubicMetres() {
+		opensBuckets();
+		when(parcelRepository.claimForConsolidation(any(Parcel.class), anyString())).thenReturn(true);
+
+		// 40 x 30 x 20 cm = 0.024 m³: hundreds of these fit under the 10 m³ limit
+		for (int i = 0; i < 100; i++) {
+			consolidator.accept(event("p-" + i, 2.0, 40 * 30 * 20));
+		}
+
+		verify(consolidatedParcelRepository, times(1)).save(any());
+		verify(consolidationPublisher, never()).publish(any());
+		ArgumentCaptor<Parcel> claimed = ArgumentCaptor.forClass(Parcel.class);
+		verify(parcelRepository, times(100)).claimForConsolidation(claimed.capture(), anyString());
+		assertEquals(0, new BigDecimal("0.024").compareTo(claimed.getValue().getVolume()));
+	}
+
+	@Test
+	void bucketIsSealedOnceTheVolumeLimitIsReached() {
+		opensBuckets();
+		sealsBuckets();
+		when(parcelRepository.claimForConsolidation(any(Parcel.class), anyString())).thenReturn(true);
+
+		// 1 m³ pallets: the tenth fills the bucket and seals it
+		for (int i = 0; i < 10; i++) {
+			consolidator.accept(event("p-" + i, 50.0, 100 * 100 * 100));
+		}
+
+		verify(consolidationPublisher).publish(any());
+	}
+
+	@Test
+	void parcelsAlreadyClaimedElsewhereAreNotAdded() {
+		when(parcelRepository.claimForConsolidation(any(Parcel.class), anyString())).thenReturn(false);
+
+		consolidator.accept(event("p-1", 2.0, 24_000));
+
+		verify(consolidatedParcelRepository, never()).save(any());
+		verify(mongoTemplate, never()).updateFirst(any(Query.class), any(Update.class), eq(ConsolidatedParcel.class));
+	}
+
+	@Test
+	void redeliveryIntoTheOpenBucketIsIgnored() {
+		opensBuckets();
+		when(parcelRepository.claimForConsolidation(any(Parcel.class), anyString())).thenReturn(true);
+
+		consolidator.accept(event("p-1", 2.0, 24_000));
+		consolidator.accept(event("p-1", 2.0, 24_000));
+
+		verify(parcelRepository, times(1)).claimForConsolidation(any(Parcel.class), anyString());
+		verify(mongoTemplate, times(1)).updateFirst(any(Query.class), any(Update.class), eq(ConsolidatedParcel.class));
+	}
+
+	@Test
+	void overflowingParcelIsClaimedForTheNextConsolidation() {
+		ReflectionTestUtils.setField(consolidator, "maxWeight", 10.0);
+		opensBuckets();
+		sealsBuckets();
+		ArgumentCaptor<String> consolidationIds = ArgumentCaptor.forClass(String.class);
+		when(parcelRepository.claimForConsolidation(any(Parcel.class), consolidationIds.capture())).thenReturn(true);
+
+		consolidator.accept(event("p-1", 6.0, 24_000));
+		consolidator.accept(event("p-2", 6.0, 24_000));
+
+		List<String> ids = consolidationIds.getAllValues();
+		assertNotEquals(ids.get(0), ids.get(1));
+		ArgumentCaptor<ConsolidatedParcel> opened = ArgumentCaptor.forClass(ConsolidatedParcel.class);
+		verify(consolidatedParcelRepository, times(2)).save(opened.capture());
+		assertEquals(ids, opened.getAllValues().stream().map(ConsolidatedParcel::getConsolidationId).toList());
+		verify(consolidationPublisher).publish(any());
+	}
+
+	private void opensBuckets() {
+		when(consolidatedParcelRepository.save(any(ConsolidatedParcel.class))).thenAnswer(invocation -> {
+			ConsolidatedParcel consolidation = invocation.getArgument(0);
+			consolidation.setId(UUID.randomUUID().toString());
+			return consolidation;
+		});
+	}
+
+	private void sealsBuckets() {
+		when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+				eq(ConsolidatedParcel.class))).thenReturn(new ConsolidatedParcel());
+	}
+
+	private static ParcelCreatedEvent event(String parcelId, double weight, double volumeCubicCm) {
+		ParcelCreatedEvent event = new ParcelCreatedEvent();
+		event.setEventId(UUID.randomUUID().toString());
+		event.setParcelId(parcelId);
+		event.setTrackingNumber("TRK-" + parcelId);
+		event.setSenderId("s-1");
+		event.setOrigin("Colombo");
+		event.setDestination("Kandy");
+		event.setWeight(weight);
+		event.setVolume(volumeCubicCm);
+		return event;
+	}
+}
@@ -0,0 +1,42 @@
+package com.sparrow.consolidation_service.util;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class KeysetCursorTests {
+
+	@Test
+	void roundTripsTheIdAsAUrlSafeToken() {
+		KeysetCursor cursor = new KeysetCursor("65f0c0ffee0000000000abcd");
+
+		String encoded = cursor.encode();
+
+		assertFalse(encoded.contains("=") || encoded.contains("+") || encoded.contains("/"), "cursor must be URL safe");
+		assertEquals(cursor, KeysetCursor.decode(encoded));
+	}
+
+	@Test
+	void keepsSeparatorsInsideTheId() {
+		KeysetCursor cursor = new KeysetCursor("id|with|pipes");
+
+		assertEquals("id|with|pipes", KeysetCursor.decode(cursor.encode()).getId());
+	}
+
+	@Test
+	void rejectsMalformedAndEmptyCursorsAsBadRequests() {
+		String empty = Base64.getUrlEncoder().encodeToString("".getBytes(StandardCharsets.UTF_8));
+
+		for (String cursor : new String[]{"%%%", empty}) {
+			ResponseStatusException e = assertThrows(ResponseStatusException.class, () -> KeysetCursor.decode(cursor));
+			assertEquals(HttpStatus.BAD_REQUEST, e.getStatusCode());
+		}
+	}
+}
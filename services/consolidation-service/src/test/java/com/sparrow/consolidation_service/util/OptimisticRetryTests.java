@@ -0,0 +1,54 @@
+package com.sparrow.consolidation_service.util;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class OptimisticRetryTests {
+
+	@Test
+	void retriesUntilTheUpdateWins() {
+		AtomicInteger attempts = new AtomicInteger();
+
+		String result = OptimisticRetry.run(() -> {
+			if (attempts.incrementAndGet() < 3) {
+				throw new OptimisticLockingFailureException("version conflict");
+			}
+			return "saved";
+		});
+
+		assertEquals("saved", result);
+		assertEquals(3, attempts.get());
+	}
+
+	@Test
+	void givesUpWithConflictAfterTheLastAttempt() {
+		AtomicInteger attempts = new AtomicInteger();
+
+		ResponseStatusException e = assertThrows(ResponseStatusException.class, () -> OptimisticRetry.run(() -> {
+			attempts.incrementAndGet();
+			throw new OptimisticLockingFailureException("version conflict");
+		}, 4));
+
+		assertEquals(HttpStatus.CONFLICT, e.getStatusCode());
+		assertEquals(4, attempts.get());
+	}
+
+	@Test
+	void otherFailuresAreNotRetried() {
+		AtomicInteger attempts = new AtomicInteger();
+
+		assertThrows(IllegalArgumentException.class, () -> OptimisticRetry.run(() -> {
+			attempts.incrementAndGet();
+			throw new IllegalArgumentException("not found");
+		}));
+
+		assertEquals(1, attempts.get());
+	}
+}
@@ -0,0 +1,112 @@
+package com.sparrow.parcel_service.repository;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.sparrow.parcel_service.model.Parcel;
+import com.sparrow.parcel_service.model.ParcelTrackingEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// One tracking update against a parcel that already has N events: the old read-modify-save of the whole document,
+// the targeted $push/$set, and the capped $push plus a tracking_events insert used with the event store enabled.
+// Needs a running MongoDB: ./gradlew jmh -Dbenchmark.mongo.uri=mongodb://localhost:27017
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TrackingUpdateBenchmark {
+
+    private static final String PARCEL_ID = "benchmark-parcel";
+    private static final int RECENT_EVENTS = 20;
+
+    @Param({"10", "100", "500"})
+    private int events;
+
+    private MongoClient client;
+    private MongoTemplate mongoTemplate;
+    private ParcelRepositoryImpl repository;
+    private Parcel parcel;
+    private long sequence;
+
+    @Setup(Level.Trial)
+    public void connect() {
+        client = MongoClients.create(System.getProperty("benchmark.mongo.uri", "mongodb://localhost:27017"));
+        mongoTemplate = new MongoTemplate(client, "parcel_benchmark");
+        repository = new ParcelRepositoryImpl(mongoTemplate);
+
+        parcel = new Parcel();
+        parcel.setId(PARCEL_ID);
+        parcel.setTrackingNumber("TRK0000000000000");
+        parcel.setSenderId("s-1");
+        parcel.setRecipientId("r-1");
+        parcel.setSenderAddress(new Parcel.Address("1 Galle Road", "Colombo", "Western", "00300", "LK"));
+        parcel.setRecipientAddress(new Parcel.Address("5 Temple Street", "Kandy", "Central", "20000", "LK"));
+        parcel.setWeight(2.5);
+        parcel.setStatus("IN_TRANSIT");
+        parcel.setCreatedAt(LocalDateTime.now());
+        List<Parcel.TrackingEvent> history = new ArrayList<>(events);
+        for (int i = 0; i < events; i++) {
+            history.add(event(i));
+        }
+        parcel.setTrackingHistory(history);
+    }
+
+    // Every invocation starts from exactly N events so the history length does not drift during an iteration
+    @Setup(Level.Invocation)
+    public void resetParcel() {
+        mongoTemplate.save(parcel);
+    }
+
+    @TearDown(Level.Trial)
+    public void disconnect() {
+        mongoTemplate.getDb().drop();
+        client.close();
+    }
+
+    @Benchmark
+    public Parcel saveWholeDocument() {
+        Parcel loaded = mongoTemplate.findById(PARCEL_ID, Parcel.class);
+        Parcel.TrackingEvent event = event(sequence++);
+        loaded.getTrackingHistory().add(event);
+        loaded.setStatus(event.getStatus());
+        loaded.setCurrentLocation(event.getLocation());
+        loaded.setUpdatedAt(LocalDateTime.now());
+        return mongoTemplate.save(loaded);
+    }
+
+    @Benchmark
+    public Parcel targetedPush() {
+        return repository.appendTrackingEvent(PARCEL_ID, event(sequence++), 0).orElseThrow();
+    }
+
+    @Benchmark
+    public Parcel cappedPushWithEventStore() {
+        Parcel.TrackingEvent event = event(sequence++);
+        mongoTemplate.save(new ParcelTrackingEvent(PARCEL_ID, event));
+        return repository.appendTrackingEvent(PARCEL_ID, event, RECENT_EVENTS).orElseThrow();
+    }
+
+    private static Parcel.TrackingEvent event(long i) {
+        return new Parcel.TrackingEvent(LocalDateTime.now().plusSeconds(i), "Hub " + (i % 40), "IN_TRANSIT",
+                "Scanned at sorting hub " + (i % 40));
+    }
+}
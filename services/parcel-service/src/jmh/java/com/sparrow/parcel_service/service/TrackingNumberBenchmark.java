@@ -0,0 +1,50 @@
+package com.sparrow.parcel_service.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// The old UUID-prefix tracking number against the Snowflake generator, single-threaded and with threads contending
+// on the shared sequence. Run with: ./gradlew jmh -Pjmh.includes=TrackingNumberBenchmark (add -prof gc for allocations)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TrackingNumberBenchmark {
+
+    private final SnowflakeTrackingNumberGenerator generator = new SnowflakeTrackingNumberGenerator(1, System::currentTimeMillis);
+
+    @Benchmark
+    public String uuidPrefix() {
+        return "TRK" + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
+    }
+
+    @Benchmark
+    public String snowflake() {
+        return generator.next();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String uuidPrefixContended() {
+        return uuidPrefix();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String snowflakeContended() {
+        return generator.next();
+    }
+}
@@ -0,0 +1,43 @@
+package com.sparrow.parcel_service.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.sparrow.parcel_service.model.Parcel;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+// Bounded cache for the public tracking lookup. Caffeine's W-TinyLFU admission keeps
+// frequently polled parcels resident while one-off lookups are evicted first.
+// Parcels are mutable, so every caller gets its own copy and the cached instance is never handed out.
+@Component
+public class ParcelTrackingCache {
+
+    private final Cache<String, Parcel> cache;
+
+    public ParcelTrackingCache(MeterRegistry meterRegistry,
+                               @Value("${parcel.tracking.cache.maximum-size:100000}") long maximumSize,
+                               @Value("${parcel.tracking.cache.ttl:30s}") Duration ttl) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "parcelsByTrackingNumber");
+    }
+
+    public Parcel get(String trackingNumber, Function<String, Parcel> loader) {
+        Parcel cached = cache.get(trackingNumber, loader);
+        return cached != null ? cached.copy() : null;
+    }
+
+    public void invalidate(String trackingNumber) {
+        if (trackingNumber != null) {
+            cache.invalidate(trackingNumber);
+        }
+    }
+}
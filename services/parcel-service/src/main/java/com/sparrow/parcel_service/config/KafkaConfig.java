@@ -31,4 +31,12 @@ public class KafkaConfig {
                 .replicas(1)
                 .build();
     }
+
+    @Bean
+    public NewTopic parcelTrackingScansTopic() {
+        return TopicBuilder.name("parcel-tracking-scans")
+                .partitions(3)
+                .replicas(1)
+                .build();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,116 @@
+package com.sparrow.parcel_service.config;
+
+import com.sparrow.parcel_service.model.Parcel;
+import com.sparrow.parcel_service.model.ParcelTrackingEvent;
+import com.sparrow.parcel_service.service.TrackingNumberGenerator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+// Creates the indexes declared on the entities and refuses to start if any of them is missing afterwards.
+// Spring Boot leaves auto-index-creation off, so without this the annotations alone have no effect.
+@Slf4j
+@Configuration
+@RequiredArgsConstructor
+public class MongoIndexConfig {
+
+    private static final List<Class<?>> INDEXED_ENTITIES = List.of(Parcel.class, ParcelTrackingEvent.class);
+    private static final String TRACKING_NUMBER_INDEX = "tracking_number_uidx";
+    private static final int REPORTED_DUPLICATES = 20;
+
+    private final MongoTemplate mongoTemplate;
+    private final TrackingNumberGenerator trackingNumberGenerator;
+
+    // Off by default: tracking numbers are printed on labels and given to customers, so changing them is opt-in
+    @Value("${parcel.indexes.reassign-duplicate-tracking-numbers:false}")
+    private boolean reassignDuplicateTrackingNumbers;
+
+    @EventListener(ContextRefreshedEvent.class)
+    public void ensureIndexes() {
+        resolveDuplicateTrackingNumbers();
+
+        IndexResolver resolver = IndexResolver.create(mongoTemplate.getConverter().getMappingContext());
+
+        for (Class<?> entity : INDEXED_ENTITIES) {
+            IndexOperations indexOps = mongoTemplate.indexOps(entity);
+
+            Set<String> declared = new LinkedHashSet<>();
+            resolver.resolveIndexFor(entity).forEach(definition -> declared.add(indexOps.createIndex(definition)));
+
+            Set<String> existing = indexOps.getIndexInfo().stream()
+                    .map(IndexInfo::getName)
+                    .collect(Collectors.toSet());
+            declared.removeAll(existing);
+
+            if (!declared.isEmpty()) {
+                throw new IllegalStateException("Missing indexes on " + entity.getSimpleName() + ": " + declared);
+            }
+            log.info("Verified indexes on {}: {}", entity.getSimpleName(), existing);
+        }
+    }
+
+    // Numbers from the old UUID-prefix scheme could collide, and the unique index cannot be built over duplicates.
+    // Once the index exists duplicates are impossible, so the full scan only runs until it has been created.
+    void resolveDuplicateTrackingNumbers() {
+        boolean indexed = mongoTemplate.indexOps(Parcel.class).getIndexInfo().stream()
+                .anyMatch(index -> TRACKING_NUMBER_INDEX.equals(index.getName()));
+        if (indexed) {
+            return;
+        }
+
+        // Oldest parcel first in every group: it keeps its number
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.sort(Sort.by("createdAt", "_id")),
+                Aggregation.group("trackingNumber").push("_id").as("parcelIds").count().as("count"),
+                Aggregation.match(Criteria.where("count").gt(1)))
+                .withOptions(AggregationOptions.builder().allowDiskUse(true).build());
+        List<Document> duplicates = mongoTemplate.aggregate(aggregation,
+                mongoTemplate.getCollectionName(Parcel.class), Document.class).getMappedResults();
+        if (duplicates.isEmpty()) {
+            return;
+        }
+
+        if (!reassignDuplicateTrackingNumbers) {
+            String report = duplicates.stream()
+                    .limit(REPORTED_DUPLICATES)
+                    .map(duplicate -> duplicate.get("_id") + " " + duplicate.get("parcelIds"))
+                    .collect(Collectors.joining(", "));
+            throw new IllegalStateException(duplicates.size() + " tracking numbers are shared by several parcels, so "
+                    + TRACKING_NUMBER_INDEX + " cannot be created. First " + Math.min(duplicates.size(), REPORTED_DUPLICATES)
+                    + " (number [parcel ids, oldest first]): " + report + ". Resolve them by hand or start once with "
+                    + "parcel.indexes.reassign-duplicate-tracking-numbers=true to give all but the oldest parcel a new number.");
+        }
+
+        int reassigned = 0;
+        for (Document duplicate : duplicates) {
+            List<?> parcelIds = duplicate.getList("parcelIds", Object.class);
+            for (Object parcelId : parcelIds.subList(1, parcelIds.size())) {
+                String trackingNumber = trackingNumberGenerator.next();
+                mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(parcelId)),
+                        Update.update("trackingNumber", trackingNumber), Parcel.class);
+                log.warn("Reassigned duplicate tracking number {} of parcel {} to {}", duplicate.get("_id"), parcelId, trackingNumber);
+                reassigned++;
+            }
+        }
+        log.warn("Reassigned {} duplicate tracking numbers before creating {}", reassigned, TRACKING_NUMBER_INDEX);
+    }
+}
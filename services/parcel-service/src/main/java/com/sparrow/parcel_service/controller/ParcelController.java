@@ -1,7 +1,12 @@
 package com.sparrow.parcel_service.controller;
 
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.sparrow.parcel_service.dto.BatchTrackingUpdateRequest;
+import com.sparrow.parcel_service.dto.BatchTrackingUpdateResponse;
 import com.sparrow.parcel_service.dto.CreateParcelRequest;
+import com.sparrow.parcel_service.dto.CursorPage;
 import com.sparrow.parcel_service.dto.ParcelResponse;
 import com.sparrow.parcel_service.dto.TrackingUpdateRequest;
 import com.sparrow.parcel_service.model.Parcel;
@@ -10,11 +15,15 @@ import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.util.Iterator;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 @RestController
 @RequestMapping("/api/parcels")
@@ -22,7 +31,10 @@ import java.util.stream.Collectors;
 @Tag(name = "Parcel Management", description = "APIs for managing parcels and tracking")
 public class ParcelController {
 
+    private static final String NDJSON = MediaType.APPLICATION_NDJSON_VALUE;
+
     private final ParcelService parcelService;
+    private final ObjectMapper objectMapper;
 
     @PostMapping
     @Operation(summary = "Create a new parcel", description = "Creates a new parcel with tracking information")
@@ -46,30 +58,66 @@ public class ParcelController {
     }
 
     @GetMapping("/sender/{senderId}")
-    @Operation(summary = "Get parcels by sender", description = "Retrieves all parcels sent by a specific sender")
-    public ResponseEntity<List<ParcelResponse>> getParcelsBySender(@PathVariable String senderId) {
-        List<Parcel> parcels = parcelService.getParcelsBySender(senderId);
-        return ResponseEntity.ok(parcels.stream()
-                .map(this::convertToResponse)
-                .collect(Collectors.toList()));
+    @Operation(summary = "Get parcels by sender", description = "Retrieves a page of parcels sent by a specific sender, newest first as {items, nextCursor}; pass nextCursor back as cursor for the next page")
+    public ResponseEntity<CursorPage<ParcelResponse>> getParcelsBySender(
+            @PathVariable String senderId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") int limit,
+            @RequestParam(defaultValue = "false") boolean includeHistory) {
+        CursorPage<Parcel> parcels = parcelService.getParcelsBySender(senderId, cursor, limit, includeHistory);
+        return ResponseEntity.ok(parcels.map(this::convertToResponse));
+    }
+
+    @GetMapping(value = "/sender/{senderId}", produces = NDJSON)
+    @Operation(summary = "Stream parcels by sender", description = "Streams all parcels sent by a specific sender as NDJSON")
+    public ResponseEntity<StreamingResponseBody> streamParcelsBySender(
+            @PathVariable String senderId,
+            @RequestParam(defaultValue = "false") boolean includeHistory) {
+        return ndjson(() -> parcelService.streamParcelsBySender(senderId, includeHistory));
     }
 
     @GetMapping("/recipient/{recipientId}")
-    @Operation(summary = "Get parcels by recipient", description = "Retrieves all parcels for a specific recipient")
-    public ResponseEntity<List<ParcelResponse>> getParcelsByRecipient(@PathVariable String recipientId) {
-        List<Parcel> parcels = parcelService.getParcelsByRecipient(recipientId);
-        return ResponseEntity.ok(parcels.stream()
-                .map(this::convertToResponse)
-                .collect(Collectors.toList()));
+    @Operation(summary = "Get parcels by recipient", description = "Retrieves a page of parcels for a specific recipient, newest first as {items, nextCursor}; pass nextCursor back as cursor for the next page")
+    public ResponseEntity<CursorPage<ParcelResponse>> getParcelsByRecipient(
+            @PathVariable String recipientId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") int limit,
+            @RequestParam(defaultValue = "false") boolean includeHistory) {
+        CursorPage<Parcel> parcels = parcelService.getParcelsByRecipient(recipientId, cursor, limit, includeHistory);
+        return ResponseEntity.ok(parcels.map(this::convertToResponse));
+    }
+
+    @GetMapping(value = "/recipient/{recipientId}", produces = NDJSON)
+    @Operation(summary = "Stream parcels by recipient", description = "Streams all parcels for a specific recipient as NDJSON")
+    public ResponseEntity<StreamingResponseBody> streamParcelsByRecipient(
+            @PathVariable String recipientId,
+            @RequestParam(defaultValue = "false") boolean includeHistory) {
+        return ndjson(() -> parcelService.streamParcelsByRecipient(recipientId, includeHistory));
     }
 
     @GetMapping("/consolidation/{consolidationId}")
-    @Operation(summary = "Get parcels by consolidation", description = "Retrieves all parcels in a specific consolidation")
-    public ResponseEntity<List<ParcelResponse>> getParcelsByConsolidation(@PathVariable String consolidationId) {
-        List<Parcel> parcels = parcelService.getParcelsByConsolidation(consolidationId);
-        return ResponseEntity.ok(parcels.stream()
-                .map(this::convertToResponse)
-                .collect(Collectors.toList()));
+    @Operation(summary = "Get parcels by consolidation", description = "Retrieves a page of parcels in a specific consolidation as {items, nextCursor}; pass nextCursor back as cursor for the next page")
+    public ResponseEntity<CursorPage<ParcelResponse>> getParcelsByConsolidation(
+            @PathVariable String consolidationId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") int limit,
+            @RequestParam(defaultValue = "false") boolean includeHistory) {
+        CursorPage<Parcel> parcels = parcelService.getParcelsByConsolidation(consolidationId, cursor, limit, includeHistory);
+        return ResponseEntity.ok(parcels.map(this::convertToResponse));
+    }
+
+    @GetMapping(value = "/consolidation/{consolidationId}", produces = NDJSON)
+    @Operation(summary = "Stream parcels by consolidation", description = "Streams all parcels in a specific consolidation as NDJSON")
+    public ResponseEntity<StreamingResponseBody> streamParcelsByConsolidation(
+            @PathVariable String consolidationId,
+            @RequestParam(defaultValue = "false") boolean includeHistory) {
+        return ndjson(() -> parcelService.streamParcelsByConsolidation(consolidationId, includeHistory));
+    }
+
+    @GetMapping("/{id}/tracking-events")
+    @Operation(summary = "Get tracking history", description = "Retrieves the full tracking history of a parcel")
+    public ResponseEntity<List<Parcel.TrackingEvent>> getTrackingHistory(@PathVariable String id) {
+        return ResponseEntity.ok(parcelService.getTrackingHistory(id));
     }
 
     @PatchMapping("/{id}/status")
@@ -81,6 +129,13 @@ public class ParcelController {
         return ResponseEntity.ok(convertToResponse(parcel));
     }
 
+    @PostMapping("/status:batch")
+    @Operation(summary = "Apply tracking scans in bulk", description = "Applies many tracking updates at once and reports the outcome of each scan")
+    public ResponseEntity<BatchTrackingUpdateResponse> applyTrackingScans(
+            @Valid @RequestBody BatchTrackingUpdateRequest request) {
+        return ResponseEntity.ok(parcelService.applyTrackingScans(request.getScans()));
+    }
+
     @PatchMapping("/{id}/consolidation/{consolidationId}")
     @Operation(summary = "Assign parcel to consolidation", description = "Assigns a parcel to a consolidation batch")
     public ResponseEntity<ParcelResponse> assignToConsolidation(
@@ -90,6 +145,24 @@ public class ParcelController {
         return ResponseEntity.ok(convertToResponse(parcel));
     }
 
+    // Writes one JSON document per line as parcels come off the Mongo cursor
+    private ResponseEntity<StreamingResponseBody> ndjson(Supplier<Stream<Parcel>> source) {
+        ObjectWriter writer = objectMapper.writerFor(ParcelResponse.class);
+        StreamingResponseBody body = out -> {
+            try (Stream<Parcel> parcels = source.get()) {
+                Iterator<Parcel> iterator = parcels.iterator();
+                while (iterator.hasNext()) {
+                    out.write(writer.writeValueAsBytes(convertToResponse(iterator.next())));
+                    out.write('\n');
+                }
+            }
+            out.flush();
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
     private ParcelResponse convertToResponse(Parcel parcel) {
         ParcelResponse response = new ParcelResponse();
         response.setId(parcel.getId());
@@ -102,6 +175,7 @@ public class ParcelController {
         response.setLength(parcel.getLength());
         response.setWidth(parcel.getWidth());
         response.setHeight(parcel.getHeight());
+        response.setParcelType(parcel.getParcelType());
         response.setStatus(parcel.getStatus());
         response.setCurrentLocation(parcel.getCurrentLocation());
         response.setConsolidationId(parcel.getConsolidationId());
@@ -0,0 +1,16 @@
+package com.sparrow.parcel_service.dto;
+
+
+import lombok.Data;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+@Data
+public class BatchTrackingUpdateRequest {
+    @NotEmpty
+    @Size(max = 10000)
+    private List<@Valid TrackingScan> scans;
+}
@@ -0,0 +1,28 @@
+package com.sparrow.parcel_service.dto;
+
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+public class BatchTrackingUpdateResponse {
+    private int received;
+    private int updated;
+    private int failed;
+    private List<ItemResult> results;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class ItemResult {
+        private int index;
+        private String parcelId;
+        private String outcome; // UPDATED, NOT_FOUND, INVALID, FAILED
+        private String error;
+    }
+}
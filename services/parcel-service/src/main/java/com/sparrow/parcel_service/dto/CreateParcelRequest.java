@@ -32,4 +32,6 @@ public class CreateParcelRequest {
 
     @Positive
     private Double height;
+
+    private String parcelType;
 }
\ No newline at end of file
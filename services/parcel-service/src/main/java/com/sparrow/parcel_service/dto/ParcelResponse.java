@@ -18,6 +18,7 @@ public class ParcelResponse {
     private Double length;
     private Double width;
     private Double height;
+    private String parcelType;
     private String status;
     private String currentLocation;
     private String consolidationId;
@@ -0,0 +1,24 @@
+package com.sparrow.parcel_service.dto;
+
+
+import lombok.Data;
+import jakarta.validation.constraints.NotBlank;
+
+import java.time.LocalDateTime;
+
+@Data
+public class TrackingScan {
+    @NotBlank
+    private String parcelId;
+
+    @NotBlank
+    private String location;
+
+    @NotBlank
+    private String status;
+
+    private String description;
+
+    // Time the scan was taken at the hub; defaults to the ingestion time when absent
+    private LocalDateTime scannedAt;
+}
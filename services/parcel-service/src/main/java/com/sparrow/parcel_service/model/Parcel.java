@@ -1,25 +1,42 @@
 package com.sparrow.parcel_service.model;
 
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.index.Indexed;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
 
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 @Document(collection = "parcels")
+@CompoundIndexes({
+        // Listing queries sort by (createdAt desc, _id desc) for keyset pagination
+        @CompoundIndex(name = "sender_created_idx", def = "{ 'senderId': 1, 'createdAt': -1, '_id': -1 }"),
+        @CompoundIndex(name = "recipient_created_idx", def = "{ 'recipientId': 1, 'createdAt': -1, '_id': -1 }"),
+        // Most parcels are never consolidated, so only index the ones that are
+        @CompoundIndex(name = "consolidation_created_idx", def = "{ 'consolidationId': 1, 'createdAt': -1, '_id': -1 }",
+                partialFilter = "{ 'consolidationId': { '$exists': true } }"),
+        @CompoundIndex(name = "status_updated_idx", def = "{ 'status': 1, 'updatedAt': 1 }"),
+        @CompoundIndex(name = "tracking_history_status_idx", def = "{ 'trackingHistory.status': 1 }"),
+        @CompoundIndex(name = "outbox_pending_idx", def = "{ 'outbox.createdAt': 1 }",
+                partialFilter = "{ 'outbox.createdAt': { '$exists': true } }")
+})
 public class Parcel {
     @Id
     private String id;
 
-    @Indexed
+    @Indexed(name = "tracking_number_uidx", unique = true)
     private String trackingNumber;
 
     private String senderId;
@@ -32,10 +49,11 @@ public class Parcel {
     private Double width;
     private Double height;
 
+    private String parcelType; // matched against Warehouse.supportedParcelTypes; null fits any warehouse
+
     private String status; // CREATED, IN_TRANSIT, AT_WAREHOUSE, OUT_FOR_DELIVERY, DELIVERED
     private String currentLocation;
 
-    @Indexed
     private String consolidationId;
 
     private List<TrackingEvent> trackingHistory;
@@ -44,6 +62,25 @@ public class Parcel {
     private LocalDateTime updatedAt;
     private LocalDateTime estimatedDelivery;
 
+    // True once every tracking event of the parcel is in tracking_events; see TrackingEventBackfill
+    @JsonIgnore
+    private Boolean historyInEventStore;
+
+    // Events queued in the same write as the change they describe; drained by OutboxRelay
+    @JsonIgnore
+    private List<OutboxEvent> outbox;
+
+    // Deep copy, for handing out cached parcels without sharing mutable state between callers
+    public Parcel copy() {
+        return new Parcel(id, trackingNumber, senderId, recipientId,
+                senderAddress != null ? senderAddress.copy() : null,
+                recipientAddress != null ? recipientAddress.copy() : null,
+                weight, length, width, height, parcelType, status, currentLocation, consolidationId,
+                trackingHistory != null ? trackingHistory.stream().map(TrackingEvent::copy).collect(Collectors.toList()) : null,
+                createdAt, updatedAt, estimatedDelivery, historyInEventStore,
+                outbox != null ? outbox.stream().map(OutboxEvent::copy).collect(Collectors.toList()) : null);
+    }
+
     @Data
     @NoArgsConstructor
     @AllArgsConstructor
@@ -53,6 +90,10 @@ public class Parcel {
         private String state;
         private String zipCode;
         private String country;
+
+        public Address copy() {
+            return new Address(street, city, state, zipCode, country);
+        }
     }
 
     @Data
@@ -63,5 +104,30 @@ public class Parcel {
         private String location;
         private String status;
         private String description;
+
+        public TrackingEvent copy() {
+            return new TrackingEvent(timestamp, location, status, description);
+        }
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class OutboxEvent {
+        private String eventId;
+        private String topic;
+        private String key; // defaults to the parcel ID when null
+        private LocalDateTime createdAt;
+        // Snapshot of what the write changed, so the payload describes this change and not the parcel at publish time
+        private String status;
+        private String location;
+
+        public OutboxEvent copy() {
+            return new OutboxEvent(eventId, topic, key, createdAt, status, location);
+        }
+
+        public static OutboxEvent of(String topic, String key, String status, String location, LocalDateTime createdAt) {
+            return new OutboxEvent(UUID.randomUUID().toString(), topic, key, createdAt, status, location);
+        }
     }
 }
\ No newline at end of file
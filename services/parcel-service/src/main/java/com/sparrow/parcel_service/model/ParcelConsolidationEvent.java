@@ -0,0 +1,30 @@
+package com.sparrow.parcel_service.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+public class ParcelConsolidationEvent {
+    private String eventId;
+    private String parcelId;
+    private String trackingNumber;
+    private String consolidationId;
+    private String status;
+    private LocalDateTime updatedAt;
+
+    // The outbox entry is keyed by the consolidation it records, which may not be the parcel's current one
+    public static ParcelConsolidationEvent from(Parcel parcel, Parcel.OutboxEvent outboxEvent) {
+        boolean snapshot = outboxEvent.getStatus() != null;
+        ParcelConsolidationEvent event = new ParcelConsolidationEvent();
+        event.setEventId(outboxEvent.getEventId());
+        event.setParcelId(parcel.getId());
+        event.setTrackingNumber(parcel.getTrackingNumber());
+        event.setConsolidationId(outboxEvent.getKey() != null ? outboxEvent.getKey() : parcel.getConsolidationId());
+        event.setStatus(snapshot ? outboxEvent.getStatus() : parcel.getStatus());
+        event.setUpdatedAt(snapshot ? outboxEvent.getCreatedAt() : parcel.getUpdatedAt());
+        return event;
+    }
+}
@@ -0,0 +1,43 @@
+package com.sparrow.parcel_service.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+public class ParcelCreatedEvent {
+    private String eventId;
+    private String parcelId;
+    private String trackingNumber;
+    private String senderId;
+    private String recipientId;
+    private String origin;      // sender city
+    private String destination; // recipient city
+    private Double weight;
+    private Double volume;      // length * width * height
+    private String parcelType;
+    private String status;
+    private LocalDateTime createdAt;
+
+    public static ParcelCreatedEvent from(Parcel parcel, Parcel.OutboxEvent outboxEvent) {
+        ParcelCreatedEvent event = new ParcelCreatedEvent();
+        event.setEventId(outboxEvent.getEventId());
+        event.setParcelId(parcel.getId());
+        event.setTrackingNumber(parcel.getTrackingNumber());
+        event.setSenderId(parcel.getSenderId());
+        event.setRecipientId(parcel.getRecipientId());
+        event.setOrigin(parcel.getSenderAddress() != null ? parcel.getSenderAddress().getCity() : null);
+        event.setDestination(parcel.getRecipientAddress() != null ? parcel.getRecipientAddress().getCity() : null);
+        event.setWeight(parcel.getWeight());
+        if (parcel.getLength() != null && parcel.getWidth() != null && parcel.getHeight() != null) {
+            event.setVolume(parcel.getLength() * parcel.getWidth() * parcel.getHeight());
+        }
+        event.setParcelType(parcel.getParcelType());
+        // The status the parcel was created with, even if scans have moved it on since
+        event.setStatus(outboxEvent.getStatus() != null ? outboxEvent.getStatus() : parcel.getStatus());
+        event.setCreatedAt(parcel.getCreatedAt());
+        return event;
+    }
+}
@@ -0,0 +1,31 @@
+package com.sparrow.parcel_service.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+public class ParcelStatusUpdatedEvent {
+    private String eventId;
+    private String parcelId;
+    private String trackingNumber;
+    private String status;
+    private String currentLocation;
+    private LocalDateTime updatedAt;
+
+    // Status and location come from the outbox entry written with the change; entries queued before it carried them
+    // fall back to the parcel
+    public static ParcelStatusUpdatedEvent from(Parcel parcel, Parcel.OutboxEvent outboxEvent) {
+        boolean snapshot = outboxEvent.getStatus() != null;
+        ParcelStatusUpdatedEvent event = new ParcelStatusUpdatedEvent();
+        event.setEventId(outboxEvent.getEventId());
+        event.setParcelId(parcel.getId());
+        event.setTrackingNumber(parcel.getTrackingNumber());
+        event.setStatus(snapshot ? outboxEvent.getStatus() : parcel.getStatus());
+        event.setCurrentLocation(snapshot ? outboxEvent.getLocation() : parcel.getCurrentLocation());
+        event.setUpdatedAt(snapshot ? outboxEvent.getCreatedAt() : parcel.getUpdatedAt());
+        return event;
+    }
+}
@@ -0,0 +1,48 @@
+package com.sparrow.parcel_service.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@Document(collection = "tracking_events")
+@CompoundIndex(name = "parcel_timestamp_idx", def = "{ 'parcelId': 1, 'timestamp': 1 }")
+public class ParcelTrackingEvent {
+    @Id
+    private String id;
+
+    private String parcelId;
+    private LocalDateTime timestamp;
+    private String location;
+    private String status;
+    private String description;
+
+    public ParcelTrackingEvent(String parcelId, Parcel.TrackingEvent event) {
+        this.id = idFor(parcelId, event);
+        this.parcelId = parcelId;
+        this.timestamp = event.getTimestamp();
+        this.location = event.getLocation();
+        this.status = event.getStatus();
+        this.description = event.getDescription();
+    }
+
+    // Derived from the content so a retried write or a backfill overwrites the record instead of duplicating it.
+    // Mongo keeps millisecond precision, so the id of an event read back from a parcel matches the original.
+    public static String idFor(String parcelId, Parcel.TrackingEvent event) {
+        String key = parcelId + '|' + event.getTimestamp().truncatedTo(ChronoUnit.MILLIS) + '|' + event.getStatus()
+                + '|' + event.getLocation() + '|' + event.getDescription();
+        return UUID.nameUUIDFromBytes(key.getBytes(StandardCharsets.UTF_8)).toString();
+    }
+
+    public Parcel.TrackingEvent toTrackingEvent() {
+        return new Parcel.TrackingEvent(timestamp, location, status, description);
+    }
+}
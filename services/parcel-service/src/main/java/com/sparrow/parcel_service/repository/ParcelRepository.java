@@ -10,7 +10,7 @@ import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface ParcelRepository extends MongoRepository<Parcel, String> {
+public interface ParcelRepository extends MongoRepository<Parcel, String>, ParcelRepositoryCustom {
     Optional<Parcel> findByTrackingNumber(String trackingNumber);
 
     List<Parcel> findByConsolidationId(String consolidationId);
@@ -0,0 +1,45 @@
+package com.sparrow.parcel_service.repository;
+
+import com.sparrow.parcel_service.model.Parcel;
+import com.sparrow.parcel_service.util.KeysetCursor;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+public interface ParcelRepositoryCustom {
+
+    // Tracking updates queue a parcel-status-updated outbox event in the same write.
+    // Appends a tracking event and updates status/location in a single round trip.
+    // historyLimit > 0 keeps only the most recent events embedded in the parcel.
+    Optional<Parcel> appendTrackingEvent(String parcelId, Parcel.TrackingEvent event, int historyLimit);
+
+    // Applies events grouped by parcel ID, each list in chronological order, with one unordered bulk write.
+    // Status and location only change when the latest event is not older than the history already stored.
+    // Returns the parcels that could not be updated, mapped to the failure reason.
+    Map<String, String> appendTrackingEvents(Map<String, List<Parcel.TrackingEvent>> eventsByParcel, int historyLimit);
+
+    // Keyset page over parcels where field == value, newest first, starting after the given cursor (null for the first page)
+    List<Parcel> findPage(String field, String value, KeysetCursor after, int limit, boolean includeHistory);
+
+    // Streams matching parcels straight off the Mongo cursor; the caller must close the stream
+    Stream<Parcel> streamBy(String field, String value, boolean includeHistory);
+
+    Optional<Parcel> assignToConsolidation(String parcelId, String consolidationId);
+
+    List<String> findTrackingNumbers(Collection<String> parcelIds);
+
+    // Copies the embedded history of parcels not yet marked historyInEventStore into tracking_events and marks them.
+    // Returns the number of events copied.
+    long backfillTrackingEvents(int batchSize);
+
+    // Leases up to limit parcels with unpublished outbox events, oldest first, to the relay for the given duration.
+    // Parcels leased by another relay are skipped, so only one replica publishes a parcel's events at a time.
+    List<Parcel> claimPendingOutbox(String relayId, Duration lease, int limit);
+
+    // Removes the delivered events and ends the lease, only on parcels the relay still holds
+    void releaseOutbox(String relayId, Map<String, List<String>> deliveredByParcel);
+}
@@ -0,0 +1,307 @@
+package com.sparrow.parcel_service.repository;
+
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.sparrow.parcel_service.model.Parcel;
+import com.sparrow.parcel_service.model.ParcelTrackingEvent;
+import com.sparrow.parcel_service.util.KeysetCursor;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+@RequiredArgsConstructor
+public class ParcelRepositoryImpl implements ParcelRepositoryCustom {
+
+    public static final String NOT_FOUND = "NOT_FOUND";
+
+    // Scratch field of the batch tracking pipeline, removed again by its last stage
+    private static final String ADVANCES = "_advances";
+
+    // Lease of the OutboxRelay instance currently publishing a parcel's outbox
+    static final String OUTBOX_CLAIMED_BY = "outboxClaimedBy";
+    static final String OUTBOX_CLAIMED_UNTIL = "outboxClaimedUntil";
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public Optional<Parcel> appendTrackingEvent(String parcelId, Parcel.TrackingEvent event, int historyLimit) {
+        Query query = Query.query(Criteria.where("_id").is(parcelId));
+
+        return Optional.ofNullable(mongoTemplate.findAndModify(query, trackingUpdate(List.of(event), historyLimit),
+                FindAndModifyOptions.options().returnNew(true), Parcel.class));
+    }
+
+    @Override
+    public Map<String, String> appendTrackingEvents(Map<String, List<Parcel.TrackingEvent>> eventsByParcel,
+                                                    int historyLimit) {
+        Map<String, String> failures = new HashMap<>();
+        BulkOperations bulkOps = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Parcel.class);
+        List<String> operationOrder = new ArrayList<>(eventsByParcel.size());
+
+        eventsByParcel.forEach((parcelId, events) -> {
+            bulkOps.updateOne(Query.query(Criteria.where("_id").is(parcelId)), batchTrackingUpdate(events, historyLimit));
+            operationOrder.add(parcelId);
+        });
+
+        BulkWriteResult result;
+        try {
+            result = bulkOps.execute();
+        } catch (BulkOperationException e) {
+            for (BulkWriteError error : e.getErrors()) {
+                failures.put(operationOrder.get(error.getIndex()), error.getMessage());
+            }
+            result = e.getResult();
+        }
+
+        // An update that matched nothing is a parcel that does not exist. The bulk result only has the total, so the
+        // missing ones are resolved afterwards, and only when some update missed. Looking them up after the write can
+        // only misreport a parcel deleted in between, whose update did apply; a lookup before it could report updates
+        // as applied that never were.
+        List<String> attempted = operationOrder.stream()
+                .filter(id -> !failures.containsKey(id))
+                .collect(Collectors.toList());
+        if (result.getMatchedCount() < attempted.size()) {
+            Query existingQuery = Query.query(Criteria.where("_id").in(attempted));
+            existingQuery.fields().include("_id");
+            Set<String> existingIds = new HashSet<>();
+            mongoTemplate.find(existingQuery, Parcel.class).forEach(parcel -> existingIds.add(parcel.getId()));
+            attempted.stream()
+                    .filter(id -> !existingIds.contains(id))
+                    .forEach(id -> failures.put(id, NOT_FOUND));
+        }
+
+        return failures;
+    }
+
+    @Override
+    public List<Parcel> findPage(String field, String value, KeysetCursor after, int limit, boolean includeHistory) {
+        Criteria criteria = Criteria.where(field).is(value);
+        if (after != null) {
+            criteria = criteria.orOperator(
+                    Criteria.where("createdAt").lt(after.getCreatedAt()),
+                    Criteria.where("createdAt").is(after.getCreatedAt()).and("_id").lt(after.getId()));
+        }
+
+        Query query = listingQuery(criteria, includeHistory).limit(limit);
+        return mongoTemplate.find(query, Parcel.class);
+    }
+
+    @Override
+    public Stream<Parcel> streamBy(String field, String value, boolean includeHistory) {
+        return mongoTemplate.stream(listingQuery(Criteria.where(field).is(value), includeHistory), Parcel.class);
+    }
+
+    private Query listingQuery(Criteria criteria, boolean includeHistory) {
+        Query query = Query.query(criteria)
+                .with(Sort.by(Sort.Direction.DESC, "createdAt", "_id"));
+        if (!includeHistory) {
+            query.fields().exclude("trackingHistory");
+        }
+        return query;
+    }
+
+    @Override
+    public Optional<Parcel> assignToConsolidation(String parcelId, String consolidationId) {
+        Query query = Query.query(Criteria.where("_id").is(parcelId));
+        LocalDateTime now = LocalDateTime.now();
+        Update update = new Update()
+                .set("consolidationId", consolidationId)
+                .set("status", "AT_WAREHOUSE")
+                .set("updatedAt", now)
+                .push("outbox", Parcel.OutboxEvent.of("consolidation-parcels", consolidationId, "AT_WAREHOUSE", null, now));
+
+        return Optional.ofNullable(mongoTemplate.findAndModify(query, update,
+                FindAndModifyOptions.options().returnNew(true), Parcel.class));
+    }
+
+    @Override
+    public List<String> findTrackingNumbers(Collection<String> parcelIds) {
+        Query query = Query.query(Criteria.where("_id").in(parcelIds));
+        query.fields().include("trackingNumber");
+        return mongoTemplate.find(query, Parcel.class).stream()
+                .map(Parcel::getTrackingNumber)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public long backfillTrackingEvents(int batchSize) {
+        long copied = 0;
+        String lastId = null;
+        while (true) {
+            // Walk the _id index instead of re-running the unindexed flag filter from the start every batch
+            Criteria criteria = Criteria.where("historyInEventStore").ne(true);
+            if (lastId != null) {
+                criteria = criteria.and("_id").gt(lastId);
+            }
+            Query query = Query.query(criteria).with(Sort.by(Sort.Direction.ASC, "_id")).limit(batchSize);
+            query.fields().include("trackingHistory");
+            List<Parcel> parcels = mongoTemplate.find(query, Parcel.class);
+            if (parcels.isEmpty()) {
+                return copied;
+            }
+
+            BulkOperations events = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ParcelTrackingEvent.class);
+            int batched = 0;
+            for (Parcel parcel : parcels) {
+                if (parcel.getTrackingHistory() == null) {
+                    continue;
+                }
+                for (Parcel.TrackingEvent event : parcel.getTrackingHistory()) {
+                    ParcelTrackingEvent record = new ParcelTrackingEvent(parcel.getId(), event);
+                    events.replaceOne(Query.query(Criteria.where("_id").is(record.getId())), record,
+                            FindAndReplaceOptions.options().upsert());
+                    batched++;
+                }
+            }
+            if (batched > 0) {
+                events.execute();
+            }
+
+            List<String> ids = parcels.stream().map(Parcel::getId).collect(Collectors.toList());
+            mongoTemplate.updateMulti(Query.query(Criteria.where("_id").in(ids)),
+                    Update.update("historyInEventStore", true), Parcel.class);
+            copied += batched;
+            lastId = ids.get(ids.size() - 1);
+        }
+    }
+
+    @Override
+    public List<Parcel> claimPendingOutbox(String relayId, Duration lease, int limit) {
+        LocalDateTime now = LocalDateTime.now();
+        Query candidates = Query.query(Criteria.where("outbox.createdAt").exists(true).andOperator(outboxClaimable(now)))
+                .with(Sort.by(Sort.Direction.ASC, "outbox.createdAt"))
+                .limit(limit);
+        candidates.fields().include("_id");
+        List<String> ids = mongoTemplate.find(candidates, Parcel.class).stream()
+                .map(Parcel::getId)
+                .collect(Collectors.toList());
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+
+        // Relays polling at the same time see the same candidates; the claimable condition is re-checked per document
+        // by the update, so each parcel ends up leased to exactly one of them
+        mongoTemplate.updateMulti(Query.query(Criteria.where("_id").in(ids).andOperator(outboxClaimable(now))),
+                new Update().set(OUTBOX_CLAIMED_BY, relayId).set(OUTBOX_CLAIMED_UNTIL, now.plus(lease)), Parcel.class);
+
+        Query claimed = Query.query(Criteria.where("_id").in(ids).and(OUTBOX_CLAIMED_BY).is(relayId))
+                .with(Sort.by(Sort.Direction.ASC, "outbox.createdAt"));
+        // Event payloads never include the tracking history
+        claimed.fields().exclude("trackingHistory");
+        return mongoTemplate.find(claimed, Parcel.class);
+    }
+
+    @Override
+    public void releaseOutbox(String relayId, Map<String, List<String>> deliveredByParcel) {
+        BulkOperations bulkOps = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Parcel.class);
+        deliveredByParcel.forEach((parcelId, eventIds) -> {
+            Update update = new Update().unset(OUTBOX_CLAIMED_BY).unset(OUTBOX_CLAIMED_UNTIL);
+            if (!eventIds.isEmpty()) {
+                update.pull("outbox", new Document("eventId", new Document("$in", eventIds)));
+            }
+            // A relay whose lease ran out leaves the parcel alone; the new holder publishes and clears it
+            bulkOps.updateOne(Query.query(Criteria.where("_id").is(parcelId).and(OUTBOX_CLAIMED_BY).is(relayId)), update);
+        });
+        bulkOps.execute();
+    }
+
+    private static Criteria outboxClaimable(LocalDateTime now) {
+        return new Criteria().orOperator(
+                Criteria.where(OUTBOX_CLAIMED_UNTIL).exists(false),
+                Criteria.where(OUTBOX_CLAIMED_UNTIL).lt(now));
+    }
+
+    // Events must be in chronological order; the last one determines the current status and location
+    private Update trackingUpdate(List<Parcel.TrackingEvent> events, int historyLimit) {
+        Parcel.TrackingEvent latest = events.get(events.size() - 1);
+        LocalDateTime now = LocalDateTime.now();
+
+        Update update = new Update()
+                .set("status", latest.getStatus())
+                .set("currentLocation", latest.getLocation())
+                .set("updatedAt", now);
+
+        Update.PushOperatorBuilder push = update.push("trackingHistory");
+        if (historyLimit > 0) {
+            push.slice(-historyLimit);
+        } else {
+            // The event store is off, so it no longer holds the full history of this parcel
+            update.unset("historyInEventStore");
+        }
+        push.each(events.toArray());
+
+        return update.push("outbox", Parcel.OutboxEvent.of("parcel-status-updated", null,
+                latest.getStatus(), latest.getLocation(), now));
+    }
+
+    // Batched scans can arrive late (scanners upload after being offline) and out of order with other batches, so
+    // status and location only move forward: they are taken from the batch's latest event only when no event already
+    // in the history is newer, and only then is a status event queued. A pipeline update keeps that check and the
+    // writes atomic. Values are wrapped in $literal so a location such as "$x" is never read as a field path.
+    private AggregationUpdate batchTrackingUpdate(List<Parcel.TrackingEvent> events, int historyLimit) {
+        MongoConverter converter = mongoTemplate.getConverter();
+        Parcel.TrackingEvent latest = events.get(events.size() - 1);
+        Object latestAt = converter.convertToMongoType(latest.getTimestamp());
+        List<Object> pushed = events.stream().map(converter::convertToMongoType).collect(Collectors.toList());
+
+        Document advances = new Document("$gte", List.of(latestAt,
+                new Document("$ifNull", List.of(new Document("$max", "$trackingHistory.timestamp"), latestAt))));
+
+        // Late scans land among the existing events, so the history is re-sorted by time before the cap
+        // keeps its newest entries
+        Object history = new Document("$sortArray", new Document("input", new Document("$concatArrays", List.of(
+                new Document("$ifNull", List.of("$trackingHistory", List.of())),
+                new Document("$literal", pushed))))
+                .append("sortBy", new Document("timestamp", 1)));
+        if (historyLimit > 0) {
+            history = new Document("$slice", List.of(history, -historyLimit));
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        Object outboxEvent = converter.convertToMongoType(Parcel.OutboxEvent.of("parcel-status-updated", null,
+                latest.getStatus(), latest.getLocation(), now));
+        Document set = new Document()
+                .append("status", ifAdvances(new Document("$literal", latest.getStatus()), "$status"))
+                .append("currentLocation", ifAdvances(new Document("$literal", latest.getLocation()), "$currentLocation"))
+                .append("outbox", ifAdvances(new Document("$concatArrays", List.of(
+                        new Document("$ifNull", List.of("$outbox", List.of())),
+                        new Document("$literal", List.of(outboxEvent)))), "$outbox"))
+                .append("trackingHistory", history)
+                .append("updatedAt", converter.convertToMongoType(now));
+
+        // The event store is off when historyLimit is 0, so it no longer holds the full history of this parcel
+        List<String> unset = historyLimit > 0 ? List.of(ADVANCES) : List.of(ADVANCES, "historyInEventStore");
+
+        return AggregationUpdate.from(List.of(
+                context -> new Document("$set", new Document(ADVANCES, advances)),
+                context -> new Document("$set", set),
+                context -> new Document("$unset", unset)));
+    }
+
+    private static Document ifAdvances(Object then, Object otherwise) {
+        return new Document("$cond", List.of("$" + ADVANCES, then, otherwise));
+    }
+}
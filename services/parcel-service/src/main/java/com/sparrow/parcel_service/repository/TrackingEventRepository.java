@@ -0,0 +1,12 @@
+package com.sparrow.parcel_service.repository;
+
+import com.sparrow.parcel_service.model.ParcelTrackingEvent;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface TrackingEventRepository extends MongoRepository<ParcelTrackingEvent, String> {
+    List<ParcelTrackingEvent> findByParcelIdOrderByTimestampAsc(String parcelId);
+}
@@ -1,12 +1,24 @@
 package com.sparrow.parcel_service.service;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.sparrow.parcel_service.model.Parcel;
+import com.sparrow.parcel_service.cache.ParcelTrackingCache;
+import com.sparrow.parcel_service.config.EventCodec;
+import com.sparrow.parcel_service.dto.BatchTrackingUpdateResponse;
+import com.sparrow.parcel_service.dto.TrackingScan;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.Header;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
 @Service
 @RequiredArgsConstructor
 @Slf4j
@@ -14,6 +26,8 @@ public class KafkaConsumerService {
 
     private final ObjectMapper objectMapper;
     private final ParcelService parcelService;
+    private final ParcelTrackingCache parcelTrackingCache;
+    private final EventCodec eventCodec;
 
     @KafkaListener(topics = "consolidation-completed", groupId = "parcel-group")
     public void listenConsolidationCompleted(String message) {
@@ -36,4 +50,49 @@ public class KafkaConsumerService {
             log.error("Error processing warehouse update event: {}", e.getMessage());
         }
     }
+
+    @KafkaListener(topics = "parcel-tracking-scans", groupId = "parcel-group", batch = "true")
+    public void listenTrackingScans(List<String> messages) {
+        List<TrackingScan> scans = new ArrayList<>(messages.size());
+        for (String message : messages) {
+            try {
+                scans.add(objectMapper.readValue(message, TrackingScan.class));
+            } catch (JsonProcessingException e) {
+                log.error("Skipping malformed tracking scan: {}", e.getMessage());
+            }
+        }
+
+        if (scans.isEmpty()) {
+            return;
+        }
+
+        BatchTrackingUpdateResponse result = parcelService.applyTrackingScans(scans);
+        if (result.getFailed() > 0) {
+            result.getResults().stream()
+                    .filter(item -> !"UPDATED".equals(item.getOutcome()))
+                    .forEach(item -> log.warn("Tracking scan for parcel {} not applied: {} {}",
+                            item.getParcelId(), item.getOutcome(), item.getError() != null ? item.getError() : ""));
+        }
+    }
+
+    // Unique group per instance so every replica sees every change; start from latest to skip replaying history
+    @KafkaListener(topics = {"parcel-status-updated", "consolidation-parcels"},
+            groupId = "parcel-cache-#{T(java.util.UUID).randomUUID()}",
+            properties = {
+                    "auto.offset.reset=latest",
+                    "value.deserializer=org.apache.kafka.common.serialization.ByteArrayDeserializer"
+            })
+    public void listenParcelChanges(ConsumerRecord<String, byte[]> record) {
+        Header contentType = record.headers().lastHeader(EventCodec.CONTENT_TYPE_HEADER);
+        try {
+            JsonNode trackingNumber = eventCodec.readTree(record.value(),
+                    contentType != null ? new String(contentType.value(), StandardCharsets.UTF_8) : EventCodec.JSON)
+                    .get("trackingNumber");
+            if (trackingNumber != null) {
+                parcelTrackingCache.invalidate(trackingNumber.asText());
+            }
+        } catch (IOException e) {
+            log.error("Error reading parcel change event: {}", e.getMessage());
+        }
+    }
 }
\ No newline at end of file
@@ -1,48 +1,72 @@
 package com.sparrow.parcel_service.service;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sparrow.parcel_service.config.EventCodec;
 import com.sparrow.parcel_service.model.Parcel;
+import com.sparrow.parcel_service.model.ParcelConsolidationEvent;
+import com.sparrow.parcel_service.model.ParcelCreatedEvent;
+import com.sparrow.parcel_service.model.ParcelStatusUpdatedEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class KafkaProducerService {
 
-    private final KafkaTemplate<String, String> kafkaTemplate;
-    private final ObjectMapper objectMapper;
+    public static final String EVENT_ID_HEADER = "eventId";
+
+    private final KafkaTemplate<String, byte[]> kafkaTemplate;
+    private final EventCodec eventCodec;
+    private final MeterRegistry meterRegistry;
 
-    public void sendParcelCreatedEvent(Parcel parcel) {
+    // Delivery is at-least-once; consumers can drop redeliveries by the eventId header
+    public CompletableFuture<SendResult<String, byte[]>> publish(Parcel parcel, Parcel.OutboxEvent event) {
+        byte[] message;
         try {
-            String message = objectMapper.writeValueAsString(parcel);
-            kafkaTemplate.send("parcel-created", parcel.getId(), message);
-            log.info("Sent parcel created event for parcel ID: {}", parcel.getId());
-        } catch (JsonProcessingException e) {
-            log.error("Error serializing parcel object: {}", e.getMessage());
+            message = eventCodec.encode(toPayload(parcel, event));
+        } catch (JsonProcessingException | IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(e);
         }
+
+        String key = event.getKey() != null ? event.getKey() : parcel.getId();
+        ProducerRecord<String, byte[]> record = new ProducerRecord<>(event.getTopic(), key, message);
+        record.headers().add(EVENT_ID_HEADER, event.getEventId().getBytes(StandardCharsets.UTF_8));
+        record.headers().add(EventCodec.CONTENT_TYPE_HEADER, eventCodec.contentType().getBytes(StandardCharsets.UTF_8));
+        long start = System.nanoTime();
+        return kafkaTemplate.send(record).whenComplete((result, ex) -> Timer.builder("kafka.producer.send")
+                .description("Time from send to broker acknowledgement")
+                .tag("topic", event.getTopic())
+                .tag("outcome", ex == null ? "success" : "failure")
+                .register(meterRegistry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
     }
 
-    public void sendParcelStatusUpdatedEvent(Parcel parcel) {
-        try {
-            String message = objectMapper.writeValueAsString(parcel);
-            kafkaTemplate.send("parcel-status-updated", parcel.getId(), message);
-            log.info("Sent parcel status updated event for parcel ID: {}", parcel.getId());
-        } catch (JsonProcessingException e) {
-            log.error("Error serializing parcel object: {}", e.getMessage());
-        }
+    public void flush() {
+        kafkaTemplate.flush();
     }
 
-    public void sendParcelForConsolidation(Parcel parcel, String consolidationId) {
-        try {
-            String message = objectMapper.writeValueAsString(parcel);
-            kafkaTemplate.send("consolidation-parcels", consolidationId, message);
-            log.info("Sent parcel for consolidation ID: {}", consolidationId);
-        } catch (JsonProcessingException e) {
-            log.error("Error serializing parcel object: {}", e.getMessage());
+    // Payloads carry only what changed, as captured in the outbox entry; the parcel supplies the identifying fields
+    private Object toPayload(Parcel parcel, Parcel.OutboxEvent event) {
+        switch (event.getTopic()) {
+            case "parcel-created":
+                return ParcelCreatedEvent.from(parcel, event);
+            case "parcel-status-updated":
+                return ParcelStatusUpdatedEvent.from(parcel, event);
+            case "consolidation-parcels":
+                return ParcelConsolidationEvent.from(parcel, event);
+            default:
+                throw new IllegalArgumentException("Unknown outbox topic: " + event.getTopic());
         }
     }
-}
\ No newline at end of file
+}
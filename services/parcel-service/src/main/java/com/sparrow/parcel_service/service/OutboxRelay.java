@@ -0,0 +1,118 @@
+package com.sparrow.parcel_service.service;
+
+import com.sparrow.parcel_service.model.Parcel;
+import com.sparrow.parcel_service.repository.ParcelRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Drains outbox events from parcel documents into Kafka so request threads never wait on the broker
+@Slf4j
+@Component
+public class OutboxRelay {
+
+    private final ParcelRepository parcelRepository;
+    private final KafkaProducerService kafkaProducerService;
+    private final int batchSize;
+    private final long sendTimeoutMs;
+    private final Duration claimTtl;
+    private final String relayId = UUID.randomUUID().toString();
+
+    private final AtomicLong lagMillis = new AtomicLong();
+    private final Counter published;
+    private final Counter failed;
+
+    public OutboxRelay(ParcelRepository parcelRepository,
+                       KafkaProducerService kafkaProducerService,
+                       MeterRegistry meterRegistry,
+                       @Value("${parcel.outbox.batch-size:500}") int batchSize,
+                       @Value("${parcel.outbox.send-timeout-ms:10000}") long sendTimeoutMs,
+                       @Value("${parcel.outbox.claim-ttl:60s}") Duration claimTtl) {
+        this.parcelRepository = parcelRepository;
+        this.kafkaProducerService = kafkaProducerService;
+        this.batchSize = batchSize;
+        this.sendTimeoutMs = sendTimeoutMs;
+        this.claimTtl = claimTtl;
+
+        Gauge.builder("parcel.outbox.lag", lagMillis, AtomicLong::get)
+                .description("Age of the oldest outbox event picked up by the last poll")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+        this.published = Counter.builder("parcel.outbox.published").register(meterRegistry);
+        this.failed = Counter.builder("parcel.outbox.failed").register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${parcel.outbox.poll-interval-ms:200}")
+    public void relay() {
+        // Every replica runs the relay; the lease keeps them from publishing the same events
+        List<Parcel> pending = parcelRepository.claimPendingOutbox(relayId, claimTtl, batchSize);
+        if (pending.isEmpty()) {
+            lagMillis.set(0);
+            return;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        long oldestAge = 0;
+        List<CompletableFuture<?>> sends = new ArrayList<>();
+        for (Parcel parcel : pending) {
+            for (Parcel.OutboxEvent event : parcel.getOutbox()) {
+                oldestAge = Math.max(oldestAge, Duration.between(event.getCreatedAt(), now).toMillis());
+                sends.add(kafkaProducerService.publish(parcel, event));
+            }
+        }
+        lagMillis.set(oldestAge);
+        kafkaProducerService.flush();
+
+        // Only the delivered prefix of each outbox is removed: once an event fails, the ones queued after it are sent
+        // again behind it on the next poll, so consumers never see a later change as the last word. Redeliveries
+        // carry the same eventId.
+        Map<String, List<String>> delivered = new HashMap<>();
+        int index = 0;
+        for (Parcel parcel : pending) {
+            List<String> eventIds = new ArrayList<>();
+            boolean inOrder = true;
+            for (Parcel.OutboxEvent event : parcel.getOutbox()) {
+                inOrder &= awaitDelivery(sends.get(index++), event);
+                if (inOrder) {
+                    eventIds.add(event.getEventId());
+                }
+            }
+            delivered.put(parcel.getId(), eventIds);
+        }
+
+        parcelRepository.releaseOutbox(relayId, delivered);
+        log.debug("Relayed outbox events for {} parcels", delivered.size());
+    }
+
+    private boolean awaitDelivery(CompletableFuture<?> send, Parcel.OutboxEvent event) {
+        try {
+            send.get(sendTimeoutMs, TimeUnit.MILLISECONDS);
+            published.increment();
+            return true;
+        } catch (ExecutionException | TimeoutException e) {
+            failed.increment();
+            log.warn("Failed to publish outbox event {} to {}: {}", event.getEventId(), event.getTopic(), e.getMessage());
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
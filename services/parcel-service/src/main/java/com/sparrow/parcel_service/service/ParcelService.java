@@ -1,31 +1,57 @@
 package com.sparrow.parcel_service.service;
 
 
+import com.sparrow.parcel_service.cache.ParcelTrackingCache;
+import com.sparrow.parcel_service.dto.BatchTrackingUpdateResponse;
 import com.sparrow.parcel_service.dto.CreateParcelRequest;
+import com.sparrow.parcel_service.dto.CursorPage;
+import com.sparrow.parcel_service.dto.TrackingScan;
 import com.sparrow.parcel_service.dto.TrackingUpdateRequest;
 import com.sparrow.parcel_service.model.Parcel;
+import com.sparrow.parcel_service.model.ParcelTrackingEvent;
 import com.sparrow.parcel_service.repository.ParcelRepository;
+import com.sparrow.parcel_service.repository.ParcelRepositoryImpl;
+import com.sparrow.parcel_service.repository.TrackingEventRepository;
+import com.sparrow.parcel_service.util.KeysetCursor;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.UUID;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class ParcelService {
 
+    private static final int MAX_PAGE_SIZE = 1000;
+
     private final ParcelRepository parcelRepository;
-    private final KafkaProducerService kafkaProducerService;
+    private final TrackingEventRepository trackingEventRepository;
+    private final ParcelTrackingCache parcelTrackingCache;
+    private final TrackingNumberGenerator trackingNumberGenerator;
+
+    // When enabled, the full history lives in tracking_events and the parcel only embeds the latest events
+    @Value("${parcel.tracking.event-store.enabled:false}")
+    private boolean trackingEventStoreEnabled;
+
+    @Value("${parcel.tracking.event-store.recent-events:20}")
+    private int recentEventsLimit;
 
     @Transactional
     public Parcel createParcel(CreateParcelRequest request) {
         Parcel parcel = new Parcel();
-        parcel.setTrackingNumber(generateTrackingNumber());
+        parcel.setTrackingNumber(trackingNumberGenerator.next());
         parcel.setSenderId(request.getSenderId());
         parcel.setRecipientId(request.getRecipientId());
         parcel.setSenderAddress(request.getSenderAddress());
@@ -34,14 +60,18 @@ public class ParcelService {
         parcel.setLength(request.getLength());
         parcel.setWidth(request.getWidth());
         parcel.setHeight(request.getHeight());
+        parcel.setParcelType(request.getParcelType());
         parcel.setStatus("CREATED");
         parcel.setCreatedAt(LocalDateTime.now());
         parcel.setUpdatedAt(LocalDateTime.now());
+        if (trackingEventStoreEnabled) {
+            parcel.setHistoryInEventStore(true);
+        }
+        parcel.setOutbox(List.of(Parcel.OutboxEvent.of("parcel-created", null,
+                parcel.getStatus(), parcel.getCurrentLocation(), parcel.getCreatedAt())));
 
-        Parcel savedParcel = parcelRepository.save(parcel);
-        kafkaProducerService.sendParcelCreatedEvent(savedParcel);
-
-        return savedParcel;
+        // The parcel-created event is stored with the parcel and published by OutboxRelay
+        return parcelRepository.save(parcel);
     }
 
     public Parcel getParcelById(String id) {
@@ -50,57 +80,185 @@ public class ParcelService {
     }
 
     public Parcel getParcelByTrackingNumber(String trackingNumber) {
-        return parcelRepository.findByTrackingNumber(trackingNumber)
-                .orElseThrow(() -> new RuntimeException("Parcel not found with tracking number: " + trackingNumber));
+        return parcelTrackingCache.get(trackingNumber, key -> parcelRepository.findByTrackingNumber(key)
+                .orElseThrow(() -> new RuntimeException("Parcel not found with tracking number: " + key)));
+    }
+
+    public CursorPage<Parcel> getParcelsBySender(String senderId, String cursor, int limit, boolean includeHistory) {
+        return findPage("senderId", senderId, cursor, limit, includeHistory);
+    }
+
+    public CursorPage<Parcel> getParcelsByRecipient(String recipientId, String cursor, int limit, boolean includeHistory) {
+        return findPage("recipientId", recipientId, cursor, limit, includeHistory);
+    }
+
+    public CursorPage<Parcel> getParcelsByConsolidation(String consolidationId, String cursor, int limit,
+                                                        boolean includeHistory) {
+        return findPage("consolidationId", consolidationId, cursor, limit, includeHistory);
     }
 
-    public List<Parcel> getParcelsBySender(String senderId) {
-        return parcelRepository.findBySenderId(senderId);
+    public Stream<Parcel> streamParcelsBySender(String senderId, boolean includeHistory) {
+        return parcelRepository.streamBy("senderId", senderId, includeHistory);
     }
 
-    public List<Parcel> getParcelsByRecipient(String recipientId) {
-        return parcelRepository.findByRecipientId(recipientId);
+    public Stream<Parcel> streamParcelsByRecipient(String recipientId, boolean includeHistory) {
+        return parcelRepository.streamBy("recipientId", recipientId, includeHistory);
     }
 
-    public List<Parcel> getParcelsByConsolidation(String consolidationId) {
-        return parcelRepository.findByConsolidationId(consolidationId);
+    public Stream<Parcel> streamParcelsByConsolidation(String consolidationId, boolean includeHistory) {
+        return parcelRepository.streamBy("consolidationId", consolidationId, includeHistory);
+    }
+
+    private CursorPage<Parcel> findPage(String field, String value, String cursor, int limit, boolean includeHistory) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        KeysetCursor after = cursor != null ? KeysetCursor.decode(cursor) : null;
+
+        // Fetch one extra row to learn whether another page exists
+        List<Parcel> parcels = parcelRepository.findPage(field, value, after, pageSize + 1, includeHistory);
+        if (parcels.size() <= pageSize) {
+            return new CursorPage<>(parcels, null);
+        }
+
+        List<Parcel> page = parcels.subList(0, pageSize);
+        Parcel last = page.get(pageSize - 1);
+        return new CursorPage<>(page, new KeysetCursor(last.getCreatedAt(), last.getId()).encode());
     }
 
     @Transactional
     public Parcel updateParcelStatus(String parcelId, TrackingUpdateRequest request) {
-        Parcel parcel = getParcelById(parcelId);
-
         Parcel.TrackingEvent trackingEvent = new Parcel.TrackingEvent();
         trackingEvent.setTimestamp(LocalDateTime.now());
         trackingEvent.setLocation(request.getLocation());
         trackingEvent.setStatus(request.getStatus());
         trackingEvent.setDescription(request.getDescription());
 
-        parcel.getTrackingHistory().add(trackingEvent);
-        parcel.setStatus(request.getStatus());
-        parcel.setCurrentLocation(request.getLocation());
-        parcel.setUpdatedAt(LocalDateTime.now());
+        // The full history is written first. If the parcel update then fails the event is removed again, so only a
+        // crash in between leaves a stored scan the parcel does not reflect, never a scan missing from the store
+        // after the capped projection has dropped it.
+        ParcelTrackingEvent record = trackingEventStoreEnabled
+                ? trackingEventRepository.save(new ParcelTrackingEvent(parcelId, trackingEvent))
+                : null;
 
-        Parcel updatedParcel = parcelRepository.save(parcel);
-        kafkaProducerService.sendParcelStatusUpdatedEvent(updatedParcel);
+        int historyLimit = trackingEventStoreEnabled ? recentEventsLimit : 0;
+        Parcel updatedParcel;
+        try {
+            updatedParcel = parcelRepository.appendTrackingEvent(parcelId, trackingEvent, historyLimit)
+                    .orElseThrow(() -> new RuntimeException("Parcel not found with id: " + parcelId));
+        } catch (RuntimeException e) {
+            if (record != null) {
+                trackingEventRepository.delete(record);
+            }
+            throw e;
+        }
+        parcelTrackingCache.invalidate(updatedParcel.getTrackingNumber());
 
         return updatedParcel;
     }
 
-    @Transactional
-    public Parcel assignToConsolidation(String parcelId, String consolidationId) {
-        Parcel parcel = getParcelById(parcelId);
-        parcel.setConsolidationId(consolidationId);
-        parcel.setStatus("AT_WAREHOUSE");
-        parcel.setUpdatedAt(LocalDateTime.now());
+    public BatchTrackingUpdateResponse applyTrackingScans(List<TrackingScan> scans) {
+        LocalDateTime now = LocalDateTime.now();
+        List<BatchTrackingUpdateResponse.ItemResult> results = new ArrayList<>(scans.size());
+        Map<String, List<Parcel.TrackingEvent>> eventsByParcel = new LinkedHashMap<>();
 
-        Parcel updatedParcel = parcelRepository.save(parcel);
-        kafkaProducerService.sendParcelForConsolidation(updatedParcel, consolidationId);
+        for (int i = 0; i < scans.size(); i++) {
+            TrackingScan scan = scans.get(i);
+            if (!StringUtils.hasText(scan.getParcelId()) || !StringUtils.hasText(scan.getStatus())
+                    || !StringUtils.hasText(scan.getLocation())) {
+                results.add(new BatchTrackingUpdateResponse.ItemResult(i, scan.getParcelId(), "INVALID",
+                        "parcelId, status and location are required"));
+                continue;
+            }
+            results.add(new BatchTrackingUpdateResponse.ItemResult(i, scan.getParcelId(), "UPDATED", null));
 
-        return updatedParcel;
+            Parcel.TrackingEvent trackingEvent = new Parcel.TrackingEvent(
+                    scan.getScannedAt() != null ? scan.getScannedAt() : now,
+                    scan.getLocation(), scan.getStatus(), scan.getDescription());
+            eventsByParcel.computeIfAbsent(scan.getParcelId(), id -> new ArrayList<>()).add(trackingEvent);
+        }
+
+        eventsByParcel.values().forEach(events -> events.sort(Comparator.comparing(Parcel.TrackingEvent::getTimestamp)));
+
+        // As in updateParcelStatus, the event store is written before the parcels and undone for the ones that fail
+        Map<String, List<ParcelTrackingEvent>> records = new LinkedHashMap<>();
+        if (trackingEventStoreEnabled) {
+            eventsByParcel.forEach((id, events) -> records.put(id, events.stream()
+                    .map(event -> new ParcelTrackingEvent(id, event))
+                    .collect(Collectors.toList())));
+            trackingEventRepository.saveAll(records.values().stream().flatMap(List::stream).collect(Collectors.toList()));
+        }
+
+        int historyLimit = trackingEventStoreEnabled ? recentEventsLimit : 0;
+        Map<String, String> failures = eventsByParcel.isEmpty()
+                ? Map.of()
+                : parcelRepository.appendTrackingEvents(eventsByParcel, historyLimit);
+
+        List<String> updatedIds = eventsByParcel.keySet().stream()
+                .filter(id -> !failures.containsKey(id))
+                .collect(Collectors.toList());
+
+        if (!records.isEmpty() && !failures.isEmpty()) {
+            trackingEventRepository.deleteAll(failures.keySet().stream()
+                    .flatMap(id -> records.get(id).stream())
+                    .collect(Collectors.toList()));
+        }
+
+        if (!updatedIds.isEmpty()) {
+            parcelRepository.findTrackingNumbers(updatedIds).forEach(parcelTrackingCache::invalidate);
+        }
+
+        int failed = 0;
+        for (BatchTrackingUpdateResponse.ItemResult result : results) {
+            String failure = failures.get(result.getParcelId());
+            if (failure != null && "UPDATED".equals(result.getOutcome())) {
+                boolean notFound = ParcelRepositoryImpl.NOT_FOUND.equals(failure);
+                result.setOutcome(notFound ? "NOT_FOUND" : "FAILED");
+                result.setError(notFound ? null : failure);
+            }
+            if (!"UPDATED".equals(result.getOutcome())) {
+                failed++;
+            }
+        }
+
+        BatchTrackingUpdateResponse response = new BatchTrackingUpdateResponse();
+        response.setReceived(scans.size());
+        response.setUpdated(scans.size() - failed);
+        response.setFailed(failed);
+        response.setResults(results);
+
+        log.info("Applied tracking batch: {} scans across {} parcels, {} failed",
+                scans.size(), eventsByParcel.size(), failed);
+        return response;
+    }
+
+    public List<Parcel.TrackingEvent> getTrackingHistory(String parcelId) {
+        List<Parcel.TrackingEvent> embedded = getParcelById(parcelId).getTrackingHistory();
+        if (embedded == null) {
+            embedded = List.of();
+        }
+        if (!trackingEventStoreEnabled) {
+            return embedded;
+        }
+
+        // Parcels the backfill has not reached yet only have their embedded history, so both sources are merged.
+        // Events are matched on their content; records written before ids were derived from it have random ids.
+        Map<String, Parcel.TrackingEvent> merged = new LinkedHashMap<>();
+        trackingEventRepository.findByParcelIdOrderByTimestampAsc(parcelId).forEach(record -> {
+            Parcel.TrackingEvent event = record.toTrackingEvent();
+            merged.putIfAbsent(ParcelTrackingEvent.idFor(parcelId, event), event);
+        });
+        embedded.forEach(event -> merged.putIfAbsent(ParcelTrackingEvent.idFor(parcelId, event), event));
+
+        List<Parcel.TrackingEvent> history = new ArrayList<>(merged.values());
+        history.sort(Comparator.comparing(Parcel.TrackingEvent::getTimestamp));
+        return history;
     }
 
-    private String generateTrackingNumber() {
-        return "TRK" + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
+    @Transactional
+    public Parcel assignToConsolidation(String parcelId, String consolidationId) {
+        Parcel updatedParcel = parcelRepository.assignToConsolidation(parcelId, consolidationId)
+                .orElseThrow(() -> new RuntimeException("Parcel not found with id: " + parcelId));
+        parcelTrackingCache.invalidate(updatedParcel.getTrackingNumber());
+
+        return updatedParcel;
     }
 }
\ No newline at end of file
@@ -0,0 +1,110 @@
+package com.sparrow.parcel_service.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongSupplier;
+
+// Time-ordered tracking numbers: TRK + 13 base-36 characters + check character.
+// The body encodes a 63-bit value laid out as [41 bits millis since 2024-01-01 | 10 bits node | 12 bits sequence],
+// so numbers are unique across nodes, increase monotonically within an instance and sort by creation time.
+// The node id is leased by TrackingNodeLease so that no two running instances share it.
+@Slf4j
+@Component
+public class SnowflakeTrackingNumberGenerator implements TrackingNumberGenerator {
+
+    private static final String PREFIX = "TRK";
+    private static final long EPOCH = 1704067200000L; // 2024-01-01T00:00:00Z
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final long MAX_NODE_ID = (1L << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    private static final int RADIX = 36;
+    private static final int BODY_LENGTH = 13; // enough for any positive long in base 36
+    private static final int LENGTH = PREFIX.length() + BODY_LENGTH + 1;
+    private static final char[] ALPHABET = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ".toCharArray();
+
+    private final long nodeId;
+    private final LongSupplier clock;
+    private final BooleanSupplier nodeLeased;
+
+    // (millis since EPOCH << SEQUENCE_BITS) | sequence of the last number handed out
+    private final AtomicLong lastState = new AtomicLong();
+
+    @Autowired
+    public SnowflakeTrackingNumberGenerator(TrackingNodeLease nodeLease) {
+        this(nodeLease.nodeId(), System::currentTimeMillis, nodeLease::isHeld);
+    }
+
+    SnowflakeTrackingNumberGenerator(long nodeId, LongSupplier clock) {
+        this(nodeId, clock, () -> true);
+    }
+
+    SnowflakeTrackingNumberGenerator(long nodeId, LongSupplier clock, BooleanSupplier nodeLeased) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("Node id must be between 0 and " + MAX_NODE_ID + ": " + nodeId);
+        }
+        this.nodeId = nodeId;
+        this.clock = clock;
+        this.nodeLeased = nodeLeased;
+        log.info("Tracking number generator using node id {}", nodeId);
+    }
+
+    @Override
+    public String next() {
+        if (!nodeLeased.getAsBoolean()) {
+            throw new IllegalStateException("Tracking number node id " + nodeId + " is no longer leased to this instance");
+        }
+        long now = (clock.getAsLong() - EPOCH) << SEQUENCE_BITS;
+        // Lock-free: either the next sequence in the current millisecond or the first one of a newer millisecond.
+        // When the sequence runs out or the clock steps back we keep counting forward instead of blocking.
+        long state = lastState.updateAndGet(last -> Math.max(last + 1, now));
+
+        long id = ((state >>> SEQUENCE_BITS) << (NODE_BITS + SEQUENCE_BITS))
+                | (nodeId << SEQUENCE_BITS)
+                | (state & SEQUENCE_MASK);
+        return format(id);
+    }
+
+    public static boolean isValid(String trackingNumber) {
+        if (trackingNumber == null || trackingNumber.length() != LENGTH || !trackingNumber.startsWith(PREFIX)) {
+            return false;
+        }
+        char[] chars = trackingNumber.toCharArray();
+        for (int i = PREFIX.length(); i < LENGTH; i++) {
+            if (Character.digit(chars[i], RADIX) < 0 || Character.isLowerCase(chars[i])) {
+                return false;
+            }
+        }
+        return chars[LENGTH - 1] == checkCharacter(chars, PREFIX.length(), LENGTH - 1);
+    }
+
+    private static String format(long id) {
+        char[] chars = new char[LENGTH];
+        PREFIX.getChars(0, PREFIX.length(), chars, 0);
+
+        long remaining = id;
+        for (int i = LENGTH - 2; i >= PREFIX.length(); i--) {
+            chars[i] = ALPHABET[(int) (remaining % RADIX)];
+            remaining /= RADIX;
+        }
+        chars[LENGTH - 1] = checkCharacter(chars, PREFIX.length(), LENGTH - 1);
+        return new String(chars);
+    }
+
+    // Luhn mod 36: detects every single-character error and most adjacent transpositions
+    private static char checkCharacter(char[] chars, int from, int to) {
+        int factor = 2;
+        int sum = 0;
+        for (int i = to - 1; i >= from; i--) {
+            int addend = factor * Character.digit(chars[i], RADIX);
+            sum += addend / RADIX + addend % RADIX;
+            factor = factor == 2 ? 1 : 2;
+        }
+        return ALPHABET[(RADIX - sum % RADIX) % RADIX];
+    }
+}
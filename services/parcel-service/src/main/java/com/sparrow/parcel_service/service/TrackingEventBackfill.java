@@ -0,0 +1,40 @@
+package com.sparrow.parcel_service.service;
+
+import com.sparrow.parcel_service.repository.ParcelRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+// Parcels written before the event store was enabled (or while it was off) only have their embedded history.
+// Copies it into tracking_events once the store is on. Event ids are derived from their content, so replicas
+// running this at the same time, or a rerun after a crash, overwrite records instead of duplicating them.
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TrackingEventBackfill {
+
+    private final ParcelRepository parcelRepository;
+
+    @Value("${parcel.tracking.event-store.enabled:false}")
+    private boolean trackingEventStoreEnabled;
+
+    @Value("${parcel.tracking.event-store.backfill-batch-size:500}")
+    private int batchSize;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        if (!trackingEventStoreEnabled) {
+            return;
+        }
+        try {
+            long copied = parcelRepository.backfillTrackingEvents(batchSize);
+            log.info("Backfilled {} embedded tracking events into the event store", copied);
+        } catch (RuntimeException e) {
+            // Reads still merge the embedded history, and the next startup picks up where this one stopped
+            log.error("Tracking event backfill failed", e);
+        }
+    }
+}
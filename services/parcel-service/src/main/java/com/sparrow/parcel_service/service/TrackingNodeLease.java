@@ -0,0 +1,148 @@
+package com.sparrow.parcel_service.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.LongSupplier;
+
+// Leases the node id of the tracking number generator in Mongo so no two live replicas share one, which would
+// produce duplicate numbers. A configured id must be free or already ours, otherwise startup fails; without one
+// the first free id is taken. The lease is renewed in the background, and once it lapses the generator stops
+// handing out numbers instead of risking duplicates with whichever instance takes the id over.
+@Slf4j
+@Component
+public class TrackingNodeLease {
+
+    static final String COLLECTION = "tracking_number_nodes";
+    static final long MAX_NODE_ID = 1023;
+
+    private final MongoTemplate mongoTemplate;
+    private final long ttlMillis;
+    private final LongSupplier clock;
+    private final String owner;
+    private final long nodeId;
+
+    // Epoch millis until which the lease is known to be ours
+    private volatile long heldUntil;
+
+    public TrackingNodeLease(MongoTemplate mongoTemplate,
+                             @Value("${parcel.tracking-number.node-id:-1}") long configuredNodeId,
+                             @Value("${parcel.tracking-number.lease-ttl:60s}") Duration ttl) {
+        this(mongoTemplate, configuredNodeId, ttl, System::currentTimeMillis);
+    }
+
+    TrackingNodeLease(MongoTemplate mongoTemplate, long configuredNodeId, Duration ttl, LongSupplier clock) {
+        if (configuredNodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("Node id must be between 0 and " + MAX_NODE_ID + ": " + configuredNodeId);
+        }
+        this.mongoTemplate = mongoTemplate;
+        this.ttlMillis = ttl.toMillis();
+        this.clock = clock;
+        this.owner = hostName() + "/" + UUID.randomUUID();
+
+        if (configuredNodeId >= 0) {
+            if (!claim(configuredNodeId)) {
+                throw new IllegalStateException("Tracking number node id " + configuredNodeId
+                        + " is leased by another running instance: " + holder(configuredNodeId));
+            }
+            this.nodeId = configuredNodeId;
+        } else {
+            this.nodeId = claimFree();
+        }
+        log.info("Leased tracking number node id {} as {}", nodeId, owner);
+    }
+
+    public long nodeId() {
+        return nodeId;
+    }
+
+    public boolean isHeld() {
+        return clock.getAsLong() < heldUntil;
+    }
+
+    @Scheduled(fixedDelayString = "${parcel.tracking-number.lease-renew-interval-ms:20000}")
+    public void renew() {
+        try {
+            if (!claim(nodeId)) {
+                heldUntil = 0;
+                log.error("Tracking number node id {} was taken over by {}; no more tracking numbers will be issued",
+                        nodeId, holder(nodeId));
+            }
+        } catch (RuntimeException e) {
+            // Keep the current lease; numbers stop once it runs out without a successful renewal
+            log.warn("Could not renew tracking number node id {} lease: {}", nodeId, e.getMessage());
+        }
+    }
+
+    // Lets a restarted instance take the id again right away instead of waiting for the lease to expire
+    @PreDestroy
+    public void release() {
+        heldUntil = 0;
+        mongoTemplate.remove(Query.query(Criteria.where("_id").is(nodeId).and("owner").is(owner)), COLLECTION);
+    }
+
+    // Takes the id if it is free, expired or already ours. Another live holder makes the upsert collide on _id.
+    private boolean claim(long id) {
+        long now = clock.getAsLong();
+        Query query = Query.query(Criteria.where("_id").is(id).orOperator(
+                Criteria.where("owner").is(owner),
+                Criteria.where("expiresAt").lt(new Date(now))));
+        Update update = new Update()
+                .set("owner", owner)
+                .set("expiresAt", new Date(now + ttlMillis));
+        try {
+            mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().upsert(true), Document.class, COLLECTION);
+            heldUntil = now + ttlMillis;
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    private long claimFree() {
+        Set<Long> live = new HashSet<>();
+        mongoTemplate.find(Query.query(Criteria.where("expiresAt").gte(new Date(clock.getAsLong()))), Document.class, COLLECTION)
+                .forEach(lease -> live.add(((Number) lease.get("_id")).longValue()));
+
+        // Random start so replicas booting together rarely race for the same id
+        long start = ThreadLocalRandom.current().nextLong(MAX_NODE_ID + 1);
+        for (long i = 0; i <= MAX_NODE_ID; i++) {
+            long id = (start + i) % (MAX_NODE_ID + 1);
+            if (!live.contains(id) && claim(id)) {
+                return id;
+            }
+        }
+        throw new IllegalStateException("All " + (MAX_NODE_ID + 1) + " tracking number node ids are leased");
+    }
+
+    private String holder(long id) {
+        Document lease = mongoTemplate.findById(id, Document.class, COLLECTION);
+        return lease != null ? lease.getString("owner") + " until " + lease.getDate("expiresAt").toInstant() : "unknown";
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "unknown-host";
+        }
+    }
+}
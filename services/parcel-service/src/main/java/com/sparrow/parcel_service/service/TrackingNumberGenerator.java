@@ -0,0 +1,5 @@
+package com.sparrow.parcel_service.service;
+
+public interface TrackingNumberGenerator {
+    String next();
+}
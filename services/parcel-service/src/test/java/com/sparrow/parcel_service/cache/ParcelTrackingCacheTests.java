@@ -0,0 +1,68 @@
+package com.sparrow.parcel_service.cache;
+
+import com.sparrow.parcel_service.model.Parcel;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+
+class ParcelTrackingCacheTests {
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final ParcelTrackingCache cache = new ParcelTrackingCache(meterRegistry, 100, Duration.ofMinutes(1));
+
+	@Test
+	void callersCannotChangeTheCachedParcel() {
+		Parcel first = cache.get("TRK1", key -> parcel(key));
+		first.setStatus("DELIVERED");
+		first.getTrackingHistory().add(new Parcel.TrackingEvent(LocalDateTime.now(), "Kandy", "DELIVERED", null));
+		first.getTrackingHistory().get(0).setLocation("Galle");
+		first.getSenderAddress().setCity("Galle");
+
+		Parcel second = cache.get("TRK1", key -> parcel(key));
+		assertNotSame(first, second);
+		assertEquals("IN_TRANSIT", second.getStatus());
+		assertEquals(1, second.getTrackingHistory().size());
+		assertEquals("Colombo hub", second.getTrackingHistory().get(0).getLocation());
+		assertEquals("Colombo", second.getSenderAddress().getCity());
+	}
+
+	@Test
+	void invalidationReloadsTheParcel() {
+		AtomicInteger loads = new AtomicInteger();
+		cache.get("TRK1", key -> { loads.incrementAndGet(); return parcel(key); });
+		cache.get("TRK1", key -> { loads.incrementAndGet(); return parcel(key); });
+		assertEquals(1, loads.get());
+
+		cache.invalidate("TRK1");
+		Parcel reloaded = cache.get("TRK1", key -> {
+			loads.incrementAndGet();
+			Parcel updated = parcel(key);
+			updated.setStatus("AT_WAREHOUSE");
+			return updated;
+		});
+
+		assertEquals(2, loads.get());
+		assertEquals("AT_WAREHOUSE", reloaded.getStatus());
+		assertEquals(1, meterRegistry.get("cache.gets").tag("cache", "parcelsByTrackingNumber").tag("result", "hit")
+				.functionCounter().count());
+	}
+
+	private static Parcel parcel(String trackingNumber) {
+		Parcel parcel = new Parcel();
+		parcel.setId("p-" + trackingNumber);
+		parcel.setTrackingNumber(trackingNumber);
+		parcel.setStatus("IN_TRANSIT");
+		parcel.setSenderAddress(new Parcel.Address("1 Galle Road", "Colombo", "Western", "00300", "LK"));
+		parcel.setTrackingHistory(new ArrayList<>(List.of(
+				new Parcel.TrackingEvent(LocalDateTime.of(2025, 3, 1, 8, 0), "Colombo hub", "IN_TRANSIT", null))));
+		return parcel;
+	}
+}
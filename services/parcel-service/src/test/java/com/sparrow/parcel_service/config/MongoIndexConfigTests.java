@@ -0,0 +1,71 @@
+package com.sparrow.parcel_service.config;
+
+import com.sparrow.parcel_service.model.Parcel;
+import com.sparrow.parcel_service.service.SnowflakeTrackingNumberGenerator;
+import com.sparrow.parcel_service.service.TrackingNodeLease;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataMongoTest
+@Import({MongoIndexConfig.class, SnowflakeTrackingNumberGenerator.class, TrackingNodeLease.class})
+class MongoIndexConfigTests {
+
+	private static final LocalDateTime T0 = LocalDateTime.of(2024, 6, 1, 8, 0);
+
+	@Autowired
+	private MongoTemplate mongoTemplate;
+
+	@Autowired
+	private MongoIndexConfig mongoIndexConfig;
+
+	@BeforeEach
+	void setUp() {
+		// Dropping the collection also drops the unique index created at startup
+		mongoTemplate.dropCollection(Parcel.class);
+		mongoTemplate.insert(parcel("newer", "TRK1A2B3C4D", T0.plusDays(1)));
+		mongoTemplate.insert(parcel("older", "TRK1A2B3C4D", T0));
+		mongoTemplate.insert(parcel("unique", "TRK9F8E7D6C", T0));
+	}
+
+	@Test
+	void refusesToStartWithAReportOfTheDuplicates() {
+		ReflectionTestUtils.setField(mongoIndexConfig, "reassignDuplicateTrackingNumbers", false);
+
+		IllegalStateException e = assertThrows(IllegalStateException.class, mongoIndexConfig::ensureIndexes);
+
+		assertTrue(e.getMessage().contains("TRK1A2B3C4D [older, newer]"), e.getMessage());
+	}
+
+	@Test
+	void reassignsAllButTheOldestParcelWhenEnabled() {
+		ReflectionTestUtils.setField(mongoIndexConfig, "reassignDuplicateTrackingNumbers", true);
+
+		mongoIndexConfig.ensureIndexes();
+
+		assertEquals("TRK1A2B3C4D", mongoTemplate.findById("older", Parcel.class).getTrackingNumber());
+		assertEquals("TRK9F8E7D6C", mongoTemplate.findById("unique", Parcel.class).getTrackingNumber());
+		assertTrue(SnowflakeTrackingNumberGenerator.isValid(mongoTemplate.findById("newer", Parcel.class).getTrackingNumber()));
+		assertTrue(mongoTemplate.indexOps(Parcel.class).getIndexInfo().stream()
+				.anyMatch(index -> "tracking_number_uidx".equals(index.getName()) && index.isUnique()));
+	}
+
+	private static Parcel parcel(String id, String trackingNumber, LocalDateTime createdAt) {
+		Parcel parcel = new Parcel();
+		parcel.setId(id);
+		parcel.setTrackingNumber(trackingNumber);
+		parcel.setStatus("CREATED");
+		parcel.setCreatedAt(createdAt);
+		return parcel;
+	}
+}
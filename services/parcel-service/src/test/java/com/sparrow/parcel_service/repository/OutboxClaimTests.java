@@ -0,0 +1,138 @@
+package com.sparrow.parcel_service.repository;
+
+import com.sparrow.parcel_service.model.Parcel;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataMongoTest
+class OutboxClaimTests {
+
+	private static final Duration LEASE = Duration.ofSeconds(60);
+
+	@Autowired
+	private MongoTemplate mongoTemplate;
+
+	@Autowired
+	private ParcelRepository parcelRepository;
+
+	@BeforeEach
+	void setUp() {
+		mongoTemplate.dropCollection(Parcel.class);
+	}
+
+	@Test
+	void concurrentRelaysNeverClaimTheSameParcel() throws Exception {
+		for (int i = 0; i < 200; i++) {
+			mongoTemplate.insert(parcel("p-" + i, outboxEvent("e-" + i, i)));
+		}
+
+		ExecutorService pool = Executors.newFixedThreadPool(4);
+		List<Callable<List<Parcel>>> relays = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			String relayId = "relay-" + i;
+			relays.add(() -> parcelRepository.claimPendingOutbox(relayId, LEASE, 200));
+		}
+		Set<String> claimed = new HashSet<>();
+		int total = 0;
+		for (Future<List<Parcel>> result : pool.invokeAll(relays)) {
+			for (Parcel parcel : result.get()) {
+				claimed.add(parcel.getId());
+				total++;
+			}
+		}
+		pool.shutdown();
+
+		assertEquals(200, total);
+		assertEquals(200, claimed.size());
+	}
+
+	@Test
+	void leasedParcelsAreSkippedUntilTheLeaseRunsOut() {
+		mongoTemplate.insert(parcel("p-1", outboxEvent("e-1", 0)));
+
+		assertEquals(1, parcelRepository.claimPendingOutbox("relay-a", LEASE, 10).size());
+		assertTrue(parcelRepository.claimPendingOutbox("relay-b", LEASE, 10).isEmpty());
+
+		expireLease("p-1");
+		assertEquals(List.of("p-1"), ids(parcelRepository.claimPendingOutbox("relay-b", LEASE, 10)));
+	}
+
+	@Test
+	void onlyTheLeaseHolderClearsDeliveredEvents() {
+		mongoTemplate.insert(parcel("p-1", outboxEvent("e-1", 0), outboxEvent("e-2", 1)));
+		parcelRepository.claimPendingOutbox("relay-a", LEASE, 10);
+		expireLease("p-1");
+		parcelRepository.claimPendingOutbox("relay-b", LEASE, 10);
+
+		// relay-a stalled past its lease; its late release must not touch what relay-b now holds
+		parcelRepository.releaseOutbox("relay-a", Map.of("p-1", List.of("e-1", "e-2")));
+		assertEquals(2, parcelRepository.findById("p-1").orElseThrow().getOutbox().size());
+
+		parcelRepository.releaseOutbox("relay-b", Map.of("p-1", List.of("e-1")));
+		assertEquals(List.of("e-2"), parcelRepository.findById("p-1").orElseThrow().getOutbox().stream()
+				.map(Parcel.OutboxEvent::getEventId).collect(Collectors.toList()));
+		assertNull(mongoTemplate.findById("p-1", Document.class, "parcels").get(ParcelRepositoryImpl.OUTBOX_CLAIMED_BY));
+		assertEquals(List.of("p-1"), ids(parcelRepository.claimPendingOutbox("relay-a", LEASE, 10)));
+	}
+
+	@Test
+	void claimedParcelsComeBackOldestFirstWithTheirSnapshots() {
+		mongoTemplate.insert(parcel("p-2", outboxEvent("e-2", 5)));
+		mongoTemplate.insert(parcel("p-1", outboxEvent("e-1", 0)));
+
+		List<Parcel> claimed = parcelRepository.claimPendingOutbox("relay-a", LEASE, 10);
+
+		assertEquals(List.of("p-1", "p-2"), ids(claimed));
+		assertEquals("IN_TRANSIT", claimed.get(0).getOutbox().get(0).getStatus());
+		assertNull(claimed.get(0).getTrackingHistory());
+	}
+
+	private void expireLease(String parcelId) {
+		mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(parcelId)),
+				Update.update(ParcelRepositoryImpl.OUTBOX_CLAIMED_UNTIL, LocalDateTime.now().minusSeconds(1)), Parcel.class);
+	}
+
+	private static List<String> ids(List<Parcel> parcels) {
+		return parcels.stream().map(Parcel::getId).collect(Collectors.toList());
+	}
+
+	private static Parcel.OutboxEvent outboxEvent(String id, int minutes) {
+		return new Parcel.OutboxEvent(id, "parcel-status-updated", null,
+				LocalDateTime.of(2025, 3, 1, 8, 0).plusMinutes(minutes), "IN_TRANSIT", "Colombo hub");
+	}
+
+	private static Parcel parcel(String id, Parcel.OutboxEvent... outbox) {
+		Parcel parcel = new Parcel();
+		parcel.setId(id);
+		parcel.setTrackingNumber("TRK-" + id);
+		parcel.setStatus("IN_TRANSIT");
+		parcel.setTrackingHistory(new ArrayList<>(List.of(new Parcel.TrackingEvent(
+				LocalDateTime.of(2025, 3, 1, 8, 0), "Colombo", "CREATED", null))));
+		parcel.setOutbox(new ArrayList<>(List.of(outbox)));
+		return parcel;
+	}
+}
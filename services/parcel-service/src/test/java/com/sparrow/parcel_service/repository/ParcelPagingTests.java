@@ -0,0 +1,70 @@
+package com.sparrow.parcel_service.repository;
+
+import com.sparrow.parcel_service.model.Parcel;
+import com.sparrow.parcel_service.util.KeysetCursor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+@DataMongoTest
+class ParcelPagingTests {
+
+	private static final LocalDateTime T0 = LocalDateTime.of(2025, 3, 1, 8, 0);
+
+	@Autowired
+	private MongoTemplate mongoTemplate;
+
+	@Autowired
+	private ParcelRepository parcelRepository;
+
+	@BeforeEach
+	void setUp() {
+		mongoTemplate.dropCollection(Parcel.class);
+		// Pairs of parcels share a creation time, so pages must break ties on _id
+		for (int i = 0; i < 7; i++) {
+			mongoTemplate.insert(parcel("p-" + i, "s-1", T0.plusMinutes(i / 2)));
+		}
+		mongoTemplate.insert(parcel("other", "s-2", T0));
+	}
+
+	@Test
+	void walksEveryParcelOnceNewestFirst() {
+		List<String> seen = new ArrayList<>();
+		KeysetCursor after = null;
+		do {
+			List<Parcel> page = parcelRepository.findPage("senderId", "s-1", after, 3, false);
+			page.forEach(parcel -> seen.add(parcel.getId()));
+			Parcel last = page.isEmpty() ? null : page.get(page.size() - 1);
+			after = page.size() < 3 ? null : new KeysetCursor(last.getCreatedAt(), last.getId());
+		} while (after != null);
+
+		assertEquals(List.of("p-6", "p-5", "p-4", "p-3", "p-2", "p-1", "p-0"), seen);
+	}
+
+	@Test
+	void leavesOutTheHistoryUnlessAskedFor() {
+		assertNull(parcelRepository.findPage("senderId", "s-2", null, 10, false).get(0).getTrackingHistory());
+		assertNotNull(parcelRepository.findPage("senderId", "s-2", null, 10, true).get(0).getTrackingHistory());
+	}
+
+	private static Parcel parcel(String id, String senderId, LocalDateTime createdAt) {
+		Parcel parcel = new Parcel();
+		parcel.setId(id);
+		parcel.setTrackingNumber("TRK-" + id);
+		parcel.setSenderId(senderId);
+		parcel.setStatus("CREATED");
+		parcel.setCreatedAt(createdAt);
+		parcel.setTrackingHistory(List.of(new Parcel.TrackingEvent(createdAt, "Colombo", "CREATED", null)));
+		return parcel;
+	}
+}
@@ -0,0 +1,68 @@
+package com.sparrow.parcel_service.repository;
+
+import com.mongodb.client.FindIterable;
+import com.sparrow.parcel_service.config.MongoIndexConfig;
+import com.sparrow.parcel_service.service.SnowflakeTrackingNumberGenerator;
+import com.sparrow.parcel_service.service.TrackingNodeLease;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+// Fails the build when a repository query stops being served by one of the declared indexes
+@DataMongoTest
+@Import({MongoIndexConfig.class, SnowflakeTrackingNumberGenerator.class, TrackingNodeLease.class})
+class ParcelQueryPlanTests {
+
+	private static final Document LISTING_SORT = new Document("createdAt", -1).append("_id", -1);
+
+	@Autowired
+	private MongoTemplate mongoTemplate;
+
+	@Test
+	void derivedQueriesUseIndexes() {
+		assertNoCollectionScan("findByTrackingNumber", new Document("trackingNumber", "TRK00000001"), null);
+		assertNoCollectionScan("findByConsolidationId", new Document("consolidationId", "c-1"), null);
+		assertNoCollectionScan("findBySenderId", new Document("senderId", "s-1"), null);
+		assertNoCollectionScan("findByRecipientId", new Document("recipientId", "r-1"), null);
+		assertNoCollectionScan("findByStatus", new Document("status", "CREATED"), null);
+		assertNoCollectionScan("findByTrackingStatus", new Document("trackingHistory.status", "DELIVERED"), null);
+	}
+
+	@Test
+	void listingQueriesUseIndexes() {
+		assertNoCollectionScan("findPage(senderId)", new Document("senderId", "s-1"), LISTING_SORT);
+		assertNoCollectionScan("findPage(recipientId)", new Document("recipientId", "r-1"), LISTING_SORT);
+		assertNoCollectionScan("findPage(consolidationId)", new Document("consolidationId", "c-1"), LISTING_SORT);
+	}
+
+	@Test
+	void outboxRelayQueryUsesIndex() {
+		assertNoCollectionScan("claimPendingOutbox",
+				new Document("outbox.createdAt", new Document("$exists", true))
+						.append("$or", List.of(
+								new Document("outboxClaimedUntil", new Document("$exists", false)),
+								new Document("outboxClaimedUntil", new Document("$lt", new Date())))),
+				new Document("outbox.createdAt", 1));
+	}
+
+	private void assertNoCollectionScan(String query, Document filter, Document sort) {
+		FindIterable<Document> find = mongoTemplate.getCollection("parcels").find(filter);
+		if (sort != null) {
+			find.sort(sort);
+		}
+
+		Document winningPlan = find.explain()
+				.get("queryPlanner", Document.class)
+				.get("winningPlan", Document.class);
+		assertFalse(winningPlan.toJson().contains("COLLSCAN"),
+				query + " falls back to a collection scan: " + winningPlan.toJson());
+	}
+}
@@ -0,0 +1,112 @@
+package com.sparrow.parcel_service.repository;
+
+import com.sparrow.parcel_service.model.Parcel;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+@DataMongoTest
+class TrackingBatchUpdateTests {
+
+	private static final LocalDateTime T0 = LocalDateTime.of(2025, 3, 1, 8, 0);
+
+	@Autowired
+	private MongoTemplate mongoTemplate;
+
+	@Autowired
+	private ParcelRepository parcelRepository;
+
+	@BeforeEach
+	void setUp() {
+		mongoTemplate.dropCollection(Parcel.class);
+	}
+
+	@Test
+	void reportsOnlyUnknownParcelsAsNotFound() {
+		mongoTemplate.insert(parcel("p-1", event(0, "CREATED", "Colombo")));
+
+		Map<String, List<Parcel.TrackingEvent>> batch = new LinkedHashMap<>();
+		batch.put("p-1", List.of(event(10, "IN_TRANSIT", "Colombo hub")));
+		batch.put("missing", List.of(event(10, "IN_TRANSIT", "Colombo hub")));
+
+		assertEquals(Map.of("missing", ParcelRepositoryImpl.NOT_FOUND), parcelRepository.appendTrackingEvents(batch, 0));
+		Parcel updated = parcelRepository.findById("p-1").orElseThrow();
+		assertEquals("IN_TRANSIT", updated.getStatus());
+		assertEquals(2, updated.getTrackingHistory().size());
+		assertEquals(1, updated.getOutbox().size());
+		assertEquals("IN_TRANSIT", updated.getOutbox().get(0).getStatus());
+		assertEquals("Colombo hub", updated.getOutbox().get(0).getLocation());
+	}
+
+	@Test
+	void lateScansAreRecordedWithoutMovingTheStatusBack() {
+		mongoTemplate.insert(parcel("p-1", event(0, "CREATED", "Colombo"), event(60, "AT_WAREHOUSE", "Kandy")));
+
+		assertEquals(Map.of(), parcelRepository.appendTrackingEvents(
+				Map.of("p-1", List.of(event(30, "IN_TRANSIT", "Colombo hub"))), 0));
+
+		Parcel updated = parcelRepository.findById("p-1").orElseThrow();
+		assertEquals("AT_WAREHOUSE", updated.getStatus());
+		assertEquals("Kandy", updated.getCurrentLocation());
+		assertEquals(3, updated.getTrackingHistory().size());
+		assertNull(updated.getOutbox());
+
+		parcelRepository.appendTrackingEvents(Map.of("p-1", List.of(event(90, "OUT_FOR_DELIVERY", "Kandy"))), 0);
+		assertEquals("OUT_FOR_DELIVERY", parcelRepository.findById("p-1").orElseThrow().getStatus());
+	}
+
+	@Test
+	void lateScansAreSortedIntoTheHistoryBeforeItIsCapped() {
+		mongoTemplate.insert(parcel("p-1", event(0, "CREATED", "Colombo"), event(60, "AT_WAREHOUSE", "Kandy"),
+				event(90, "OUT_FOR_DELIVERY", "Kandy")));
+
+		parcelRepository.appendTrackingEvents(Map.of("p-1", List.of(event(10, "IN_TRANSIT", "Colombo hub"),
+				event(30, "IN_TRANSIT", "Kegalle"))), 3);
+
+		Parcel updated = parcelRepository.findById("p-1").orElseThrow();
+		assertEquals(List.of(event(30, "IN_TRANSIT", "Kegalle"), event(60, "AT_WAREHOUSE", "Kandy"),
+				event(90, "OUT_FOR_DELIVERY", "Kandy")), updated.getTrackingHistory());
+		assertEquals("OUT_FOR_DELIVERY", updated.getStatus());
+	}
+
+	@Test
+	void capsTheEmbeddedHistoryAndTreatsLocationsAsLiterals() {
+		mongoTemplate.insert(parcel("p-1", event(0, "CREATED", "Colombo")));
+
+		List<Parcel.TrackingEvent> events = new ArrayList<>();
+		for (int i = 1; i <= 5; i++) {
+			events.add(event(i, "IN_TRANSIT", "$status"));
+		}
+		parcelRepository.appendTrackingEvents(Map.of("p-1", events), 3);
+
+		Parcel updated = parcelRepository.findById("p-1").orElseThrow();
+		assertEquals(events.subList(2, 5), updated.getTrackingHistory());
+		assertEquals("$status", updated.getCurrentLocation());
+	}
+
+	private static Parcel.TrackingEvent event(int minutes, String status, String location) {
+		return new Parcel.TrackingEvent(T0.plusMinutes(minutes), location, status, null);
+	}
+
+	private static Parcel parcel(String id, Parcel.TrackingEvent... history) {
+		Parcel parcel = new Parcel();
+		parcel.setId(id);
+		parcel.setTrackingNumber("TRK-" + id);
+		parcel.setStatus(history[history.length - 1].getStatus());
+		parcel.setCurrentLocation(history[history.length - 1].getLocation());
+		parcel.setCreatedAt(T0);
+		parcel.setTrackingHistory(new ArrayList<>(List.of(history)));
+		return parcel;
+	}
+}
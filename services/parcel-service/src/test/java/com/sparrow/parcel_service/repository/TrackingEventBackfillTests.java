@@ -0,0 +1,93 @@
+package com.sparrow.parcel_service.repository;
+
+import com.sparrow.parcel_service.model.Parcel;
+import com.sparrow.parcel_service.model.ParcelTrackingEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataMongoTest
+class TrackingEventBackfillTests {
+
+	private static final LocalDateTime T0 = LocalDateTime.of(2025, 3, 1, 8, 0);
+
+	@Autowired
+	private MongoTemplate mongoTemplate;
+
+	@Autowired
+	private ParcelRepository parcelRepository;
+
+	@Autowired
+	private TrackingEventRepository trackingEventRepository;
+
+	@BeforeEach
+	void setUp() {
+		mongoTemplate.dropCollection(Parcel.class);
+		mongoTemplate.dropCollection(ParcelTrackingEvent.class);
+	}
+
+	@Test
+	void copiesEmbeddedHistoriesOnceAcrossBatches() {
+		for (int i = 0; i < 5; i++) {
+			mongoTemplate.insert(parcel("legacy-" + i, 3, null));
+		}
+		mongoTemplate.insert(parcel("no-history", 0, null));
+		mongoTemplate.insert(parcel("already-copied", 3, true));
+
+		assertEquals(15, parcelRepository.backfillTrackingEvents(2));
+		assertEquals(15, trackingEventRepository.count());
+		assertEquals(3, trackingEventRepository.findByParcelIdOrderByTimestampAsc("legacy-4").size());
+		assertTrue(parcelRepository.findAll().stream().allMatch(parcel -> Boolean.TRUE.equals(parcel.getHistoryInEventStore())));
+
+		assertEquals(0, parcelRepository.backfillTrackingEvents(2));
+		assertEquals(15, trackingEventRepository.count());
+	}
+
+	@Test
+	void rerunningOverCopiedEventsDoesNotDuplicateThem() {
+		Parcel parcel = parcel("p-1", 4, null);
+		mongoTemplate.insert(parcel);
+		// The first two events already reached the store, e.g. written by the request path or an interrupted run
+		trackingEventRepository.saveAll(List.of(
+				new ParcelTrackingEvent("p-1", parcel.getTrackingHistory().get(0)),
+				new ParcelTrackingEvent("p-1", parcel.getTrackingHistory().get(1))));
+
+		parcelRepository.backfillTrackingEvents(100);
+
+		assertEquals(4, trackingEventRepository.count());
+	}
+
+	@Test
+	void updatesWithoutTheStoreClearTheMarker() {
+		mongoTemplate.insert(parcel("p-1", 1, true));
+
+		parcelRepository.appendTrackingEvent("p-1", new Parcel.TrackingEvent(T0.plusHours(1), "Kandy", "DELIVERED", null), 0);
+
+		assertNull(parcelRepository.findById("p-1").orElseThrow().getHistoryInEventStore());
+	}
+
+	private static Parcel parcel(String id, int events, Boolean historyInEventStore) {
+		Parcel parcel = new Parcel();
+		parcel.setId(id);
+		parcel.setTrackingNumber("TRK-" + id);
+		parcel.setStatus("IN_TRANSIT");
+		parcel.setCreatedAt(T0);
+		parcel.setHistoryInEventStore(historyInEventStore);
+		List<Parcel.TrackingEvent> history = new ArrayList<>();
+		for (int i = 0; i < events; i++) {
+			history.add(new Parcel.TrackingEvent(T0.plusMinutes(i), "Hub " + i, "IN_TRANSIT", null));
+		}
+		parcel.setTrackingHistory(history);
+		return parcel;
+	}
+}
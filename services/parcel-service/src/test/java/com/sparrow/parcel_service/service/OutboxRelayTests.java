@@ -0,0 +1,162 @@
+package com.sparrow.parcel_service.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sparrow.parcel_service.config.EventCodec;
+import com.sparrow.parcel_service.model.Parcel;
+import com.sparrow.parcel_service.model.ParcelStatusUpdatedEvent;
+import com.sparrow.parcel_service.repository.ParcelRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.core.KafkaTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class OutboxRelayTests {
+
+	private static final LocalDateTime T0 = LocalDateTime.of(2025, 3, 1, 8, 0);
+
+	@Mock
+	private ParcelRepository parcelRepository;
+
+	@Mock
+	private KafkaProducerService kafkaProducerService;
+
+	@Mock
+	private KafkaTemplate<String, byte[]> kafkaTemplate;
+
+	@Test
+	void eventsQueuedAfterAFailedOneStayInTheOutbox() {
+		Parcel parcel = parcel(
+				outboxEvent("e-1", "parcel-status-updated", "IN_TRANSIT", 1),
+				outboxEvent("e-2", "parcel-status-updated", "AT_WAREHOUSE", 2),
+				outboxEvent("e-3", "parcel-status-updated", "DELIVERED", 3));
+		when(parcelRepository.claimPendingOutbox(anyString(), any(), anyInt())).thenReturn(List.of(parcel));
+		when(kafkaProducerService.publish(eq(parcel), any())).thenReturn(CompletableFuture.completedFuture(null))
+				.thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker down")))
+				.thenReturn(CompletableFuture.completedFuture(null));
+
+		relay().relay();
+
+		// e-3 was acknowledged but goes out again behind e-2, so DELIVERED is still the last status consumers see
+		verify(parcelRepository).releaseOutbox(anyString(), eq(Map.of("p-1", List.of("e-1"))));
+	}
+
+	@Test
+	void releasesWithTheRelayIdItClaimedWith() {
+		ArgumentCaptor<String> claimedBy = ArgumentCaptor.forClass(String.class);
+		ArgumentCaptor<String> releasedBy = ArgumentCaptor.forClass(String.class);
+		Parcel parcel = parcel(outboxEvent("e-1", "parcel-created", "CREATED", 0));
+		when(parcelRepository.claimPendingOutbox(claimedBy.capture(), eq(Duration.ofSeconds(60)), eq(500)))
+				.thenReturn(List.of(parcel));
+		when(kafkaProducerService.publish(eq(parcel), any())).thenReturn(CompletableFuture.completedFuture(null));
+
+		relay().relay();
+
+		verify(parcelRepository).releaseOutbox(releasedBy.capture(), eq(Map.of("p-1", List.of("e-1"))));
+		assertEquals(claimedBy.getValue(), releasedBy.getValue());
+	}
+
+	@Test
+	void replicasClaimUnderDifferentRelayIds() {
+		ArgumentCaptor<String> relayIds = ArgumentCaptor.forClass(String.class);
+		when(parcelRepository.claimPendingOutbox(relayIds.capture(), any(), anyInt())).thenReturn(List.of());
+
+		relay().relay();
+		relay().relay();
+
+		assertNotEquals(relayIds.getAllValues().get(0), relayIds.getAllValues().get(1));
+		verify(parcelRepository, never()).releaseOutbox(anyString(), any());
+	}
+
+	@Test
+	void payloadsDescribeTheQueuedChangeNotTheCurrentParcel() throws Exception {
+		EventCodec codec = new EventCodec(new ObjectMapper().findAndRegisterModules(), "json");
+		KafkaProducerService producer = new KafkaProducerService(kafkaTemplate, codec, new SimpleMeterRegistry());
+		when(kafkaTemplate.send(anyRecord())).thenReturn(new CompletableFuture<>());
+
+		// Scans moved the parcel on after it was created and consolidated, before the relay got to its outbox
+		Parcel parcel = parcel(
+				outboxEvent("e-1", "parcel-created", "CREATED", 0),
+				new Parcel.OutboxEvent("e-2", "consolidation-parcels", "c-1", T0.plusMinutes(1), "AT_WAREHOUSE", null),
+				outboxEvent("e-3", "parcel-status-updated", "IN_TRANSIT", 2));
+		parcel.setStatus("DELIVERED");
+		parcel.setCurrentLocation("Galle");
+		parcel.setConsolidationId("c-2");
+		for (Parcel.OutboxEvent event : parcel.getOutbox()) {
+			producer.publish(parcel, event);
+		}
+
+		@SuppressWarnings("unchecked")
+		ArgumentCaptor<ProducerRecord<String, byte[]>> sent = ArgumentCaptor.forClass(ProducerRecord.class);
+		verify(kafkaTemplate, times(3)).send(sent.capture());
+		List<JsonNode> payloads = new ArrayList<>();
+		for (ProducerRecord<String, byte[]> record : sent.getAllValues()) {
+			payloads.add(codec.readTree(record.value(), EventCodec.JSON));
+		}
+
+		assertEquals("CREATED", payloads.get(0).get("status").asText());
+		assertEquals("c-1", payloads.get(1).get("consolidationId").asText());
+		assertEquals("AT_WAREHOUSE", payloads.get(1).get("status").asText());
+		assertEquals("IN_TRANSIT", payloads.get(2).get("status").asText());
+		assertEquals("Colombo hub", payloads.get(2).get("currentLocation").asText());
+	}
+
+	@Test
+	void entriesQueuedWithoutASnapshotFallBackToTheParcel() {
+		Parcel parcel = parcel();
+		parcel.setStatus("DELIVERED");
+		parcel.setCurrentLocation("Galle");
+		Parcel.OutboxEvent legacy = new Parcel.OutboxEvent("e-1", "parcel-status-updated", null, T0, null, null);
+
+		ParcelStatusUpdatedEvent payload = ParcelStatusUpdatedEvent.from(parcel, legacy);
+
+		assertEquals("DELIVERED", payload.getStatus());
+		assertEquals("Galle", payload.getCurrentLocation());
+	}
+
+	private static ProducerRecord<String, byte[]> anyRecord() {
+		return any();
+	}
+
+	private OutboxRelay relay() {
+		return new OutboxRelay(parcelRepository, kafkaProducerService, new SimpleMeterRegistry(), 500, 1000,
+				Duration.ofSeconds(60));
+	}
+
+	private static Parcel.OutboxEvent outboxEvent(String id, String topic, String status, int minutes) {
+		return new Parcel.OutboxEvent(id, topic, null, T0.plusMinutes(minutes), status, "Colombo hub");
+	}
+
+	private static Parcel parcel(Parcel.OutboxEvent... outbox) {
+		Parcel parcel = new Parcel();
+		parcel.setId("p-1");
+		parcel.setTrackingNumber("TRK-p-1");
+		parcel.setStatus("CREATED");
+		parcel.setCreatedAt(T0);
+		parcel.setOutbox(new ArrayList<>(List.of(outbox)));
+		return parcel;
+	}
+}
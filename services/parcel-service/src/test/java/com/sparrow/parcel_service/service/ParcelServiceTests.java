@@ -0,0 +1,225 @@
+package com.sparrow.parcel_service.service;
+
+import com.sparrow.parcel_service.cache.ParcelTrackingCache;
+import com.sparrow.parcel_service.dto.BatchTrackingUpdateResponse;
+import com.sparrow.parcel_service.dto.CursorPage;
+import com.sparrow.parcel_service.dto.TrackingScan;
+import com.sparrow.parcel_service.dto.TrackingUpdateRequest;
+import com.sparrow.parcel_service.model.Parcel;
+import com.sparrow.parcel_service.model.ParcelTrackingEvent;
+import com.sparrow.parcel_service.repository.ParcelRepository;
+import com.sparrow.parcel_service.repository.ParcelRepositoryImpl;
+import com.sparrow.parcel_service.repository.TrackingEventRepository;
+import com.sparrow.parcel_service.util.KeysetCursor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ParcelServiceTests {
+
+	private static final LocalDateTime T0 = LocalDateTime.of(2025, 3, 1, 8, 0);
+
+	@Mock
+	private ParcelRepository parcelRepository;
+
+	@Mock
+	private TrackingEventRepository trackingEventRepository;
+
+	@Mock
+	private ParcelTrackingCache parcelTrackingCache;
+
+	@Mock
+	private TrackingNumberGenerator trackingNumberGenerator;
+
+	@InjectMocks
+	private ParcelService parcelService;
+
+	@BeforeEach
+	void setUp() {
+		ReflectionTestUtils.setField(parcelService, "trackingEventStoreEnabled", true);
+		ReflectionTestUtils.setField(parcelService, "recentEventsLimit", 20);
+	}
+
+	@Test
+	void storesTheEventBeforeUpdatingTheParcel() {
+		Parcel parcel = parcel("p-1", List.of());
+		when(trackingEventRepository.save(any(ParcelTrackingEvent.class))).thenAnswer(invocation -> invocation.getArgument(0));
+		when(parcelRepository.appendTrackingEvent(eq("p-1"), any(), eq(20))).thenReturn(Optional.of(parcel));
+
+		parcelService.updateParcelStatus("p-1", update("IN_TRANSIT", "Colombo hub"));
+
+		InOrder order = inOrder(trackingEventRepository, parcelRepository);
+		order.verify(trackingEventRepository).save(any(ParcelTrackingEvent.class));
+		order.verify(parcelRepository).appendTrackingEvent(eq("p-1"), any(), eq(20));
+		verify(trackingEventRepository, never()).delete(any());
+	}
+
+	@Test
+	void updatesInvalidateTheCachedTrackingLookup() {
+		Parcel parcel = parcel("p-1", List.of());
+		when(trackingEventRepository.save(any(ParcelTrackingEvent.class))).thenAnswer(invocation -> invocation.getArgument(0));
+		when(parcelRepository.appendTrackingEvent(eq("p-1"), any(), eq(20))).thenReturn(Optional.of(parcel));
+		when(parcelRepository.assignToConsolidation("p-1", "c-1")).thenReturn(Optional.of(parcel));
+
+		parcelService.updateParcelStatus("p-1", update("IN_TRANSIT", "Colombo hub"));
+		parcelService.assignToConsolidation("p-1", "c-1");
+
+		verify(parcelTrackingCache, times(2)).invalidate("TRK-p-1");
+	}
+
+	@Test
+	void removesTheStoredEventWhenTheParcelUpdateFails() {
+		when(trackingEventRepository.save(any(ParcelTrackingEvent.class))).thenAnswer(invocation -> invocation.getArgument(0));
+		when(parcelRepository.appendTrackingEvent(eq("missing"), any(), eq(20))).thenReturn(Optional.empty());
+
+		assertThrows(RuntimeException.class, () -> parcelService.updateParcelStatus("missing", update("IN_TRANSIT", "Colombo hub")));
+
+		verify(trackingEventRepository).delete(any(ParcelTrackingEvent.class));
+	}
+
+	@Test
+	void historyMergesStoredAndEmbeddedEventsWithoutDuplicates() {
+		Parcel.TrackingEvent created = event(0, "CREATED", "Colombo");
+		Parcel.TrackingEvent inTransit = event(1, "IN_TRANSIT", "Colombo hub");
+		Parcel.TrackingEvent atWarehouse = event(2, "AT_WAREHOUSE", "Kandy");
+		// Not backfilled yet: the first two events only exist in the embedded tail, the last one in both places
+		when(parcelRepository.findById("p-1")).thenReturn(Optional.of(parcel("p-1", List.of(created, inTransit, atWarehouse))));
+		ParcelTrackingEvent stored = new ParcelTrackingEvent("p-1", atWarehouse);
+		// A record written before ids were derived from the content
+		ParcelTrackingEvent legacy = new ParcelTrackingEvent("p-1", inTransit);
+		legacy.setId("65f0c0ffee0000000000abcd");
+		when(trackingEventRepository.findByParcelIdOrderByTimestampAsc("p-1")).thenReturn(List.of(legacy, stored));
+
+		assertEquals(List.of(created, inTransit, atWarehouse), parcelService.getTrackingHistory("p-1"));
+	}
+
+	@Test
+	void eventIdsMatchAfterAMongoRoundTrip() {
+		Parcel.TrackingEvent written = new Parcel.TrackingEvent(T0.plusNanos(123_456_789), "Kandy", "DELIVERED", null);
+		Parcel.TrackingEvent readBack = new Parcel.TrackingEvent(T0.plusNanos(123_000_000), "Kandy", "DELIVERED", null);
+
+		assertEquals(ParcelTrackingEvent.idFor("p-1", written), ParcelTrackingEvent.idFor("p-1", readBack));
+	}
+
+	@Test
+	void batchResultsReportEachScanAndUndoTheStoreForFailedParcels() {
+		Map<String, String> failures = Map.of(
+				"missing", ParcelRepositoryImpl.NOT_FOUND,
+				"broken", "Document failed validation");
+		when(parcelRepository.appendTrackingEvents(any(), eq(20))).thenReturn(failures);
+		when(parcelRepository.findTrackingNumbers(List.of("p-1"))).thenReturn(List.of("TRK-p-1"));
+
+		BatchTrackingUpdateResponse response = parcelService.applyTrackingScans(List.of(
+				scan("p-1", "AT_WAREHOUSE", 30),
+				scan("missing", "IN_TRANSIT", 10),
+				scan("p-1", "IN_TRANSIT", 10),
+				scan("", "IN_TRANSIT", 10),
+				scan("broken", "IN_TRANSIT", 10)));
+
+		assertEquals(List.of("UPDATED", "NOT_FOUND", "UPDATED", "INVALID", "FAILED"),
+				response.getResults().stream().map(BatchTrackingUpdateResponse.ItemResult::getOutcome).toList());
+		assertEquals("Document failed validation", response.getResults().get(4).getError());
+		assertEquals(2, response.getUpdated());
+		assertEquals(3, response.getFailed());
+		verify(parcelTrackingCache).invalidate("TRK-p-1");
+
+		// Scans of one parcel reach the repository oldest first, whatever order they arrived in
+		ArgumentCaptor<Map<String, List<Parcel.TrackingEvent>>> batch = ArgumentCaptor.captor();
+		verify(parcelRepository).appendTrackingEvents(batch.capture(), eq(20));
+		assertEquals(List.of("IN_TRANSIT", "AT_WAREHOUSE"),
+				batch.getValue().get("p-1").stream().map(Parcel.TrackingEvent::getStatus).toList());
+
+		ArgumentCaptor<List<ParcelTrackingEvent>> undone = ArgumentCaptor.captor();
+		verify(trackingEventRepository).deleteAll(undone.capture());
+		assertEquals(Set.of("missing", "broken"),
+				undone.getValue().stream().map(ParcelTrackingEvent::getParcelId).collect(Collectors.toSet()));
+	}
+
+	@Test
+	void pagesReturnACursorOnlyWhenMoreParcelsFollow() {
+		List<Parcel> rows = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			Parcel parcel = parcel("p-" + i, List.of());
+			parcel.setCreatedAt(T0.minusMinutes(i));
+			rows.add(parcel);
+		}
+		when(parcelRepository.findPage("senderId", "s-1", null, 4, false)).thenReturn(rows);
+		when(parcelRepository.findPage("senderId", "s-1", new KeysetCursor(T0.minusMinutes(2), "p-2"), 4, false))
+				.thenReturn(rows.subList(3, 4));
+
+		CursorPage<Parcel> first = parcelService.getParcelsBySender("s-1", null, 3, false);
+		assertEquals(List.of("p-0", "p-1", "p-2"), first.getItems().stream().map(Parcel::getId).toList());
+
+		CursorPage<Parcel> second = parcelService.getParcelsBySender("s-1", first.getNextCursor(), 3, false);
+		assertEquals(List.of("p-3"), second.getItems().stream().map(Parcel::getId).toList());
+		assertNull(second.getNextCursor());
+	}
+
+	@Test
+	void pageSizesAreClamped() {
+		when(parcelRepository.findPage(eq("recipientId"), eq("r-1"), isNull(), anyInt(), eq(true))).thenReturn(List.of());
+
+		parcelService.getParcelsByRecipient("r-1", null, 0, true);
+		parcelService.getParcelsByRecipient("r-1", null, 1_000_000, true);
+
+		verify(parcelRepository).findPage("recipientId", "r-1", null, 2, true);
+		verify(parcelRepository).findPage("recipientId", "r-1", null, 1001, true);
+	}
+
+	private static TrackingScan scan(String parcelId, String status, int minutes) {
+		TrackingScan scan = new TrackingScan();
+		scan.setParcelId(parcelId);
+		scan.setStatus(status);
+		scan.setLocation("Colombo hub");
+		scan.setScannedAt(T0.plusMinutes(minutes));
+		return scan;
+	}
+
+	private static TrackingUpdateRequest update(String status, String location) {
+		TrackingUpdateRequest request = new TrackingUpdateRequest();
+		request.setStatus(status);
+		request.setLocation(location);
+		return request;
+	}
+
+	private static Parcel.TrackingEvent event(int minutes, String status, String location) {
+		return new Parcel.TrackingEvent(T0.plusMinutes(minutes), location, status, null);
+	}
+
+	private static Parcel parcel(String id, List<Parcel.TrackingEvent> history) {
+		Parcel parcel = new Parcel();
+		parcel.setId(id);
+		parcel.setTrackingNumber("TRK-" + id);
+		parcel.setStatus("CREATED");
+		parcel.setTrackingHistory(new ArrayList<>(history));
+		return parcel;
+	}
+}
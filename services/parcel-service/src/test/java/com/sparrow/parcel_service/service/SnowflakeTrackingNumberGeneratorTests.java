@@ -0,0 +1,112 @@
+package com.sparrow.parcel_service.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SnowflakeTrackingNumberGeneratorTests {
+
+	private static final int THREADS = 8;
+	private static final int PER_THREAD = 100_000;
+
+	@Test
+	void concurrentGenerationIsUniqueAndMonotonicPerThread() throws Exception {
+		SnowflakeTrackingNumberGenerator generator = new SnowflakeTrackingNumberGenerator(7, System::currentTimeMillis);
+		Set<String> seen = ConcurrentHashMap.newKeySet();
+		CountDownLatch start = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+
+		try {
+			List<Future<Boolean>> results = new ArrayList<>();
+			for (int t = 0; t < THREADS; t++) {
+				results.add(executor.submit(() -> {
+					start.await();
+					String previous = "";
+					boolean ordered = true;
+					for (int i = 0; i < PER_THREAD; i++) {
+						String next = generator.next();
+						ordered &= next.compareTo(previous) > 0;
+						seen.add(next);
+						previous = next;
+					}
+					return ordered;
+				}));
+			}
+			start.countDown();
+
+			for (Future<Boolean> result : results) {
+				assertTrue(result.get(60, TimeUnit.SECONDS), "numbers must increase within a thread");
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		assertEquals(THREADS * PER_THREAD, seen.size());
+	}
+
+	@Test
+	void exhaustedSequenceAndClockRollbackStayMonotonic() {
+		long[] now = {1_800_000_000_000L};
+		SnowflakeTrackingNumberGenerator generator = new SnowflakeTrackingNumberGenerator(1, () -> now[0]);
+
+		String previous = "";
+		for (int i = 0; i < 10_000; i++) {
+			if (i == 5_000) {
+				now[0] -= 1_000;
+			}
+			String next = generator.next();
+			assertTrue(next.compareTo(previous) > 0);
+			previous = next;
+		}
+	}
+
+	@Test
+	void differentNodesNeverCollide() {
+		SnowflakeTrackingNumberGenerator first = new SnowflakeTrackingNumberGenerator(1, () -> 1_800_000_000_000L);
+		SnowflakeTrackingNumberGenerator second = new SnowflakeTrackingNumberGenerator(2, () -> 1_800_000_000_000L);
+
+		Set<String> seen = ConcurrentHashMap.newKeySet();
+		for (int i = 0; i < 10_000; i++) {
+			assertTrue(seen.add(first.next()));
+			assertTrue(seen.add(second.next()));
+		}
+	}
+
+	@Test
+	void stopsIssuingNumbersOnceTheNodeLeaseLapses() {
+		boolean[] leased = {true};
+		SnowflakeTrackingNumberGenerator generator = new SnowflakeTrackingNumberGenerator(4, System::currentTimeMillis, () -> leased[0]);
+		generator.next();
+
+		leased[0] = false;
+		assertThrows(IllegalStateException.class, generator::next);
+	}
+
+	@Test
+	void checkCharacterDetectsSingleCharacterErrors() {
+		SnowflakeTrackingNumberGenerator generator = new SnowflakeTrackingNumberGenerator(3, System::currentTimeMillis);
+		String trackingNumber = generator.next();
+		assertTrue(SnowflakeTrackingNumberGenerator.isValid(trackingNumber));
+
+		char[] chars = trackingNumber.toCharArray();
+		for (int i = 3; i < chars.length; i++) {
+			char original = chars[i];
+			chars[i] = original == 'Z' ? '0' : (char) (original == '9' ? 'A' : original + 1);
+			assertFalse(SnowflakeTrackingNumberGenerator.isValid(new String(chars)), "mutation at " + i);
+			chars[i] = original;
+		}
+	}
+}
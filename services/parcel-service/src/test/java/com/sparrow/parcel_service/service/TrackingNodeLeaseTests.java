@@ -0,0 +1,85 @@
+package com.sparrow.parcel_service.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataMongoTest
+class TrackingNodeLeaseTests {
+
+	private static final Duration TTL = Duration.ofSeconds(60);
+
+	@Autowired
+	private MongoTemplate mongoTemplate;
+
+	private final long[] now = {1_800_000_000_000L};
+
+	@BeforeEach
+	void setUp() {
+		mongoTemplate.dropCollection(TrackingNodeLease.COLLECTION);
+	}
+
+	@Test
+	void configuredIdHeldByAnotherInstanceFailsStartup() {
+		TrackingNodeLease first = lease(7);
+		assertEquals(7, first.nodeId());
+
+		IllegalStateException e = assertThrows(IllegalStateException.class, () -> lease(7));
+		assertTrue(e.getMessage().contains("node id 7"), e.getMessage());
+	}
+
+	@Test
+	void automaticIdsAreNeverShared() {
+		Set<Long> ids = new HashSet<>();
+		for (int i = 0; i < 50; i++) {
+			assertTrue(ids.add(lease(-1).nodeId()));
+		}
+	}
+
+	@Test
+	void expiredLeasesAreTakenOverAndTheirOwnerStops() {
+		TrackingNodeLease crashed = lease(3);
+		now[0] += TTL.toMillis() + 1;
+		assertFalse(crashed.isHeld());
+
+		TrackingNodeLease successor = lease(3);
+		assertTrue(successor.isHeld());
+
+		// The old owner comes back but cannot renew the id the successor now holds
+		crashed.renew();
+		assertFalse(crashed.isHeld());
+	}
+
+	@Test
+	void renewalExtendsTheLease() {
+		TrackingNodeLease lease = lease(5);
+		now[0] += TTL.toMillis() / 2;
+		lease.renew();
+		now[0] += TTL.toMillis() / 2 + 1;
+
+		assertTrue(lease.isHeld());
+		assertThrows(IllegalStateException.class, () -> lease(5));
+	}
+
+	@Test
+	void releasedIdsAreFreeImmediately() {
+		lease(9).release();
+
+		assertEquals(9, lease(9).nodeId());
+	}
+
+	private TrackingNodeLease lease(long nodeId) {
+		return new TrackingNodeLease(mongoTemplate, nodeId, TTL, () -> now[0]);
+	}
+}
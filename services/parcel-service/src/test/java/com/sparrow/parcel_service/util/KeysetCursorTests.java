@@ -0,0 +1,44 @@
+package com.sparrow.parcel_service.util;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class KeysetCursorTests {
+
+	@Test
+	void roundTripsCreatedAtAndId() {
+		KeysetCursor cursor = new KeysetCursor(LocalDateTime.of(2025, 3, 1, 8, 0, 0, 123_000_000), "65f0c0ffee0000000000abcd");
+
+		String encoded = cursor.encode();
+
+		assertFalse(encoded.contains("=") || encoded.contains("+") || encoded.contains("/"), "cursor must be URL safe");
+		assertEquals(cursor, KeysetCursor.decode(encoded));
+	}
+
+	@Test
+	void keepsEverythingAfterTheFirstSeparatorAsTheId() {
+		KeysetCursor cursor = new KeysetCursor(LocalDateTime.of(2025, 3, 1, 8, 0), "id|with|pipes");
+
+		assertEquals(cursor, KeysetCursor.decode(cursor.encode()));
+	}
+
+	@Test
+	void rejectsMalformedCursorsAsBadRequests() {
+		String noSeparator = Base64.getUrlEncoder().encodeToString("2025-03-01T08:00".getBytes(StandardCharsets.UTF_8));
+		String badDate = Base64.getUrlEncoder().encodeToString("yesterday|abc".getBytes(StandardCharsets.UTF_8));
+
+		for (String cursor : new String[]{"%%%", noSeparator, badDate}) {
+			ResponseStatusException e = assertThrows(ResponseStatusException.class, () -> KeysetCursor.decode(cursor));
+			assertEquals(HttpStatus.BAD_REQUEST, e.getStatusCode());
+		}
+	}
+}
@@ -0,0 +1,71 @@
+package com.sparrow.payment_service.config;
+
+import com.sparrow.payment_service.util.MinorUnits;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.TaskScheduler;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+// Brings payments written by older versions of the service in line with the current mapping.
+// A migration that fails (Mongo unreachable) is logged and retried later instead of failing startup.
+@Configuration
+public class MongoSchemaConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(MongoSchemaConfig.class);
+    private static final String COLLECTION = "payments";
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private TaskScheduler taskScheduler;
+
+    @Value("${payment.schema.retry-interval:PT1M}")
+    private Duration retryInterval;
+
+    @EventListener(ContextRefreshedEvent.class)
+    public void migrate() {
+        try {
+            convertAmounts();
+        } catch (RuntimeException e) {
+            log.warn("Payment amount conversion failed, retrying in {}: {}", retryInterval, e.getMessage());
+            taskScheduler.schedule(this::migrate, Instant.now().plus(retryInterval));
+        }
+    }
+
+    // Amounts used to be stored as a double in "amount". Each is converted to minor units once, rounded
+    // half-even on its decimal value, and the double is dropped.
+    void convertAmounts() {
+        Criteria legacy = Criteria.where("amount").exists(true).and("amountMinor").exists(false);
+        for (String currency : mongoTemplate.findDistinct(Query.query(legacy), "currency", COLLECTION, String.class)) {
+            BigDecimal factor;
+            try {
+                factor = BigDecimal.ONE.movePointRight(MinorUnits.fractionDigits(currency));
+            } catch (IllegalArgumentException e) {
+                log.warn("Leaving payments in unknown currency {} unconverted", currency);
+                continue;
+            }
+            Document minor = new Document("$toLong", new Document("$round", List.of(
+                    new Document("$multiply", List.of(new Document("$toDecimal", "$amount"), new Document("$toDecimal", factor.toPlainString()))),
+                    0)));
+            AggregationUpdate update = AggregationUpdate.update().set("amountMinor").toValue(minor).unset("amount");
+            long converted = mongoTemplate.updateMulti(Query.query(Criteria.where("amount").exists(true)
+                    .and("amountMinor").exists(false).and("currency").is(currency)), update, COLLECTION).getModifiedCount();
+            log.info("Converted {} {} payment amounts to minor units", converted, currency);
+        }
+    }
+}
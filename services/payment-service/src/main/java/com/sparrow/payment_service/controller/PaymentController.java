@@ -1,7 +1,10 @@
 package com.sparrow.payment_service.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sparrow.payment_service.dto.CursorPage;
 import com.sparrow.payment_service.model.Payment;
 import com.sparrow.payment_service.service.PaymentService;
+import com.sparrow.payment_service.util.ListingResponses;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
@@ -11,8 +14,10 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api/payments")
@@ -22,10 +27,25 @@ public class PaymentController {
     @Autowired
     private PaymentService paymentService;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
     @GetMapping
-    @Operation(summary = "Get all payments")
-    public List<Payment> getAllPayments() {
-        return paymentService.getAllPayments();
+    @Operation(summary = "Get all payments", description = "Pages through all payments in id order; pass nextCursor back as cursor. fields limits the returned properties.")
+    public CursorPage<Object> getAllPayments(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") int limit,
+            @RequestParam(required = false) String fields) {
+        Set<String> projection = ListingResponses.fields(fields);
+        return paymentService.getAllPayments(cursor, limit, projection)
+                .map(item -> ListingResponses.project(objectMapper, item, projection));
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Stream all payments", description = "Streams all payments as NDJSON")
+    public ResponseEntity<StreamingResponseBody> streamAllPayments(@RequestParam(required = false) String fields) {
+        Set<String> projection = ListingResponses.fields(fields);
+        return ListingResponses.ndjson(objectMapper, () -> paymentService.streamAllPayments(projection), projection);
     }
 
     @GetMapping("/user/{userId}")
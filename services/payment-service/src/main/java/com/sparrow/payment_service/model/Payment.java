@@ -1,9 +1,13 @@
 package com.sparrow.payment_service.model;
 
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.sparrow.payment_service.util.MinorUnits;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Transient;
 import org.springframework.data.mongodb.core.mapping.Document;
 import jakarta.validation.constraints.*;
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Document(collection = "payments")
@@ -17,10 +21,18 @@ public class Payment {
     @NotBlank(message = "User ID is required")
     private String userId;
 
+    // The amount is stored only as amountMinor, a count of the currency's minor units (cents for USD).
+    // This decimal form is what the API accepts and returns; PaymentService converts it on create.
+    @Transient
     @NotNull(message = "Amount is required")
     @Positive(message = "Amount must be positive")
-    private Double amount;
+    private BigDecimal amount;
 
+    @JsonIgnore
+    private Long amountMinor;
+
+    @NotBlank(message = "Currency is required")
+    @Pattern(regexp = "[A-Z]{3}", message = "Currency must be an ISO 4217 code")
     private String currency = "USD";
 
     @NotBlank(message = "Payment method is required")
@@ -40,7 +52,7 @@ public class Payment {
 
     public Payment() {}
 
-    public Payment(String parcelId, String userId, Double amount, String paymentMethod) {
+    public Payment(String parcelId, String userId, BigDecimal amount, String paymentMethod) {
         this.parcelId = parcelId;
         this.userId = userId;
         this.amount = amount;
@@ -57,8 +69,16 @@ public class Payment {
     public String getUserId() { return userId; }
     public void setUserId(String userId) { this.userId = userId; }
 
-    public Double getAmount() { return amount; }
-    public void setAmount(Double amount) { this.amount = amount; }
+    public BigDecimal getAmount() {
+        return amountMinor != null ? MinorUnits.toDecimal(amountMinor, currency) : amount;
+    }
+    public void setAmount(BigDecimal amount) {
+        this.amount = amount;
+        this.amountMinor = null;
+    }
+
+    public Long getAmountMinor() { return amountMinor; }
+    public void setAmountMinor(Long amountMinor) { this.amountMinor = amountMinor; }
 
     public String getCurrency() { return currency; }
     public void setCurrency(String currency) { this.currency = currency; }
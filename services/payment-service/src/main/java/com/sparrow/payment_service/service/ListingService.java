@@ -0,0 +1,68 @@
+package com.sparrow.payment_service.service;
+
+import com.sparrow.payment_service.dto.CursorPage;
+import com.sparrow.payment_service.util.KeysetCursor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+// "List everything" reads for any collection: keyset pages or a stream straight off the Mongo cursor,
+// both ordered by _id so they are served by the default index and use constant memory per request.
+// An empty field set reads whole documents; otherwise only the named fields (and _id) are fetched.
+// Kept in step with consolidation-service's ListingService, whose tests run it against a real Mongo,
+// apart from the projection of derived fields below.
+@Service
+public class ListingService {
+
+    public static final int MAX_PAGE_SIZE = 1000;
+
+    // Properties computed from other stored fields; projecting one fetches those fields instead.
+    // Payment.amount is not stored, it is derived from amountMinor in the currency's minor units.
+    private static final Map<String, List<String>> DERIVED_FIELDS = Map.of("amount", List.of("amountMinor", "currency"));
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    public <T> CursorPage<T> page(Class<T> type, String cursor, int limit, Set<String> fields) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        Criteria criteria = new Criteria();
+        if (cursor != null && !cursor.isBlank()) {
+            criteria = Criteria.where("_id").gt(KeysetCursor.decode(cursor).getId());
+        }
+
+        // One extra document tells whether another page exists without a count query
+        List<T> items = mongoTemplate.find(listingQuery(criteria, fields).limit(pageSize + 1), type);
+        String nextCursor = null;
+        if (items.size() > pageSize) {
+            items = items.subList(0, pageSize);
+            nextCursor = new KeysetCursor(idOf(items.get(pageSize - 1))).encode();
+        }
+        return new CursorPage<>(items, nextCursor);
+    }
+
+    public <T> Stream<T> stream(Class<T> type, Set<String> fields) {
+        return mongoTemplate.stream(listingQuery(new Criteria(), fields), type);
+    }
+
+    private Query listingQuery(Criteria criteria, Set<String> fields) {
+        Query query = Query.query(criteria).with(Sort.by(Sort.Direction.ASC, "_id"));
+        fields.forEach(field -> DERIVED_FIELDS.getOrDefault(field, List.of(field)).forEach(query.fields()::include));
+        return query;
+    }
+
+    private String idOf(Object entity) {
+        Object id = mongoTemplate.getConverter().getMappingContext()
+                .getRequiredPersistentEntity(entity.getClass())
+                .getIdentifierAccessor(entity)
+                .getIdentifier();
+        return String.valueOf(id);
+    }
+}
@@ -8,7 +8,7 @@ public class MockPaymentGateway {
 
     private final Random random = new Random();
 
-    public boolean processPayment(String paymentId, Double amount, String paymentMethod) {
+    public boolean processPayment(String paymentId, long amountMinor, String currency, String paymentMethod) {
         // Simulate payment processing with 90% success rate
         try {
             // Simulate network delay
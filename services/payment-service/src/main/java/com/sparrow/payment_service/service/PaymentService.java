@@ -1,11 +1,17 @@
 package com.sparrow.payment_service.service;
 
+import com.sparrow.payment_service.dto.CursorPage;
 import com.sparrow.payment_service.model.Payment;
 import com.sparrow.payment_service.repository.PaymentRepository;
+import com.sparrow.payment_service.util.MinorUnits;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 import java.time.LocalDateTime;
 
 @Service
@@ -23,8 +29,15 @@ public class PaymentService {
     @Autowired
     private MockPaymentGateway mockPaymentGateway;
 
-    public List<Payment> getAllPayments() {
-        return repository.findAll();
+    @Autowired
+    private ListingService listingService;
+
+    public CursorPage<Payment> getAllPayments(String cursor, int limit, Set<String> fields) {
+        return listingService.page(Payment.class, cursor, limit, fields);
+    }
+
+    public Stream<Payment> streamAllPayments(Set<String> fields) {
+        return listingService.stream(Payment.class, fields);
     }
 
     public List<Payment> getPaymentsByUserId(String userId) {
@@ -36,9 +49,17 @@ public class PaymentService {
     }
 
     public Payment createPayment(Payment payment) {
+        // From here on the amount is exact minor units; an amount finer than the currency allows is refused, not rounded
+        try {
+            payment.setAmountMinor(MinorUnits.toMinor(payment.getAmount(), payment.getCurrency()));
+        } catch (IllegalArgumentException | ArithmeticException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    payment.getAmount().toPlainString() + " is not a valid " + payment.getCurrency() + " amount");
+        }
+
         // Generate QR code if payment method is QR
         if ("QR_CODE".equalsIgnoreCase(payment.getPaymentMethod())) {
-            String qrCodeUrl = qrCodeService.generateQRCode(payment.getId(), payment.getAmount());
+            String qrCodeUrl = qrCodeService.generateQRCode(payment.getId(), payment.getAmount(), payment.getCurrency());
             payment.setQrCodeUrl(qrCodeUrl);
         }
 
@@ -50,7 +71,8 @@ public class PaymentService {
             // Process payment through mock gateway
             boolean success = mockPaymentGateway.processPayment(
                     payment.getId(),
-                    payment.getAmount(),
+                    payment.getAmountMinor(),
+                    payment.getCurrency(),
                     payment.getPaymentMethod()
             );
 
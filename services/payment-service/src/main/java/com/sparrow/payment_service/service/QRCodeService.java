@@ -7,14 +7,15 @@ import com.google.zxing.common.BitMatrix;
 import com.google.zxing.qrcode.QRCodeWriter;
 import org.springframework.stereotype.Service;
 import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
 import java.util.Base64;
 
 @Service
 public class QRCodeService {
 
-    public String generateQRCode(String paymentId, Double amount) {
+    public String generateQRCode(String paymentId, BigDecimal amount, String currency) {
         try {
-            String qrData = "PaymentID:" + paymentId + "|Amount:" + amount + "|Currency:USD";
+            String qrData = "PaymentID:" + paymentId + "|Amount:" + amount.toPlainString() + "|Currency:" + currency;
 
             QRCodeWriter qrCodeWriter = new QRCodeWriter();
             BitMatrix bitMatrix = qrCodeWriter.encode(qrData, BarcodeFormat.QR_CODE, 200, 200);
@@ -30,7 +30,7 @@ public class ReceiptService {
             document.add(new Paragraph("Transaction ID: " + payment.getTransactionId()));
             document.add(new Paragraph("Parcel ID: " + payment.getParcelId()));
             document.add(new Paragraph("User ID: " + payment.getUserId()));
-            document.add(new Paragraph("Amount: $" + payment.getAmount()));
+            document.add(new Paragraph("Amount: " + payment.getAmount().toPlainString() + " " + payment.getCurrency()));
             document.add(new Paragraph("Payment Method: " + payment.getPaymentMethod()));
             document.add(new Paragraph("Status: " + payment.getPaymentStatus()));
             document.add(new Paragraph("Date: " + payment.getCreatedAt()
@@ -0,0 +1,27 @@
+package com.sparrow.payment_service.util;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Currency;
+
+// Money is carried as a long count of the currency's minor units (cents for USD, yen for JPY).
+// BigDecimal only appears when converting at the API boundary.
+public final class MinorUnits {
+
+    private MinorUnits() {
+    }
+
+    // Throws IllegalArgumentException for an unknown ISO 4217 code
+    public static int fractionDigits(String currency) {
+        return Math.max(0, Currency.getInstance(currency).getDefaultFractionDigits());
+    }
+
+    // Exact conversion; throws ArithmeticException if the amount has more decimals than the currency allows
+    public static long toMinor(BigDecimal amount, String currency) {
+        return amount.setScale(fractionDigits(currency), RoundingMode.UNNECESSARY).unscaledValue().longValueExact();
+    }
+
+    public static BigDecimal toDecimal(long minor, String currency) {
+        return BigDecimal.valueOf(minor, fractionDigits(currency));
+    }
+}
@@ -0,0 +1,72 @@
+package com.sparrow.payment_service.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sparrow.payment_service.dto.CursorPage;
+import com.sparrow.payment_service.model.Payment;
+import com.sparrow.payment_service.util.ListingResponses;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// Only the payment-specific projection; the shared listing behaviour is tested in consolidation-service
+@ExtendWith(MockitoExtension.class)
+class ListingServiceTests {
+
+	@Mock
+	private MongoTemplate mongoTemplate;
+
+	@InjectMocks
+	private ListingService listingService;
+
+	private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+	@Test
+	void projectingTheAmountReadsTheStoredMinorUnitsAndCurrency() {
+		Payment stored = new Payment();
+		stored.setId("pay-1");
+		stored.setAmountMinor(1250L);
+		stored.setCurrency("USD");
+		when(mongoTemplate.find(any(Query.class), eq(Payment.class))).thenReturn(List.of(stored));
+		Set<String> projection = ListingResponses.fields("amount");
+
+		CursorPage<Payment> page = listingService.page(Payment.class, null, 10, projection);
+
+		assertEquals(Set.of("amountMinor", "currency", "id"), capturedQuery().getFieldsObject().keySet());
+		JsonNode item = objectMapper.valueToTree(ListingResponses.project(objectMapper, page.getItems().get(0), projection));
+		assertEquals(2, item.size());
+		assertEquals("pay-1", item.get("id").asText());
+		assertEquals(0, new BigDecimal("12.50").compareTo(item.get("amount").decimalValue()));
+	}
+
+	@Test
+	void storedFieldsAreProjectedAsNamed() {
+		when(mongoTemplate.find(any(Query.class), eq(Payment.class))).thenReturn(List.of());
+
+		listingService.page(Payment.class, null, 10, ListingResponses.fields("paymentStatus"));
+
+		assertEquals(new Document("paymentStatus", 1).append("id", 1), capturedQuery().getFieldsObject());
+	}
+
+	private Query capturedQuery() {
+		ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+		verify(mongoTemplate).find(query.capture(), eq(Payment.class));
+		return query.getValue();
+	}
+}
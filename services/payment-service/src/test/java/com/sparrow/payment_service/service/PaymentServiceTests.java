@@ -0,0 +1,99 @@
+package com.sparrow.payment_service.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sparrow.payment_service.model.Payment;
+import com.sparrow.payment_service.repository.PaymentRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class PaymentServiceTests {
+
+	@Mock
+	private PaymentRepository repository;
+
+	@Mock
+	private QRCodeService qrCodeService;
+
+	@Mock
+	private ReceiptService receiptService;
+
+	@Mock
+	private MockPaymentGateway mockPaymentGateway;
+
+	@InjectMocks
+	private PaymentService paymentService;
+
+	@BeforeEach
+	void setUp() {
+		lenient().when(repository.save(any(Payment.class))).thenAnswer(invocation -> invocation.getArgument(0));
+	}
+
+	@Test
+	void storesTheAmountAsMinorUnitsOfItsCurrency() {
+		Payment usd = paymentService.createPayment(new Payment("p1", "u1", new BigDecimal("12.5"), "CARD"));
+		assertEquals(1250L, usd.getAmountMinor());
+		assertEquals(new BigDecimal("12.50"), usd.getAmount());
+
+		Payment yen = new Payment("p2", "u1", new BigDecimal("1200"), "CARD");
+		yen.setCurrency("JPY");
+		assertEquals(1200L, paymentService.createPayment(yen).getAmountMinor());
+	}
+
+	@Test
+	void refusesAmountsFinerThanTheCurrencyAllows() {
+		assertThrows(ResponseStatusException.class,
+				() -> paymentService.createPayment(new Payment("p1", "u1", new BigDecimal("10.005"), "CARD")));
+
+		Payment yen = new Payment("p2", "u1", new BigDecimal("12.5"), "CARD");
+		yen.setCurrency("JPY");
+		assertThrows(ResponseStatusException.class, () -> paymentService.createPayment(yen));
+
+		Payment unknown = new Payment("p3", "u1", BigDecimal.TEN, "CARD");
+		unknown.setCurrency("XYZ");
+		assertThrows(ResponseStatusException.class, () -> paymentService.createPayment(unknown));
+	}
+
+	@Test
+	void chargesTheGatewayInMinorUnits() {
+		Payment payment = paymentService.createPayment(new Payment("p1", "u1", new BigDecimal("99.99"), "CARD"));
+		payment.setId("pay-1");
+		when(repository.findById("pay-1")).thenReturn(Optional.of(payment));
+		when(mockPaymentGateway.processPayment(anyString(), anyLong(), anyString(), anyString())).thenReturn(false);
+
+		paymentService.processPayment("pay-1");
+		verify(mockPaymentGateway).processPayment("pay-1", 9999L, "USD", "CARD");
+	}
+
+	@Test
+	void exposesOnlyTheDecimalAmountInJson() throws Exception {
+		ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+		Payment payment = objectMapper.readValue(
+				"{\"parcelId\":\"p1\",\"userId\":\"u1\",\"amount\":0.1,\"currency\":\"USD\",\"paymentMethod\":\"CARD\"}", Payment.class);
+		assertEquals(new BigDecimal("0.1"), payment.getAmount());
+
+		paymentService.createPayment(payment);
+		String json = objectMapper.writeValueAsString(payment);
+		assertTrue(json.contains("\"amount\":0.10"), json);
+		assertFalse(json.contains("amountMinor"), json);
+	}
+}
@@ -0,0 +1,76 @@
+package com.sparrow.pricing_service.service;
+
+import com.sparrow.pricing_service.cache.QuoteCache;
+import com.sparrow.pricing_service.dto.QuoteRequest;
+import com.sparrow.pricing_service.dto.QuoteResult;
+import com.sparrow.pricing_service.model.PriceCategory;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Batches per second for the batch quote endpoint's pricing step, sequential against the
+// configured parallel threshold (which only kicks in for the largest batch)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BatchQuoteBenchmark {
+
+    private static final int CATEGORIES = 50;
+    private static final int PARALLEL_THRESHOLD = 4096;
+
+    @Param({"1", "100", "10000"})
+    private int items;
+
+    private Map<String, PriceRule> rules;
+    private QuoteCache quoteCache;
+    private List<QuoteRequest> batch;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        Random random = new Random(42);
+        quoteCache = new QuoteCache(new SimpleMeterRegistry(), 100_000);
+        rules = new HashMap<>();
+        for (int i = 0; i < CATEGORIES; i++) {
+            PriceCategory category = new PriceCategory("Category " + i, null, BigDecimal.valueOf(10_000 + random.nextInt(90_000), 2),
+                    BigDecimal.valueOf(1000 + random.nextInt(9000), 2), BigDecimal.valueOf(10 + random.nextInt(100), 4));
+            category.setId("cat-" + i);
+            rules.put("cat-" + i, PriceRule.compile(category));
+        }
+        batch = new ArrayList<>(items);
+        for (int i = 0; i < items; i++) {
+            batch.add(new QuoteRequest("cat-" + random.nextInt(CATEGORIES),
+                    random.nextDouble() * 30, random.nextDouble() * 50_000));
+        }
+    }
+
+    @Benchmark
+    public List<QuoteResult> sequential() {
+        return PricingService.quoteAll(rules, batch, Integer.MAX_VALUE, quoteCache);
+    }
+
+    @Benchmark
+    public List<QuoteResult> withParallelThreshold() {
+        return PricingService.quoteAll(rules, batch, PARALLEL_THRESHOLD, quoteCache);
+    }
+}
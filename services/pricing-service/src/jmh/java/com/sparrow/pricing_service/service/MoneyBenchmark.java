@@ -0,0 +1,65 @@
+package com.sparrow.pricing_service.service;
+
+import com.sparrow.pricing_service.model.PriceCategory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// One exact quote: the compiled scaled-long rule against the same formula evaluated in BigDecimal.
+// Run with -prof gc to compare allocation per quote.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MoneyBenchmark {
+
+    private static final int QUOTES = 1024;
+
+    private PriceCategory category;
+    private PriceRule rule;
+    private double[][] parcels;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void compile() {
+        category = new PriceCategory("Standard", null, new BigDecimal("350.00"), new BigDecimal("42.75"),
+                new BigDecimal("0.0025"));
+        category.setId("std");
+        rule = PriceRule.compile(category);
+        Random random = new Random(7);
+        parcels = new double[QUOTES][];
+        for (int i = 0; i < QUOTES; i++) {
+            parcels[i] = new double[]{random.nextInt(30_000) / 1000.0, random.nextInt(50_000)};
+        }
+    }
+
+    @Benchmark
+    public long scaledLong() {
+        double[] parcel = parcels[next++ & (QUOTES - 1)];
+        return rule.quote(parcel[0], parcel[1]);
+    }
+
+    @Benchmark
+    public BigDecimal bigDecimal() {
+        double[] parcel = parcels[next++ & (QUOTES - 1)];
+        return category.getBasePrice()
+                .add(category.getPricePerKg().multiply(BigDecimal.valueOf(Math.round(parcel[0] * 1000), 3)))
+                .add(category.getPricePerCubicCm().multiply(BigDecimal.valueOf(Math.round(parcel[1]))))
+                .setScale(2, RoundingMode.HALF_EVEN);
+    }
+}
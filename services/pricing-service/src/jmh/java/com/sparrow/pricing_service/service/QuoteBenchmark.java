@@ -0,0 +1,105 @@
+package com.sparrow.pricing_service.service;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.sparrow.pricing_service.model.PriceCategory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// One quote: the in-memory price rules against the previous findById per quote.
+// The Mongo half needs a running MongoDB: ./gradlew jmh -Dbenchmark.mongo.uri=mongodb://localhost:27017
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QuoteBenchmark {
+
+    private static final int QUOTES = 1024;
+
+    @Param({"50", "5000"})
+    private int categories;
+
+    private PriceRuleCache cache;
+    private String[] categoryIds;
+    private double[][] parcels;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void loadRules() {
+        cache = new PriceRuleCache();
+        generate(categories).forEach(cache::put);
+        Random random = new Random(7);
+        categoryIds = new String[QUOTES];
+        parcels = new double[QUOTES][];
+        for (int i = 0; i < QUOTES; i++) {
+            categoryIds[i] = "cat-" + random.nextInt(categories);
+            parcels[i] = new double[]{random.nextDouble() * 30, random.nextDouble() * 50_000};
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class MongoState {
+        private MongoClient client;
+        private MongoTemplate mongoTemplate;
+
+        @Setup(Level.Trial)
+        public void load(BenchmarkParams params) {
+            client = MongoClients.create(System.getProperty("benchmark.mongo.uri", "mongodb://localhost:27017"));
+            mongoTemplate = new MongoTemplate(client, "pricing_benchmark");
+            mongoTemplate.dropCollection(PriceCategory.class);
+            mongoTemplate.insertAll(generate(Integer.parseInt(params.getParam("categories"))));
+        }
+
+        @TearDown(Level.Trial)
+        public void disconnect() {
+            mongoTemplate.getDb().drop();
+            client.close();
+        }
+    }
+
+    @Benchmark
+    public long inMemoryRules() {
+        int i = next++ & (QUOTES - 1);
+        return cache.find(categoryIds[i]).quote(parcels[i][0], parcels[i][1]);
+    }
+
+    @Benchmark
+    public long mongoFindById(MongoState mongo) {
+        int i = next++ & (QUOTES - 1);
+        PriceCategory category = mongo.mongoTemplate.findById(categoryIds[i], PriceCategory.class);
+        return PriceRule.compile(category).quote(parcels[i][0], parcels[i][1]);
+    }
+
+    private static List<PriceCategory> generate(int count) {
+        Random random = new Random(42);
+        List<PriceCategory> generated = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            PriceCategory category = new PriceCategory("Category " + i, null, BigDecimal.valueOf(10_000 + random.nextInt(90_000), 2),
+                    BigDecimal.valueOf(1000 + random.nextInt(9000), 2), BigDecimal.valueOf(10 + random.nextInt(100), 4));
+            category.setId("cat-" + i);
+            generated.add(category);
+        }
+        return generated;
+    }
+}
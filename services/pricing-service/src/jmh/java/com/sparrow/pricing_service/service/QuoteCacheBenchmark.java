@@ -0,0 +1,99 @@
+package com.sparrow.pricing_service.service;
+
+import com.sparrow.pricing_service.cache.QuoteCache;
+import com.sparrow.pricing_service.model.PriceCategory;
+import com.sparrow.pricing_service.model.WeightBand;
+import com.sparrow.pricing_service.model.ZoneRate;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Quotes for a few dozen standard box sizes, computed every time against served from the quote cache,
+// for a flat category and one with 500 weight bands and 600 zone pairs
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QuoteCacheBenchmark {
+
+    private static final int QUOTES = 1024;
+    private static final int BOX_SIZES = 40;
+    private static final int ZONES = 25;
+
+    @Param({"flat", "tiered"})
+    private String tariff;
+
+    private PriceRule rule;
+    private QuoteCache quoteCache;
+    private double[][] parcels;
+    private String[][] lanes;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void compile() {
+        PriceCategory category = new PriceCategory("Standard", null, new BigDecimal("350.00"),
+                new BigDecimal("42.75"), new BigDecimal("0.0025"));
+        category.setId("std");
+        if (tariff.equals("tiered")) {
+            category.setVolumetricDivisor(5000L);
+            List<WeightBand> bands = new ArrayList<>();
+            for (int i = 0; i < 500; i++) {
+                bands.add(new WeightBand(i * 0.1, (i + 1) * 0.1, BigDecimal.valueOf(5000 - i, 2), BigDecimal.ONE));
+            }
+            category.setWeightBands(bands);
+            List<ZoneRate> zoneRates = new ArrayList<>();
+            for (int o = 0; o < ZONES; o++) {
+                for (int d = 0; d < ZONES; d++) {
+                    if (o != d) {
+                        zoneRates.add(new ZoneRate("Zone" + o, "Zone" + d, BigDecimal.valueOf(100 + o, 2), BigDecimal.valueOf(d)));
+                    }
+                }
+            }
+            category.setZoneRates(zoneRates);
+        }
+        rule = PriceRule.compile(category);
+        quoteCache = new QuoteCache(new SimpleMeterRegistry(), 100_000);
+
+        Random random = new Random(7);
+        double[][] boxes = new double[BOX_SIZES][];
+        for (int i = 0; i < BOX_SIZES; i++) {
+            boxes[i] = new double[]{1 + random.nextInt(400) / 10.0, 1000 * (1 + random.nextInt(60))};
+        }
+        parcels = new double[QUOTES][];
+        lanes = new String[QUOTES][];
+        for (int i = 0; i < QUOTES; i++) {
+            parcels[i] = boxes[random.nextInt(BOX_SIZES)];
+            lanes[i] = new String[]{"Zone" + random.nextInt(3), "Zone" + (3 + random.nextInt(3))};
+        }
+    }
+
+    @Benchmark
+    public long computed() {
+        int i = next++ & (QUOTES - 1);
+        return rule.quote(parcels[i][0], parcels[i][1], lanes[i][0], lanes[i][1]);
+    }
+
+    @Benchmark
+    public long cached() {
+        int i = next++ & (QUOTES - 1);
+        return quoteCache.quote(rule, parcels[i][0], parcels[i][1], lanes[i][0], lanes[i][1]);
+    }
+}
@@ -0,0 +1,86 @@
+package com.sparrow.pricing_service.service;
+
+import com.sparrow.pricing_service.model.PriceCategory;
+import com.sparrow.pricing_service.model.WeightBand;
+import com.sparrow.pricing_service.model.ZoneRate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// One quote against a category with the given number of weight bands and zone pairs
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RateTableBenchmark {
+
+    private static final int QUOTES = 1024;
+    private static final int ZONES = 25;
+
+    @Param({"10", "500"})
+    private int bands;
+
+    private PriceRule rule;
+    private double[] weights;
+    private String[] origins;
+    private String[] destinations;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void compile() {
+        PriceCategory category = new PriceCategory("Tiered", null, new BigDecimal("100.00"),
+                new BigDecimal("20.00"), new BigDecimal("0.0001"));
+        category.setVolumetricDivisor(5000L);
+        List<WeightBand> weightBands = new ArrayList<>();
+        for (int i = 0; i < bands; i++) {
+            weightBands.add(new WeightBand(i * 0.5, (i + 1) * 0.5,
+                    BigDecimal.valueOf(3000 - i, 2), BigDecimal.ONE));
+        }
+        category.setWeightBands(weightBands);
+        // Every ordered pair of ZONES zones: 600 pairs
+        List<ZoneRate> zoneRates = new ArrayList<>();
+        for (int o = 0; o < ZONES; o++) {
+            for (int d = 0; d < ZONES; d++) {
+                if (o != d) {
+                    zoneRates.add(new ZoneRate("Zone" + o, "Zone" + d,
+                            BigDecimal.valueOf(100 + o, 2), BigDecimal.valueOf(d)));
+                }
+            }
+        }
+        category.setZoneRates(zoneRates);
+        rule = PriceRule.compile(category);
+
+        Random random = new Random(7);
+        weights = new double[QUOTES];
+        origins = new String[QUOTES];
+        destinations = new String[QUOTES];
+        for (int i = 0; i < QUOTES; i++) {
+            weights[i] = random.nextDouble() * bands * 0.6;
+            origins[i] = "Zone" + random.nextInt(ZONES);
+            destinations[i] = "Zone" + random.nextInt(ZONES);
+        }
+    }
+
+    @Benchmark
+    public long quote() {
+        int i = next++ & (QUOTES - 1);
+        return rule.quote(weights[i], 20_000, origins[i], destinations[i]);
+    }
+}
@@ -0,0 +1,54 @@
+package com.sparrow.pricing_service.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.sparrow.pricing_service.service.PriceRule;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+// Bounded memo of quote results for categories with weight bands or zone rates. Parcels mostly come in
+// standard box sizes, so the same inputs repeat.
+// Keys hold the category version and the weight and volume quantized exactly as PriceRule prices them
+// (grams, cubic cm), so a hit is always the price the rule would compute. A saved category gets a
+// new version and stops matching its old entries; those are also dropped when the change is applied.
+// Hit/miss counts and size are published as the cache.* metrics with cache=priceQuotes.
+@Component
+public class QuoteCache {
+
+    private final Cache<QuoteKey, Long> cache;
+
+    public QuoteCache(MeterRegistry meterRegistry, @Value("${pricing.quote-cache.max-size:100000}") long maxSize) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "priceQuotes");
+    }
+
+    // Price in minor units, as PriceRule.quote
+    public long quote(PriceRule rule, double weight, double volume, String originZone, String destinationZone) {
+        if (rule.isFlat()) {
+            return rule.quote(weight, volume, originZone, destinationZone);
+        }
+        // Zones only matter to categories that have zone rates
+        boolean zoned = rule.hasZones();
+        QuoteKey key = new QuoteKey(rule.getCategoryId(), rule.getVersion(), PriceRule.grams(weight), PriceRule.cubicCm(volume),
+                zoned ? originZone : null, zoned ? destinationZone : null);
+        return cache.get(key, ignored -> rule.quote(weight, volume, originZone, destinationZone));
+    }
+
+    // Frees the entries of a category that changed or was deleted
+    public void invalidate(String categoryId) {
+        cache.asMap().keySet().removeIf(key -> key.categoryId().equals(categoryId));
+    }
+
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    private record QuoteKey(String categoryId, long version, long grams, long cubicCm,
+                            String originZone, String destinationZone) {
+    }
+}
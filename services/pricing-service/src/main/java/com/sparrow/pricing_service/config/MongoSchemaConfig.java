@@ -0,0 +1,55 @@
+package com.sparrow.pricing_service.config;
+
+import com.sparrow.pricing_service.model.PriceCategory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.TaskScheduler;
+
+import java.time.Duration;
+import java.time.Instant;
+
+// Brings categories written by older versions of the service in line with the current mapping.
+// A migration that fails (Mongo unreachable) is logged and retried later instead of failing startup.
+@Configuration
+public class MongoSchemaConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(MongoSchemaConfig.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private TaskScheduler taskScheduler;
+
+    @Value("${pricing.schema.retry-interval:PT1M}")
+    private Duration retryInterval;
+
+    @EventListener(ContextRefreshedEvent.class)
+    public void migrate() {
+        try {
+            initVersions();
+        } catch (RuntimeException e) {
+            log.warn("Price category version initialization failed, retrying in {}: {}", retryInterval, e.getMessage());
+            taskScheduler.schedule(this::migrate, Instant.now().plus(retryInterval));
+        }
+    }
+
+    // A versioned entity without a version is taken as new, so saving a category created before
+    // versioning would attempt an insert and fail on the duplicate id
+    void initVersions() {
+        long updated = mongoTemplate.updateMulti(Query.query(Criteria.where("version").exists(false)),
+                Update.update("version", 0L), PriceCategory.class).getModifiedCount();
+        if (updated > 0) {
+            log.info("Initialized version of {} price categories", updated);
+        }
+    }
+}
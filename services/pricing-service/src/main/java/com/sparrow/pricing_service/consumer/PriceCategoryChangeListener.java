@@ -0,0 +1,31 @@
+package com.sparrow.pricing_service.consumer;
+
+import com.sparrow.pricing_service.service.PriceRuleCache;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+
+// Keeps every replica's price rules in step with category writes made elsewhere. Each replica joins its
+// own consumer group so it sees every change, starting from the latest offset since the rules are loaded
+// from Mongo at startup. The key is the category id; the category is re-read rather than sent.
+@Component
+public class PriceCategoryChangeListener {
+
+    @Autowired
+    private PriceRuleCache priceRuleCache;
+
+    @KafkaListener(topics = "price-category-events",
+            groupId = "pricing-rules-#{T(java.util.UUID).randomUUID()}",
+            properties = {
+                    "key.deserializer=org.apache.kafka.common.serialization.StringDeserializer",
+                    "value.deserializer=org.apache.kafka.common.serialization.StringDeserializer",
+                    "auto.offset.reset=latest",
+                    "enable.auto.commit=true"
+            })
+    public void handleCategoryChange(ConsumerRecord<String, String> record) {
+        if (record.key() != null) {
+            priceRuleCache.refresh(record.key());
+        }
+    }
+}
@@ -1,16 +1,24 @@
 package com.sparrow.pricing_service.controller;
 
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sparrow.pricing_service.dto.BatchQuoteRequest;
+import com.sparrow.pricing_service.dto.CursorPage;
+import com.sparrow.pricing_service.dto.QuoteResult;
 import com.sparrow.pricing_service.model.PriceCategory;
 import com.sparrow.pricing_service.service.PricingService;
+import com.sparrow.pricing_service.util.ListingResponses;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api/pricing")
@@ -20,10 +28,25 @@ public class PricingController {
     @Autowired
     private PricingService pricingService;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
     @GetMapping("/categories")
-    @Operation(summary = "Get all pricing categories")
-    public List<PriceCategory> getAllCategories() {
-        return pricingService.getAllCategories();
+    @Operation(summary = "Get all pricing categories", description = "Pages through all pricing categories in id order; pass nextCursor back as cursor. fields limits the returned properties.")
+    public CursorPage<Object> getAllCategories(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") int limit,
+            @RequestParam(required = false) String fields) {
+        Set<String> projection = ListingResponses.fields(fields);
+        return pricingService.getAllCategories(cursor, limit, projection)
+                .map(item -> ListingResponses.project(objectMapper, item, projection));
+    }
+
+    @GetMapping(value = "/categories", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Stream all pricing categories", description = "Streams all pricing categories as NDJSON")
+    public ResponseEntity<StreamingResponseBody> streamAllCategories(@RequestParam(required = false) String fields) {
+        Set<String> projection = ListingResponses.fields(fields);
+        return ListingResponses.ndjson(objectMapper, () -> pricingService.streamAllCategories(projection), projection);
     }
 
     @GetMapping("/categories/active")
@@ -64,16 +87,23 @@ public class PricingController {
     }
 
     @PostMapping("/calculate")
-    @Operation(summary = "Calculate price for a parcel")
-    public ResponseEntity<Double> calculatePrice(
+    @Operation(summary = "Calculate price for a parcel", description = "Returns the exact amount and its currency")
+    public ResponseEntity<QuoteResult> calculatePrice(
             @RequestParam String categoryId,
             @RequestParam double weight,
-            @RequestParam double volume) {
+            @RequestParam double volume,
+            @RequestParam(required = false) String originZone,
+            @RequestParam(required = false) String destinationZone) {
         try {
-            double price = pricingService.calculatePrice(categoryId, weight, volume);
-            return ResponseEntity.ok(price);
+            return ResponseEntity.ok(pricingService.calculatePrice(categoryId, weight, volume, originZone, destinationZone));
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().build();
         }
     }
+
+    @PostMapping("/calculate/batch")
+    @Operation(summary = "Calculate prices for many parcels", description = "Prices up to " + BatchQuoteRequest.MAX_ITEMS + " items in one call; results are in request order and an unknown category fails only its own item")
+    public List<QuoteResult> calculatePrices(@Valid @RequestBody BatchQuoteRequest request) {
+        return pricingService.calculatePrices(request.getItems());
+    }
 }
\ No newline at end of file
@@ -0,0 +1,25 @@
+package com.sparrow.pricing_service.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public class BatchQuoteRequest {
+    public static final int MAX_ITEMS = 10_000;
+
+    @NotEmpty(message = "At least one item is required")
+    @Size(max = MAX_ITEMS, message = "At most " + MAX_ITEMS + " items per request")
+    private List<@Valid QuoteRequest> items;
+
+    public BatchQuoteRequest() {}
+
+    public BatchQuoteRequest(List<QuoteRequest> items) {
+        this.items = items;
+    }
+
+    // Getters and setters
+    public List<QuoteRequest> getItems() { return items; }
+    public void setItems(List<QuoteRequest> items) { this.items = items; }
+}
@@ -0,0 +1,52 @@
+package com.sparrow.pricing_service.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.PositiveOrZero;
+
+public class QuoteRequest {
+    @NotBlank(message = "Category id is required")
+    private String categoryId;
+
+    @NotNull(message = "Weight is required")
+    @PositiveOrZero(message = "Weight must not be negative")
+    private Double weight;
+
+    @NotNull(message = "Volume is required")
+    @PositiveOrZero(message = "Volume must not be negative")
+    private Double volume;
+
+    // Optional; used only by categories with zone rates
+    private String originZone;
+    private String destinationZone;
+
+    public QuoteRequest() {}
+
+    public QuoteRequest(String categoryId, Double weight, Double volume) {
+        this.categoryId = categoryId;
+        this.weight = weight;
+        this.volume = volume;
+    }
+
+    public QuoteRequest(String categoryId, Double weight, Double volume, String originZone, String destinationZone) {
+        this(categoryId, weight, volume);
+        this.originZone = originZone;
+        this.destinationZone = destinationZone;
+    }
+
+    // Getters and setters
+    public String getCategoryId() { return categoryId; }
+    public void setCategoryId(String categoryId) { this.categoryId = categoryId; }
+
+    public Double getWeight() { return weight; }
+    public void setWeight(Double weight) { this.weight = weight; }
+
+    public Double getVolume() { return volume; }
+    public void setVolume(Double volume) { this.volume = volume; }
+
+    public String getOriginZone() { return originZone; }
+    public void setOriginZone(String originZone) { this.originZone = originZone; }
+
+    public String getDestinationZone() { return destinationZone; }
+    public void setDestinationZone(String destinationZone) { this.destinationZone = destinationZone; }
+}
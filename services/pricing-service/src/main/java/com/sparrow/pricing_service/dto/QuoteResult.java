@@ -0,0 +1,35 @@
+package com.sparrow.pricing_service.dto;
+
+import java.math.BigDecimal;
+
+// One priced item, in the position of its request. The amount is exact, with the currency's
+// minor-unit decimals. An unknown or inactive category fails only that item: amount is null and
+// error says why.
+public class QuoteResult {
+    private String categoryId;
+    private BigDecimal amount;
+    private String currency;
+    private String error;
+
+    public QuoteResult() {}
+
+    public QuoteResult(String categoryId, BigDecimal amount, String currency, String error) {
+        this.categoryId = categoryId;
+        this.amount = amount;
+        this.currency = currency;
+        this.error = error;
+    }
+
+    // Getters and setters
+    public String getCategoryId() { return categoryId; }
+    public void setCategoryId(String categoryId) { this.categoryId = categoryId; }
+
+    public BigDecimal getAmount() { return amount; }
+    public void setAmount(BigDecimal amount) { this.amount = amount; }
+
+    public String getCurrency() { return currency; }
+    public void setCurrency(String currency) { this.currency = currency; }
+
+    public String getError() { return error; }
+    public void setError(String error) { this.error = error; }
+}
@@ -1,37 +1,70 @@
 package com.sparrow.pricing_service.model;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
 import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+import org.springframework.data.mongodb.core.mapping.FieldType;
+import jakarta.validation.Valid;
 import jakarta.validation.constraints.*;
 
+import java.math.BigDecimal;
+import java.util.List;
+
 @Document(collection = "price_categories")
 public class PriceCategory {
     @Id
     private String id;
 
+    // Bumped on every save; cached quotes are keyed by it, and concurrent updates of the same
+    // version are refused
+    @Version
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Long version;
+
     @NotBlank(message = "Category name is required")
     private String name;
 
     private String description;
 
+    // Prices are exact decimals in this currency. Amounts may have at most the currency's minor-unit
+    // decimals; per-kg and per-cubic-cm rates up to PriceRule.RATE_DIGITS more.
+    @NotBlank(message = "Currency is required")
+    @Pattern(regexp = "[A-Z]{3}", message = "Currency must be an ISO 4217 code")
+    private String currency = "USD";
+
     @NotNull(message = "Base price is required")
     @Positive(message = "Base price must be positive")
-    private Double basePrice;
+    @Field(targetType = FieldType.DECIMAL128)
+    private BigDecimal basePrice;
 
     @NotNull(message = "Price per kg is required")
     @Positive(message = "Price per kg must be positive")
-    private Double pricePerKg;
+    @Field(targetType = FieldType.DECIMAL128)
+    private BigDecimal pricePerKg;
 
     @NotNull(message = "Price per cubic cm is required")
     @Positive(message = "Price per cubic cm must be positive")
-    private Double pricePerCubicCm;
+    @Field(targetType = FieldType.DECIMAL128)
+    private BigDecimal pricePerCubicCm;
+
+    // Volume in cubic cm per chargeable kg; when set, parcels are charged by the greater of their
+    // actual and dimensional weight
+    @Positive(message = "Volumetric divisor must be positive")
+    private Long volumetricDivisor;
+
+    // Must not overlap; weights outside every band use pricePerKg
+    private List<@Valid WeightBand> weightBands;
+
+    private List<@Valid ZoneRate> zoneRates;
 
     private boolean active = true;
 
     public PriceCategory() {}
 
-    public PriceCategory(String name, String description, Double basePrice,
-                         Double pricePerKg, Double pricePerCubicCm) {
+    public PriceCategory(String name, String description, BigDecimal basePrice,
+                         BigDecimal pricePerKg, BigDecimal pricePerCubicCm) {
         this.name = name;
         this.description = description;
         this.basePrice = basePrice;
@@ -43,20 +76,35 @@ public class PriceCategory {
     public String getId() { return id; }
     public void setId(String id) { this.id = id; }
 
+    public Long getVersion() { return version; }
+    public void setVersion(Long version) { this.version = version; }
+
     public String getName() { return name; }
     public void setName(String name) { this.name = name; }
 
     public String getDescription() { return description; }
     public void setDescription(String description) { this.description = description; }
 
-    public Double getBasePrice() { return basePrice; }
-    public void setBasePrice(Double basePrice) { this.basePrice = basePrice; }
+    public String getCurrency() { return currency; }
+    public void setCurrency(String currency) { this.currency = currency; }
+
+    public BigDecimal getBasePrice() { return basePrice; }
+    public void setBasePrice(BigDecimal basePrice) { this.basePrice = basePrice; }
+
+    public BigDecimal getPricePerKg() { return pricePerKg; }
+    public void setPricePerKg(BigDecimal pricePerKg) { this.pricePerKg = pricePerKg; }
+
+    public BigDecimal getPricePerCubicCm() { return pricePerCubicCm; }
+    public void setPricePerCubicCm(BigDecimal pricePerCubicCm) { this.pricePerCubicCm = pricePerCubicCm; }
+
+    public Long getVolumetricDivisor() { return volumetricDivisor; }
+    public void setVolumetricDivisor(Long volumetricDivisor) { this.volumetricDivisor = volumetricDivisor; }
 
-    public Double getPricePerKg() { return pricePerKg; }
-    public void setPricePerKg(Double pricePerKg) { this.pricePerKg = pricePerKg; }
+    public List<WeightBand> getWeightBands() { return weightBands; }
+    public void setWeightBands(List<WeightBand> weightBands) { this.weightBands = weightBands; }
 
-    public Double getPricePerCubicCm() { return pricePerCubicCm; }
-    public void setPricePerCubicCm(Double pricePerCubicCm) { this.pricePerCubicCm = pricePerCubicCm; }
+    public List<ZoneRate> getZoneRates() { return zoneRates; }
+    public void setZoneRates(List<ZoneRate> zoneRates) { this.zoneRates = zoneRates; }
 
     public boolean isActive() { return active; }
     public void setActive(boolean active) { this.active = active; }
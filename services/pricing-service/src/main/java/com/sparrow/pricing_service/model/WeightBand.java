@@ -0,0 +1,52 @@
+package com.sparrow.pricing_service.model;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
+import org.springframework.data.mongodb.core.mapping.Field;
+import org.springframework.data.mongodb.core.mapping.FieldType;
+
+import java.math.BigDecimal;
+
+// Chargeable weights in [fromKg, toKg) are priced at this band's rate instead of the category's
+// pricePerKg, plus its flat fee
+public class WeightBand {
+    @NotNull(message = "Band start weight is required")
+    @PositiveOrZero(message = "Band start weight must not be negative")
+    private Double fromKg;
+
+    @NotNull(message = "Band end weight is required")
+    @Positive(message = "Band end weight must be positive")
+    private Double toKg;
+
+    @NotNull(message = "Band price per kg is required")
+    @PositiveOrZero(message = "Band price per kg must not be negative")
+    @Field(targetType = FieldType.DECIMAL128)
+    private BigDecimal pricePerKg;
+
+    @PositiveOrZero(message = "Band fee must not be negative")
+    @Field(targetType = FieldType.DECIMAL128)
+    private BigDecimal flatFee;
+
+    public WeightBand() {}
+
+    public WeightBand(Double fromKg, Double toKg, BigDecimal pricePerKg, BigDecimal flatFee) {
+        this.fromKg = fromKg;
+        this.toKg = toKg;
+        this.pricePerKg = pricePerKg;
+        this.flatFee = flatFee;
+    }
+
+    // Getters and setters
+    public Double getFromKg() { return fromKg; }
+    public void setFromKg(Double fromKg) { this.fromKg = fromKg; }
+
+    public Double getToKg() { return toKg; }
+    public void setToKg(Double toKg) { this.toKg = toKg; }
+
+    public BigDecimal getPricePerKg() { return pricePerKg; }
+    public void setPricePerKg(BigDecimal pricePerKg) { this.pricePerKg = pricePerKg; }
+
+    public BigDecimal getFlatFee() { return flatFee; }
+    public void setFlatFee(BigDecimal flatFee) { this.flatFee = flatFee; }
+}
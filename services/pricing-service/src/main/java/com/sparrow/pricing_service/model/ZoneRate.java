@@ -0,0 +1,50 @@
+package com.sparrow.pricing_service.model;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
+import org.springframework.data.mongodb.core.mapping.Field;
+import org.springframework.data.mongodb.core.mapping.FieldType;
+
+import java.math.BigDecimal;
+
+// Adjustment for parcels going from one zone to another: the whole price before rounding (base price,
+// weight band fee, weight and volume charges) is multiplied, then the surcharge added unmultiplied.
+// Zones are matched case-insensitively.
+public class ZoneRate {
+    @NotBlank(message = "Origin zone is required")
+    private String originZone;
+
+    @NotBlank(message = "Destination zone is required")
+    private String destinationZone;
+
+    @Positive(message = "Zone multiplier must be positive")
+    @Field(targetType = FieldType.DECIMAL128)
+    private BigDecimal multiplier;
+
+    @PositiveOrZero(message = "Zone surcharge must not be negative")
+    @Field(targetType = FieldType.DECIMAL128)
+    private BigDecimal surcharge;
+
+    public ZoneRate() {}
+
+    public ZoneRate(String originZone, String destinationZone, BigDecimal multiplier, BigDecimal surcharge) {
+        this.originZone = originZone;
+        this.destinationZone = destinationZone;
+        this.multiplier = multiplier;
+        this.surcharge = surcharge;
+    }
+
+    // Getters and setters
+    public String getOriginZone() { return originZone; }
+    public void setOriginZone(String originZone) { this.originZone = originZone; }
+
+    public String getDestinationZone() { return destinationZone; }
+    public void setDestinationZone(String destinationZone) { this.destinationZone = destinationZone; }
+
+    public BigDecimal getMultiplier() { return multiplier; }
+    public void setMultiplier(BigDecimal multiplier) { this.multiplier = multiplier; }
+
+    public BigDecimal getSurcharge() { return surcharge; }
+    public void setSurcharge(BigDecimal surcharge) { this.surcharge = surcharge; }
+}
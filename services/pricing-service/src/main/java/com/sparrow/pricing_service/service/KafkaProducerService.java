@@ -0,0 +1,41 @@
+package com.sparrow.pricing_service.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+@Service
+public class KafkaProducerService {
+
+    private static final Logger log = LoggerFactory.getLogger(KafkaProducerService.class);
+
+    @Autowired
+    private KafkaTemplate<String, String> kafkaTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Records send-to-ack latency per topic and outcome, and logs failures instead of dropping them silently
+    public CompletableFuture<SendResult<String, String>> send(String topic, String key, String event) {
+        long start = System.nanoTime();
+        return kafkaTemplate.send(topic, key, event).whenComplete((result, ex) -> {
+            Timer.builder("kafka.producer.send")
+                    .description("Time from send to broker acknowledgement")
+                    .tag("topic", topic)
+                    .tag("outcome", ex == null ? "success" : "failure")
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            if (ex != null) {
+                log.error("Failed to send event with key {} to {}: {}", key, topic, ex.getMessage());
+            }
+        });
+    }
+}
@@ -0,0 +1,62 @@
+package com.sparrow.pricing_service.service;
+
+import com.sparrow.pricing_service.dto.CursorPage;
+import com.sparrow.pricing_service.util.KeysetCursor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+// "List everything" reads for any collection: keyset pages or a stream straight off the Mongo cursor,
+// both ordered by _id so they are served by the default index and use constant memory per request.
+// An empty field set reads whole documents; otherwise only the named fields (and _id) are fetched.
+// Kept in step with consolidation-service's ListingService, whose tests run it against a real Mongo.
+@Service
+public class ListingService {
+
+    public static final int MAX_PAGE_SIZE = 1000;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    public <T> CursorPage<T> page(Class<T> type, String cursor, int limit, Set<String> fields) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        Criteria criteria = new Criteria();
+        if (cursor != null && !cursor.isBlank()) {
+            criteria = Criteria.where("_id").gt(KeysetCursor.decode(cursor).getId());
+        }
+
+        // One extra document tells whether another page exists without a count query
+        List<T> items = mongoTemplate.find(listingQuery(criteria, fields).limit(pageSize + 1), type);
+        String nextCursor = null;
+        if (items.size() > pageSize) {
+            items = items.subList(0, pageSize);
+            nextCursor = new KeysetCursor(idOf(items.get(pageSize - 1))).encode();
+        }
+        return new CursorPage<>(items, nextCursor);
+    }
+
+    public <T> Stream<T> stream(Class<T> type, Set<String> fields) {
+        return mongoTemplate.stream(listingQuery(new Criteria(), fields), type);
+    }
+
+    private Query listingQuery(Criteria criteria, Set<String> fields) {
+        Query query = Query.query(criteria).with(Sort.by(Sort.Direction.ASC, "_id"));
+        fields.forEach(field -> query.fields().include(field));
+        return query;
+    }
+
+    private String idOf(Object entity) {
+        Object id = mongoTemplate.getConverter().getMappingContext()
+                .getRequiredPersistentEntity(entity.getClass())
+                .getIdentifierAccessor(entity)
+                .getIdentifier();
+        return String.valueOf(id);
+    }
+}
@@ -0,0 +1,158 @@
+package com.sparrow.pricing_service.service;
+
+import com.sparrow.pricing_service.model.PriceCategory;
+import com.sparrow.pricing_service.model.WeightBand;
+import com.sparrow.pricing_service.model.ZoneRate;
+import com.sparrow.pricing_service.util.MinorUnits;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// A price category compiled to scaled longs, so a quote is exact integer arithmetic that allocates
+// nothing. Amounts are in the currency's minor units and rates in RATE_SCALE-ths of a minor unit;
+// weights are quantized to grams and volumes to cubic cm, and the total is rounded to minor units
+// once, half-even. Weight bands are parallel arrays sorted by start weight and found by binary
+// search; zone pairs are a hash lookup. Bands are validated as non-overlapping before a category is saved.
+public final class PriceRule {
+    // Decimals that per-kg and per-cubic-cm rates may have beyond the currency's minor units
+    public static final int RATE_DIGITS = 4;
+    // Decimals allowed in zone multipliers
+    public static final int MULTIPLIER_DIGITS = 4;
+
+    private static final long RATE_SCALE = 10_000;
+    private static final long MULTIPLIER_SCALE = 10_000;
+    private static final long GRAMS_PER_KG = 1000;
+    // Sums are kept in 1 / (RATE_SCALE * GRAMS_PER_KG) of a minor unit until the final rounding
+    private static final long UNIT = RATE_SCALE * GRAMS_PER_KG;
+    private static final long[] NO_BANDS = new long[0];
+
+    private final String categoryId;
+    private final long version;
+    private final String currency;
+    private final long baseMinor;
+    private final long kgRate;
+    private final long cubicCmRate;
+    private final long volumetricDivisor;
+    private final long[] bandFrom;
+    private final long[] bandTo;
+    private final long[] bandRate;
+    private final long[] bandFee;
+    private final Map<String, ZoneAdjustment> zones;
+
+    private PriceRule(PriceCategory category) {
+        categoryId = category.getId();
+        version = category.getVersion() == null ? 0 : category.getVersion();
+        currency = category.getCurrency();
+        int digits = MinorUnits.fractionDigits(currency);
+        baseMinor = MinorUnits.scaled(category.getBasePrice(), digits);
+        kgRate = MinorUnits.scaled(category.getPricePerKg(), digits + RATE_DIGITS);
+        cubicCmRate = MinorUnits.scaled(category.getPricePerCubicCm(), digits + RATE_DIGITS);
+        volumetricDivisor = category.getVolumetricDivisor() == null ? 0 : category.getVolumetricDivisor();
+
+        WeightBand[] sorted = category.getWeightBands() == null ? new WeightBand[0]
+                : category.getWeightBands().toArray(new WeightBand[0]);
+        Arrays.sort(sorted, Comparator.comparingDouble(WeightBand::getFromKg));
+        bandFrom = sorted.length == 0 ? NO_BANDS : new long[sorted.length];
+        bandTo = sorted.length == 0 ? NO_BANDS : new long[sorted.length];
+        bandRate = sorted.length == 0 ? NO_BANDS : new long[sorted.length];
+        bandFee = sorted.length == 0 ? NO_BANDS : new long[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            bandFrom[i] = grams(sorted[i].getFromKg());
+            bandTo[i] = grams(sorted[i].getToKg());
+            bandRate[i] = MinorUnits.scaled(sorted[i].getPricePerKg(), digits + RATE_DIGITS);
+            bandFee[i] = sorted[i].getFlatFee() == null ? 0 : MinorUnits.scaled(sorted[i].getFlatFee(), digits);
+        }
+
+        Map<String, ZoneAdjustment> byPair = new HashMap<>();
+        List<ZoneRate> zoneRates = category.getZoneRates() == null ? List.of() : category.getZoneRates();
+        for (ZoneRate zoneRate : zoneRates) {
+            byPair.put(zoneKey(zoneRate.getOriginZone(), zoneRate.getDestinationZone()), new ZoneAdjustment(
+                    MinorUnits.scaled(zoneRate.getMultiplier() == null ? BigDecimal.ONE : zoneRate.getMultiplier(), MULTIPLIER_DIGITS),
+                    zoneRate.getSurcharge() == null ? 0 : MinorUnits.scaled(zoneRate.getSurcharge(), digits)));
+        }
+        zones = Map.copyOf(byPair);
+    }
+
+    public static PriceRule compile(PriceCategory category) {
+        return new PriceRule(category);
+    }
+
+    public long quote(double weight, double volume) {
+        return quote(weight, volume, null, null);
+    }
+
+    // Price in minor units of getCurrency(). Zones are optional; a pair without a zone rate is priced
+    // unadjusted, a pair with one has the whole total multiplied before its surcharge is added. Throws ArithmeticException if the price does not fit in a long.
+    public long quote(double weight, double volume, String originZone, String destinationZone) {
+        long grams = grams(weight);
+        long cubicCm = cubicCm(volume);
+        long chargeable = volumetricDivisor > 0
+                ? Math.max(grams, MinorUnits.divideCeiling(Math.multiplyExact(cubicCm, GRAMS_PER_KG), volumetricDivisor))
+                : grams;
+        int band = band(chargeable);
+
+        long total = Math.multiplyExact(band < 0 ? baseMinor : Math.addExact(baseMinor, bandFee[band]), UNIT);
+        total = Math.addExact(total, Math.multiplyExact(band < 0 ? kgRate : bandRate[band], chargeable));
+        total = Math.addExact(total, Math.multiplyExact(cubicCmRate, Math.multiplyExact(cubicCm, GRAMS_PER_KG)));
+
+        if (!zones.isEmpty() && originZone != null && destinationZone != null) {
+            ZoneAdjustment zone = zones.get(zoneKey(originZone, destinationZone));
+            if (zone != null) {
+                return Math.addExact(applyMultiplier(total, zone.multiplier()), zone.surcharge());
+            }
+        }
+        return MinorUnits.divideHalfEven(total, UNIT);
+    }
+
+    // total * multiplier in minor units, rounded half-even. Whole minor units and the fraction are
+    // multiplied separately so only the result, not total * multiplier, has to fit in a long.
+    private static long applyMultiplier(long total, long multiplier) {
+        long whole = Math.multiplyExact(Math.floorDiv(total, UNIT), multiplier);
+        long remainder = Math.floorMod(whole, MULTIPLIER_SCALE) * UNIT + Math.floorMod(total, UNIT) * multiplier;
+        long divisor = UNIT * MULTIPLIER_SCALE;
+        return MinorUnits.roundHalfEven(Math.floorDiv(whole, MULTIPLIER_SCALE) + Math.floorDiv(remainder, divisor),
+                Math.floorMod(remainder, divisor), divisor);
+    }
+
+    // Index of the band containing the weight in grams, or -1
+    int band(long grams) {
+        int i = Arrays.binarySearch(bandFrom, grams);
+        if (i < 0) {
+            // Last band starting below the weight
+            i = -i - 2;
+        }
+        return i >= 0 && grams < bandTo[i] ? i : -1;
+    }
+
+    public static long grams(double kg) {
+        return Math.round(kg * GRAMS_PER_KG);
+    }
+
+    static String zoneKey(String originZone, String destinationZone) {
+        return originZone.trim().toLowerCase(Locale.ROOT) + '\u0000' + destinationZone.trim().toLowerCase(Locale.ROOT);
+    }
+
+    // Volumes are priced in whole cubic cm
+    public static long cubicCm(double volume) {
+        return Math.round(volume);
+    }
+
+    public String getCategoryId() { return categoryId; }
+
+    public long getVersion() { return version; }
+
+    public boolean hasZones() { return !zones.isEmpty(); }
+
+    // Flat rules are a few multiplications, cheaper to recompute than to look up
+    public boolean isFlat() { return bandFrom.length == 0 && zones.isEmpty(); }
+
+    public String getCurrency() { return currency; }
+
+    private record ZoneAdjustment(long multiplier, long surcharge) {
+    }
+}
@@ -0,0 +1,117 @@
+package com.sparrow.pricing_service.service;
+
+import com.sparrow.pricing_service.cache.QuoteCache;
+import com.sparrow.pricing_service.model.PriceCategory;
+import com.sparrow.pricing_service.repository.PriceCategoryRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+// Immutable snapshot of the active price categories, so quotes are served without a Mongo round trip.
+// Readers take whatever snapshot is current; writers copy it, apply their change and swap the reference.
+// Writers are serialized so a full reload cannot overwrite a newer single-category change with the
+// state it read before that change.
+@Service
+public class PriceRuleCache {
+
+    private static final Logger log = LoggerFactory.getLogger(PriceRuleCache.class);
+
+    @Autowired
+    private PriceCategoryRepository repository;
+
+    @Autowired
+    private QuoteCache quoteCache;
+
+    private volatile Map<String, PriceRule> rules = Map.of();
+    private volatile boolean loaded;
+
+    // Null when the category does not exist or is inactive
+    public PriceRule find(String categoryId) {
+        return rules.get(categoryId);
+    }
+
+    // The current rules as one consistent set, for pricing many items against the same version
+    public Map<String, PriceRule> snapshot() {
+        return rules;
+    }
+
+    // Until the first load completes callers must fall back to Mongo
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public int size() {
+        return rules.size();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${pricing.rules.reload-interval-ms:300000}",
+            initialDelayString = "${pricing.rules.reload-interval-ms:300000}")
+    public synchronized void reload() {
+        try {
+            Map<String, PriceRule> reloaded = new HashMap<>();
+            for (PriceCategory category : repository.findByActive(true)) {
+                // One bad document (e.g. an unknown currency written before validation) must not block the rest
+                try {
+                    reloaded.put(category.getId(), PriceRule.compile(category));
+                } catch (RuntimeException e) {
+                    log.warn("Skipping price category {} that cannot be compiled", category.getId(), e);
+                }
+            }
+            // Categories saved since the last load come back with a new version; drop their quotes
+            for (Map.Entry<String, PriceRule> previous : rules.entrySet()) {
+                PriceRule current = reloaded.get(previous.getKey());
+                if (current == null || current.getVersion() != previous.getValue().getVersion()) {
+                    quoteCache.invalidate(previous.getKey());
+                }
+            }
+            rules = Map.copyOf(reloaded);
+            loaded = true;
+            log.info("Loaded {} active price rules", reloaded.size());
+        } catch (RuntimeException e) {
+            log.error("Failed to load price rules", e);
+        }
+    }
+
+    public synchronized void put(PriceCategory category) {
+        if (!category.isActive()) {
+            remove(category.getId());
+            return;
+        }
+        PriceRule compiled = PriceRule.compile(category);
+        Map<String, PriceRule> updated = new HashMap<>(rules);
+        PriceRule previous = updated.put(category.getId(), compiled);
+        rules = Map.copyOf(updated);
+        if (previous != null) {
+            quoteCache.invalidate(category.getId());
+        }
+    }
+
+    public synchronized void remove(String categoryId) {
+        if (!rules.containsKey(categoryId)) {
+            return;
+        }
+        Map<String, PriceRule> updated = new HashMap<>(rules);
+        updated.remove(categoryId);
+        rules = Map.copyOf(updated);
+        quoteCache.invalidate(categoryId);
+    }
+
+    // Re-reads one category after another replica changed it
+    public synchronized void refresh(String categoryId) {
+        Optional<PriceCategory> category = repository.findById(categoryId);
+        if (category.isPresent()) {
+            put(category.get());
+        } else {
+            remove(categoryId);
+        }
+    }
+}
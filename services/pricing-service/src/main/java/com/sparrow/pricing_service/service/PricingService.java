@@ -1,21 +1,64 @@
 package com.sparrow.pricing_service.service;
 
 
+import com.sparrow.pricing_service.cache.QuoteCache;
+import com.sparrow.pricing_service.dto.CursorPage;
+import com.sparrow.pricing_service.dto.QuoteRequest;
+import com.sparrow.pricing_service.dto.QuoteResult;
 import com.sparrow.pricing_service.model.PriceCategory;
+import com.sparrow.pricing_service.model.WeightBand;
+import com.sparrow.pricing_service.model.ZoneRate;
 import com.sparrow.pricing_service.repository.PriceCategoryRepository;
+import com.sparrow.pricing_service.util.MinorUnits;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 @Service
 public class PricingService {
 
+    public static final String CATEGORY_EVENTS_TOPIC = "price-category-events";
+
     @Autowired
     private PriceCategoryRepository repository;
 
-    public List<PriceCategory> getAllCategories() {
-        return repository.findAll();
+    @Autowired
+    private PriceRuleCache priceRuleCache;
+
+    @Autowired
+    private QuoteCache quoteCache;
+
+    @Autowired
+    private KafkaProducerService kafkaProducerService;
+
+    @Value("${pricing.batch.parallel-threshold:4096}")
+    private int parallelThreshold;
+
+    @Autowired
+    private ListingService listingService;
+
+    public CursorPage<PriceCategory> getAllCategories(String cursor, int limit, Set<String> fields) {
+        return listingService.page(PriceCategory.class, cursor, limit, fields);
+    }
+
+    public Stream<PriceCategory> streamAllCategories(Set<String> fields) {
+        return listingService.stream(PriceCategory.class, fields);
     }
 
     public List<PriceCategory> getActiveCategories() {
@@ -27,34 +70,164 @@ public class PricingService {
     }
 
     public PriceCategory createCategory(PriceCategory category) {
-        return repository.save(category);
+        validatePrices(category);
+        PriceCategory saved = repository.save(category);
+        categoryChanged(saved);
+        return saved;
     }
 
     public Optional<PriceCategory> updateCategory(String id, PriceCategory categoryDetails) {
+        validatePrices(categoryDetails);
         return repository.findById(id).map(existingCategory -> {
             existingCategory.setName(categoryDetails.getName());
             existingCategory.setDescription(categoryDetails.getDescription());
             existingCategory.setBasePrice(categoryDetails.getBasePrice());
             existingCategory.setPricePerKg(categoryDetails.getPricePerKg());
             existingCategory.setPricePerCubicCm(categoryDetails.getPricePerCubicCm());
+            existingCategory.setCurrency(categoryDetails.getCurrency());
+            existingCategory.setVolumetricDivisor(categoryDetails.getVolumetricDivisor());
+            existingCategory.setWeightBands(categoryDetails.getWeightBands());
+            existingCategory.setZoneRates(categoryDetails.getZoneRates());
             existingCategory.setActive(categoryDetails.isActive());
-            return repository.save(existingCategory);
+            PriceCategory saved;
+            try {
+                saved = repository.save(existingCategory);
+            } catch (OptimisticLockingFailureException e) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "Category " + id + " was changed concurrently; retry");
+            }
+            categoryChanged(saved);
+            return saved;
         });
     }
 
     public boolean deleteCategory(String id) {
         if (repository.existsById(id)) {
             repository.deleteById(id);
+            priceRuleCache.remove(id);
+            publishChange(id);
             return true;
         }
         return false;
     }
 
-    public double calculatePrice(String categoryId, double weight, double volume) {
-        return repository.findById(categoryId).map(category -> {
-            return category.getBasePrice() +
-                    (category.getPricePerKg() * weight) +
-                    (category.getPricePerCubicCm() * volume);
-        }).orElseThrow(() -> new RuntimeException("Category not found"));
+    // Quotes come from the in-memory rules; Mongo is only read until they are first loaded
+    public QuoteResult calculatePrice(String categoryId, double weight, double volume) {
+        return calculatePrice(categoryId, weight, volume, null, null);
+    }
+
+    // Quotes come from the in-memory rules; Mongo is only read until they are first loaded
+    public QuoteResult calculatePrice(String categoryId, double weight, double volume, String originZone, String destinationZone) {
+        PriceRule rule = priceRuleCache.isLoaded()
+                ? priceRuleCache.find(categoryId)
+                : repository.findById(categoryId).filter(PriceCategory::isActive).map(PriceRule::compile).orElse(null);
+        if (rule == null) {
+            throw new RuntimeException("Category not found");
+        }
+        long minor = quoteCache.quote(rule, weight, volume, originZone, destinationZone);
+        return new QuoteResult(categoryId, MinorUnits.toDecimal(minor, rule.getCurrency()), rule.getCurrency(), null);
+    }
+
+    // Prices every item against the same rule snapshot, so a concurrent category update cannot leave
+    // one batch half on the old prices and half on the new
+    public List<QuoteResult> calculatePrices(List<QuoteRequest> items) {
+        return quoteAll(rulesFor(items), items, parallelThreshold, quoteCache);
+    }
+
+    private Map<String, PriceRule> rulesFor(List<QuoteRequest> items) {
+        if (priceRuleCache.isLoaded()) {
+            return priceRuleCache.snapshot();
+        }
+        Set<String> categoryIds = items.stream().map(QuoteRequest::getCategoryId).collect(Collectors.toSet());
+        return StreamSupport.stream(repository.findAllById(categoryIds).spliterator(), false)
+                .filter(PriceCategory::isActive)
+                .map(PriceRule::compile)
+                .collect(Collectors.toMap(PriceRule::getCategoryId, Function.identity()));
+    }
+
+    // A quote is tens of nanoseconds, so splitting across the common pool only pays off for large batches
+    static List<QuoteResult> quoteAll(Map<String, PriceRule> rules, List<QuoteRequest> items, int parallelThreshold,
+                                      QuoteCache quoteCache) {
+        QuoteResult[] results = new QuoteResult[items.size()];
+        IntStream indexes = IntStream.range(0, results.length);
+        if (results.length >= parallelThreshold) {
+            indexes = indexes.parallel();
+        }
+        indexes.forEach(i -> results[i] = quote(rules, items.get(i), quoteCache));
+        return List.of(results);
+    }
+
+    private static QuoteResult quote(Map<String, PriceRule> rules, QuoteRequest item, QuoteCache quoteCache) {
+        PriceRule rule = rules.get(item.getCategoryId());
+        if (rule == null) {
+            return new QuoteResult(item.getCategoryId(), null, null, "Category not found");
+        }
+        try {
+            long minor = quoteCache.quote(rule, item.getWeight(), item.getVolume(), item.getOriginZone(), item.getDestinationZone());
+            return new QuoteResult(item.getCategoryId(), MinorUnits.toDecimal(minor, rule.getCurrency()), rule.getCurrency(), null);
+        } catch (ArithmeticException e) {
+            return new QuoteResult(item.getCategoryId(), null, rule.getCurrency(), "Price out of range");
+        }
+    }
+
+    // Prices must be exactly representable once compiled, and band lookups assume at most one band
+    // per weight, so overlaps are refused rather than resolved
+    private void validatePrices(PriceCategory category) {
+        int digits;
+        try {
+            digits = MinorUnits.fractionDigits(category.getCurrency());
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown currency: " + category.getCurrency());
+        }
+        requireDecimals(category.getBasePrice(), digits, "Base price");
+        requireDecimals(category.getPricePerKg(), digits + PriceRule.RATE_DIGITS, "Price per kg");
+        requireDecimals(category.getPricePerCubicCm(), digits + PriceRule.RATE_DIGITS, "Price per cubic cm");
+
+        if (category.getWeightBands() != null) {
+            List<WeightBand> bands = new ArrayList<>(category.getWeightBands());
+            bands.sort(Comparator.comparingDouble(WeightBand::getFromKg));
+            for (int i = 0; i < bands.size(); i++) {
+                WeightBand band = bands.get(i);
+                requireDecimals(band.getPricePerKg(), digits + PriceRule.RATE_DIGITS, "Band price per kg");
+                requireDecimals(band.getFlatFee(), digits, "Band fee");
+                // Bands are looked up by whole grams
+                if (PriceRule.grams(band.getFromKg()) >= PriceRule.grams(band.getToKg())) {
+                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                            "Weight band " + band.getFromKg() + "-" + band.getToKg() + " kg is empty");
+                }
+                if (i > 0 && PriceRule.grams(bands.get(i - 1).getToKg()) > PriceRule.grams(band.getFromKg())) {
+                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                            "Weight bands " + bands.get(i - 1).getFromKg() + "-" + bands.get(i - 1).getToKg()
+                                    + " kg and " + band.getFromKg() + "-" + band.getToKg() + " kg overlap");
+                }
+            }
+        }
+        if (category.getZoneRates() != null) {
+            Set<String> pairs = new HashSet<>();
+            for (ZoneRate zoneRate : category.getZoneRates()) {
+                requireDecimals(zoneRate.getMultiplier(), PriceRule.MULTIPLIER_DIGITS, "Zone multiplier");
+                requireDecimals(zoneRate.getSurcharge(), digits, "Zone surcharge");
+                if (!pairs.add(PriceRule.zoneKey(zoneRate.getOriginZone(), zoneRate.getDestinationZone()))) {
+                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Duplicate zone rate "
+                            + zoneRate.getOriginZone() + " -> " + zoneRate.getDestinationZone());
+                }
+            }
+        }
+    }
+
+    private static void requireDecimals(BigDecimal value, int maxDecimals, String field) {
+        if (value != null && value.stripTrailingZeros().scale() > maxDecimals) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    field + " " + value.toPlainString() + " has more than " + maxDecimals + " decimal places");
+        }
+    }
+
+    private void categoryChanged(PriceCategory category) {
+        priceRuleCache.put(category);
+        publishChange(category.getId());
+    }
+
+    // Other replicas re-read the category from Mongo; their periodic reload covers a lost event
+    private void publishChange(String categoryId) {
+        kafkaProducerService.send(CATEGORY_EVENTS_TOPIC, categoryId, categoryId);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,35 @@
+package com.sparrow.pricing_service.util;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+// Opaque position in an _id-ordered listing: the encoded _id of the last item returned.
+// Same format as consolidation-service's KeysetCursor.
+public class KeysetCursor {
+    private final String id;
+
+    public KeysetCursor(String id) {
+        this.id = id;
+    }
+
+    public String getId() { return id; }
+
+    public String encode() {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(id.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static KeysetCursor decode(String cursor) {
+        try {
+            String id = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (id.isEmpty()) {
+                throw new IllegalArgumentException("Empty cursor");
+            }
+            return new KeysetCursor(id);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor: " + cursor);
+        }
+    }
+}
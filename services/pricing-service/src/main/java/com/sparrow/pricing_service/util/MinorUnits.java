@@ -0,0 +1,51 @@
+package com.sparrow.pricing_service.util;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Currency;
+
+// Money is carried as a long count of the currency's minor units (cents for USD, yen for JPY).
+// BigDecimal only appears when converting at the API and storage boundary.
+public final class MinorUnits {
+
+    private MinorUnits() {
+    }
+
+    // Throws IllegalArgumentException for an unknown ISO 4217 code
+    public static int fractionDigits(String currency) {
+        return Math.max(0, Currency.getInstance(currency).getDefaultFractionDigits());
+    }
+
+    // Exact conversion; throws ArithmeticException if the amount has more decimals than the currency allows
+    public static long toMinor(BigDecimal amount, String currency) {
+        return amount.setScale(fractionDigits(currency), RoundingMode.UNNECESSARY).unscaledValue().longValueExact();
+    }
+
+    public static BigDecimal toDecimal(long minor, String currency) {
+        return BigDecimal.valueOf(minor, fractionDigits(currency));
+    }
+
+    // value * 10^scale as a long, rounded half-even; used once per rule when it is compiled
+    public static long scaled(BigDecimal value, int scale) {
+        return value.movePointRight(scale).setScale(0, RoundingMode.HALF_EVEN).longValueExact();
+    }
+
+    // dividend / divisor rounded half-even, for a positive divisor
+    public static long divideHalfEven(long dividend, long divisor) {
+        return roundHalfEven(Math.floorDiv(dividend, divisor), Math.floorMod(dividend, divisor), divisor);
+    }
+
+    // quotient + remainder / divisor rounded half-even, for 0 <= remainder < divisor
+    public static long roundHalfEven(long quotient, long remainder, long divisor) {
+        long twiceRemainder = remainder * 2;
+        if (twiceRemainder > divisor || (twiceRemainder == divisor && (quotient & 1) != 0)) {
+            return quotient + 1;
+        }
+        return quotient;
+    }
+
+    // dividend / divisor rounded up, for a non-negative dividend and positive divisor
+    public static long divideCeiling(long dividend, long divisor) {
+        return -Math.floorDiv(-dividend, divisor);
+    }
+}
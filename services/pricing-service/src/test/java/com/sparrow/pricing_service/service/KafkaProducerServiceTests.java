@@ -0,0 +1,63 @@
+package com.sparrow.pricing_service.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class KafkaProducerServiceTests {
+
+	@Mock
+	private KafkaTemplate<String, String> kafkaTemplate;
+
+	@InjectMocks
+	private KafkaProducerService kafkaProducerService;
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	@BeforeEach
+	void setUp() {
+		ReflectionTestUtils.setField(kafkaProducerService, "meterRegistry", meterRegistry);
+	}
+
+	@Test
+	void timesEachSendPerTopicAndOutcome() {
+		CompletableFuture<SendResult<String, String>> acked = new CompletableFuture<>();
+		CompletableFuture<SendResult<String, String>> failed = new CompletableFuture<>();
+		when(kafkaTemplate.send(PricingService.CATEGORY_EVENTS_TOPIC, "std", "std")).thenReturn(acked);
+		when(kafkaTemplate.send(PricingService.CATEGORY_EVENTS_TOPIC, "exp", "exp")).thenReturn(failed);
+
+		kafkaProducerService.send(PricingService.CATEGORY_EVENTS_TOPIC, "std", "std");
+		CompletableFuture<SendResult<String, String>> failedSend =
+				kafkaProducerService.send(PricingService.CATEGORY_EVENTS_TOPIC, "exp", "exp");
+		assertNull(meterRegistry.find("kafka.producer.send").timer());
+
+		acked.complete(null);
+		failed.completeExceptionally(new IllegalStateException("broker down"));
+
+		assertEquals(1, timer("success"));
+		assertEquals(1, timer("failure"));
+		assertTrue(failedSend.isCompletedExceptionally());
+	}
+
+	private long timer(String outcome) {
+		return meterRegistry.get("kafka.producer.send")
+				.tag("topic", PricingService.CATEGORY_EVENTS_TOPIC)
+				.tag("outcome", outcome)
+				.timer().count();
+	}
+}
@@ -0,0 +1,94 @@
+package com.sparrow.pricing_service.service;
+
+import com.sparrow.pricing_service.model.PriceCategory;
+import com.sparrow.pricing_service.model.WeightBand;
+import com.sparrow.pricing_service.model.ZoneRate;
+import com.sparrow.pricing_service.util.MinorUnits;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// Randomized checks of the long arithmetic against a BigDecimal reference with the same rounding.
+// Seeded, so a failure reports a reproducible case.
+class PriceRulePropertyTests {
+
+	private static final int CASES = 20_000;
+	private static final List<String> CURRENCIES = List.of("USD", "JPY", "BHD", "LKR");
+
+	@Test
+	void quotesMatchExactDecimalArithmeticRoundedHalfEven() {
+		Random random = new Random(20241017);
+		for (int i = 0; i < CASES; i++) {
+			String currency = CURRENCIES.get(random.nextInt(CURRENCIES.size()));
+			int digits = MinorUnits.fractionDigits(currency);
+			PriceCategory category = new PriceCategory("Random", null,
+					decimal(random, 1_000_000, digits), decimal(random, 100_000, digits + PriceRule.RATE_DIGITS),
+					decimal(random, 10, digits + PriceRule.RATE_DIGITS));
+			category.setCurrency(currency);
+			BigDecimal bandRate = decimal(random, 100_000, digits + PriceRule.RATE_DIGITS);
+			BigDecimal bandFee = decimal(random, 10_000, digits);
+			category.setWeightBands(List.of(new WeightBand(10.0, 20.0, bandRate, bandFee)));
+			BigDecimal multiplier = decimal(random, 30_000, PriceRule.MULTIPLIER_DIGITS).add(BigDecimal.ONE);
+			BigDecimal surcharge = decimal(random, 10_000, digits);
+			category.setZoneRates(List.of(new ZoneRate("A", "B", multiplier, surcharge)));
+			PriceRule rule = PriceRule.compile(category);
+
+			long grams = random.nextInt(30_000);
+			long cubicCm = random.nextInt(100_000);
+			boolean zoned = random.nextBoolean();
+
+			boolean inBand = grams >= 10_000 && grams < 20_000;
+			BigDecimal kg = BigDecimal.valueOf(grams, 3);
+			BigDecimal expected = category.getBasePrice()
+					.add(inBand ? bandFee.add(bandRate.multiply(kg)) : category.getPricePerKg().multiply(kg))
+					.add(category.getPricePerCubicCm().multiply(BigDecimal.valueOf(cubicCm)));
+			if (zoned) {
+				expected = expected.multiply(multiplier).setScale(digits, RoundingMode.HALF_EVEN).add(surcharge);
+			}
+			expected = expected.setScale(digits, RoundingMode.HALF_EVEN);
+
+			long actual = rule.quote(grams / 1000.0, cubicCm, zoned ? "A" : null, zoned ? "B" : null);
+			assertEquals(expected, MinorUnits.toDecimal(actual, currency),
+					"case " + i + ": " + currency + " " + grams + " g " + cubicCm + " cm3 zoned=" + zoned);
+		}
+	}
+
+	@Test
+	void halfEvenDivisionMatchesBigDecimal() {
+		Random random = new Random(7);
+		for (int i = 0; i < CASES; i++) {
+			long divisor = 1 + random.nextInt(1_000_000);
+			// Bias towards exact ties
+			long dividend = random.nextBoolean() ? random.nextLong() / 4 : (random.nextInt(2_000_001) - 1_000_000) * divisor + divisor / 2;
+			long expected = BigDecimal.valueOf(dividend).divide(BigDecimal.valueOf(divisor), 0, RoundingMode.HALF_EVEN).longValueExact();
+			assertEquals(expected, MinorUnits.divideHalfEven(dividend, divisor), dividend + " / " + divisor);
+		}
+	}
+
+	@Test
+	void minorUnitsRoundTripExactlyAndRejectExtraPrecision() {
+		Random random = new Random(11);
+		for (int i = 0; i < CASES; i++) {
+			String currency = CURRENCIES.get(random.nextInt(CURRENCIES.size()));
+			int digits = MinorUnits.fractionDigits(currency);
+			long minor = random.nextLong() >> 12;
+			BigDecimal amount = MinorUnits.toDecimal(minor, currency);
+			assertEquals(minor, MinorUnits.toMinor(amount, currency));
+			assertEquals(minor, MinorUnits.toMinor(amount.setScale(digits + 2), currency));
+			BigDecimal tooPrecise = amount.add(BigDecimal.ONE.movePointLeft(digits + 1));
+			assertThrows(ArithmeticException.class, () -> MinorUnits.toMinor(tooPrecise, currency));
+		}
+	}
+
+	// A non-negative decimal below max with the given number of decimal places
+	private static BigDecimal decimal(Random random, long max, int decimals) {
+		long unscaled = (long) (random.nextDouble() * max * Math.pow(10, decimals));
+		return BigDecimal.valueOf(unscaled, decimals);
+	}
+}
@@ -0,0 +1,130 @@
+package com.sparrow.pricing_service.service;
+
+import com.sparrow.pricing_service.model.PriceCategory;
+import com.sparrow.pricing_service.model.WeightBand;
+import com.sparrow.pricing_service.model.ZoneRate;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PriceRuleTests {
+
+	@Test
+	void flatCategoriesKeepTheLinearFormulaInMinorUnits() {
+		PriceRule rule = PriceRule.compile(category());
+		assertEquals(10000 + 2000 * 3 + 500, rule.quote(3, 500));
+		assertEquals("USD", rule.getCurrency());
+	}
+
+	@Test
+	void roundsTheTotalOnceHalfEven() {
+		PriceCategory category = category();
+		category.setBasePrice(new BigDecimal("1.00"));
+		category.setPricePerKg(new BigDecimal("0.005"));
+		category.setPricePerCubicCm(new BigDecimal("0.000001"));
+		PriceRule rule = PriceRule.compile(category);
+
+		// 0.5 cent rounds to the even 0; 1.5 cents to 2; 0.5 + 0.0001 of a cent rounds up
+		assertEquals(100, rule.quote(1, 0));
+		assertEquals(102, rule.quote(3, 0));
+		assertEquals(101, rule.quote(1, 1));
+	}
+
+	@Test
+	void usesTheCurrencysMinorUnits() {
+		PriceCategory category = category();
+		category.setCurrency("JPY");
+		category.setBasePrice(new BigDecimal("500"));
+		category.setPricePerKg(new BigDecimal("120"));
+		category.setPricePerCubicCm(new BigDecimal("0.1"));
+		assertEquals(500 + 240 + 100, PriceRule.compile(category).quote(2, 1000));
+	}
+
+	@Test
+	void findsTheBandContainingTheWeightAndFallsBackOutsideBands() {
+		PriceCategory category = category();
+		category.setPricePerCubicCm(new BigDecimal("0.01"));
+		category.setWeightBands(List.of(
+				new WeightBand(10.0, 30.0, new BigDecimal("12"), new BigDecimal("5")),
+				new WeightBand(0.0, 5.0, new BigDecimal("30"), null),
+				new WeightBand(5.0, 10.0, new BigDecimal("15"), new BigDecimal("2"))));
+		PriceRule rule = PriceRule.compile(category);
+
+		assertEquals(0, rule.band(0));
+		assertEquals(0, rule.band(4999));
+		assertEquals(1, rule.band(5000));
+		assertEquals(2, rule.band(10000));
+		assertEquals(-1, rule.band(30000));
+
+		assertEquals(100_00 + 30_00 * 2, rule.quote(2, 0));
+		assertEquals(100_00 + 2_00 + 15_00 * 7, rule.quote(7, 0));
+		assertEquals(100_00 + 5_00 + 12_00 * 10, rule.quote(10, 0));
+		assertEquals(100_00 + 20_00 * 40, rule.quote(40, 0));
+	}
+
+	@Test
+	void gapsBetweenBandsUseTheCategoryRate() {
+		PriceCategory category = category();
+		category.setWeightBands(List.of(
+				new WeightBand(0.0, 1.0, new BigDecimal("50"), null),
+				new WeightBand(2.0, 3.0, new BigDecimal("40"), null)));
+		PriceRule rule = PriceRule.compile(category);
+
+		assertEquals(-1, rule.band(1500));
+		assertEquals(100_00 + 30_00, rule.quote(1.5, 0));
+	}
+
+	@Test
+	void chargesBulkyParcelsByDimensionalWeight() {
+		PriceCategory category = category();
+		category.setPricePerCubicCm(new BigDecimal("0.0001"));
+		category.setVolumetricDivisor(5000L);
+		PriceRule rule = PriceRule.compile(category);
+
+		assertEquals(100_00 + 20_00 * 10 + 5_00, rule.quote(2, 50_000));
+		assertEquals(100_00 + 20_00 * 12 + 5_00, rule.quote(12, 50_000));
+	}
+
+	@Test
+	void adjustsMatchingZonePairsOnly() {
+		PriceCategory category = category();
+		category.setZoneRates(List.of(
+				new ZoneRate("Colombo", "Jaffna", new BigDecimal("1.5"), new BigDecimal("40")),
+				new ZoneRate("Colombo", "Kandy", null, new BigDecimal("10"))));
+		PriceRule rule = PriceRule.compile(category);
+
+		assertEquals(120_00 * 3 / 2 + 40_00, rule.quote(1, 0, " colombo", "JAFFNA"));
+		assertEquals(130_00, rule.quote(1, 0, "Colombo", "Kandy"));
+		assertEquals(120_00, rule.quote(1, 0, "Jaffna", "Colombo"));
+		assertEquals(120_00, rule.quote(1, 0));
+	}
+
+	@Test
+	void zoneMultiplierAppliesToTheBaseAndBandFeeButNotTheSurcharge() {
+		PriceCategory category = category();
+		category.setWeightBands(List.of(new WeightBand(0.0, 5.0, new BigDecimal("30"), new BigDecimal("5"))));
+		category.setZoneRates(List.of(new ZoneRate("Colombo", "Jaffna", new BigDecimal("1.5"), new BigDecimal("40"))));
+		PriceRule rule = PriceRule.compile(category);
+
+		assertEquals((100_00 + 5_00 + 30_00 * 2) * 3 / 2 + 40_00, rule.quote(2, 0, "Colombo", "Jaffna"));
+	}
+
+	@Test
+	void refusesPricesThatDoNotFitInALong() {
+		PriceCategory category = category();
+		category.setPricePerKg(new BigDecimal("1000000000"));
+		assertThrows(ArithmeticException.class, () -> PriceRule.compile(category).quote(1e6, 0));
+	}
+
+	private static PriceCategory category() {
+		PriceCategory category = new PriceCategory("Standard", null, new BigDecimal("100.00"),
+				new BigDecimal("20.00"), new BigDecimal("0.01"));
+		category.setId("std");
+		category.setPricePerCubicCm(new BigDecimal("0.01"));
+		return category;
+	}
+}
@@ -0,0 +1,289 @@
+package com.sparrow.pricing_service.service;
+
+import com.sparrow.pricing_service.cache.QuoteCache;
+import com.sparrow.pricing_service.dto.QuoteRequest;
+import com.sparrow.pricing_service.dto.QuoteResult;
+import com.sparrow.pricing_service.model.PriceCategory;
+import com.sparrow.pricing_service.model.WeightBand;
+import com.sparrow.pricing_service.model.ZoneRate;
+import com.sparrow.pricing_service.repository.PriceCategoryRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class PricingServiceTests {
+
+	@Mock
+	private PriceCategoryRepository repository;
+
+	@Mock
+	private KafkaProducerService kafkaProducerService;
+
+	@InjectMocks
+	private PriceRuleCache priceRuleCache;
+
+	@InjectMocks
+	private PricingService pricingService;
+
+	private SimpleMeterRegistry meterRegistry;
+
+	private QuoteCache quoteCache;
+
+	@BeforeEach
+	void setUp() {
+		meterRegistry = new SimpleMeterRegistry();
+		quoteCache = new QuoteCache(meterRegistry, 1000);
+		ReflectionTestUtils.setField(priceRuleCache, "quoteCache", quoteCache);
+		ReflectionTestUtils.setField(pricingService, "quoteCache", quoteCache);
+		ReflectionTestUtils.setField(pricingService, "priceRuleCache", priceRuleCache);
+		lenient().when(kafkaProducerService.send(anyString(), anyString(), anyString())).thenReturn(new CompletableFuture<>());
+		lenient().when(repository.save(any(PriceCategory.class))).thenAnswer(invocation -> invocation.getArgument(0));
+	}
+
+	@Test
+	void quotesFromTheLoadedRulesWithoutReadingMongo() {
+		when(repository.findByActive(true)).thenReturn(List.of(category("std", 100.0, 20.0, 0.01, true)));
+		priceRuleCache.reload();
+		clearInvocations(repository);
+
+		assertEquals(new BigDecimal("160.00"), pricingService.calculatePrice("std", 2.5, 1000).getAmount());
+		assertEquals("USD", pricingService.calculatePrice("std", 2.5, 1000).getCurrency());
+		verify(repository, never()).findById(anyString());
+		assertThrows(RuntimeException.class, () -> pricingService.calculatePrice("missing", 1, 1));
+	}
+
+	@Test
+	void fallsBackToMongoUntilTheRulesAreLoaded() {
+		when(repository.findById("std")).thenReturn(Optional.of(category("std", 100.0, 20.0, 0.01, true)));
+		when(repository.findById("old")).thenReturn(Optional.of(category("old", 100.0, 20.0, 0.01, false)));
+
+		assertEquals(new BigDecimal("120.00"), pricingService.calculatePrice("std", 1, 0).getAmount());
+		assertThrows(RuntimeException.class, () -> pricingService.calculatePrice("old", 1, 0));
+	}
+
+	@Test
+	void writesSwapTheRulesAndNotifyOtherReplicas() {
+		when(repository.findByActive(true)).thenReturn(List.of());
+		priceRuleCache.reload();
+
+		pricingService.createCategory(category("std", 100.0, 20.0, 0.01, true));
+		assertEquals(new BigDecimal("120.00"), pricingService.calculatePrice("std", 1, 0).getAmount());
+
+		when(repository.findById("std")).thenReturn(Optional.of(category("std", 100.0, 20.0, 0.01, true)));
+		pricingService.updateCategory("std", category(null, 50.0, 10.0, 0.01, true));
+		assertEquals(new BigDecimal("60.00"), pricingService.calculatePrice("std", 1, 0).getAmount());
+
+		pricingService.updateCategory("std", category(null, 50.0, 10.0, 0.01, false));
+		assertThrows(RuntimeException.class, () -> pricingService.calculatePrice("std", 1, 0));
+
+		when(repository.existsById("std")).thenReturn(true);
+		pricingService.deleteCategory("std");
+		verify(kafkaProducerService, times(4)).send(PricingService.CATEGORY_EVENTS_TOPIC, "std", "std");
+	}
+
+	@Test
+	void refreshPicksUpChangesFromOtherReplicas() {
+		when(repository.findByActive(true)).thenReturn(List.of(category("std", 100.0, 20.0, 0.01, true)));
+		priceRuleCache.reload();
+
+		when(repository.findById("std")).thenReturn(Optional.of(category("std", 200.0, 20.0, 0.01, true)));
+		priceRuleCache.refresh("std");
+		assertEquals(new BigDecimal("220.00"), pricingService.calculatePrice("std", 1, 0).getAmount());
+
+		when(repository.findById("std")).thenReturn(Optional.empty());
+		priceRuleCache.refresh("std");
+		assertEquals(0, priceRuleCache.size());
+	}
+
+	@Test
+	void pricesABatchInRequestOrderFailingOnlyUnknownItems() {
+		when(repository.findByActive(true)).thenReturn(List.of(
+				category("std", 100.0, 20.0, 0.01, true),
+				category("exp", 300.0, 40.0, 0.02, true)));
+		priceRuleCache.reload();
+
+		List<QuoteResult> results = pricingService.calculatePrices(List.of(
+				new QuoteRequest("exp", 1.0, 0.0),
+				new QuoteRequest("missing", 1.0, 0.0),
+				new QuoteRequest("std", 1.0, 100.0)));
+
+		assertEquals(3, results.size());
+		assertEquals(new BigDecimal("340.00"), results.get(0).getAmount());
+		assertNull(results.get(1).getAmount());
+		assertEquals("Category not found", results.get(1).getError());
+		assertEquals(new BigDecimal("121.00"), results.get(2).getAmount());
+	}
+
+	@Test
+	void parallelBatchesMatchSequentialPricing() {
+		Map<String, PriceRule> rules = Map.of("std", PriceRule.compile(category("std", 100.0, 20.0, 0.01, true)));
+		List<QuoteRequest> items = new ArrayList<>();
+		for (int i = 0; i < 5000; i++) {
+			items.add(new QuoteRequest(i % 7 == 0 ? "missing" : "std", i / 10.0, (double) i));
+		}
+
+		List<QuoteResult> sequential = PricingService.quoteAll(rules, items, Integer.MAX_VALUE, quoteCache);
+		List<QuoteResult> parallel = PricingService.quoteAll(rules, items, 1, new QuoteCache(meterRegistry, 0));
+		for (int i = 0; i < items.size(); i++) {
+			assertEquals(sequential.get(i).getAmount(), parallel.get(i).getAmount());
+			assertEquals(sequential.get(i).getError(), parallel.get(i).getError());
+		}
+	}
+
+	@Test
+	void batchesFallBackToMongoUntilTheRulesAreLoaded() {
+		when(repository.findAllById(any())).thenReturn(List.of(category("std", 100.0, 20.0, 0.01, true)));
+
+		List<QuoteResult> results = pricingService.calculatePrices(List.of(new QuoteRequest("std", 1.0, 0.0)));
+		assertEquals(new BigDecimal("120.00"), results.get(0).getAmount());
+	}
+
+	@Test
+	void rejectsOverlappingOrEmptyBandsAndDuplicateZonesAtWriteTime() {
+		PriceCategory overlapping = category("std", 100.0, 20.0, 0.01, true);
+		overlapping.setWeightBands(List.of(new WeightBand(5.0, 10.0, BigDecimal.ONE, null), new WeightBand(0.0, 5.5, BigDecimal.ONE, null)));
+		assertThrows(ResponseStatusException.class, () -> pricingService.createCategory(overlapping));
+
+		PriceCategory empty = category("std", 100.0, 20.0, 0.01, true);
+		empty.setWeightBands(List.of(new WeightBand(5.0, 5.0, BigDecimal.ONE, null)));
+		assertThrows(ResponseStatusException.class, () -> pricingService.updateCategory("std", empty));
+
+		PriceCategory zones = category("std", 100.0, 20.0, 0.01, true);
+		zones.setZoneRates(List.of(new ZoneRate("Colombo", "Kandy", BigDecimal.ONE, null), new ZoneRate("colombo", "kandy ", BigDecimal.TEN, null)));
+		assertThrows(ResponseStatusException.class, () -> pricingService.createCategory(zones));
+		verify(repository, never()).save(any(PriceCategory.class));
+
+		PriceCategory adjacent = category("std", 100.0, 20.0, 0.01, true);
+		adjacent.setWeightBands(List.of(new WeightBand(5.0, 10.0, BigDecimal.ONE, null), new WeightBand(0.0, 5.0, BigDecimal.ONE, null)));
+		pricingService.createCategory(adjacent);
+		verify(repository).save(adjacent);
+	}
+
+	@Test
+	void rejectsPricesMorePreciseThanTheCurrencyAllows() {
+		PriceCategory cents = category("std", 100.0, 20.0, 0.01, true);
+		cents.setBasePrice(new BigDecimal("100.005"));
+		assertThrows(ResponseStatusException.class, () -> pricingService.createCategory(cents));
+
+		PriceCategory yen = category("std", 100.0, 20.0, 0.01, true);
+		yen.setCurrency("JPY");
+		yen.setBasePrice(new BigDecimal("100.5"));
+		assertThrows(ResponseStatusException.class, () -> pricingService.createCategory(yen));
+
+		PriceCategory unknown = category("std", 100.0, 20.0, 0.01, true);
+		unknown.setCurrency("XYZ");
+		assertThrows(ResponseStatusException.class, () -> pricingService.createCategory(unknown));
+		verify(repository, never()).save(any(PriceCategory.class));
+
+		PriceCategory rates = category("std", 100.0, 20.0, 0.01, true);
+		rates.setPricePerCubicCm(new BigDecimal("0.000001"));
+		pricingService.createCategory(rates);
+		verify(repository).save(rates);
+	}
+
+	@Test
+	void memoizesRepeatedQuotesByQuantizedWeightAndVolume() {
+		when(repository.findByActive(true)).thenReturn(List.of(banded("std", 100.0, 20.0, 0.01, 0), category("flat", 100.0, 20.0, 0.01, true)));
+		priceRuleCache.reload();
+
+		pricingService.calculatePrice("flat", 2.5, 1000);
+		assertEquals(0, quoteCache.size());
+		pricingService.calculatePrice("std", 2.5, 1000);
+		pricingService.calculatePrice("std", 2.5001, 1000.2);
+		pricingService.calculatePrice("std", 2.5, 1000, "Colombo", "Kandy");
+		assertEquals(new BigDecimal("160.00"), pricingService.calculatePrice("std", 2.5, 1000).getAmount());
+
+		assertEquals(1, quoteCache.size());
+		assertEquals(3, meterRegistry.get("cache.gets").tag("cache", "priceQuotes").tag("result", "hit").functionCounter().count());
+		assertEquals(1, meterRegistry.get("cache.gets").tag("cache", "priceQuotes").tag("result", "miss").functionCounter().count());
+	}
+
+	@Test
+	void newVersionsAndDeletesInvalidateCachedQuotes() {
+		PriceCategory original = banded("std", 100.0, 20.0, 0.01, 0);
+		when(repository.findByActive(true)).thenReturn(List.of(original));
+		priceRuleCache.reload();
+		pricingService.calculatePrice("std", 1, 0);
+		assertEquals(1, quoteCache.size());
+
+		// The repository bumps the version on save
+		when(repository.findById("std")).thenReturn(Optional.of(original));
+		when(repository.save(any(PriceCategory.class))).thenAnswer(invocation -> {
+			PriceCategory saved = invocation.getArgument(0);
+			saved.setVersion(saved.getVersion() + 1);
+			return saved;
+		});
+		pricingService.updateCategory("std", banded(null, 50.0, 10.0, 0.01, 0));
+		assertEquals(0, quoteCache.size());
+		assertEquals(new BigDecimal("60.00"), pricingService.calculatePrice("std", 1, 0).getAmount());
+
+		// A reload only drops the quotes of categories whose version changed
+		when(repository.findByActive(true)).thenReturn(List.of(original, banded("exp", 200.0, 40.0, 0.01, 0)));
+		priceRuleCache.reload();
+		pricingService.calculatePrice("exp", 1, 0);
+		assertEquals(2, quoteCache.size());
+		PriceCategory express = banded("exp", 250.0, 40.0, 0.01, 1);
+		when(repository.findByActive(true)).thenReturn(List.of(original, express));
+		priceRuleCache.reload();
+		assertEquals(1, quoteCache.size());
+		assertEquals(new BigDecimal("290.00"), pricingService.calculatePrice("exp", 1, 0).getAmount());
+
+		when(repository.existsById("std")).thenReturn(true);
+		pricingService.deleteCategory("std");
+		assertEquals(1, quoteCache.size());
+	}
+
+	@Test
+	void refusesConcurrentUpdatesOfTheSameVersion() {
+		when(repository.findById("std")).thenReturn(Optional.of(category("std", 100.0, 20.0, 0.01, true)));
+		when(repository.save(any(PriceCategory.class))).thenThrow(new OptimisticLockingFailureException("stale"));
+
+		ResponseStatusException e = assertThrows(ResponseStatusException.class,
+				() -> pricingService.updateCategory("std", category(null, 50.0, 10.0, 0.01, true)));
+		assertEquals(HttpStatus.CONFLICT, e.getStatusCode());
+	}
+
+	// Priced like category(), through a single weight band so its quotes are cached
+	private static PriceCategory banded(String id, double basePrice, double pricePerKg, double pricePerCubicCm, long version) {
+		PriceCategory category = category(id, basePrice, 0.0, pricePerCubicCm, true);
+		category.setWeightBands(List.of(new WeightBand(0.0, 1000.0, BigDecimal.valueOf(pricePerKg), null)));
+		category.setVersion(version);
+		return category;
+	}
+
+	private static PriceCategory category(String id, double basePrice, double pricePerKg, double pricePerCubicCm, boolean active) {
+		PriceCategory category = new PriceCategory("Category " + id, null, BigDecimal.valueOf(basePrice),
+				BigDecimal.valueOf(pricePerKg), BigDecimal.valueOf(pricePerCubicCm));
+		category.setId(id);
+		category.setActive(active);
+		return category;
+	}
+}
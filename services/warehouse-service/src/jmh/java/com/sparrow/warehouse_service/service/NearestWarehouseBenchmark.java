@@ -0,0 +1,134 @@
+package com.sparrow.warehouse_service.service;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.sparrow.warehouse_service.dto.NearbyWarehouse;
+import com.sparrow.warehouse_service.model.Warehouse;
+import com.sparrow.warehouse_service.repository.WarehouseRepositoryImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.springframework.data.geo.GeoResults;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Nearest-5-with-capacity lookups: the in-memory k-d tree index against Mongo $geoNear on the 2dsphere index.
+// The Mongo half needs a running MongoDB: ./gradlew jmh -Dbenchmark.mongo.uri=mongodb://localhost:27017
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NearestWarehouseBenchmark {
+
+    private static final int QUERIES = 1024;
+    private static final BigDecimal REQUIRED = BigDecimal.valueOf(5);
+
+    @Param({"1000", "50000"})
+    private int warehouses;
+
+    private WarehouseCapacityIndex index;
+    private double[][] queries;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void buildIndex() {
+        index = new WarehouseCapacityIndex(null, new SimpleMeterRegistry());
+        index.putAll(generate(warehouses));
+        queries = queryPoints();
+    }
+
+    @State(Scope.Benchmark)
+    public static class MongoState {
+        private MongoClient client;
+        private MongoTemplate mongoTemplate;
+        private WarehouseRepositoryImpl repository;
+
+        @Setup(Level.Trial)
+        public void load(BenchmarkParams params) {
+            client = MongoClients.create(System.getProperty("benchmark.mongo.uri", "mongodb://localhost:27017"));
+            mongoTemplate = new MongoTemplate(client, "warehouse_benchmark");
+            repository = new WarehouseRepositoryImpl(mongoTemplate);
+
+            mongoTemplate.dropCollection(Warehouse.class);
+            IndexOperations indexOps = mongoTemplate.indexOps(Warehouse.class);
+            IndexResolver.create(mongoTemplate.getConverter().getMappingContext())
+                    .resolveIndexFor(Warehouse.class).forEach(indexOps::createIndex);
+            mongoTemplate.insertAll(generate(Integer.parseInt(params.getParam("warehouses"))));
+        }
+
+        @TearDown(Level.Trial)
+        public void disconnect() {
+            mongoTemplate.getDb().drop();
+            client.close();
+        }
+    }
+
+    @Benchmark
+    public List<NearbyWarehouse> inMemoryIndex() {
+        double[] point = queries[next++ & (QUERIES - 1)];
+        return index.findNearestAvailable(point[0], point[1], REQUIRED, 5, 0);
+    }
+
+    @Benchmark
+    public GeoResults<Warehouse> mongoGeoNear(MongoState mongo) {
+        double[] point = queries[next++ & (QUERIES - 1)];
+        return mongo.repository.findNearestAvailable(point[0], point[1], REQUIRED, 5, 0);
+    }
+
+    // Warehouses spread over a country-sized box, about a fifth of them FULL
+    private static List<Warehouse> generate(int count) {
+        Random random = new Random(42);
+        List<Warehouse> generated = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Warehouse warehouse = new Warehouse();
+            warehouse.setId("wh-" + i);
+            warehouse.setWarehouseCode("WH-" + i);
+            warehouse.setCity("City" + (i % 200));
+            warehouse.setCapacity(BigDecimal.valueOf(100));
+            boolean full = random.nextInt(5) == 0;
+            warehouse.setCurrentUtilization(BigDecimal.valueOf(full ? 100 : random.nextInt(90)));
+            warehouse.setStatus(full ? Warehouse.WarehouseStatus.FULL : Warehouse.WarehouseStatus.ACTIVE);
+
+            double latitude = 40 + random.nextDouble() * 10;
+            double longitude = -10 + random.nextDouble() * 20;
+            Warehouse.Location location = new Warehouse.Location();
+            location.setLatitude(BigDecimal.valueOf(latitude));
+            location.setLongitude(BigDecimal.valueOf(longitude));
+            warehouse.setLocation(location);
+            warehouse.setPosition(new GeoJsonPoint(longitude, latitude));
+            generated.add(warehouse);
+        }
+        return generated;
+    }
+
+    private static double[][] queryPoints() {
+        Random random = new Random(7);
+        double[][] points = new double[QUERIES][];
+        for (int i = 0; i < QUERIES; i++) {
+            points[i] = new double[]{40 + random.nextDouble() * 10, -10 + random.nextDouble() * 20};
+        }
+        return points;
+    }
+}
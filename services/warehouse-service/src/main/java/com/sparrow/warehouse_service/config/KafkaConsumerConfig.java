@@ -0,0 +1,46 @@
+package com.sparrow.warehouse_service.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.kafka.ConcurrentKafkaListenerContainerFactoryConfigurer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.util.backoff.FixedBackOff;
+
+@Configuration
+public class KafkaConsumerConfig {
+
+    // Batch listeners that commit offsets themselves once the batch has been written to Mongo.
+    // Concurrency should match the partition count of the consumed topics (3 in KafkaTopicConfig).
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<Object, Object> batchListenerContainerFactory(
+            ConcurrentKafkaListenerContainerFactoryConfigurer configurer,
+            ConsumerFactory<Object, Object> consumerFactory,
+            DefaultErrorHandler batchErrorHandler,
+            @Value("${warehouse.kafka.listener.concurrency:3}") int concurrency) {
+        ConcurrentKafkaListenerContainerFactory<Object, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        configurer.configure(factory, consumerFactory);
+        factory.setBatchListener(true);
+        factory.setConcurrency(concurrency);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL_IMMEDIATE);
+        factory.setCommonErrorHandler(batchErrorHandler);
+        return factory;
+    }
+
+    // A failed batch is redelivered from its first offset retry-attempts times, retry-interval-ms apart.
+    // After that its records go to <topic>.DLT (same partition, original group in the headers) and the
+    // offsets are committed past them, so one poisoned batch can't stall the partition forever.
+    @Bean
+    public DefaultErrorHandler batchErrorHandler(
+            KafkaTemplate<String, Object> kafkaTemplate,
+            @Value("${warehouse.kafka.listener.retry-interval-ms:2000}") long retryInterval,
+            @Value("${warehouse.kafka.listener.retry-attempts:5}") long retryAttempts) {
+        return new DefaultErrorHandler(new DeadLetterPublishingRecoverer(kafkaTemplate),
+                new FixedBackOff(retryInterval, retryAttempts));
+    }
+}
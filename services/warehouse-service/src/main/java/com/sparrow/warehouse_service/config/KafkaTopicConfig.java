@@ -40,4 +40,21 @@ public class KafkaTopicConfig {
                 .replicas(1)
                 .build();
     }
+
+    // Dead letters of the batch listeners; partition counts match the source topics
+    @Bean
+    public NewTopic parcelCreatedDeadLetterTopic() {
+        return TopicBuilder.name("parcel-created.DLT")
+                .partitions(3)
+                .replicas(1)
+                .build();
+    }
+
+    @Bean
+    public NewTopic parcelConsolidatedDeadLetterTopic() {
+        return TopicBuilder.name("parcel-consolidated.DLT")
+                .partitions(3)
+                .replicas(1)
+                .build();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,96 @@
+package com.sparrow.warehouse_service.config;
+
+import com.sparrow.warehouse_service.model.CapacityRollup;
+import com.sparrow.warehouse_service.model.CapacitySnapshot;
+import com.sparrow.warehouse_service.model.Warehouse;
+import com.sparrow.warehouse_service.repository.CapacitySnapshotRepository;
+import com.sparrow.warehouse_service.repository.WarehouseRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.scheduling.TaskScheduler;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+// Prepares collections and indexes and brings documents written by older versions of the service in
+// line with the current mapping. Runs on context refresh, before the capacity index loads on ApplicationReadyEvent.
+// A step that fails (Mongo not reachable yet) is logged and retried in the background instead of failing startup.
+@Slf4j
+@Configuration
+@RequiredArgsConstructor
+public class MongoSchemaConfig {
+
+    private final WarehouseRepository warehouseRepository;
+    private final CapacitySnapshotRepository snapshotRepository;
+    private final MongoTemplate mongoTemplate;
+    private final TaskScheduler taskScheduler;
+
+    @Value("${warehouse.schema.retry-interval:PT1M}")
+    private Duration retryInterval;
+
+    // Spring Boot leaves auto-index-creation off, so the 2dsphere index on position and the rollup
+    // indexes are created here; $geoNear fails without the former
+    @EventListener(ContextRefreshedEvent.class)
+    public void ensureIndexes() {
+        attempt("index creation", () -> {
+            IndexResolver resolver = IndexResolver.create(mongoTemplate.getConverter().getMappingContext());
+            for (Class<?> entity : List.of(Warehouse.class, CapacityRollup.class)) {
+                IndexOperations indexOps = mongoTemplate.indexOps(entity);
+                resolver.resolveIndexFor(entity).forEach(indexOps::createIndex);
+            }
+        });
+    }
+
+    // A time-series collection has to be created as one; the first insert would otherwise create a
+    // plain collection. Runs first so the recorder can never get there before it; the recorder checks
+    // again before its first write in case this step could not reach Mongo.
+    @EventListener(ContextRefreshedEvent.class)
+    @Order(0)
+    public void createHistoryCollection() {
+        attempt("history collection", () -> {
+            if (snapshotRepository.ensureTimeSeries()) {
+                log.info("Created time-series collection {}", mongoTemplate.getCollectionName(CapacitySnapshot.class));
+            }
+        });
+    }
+
+    @EventListener(ContextRefreshedEvent.class)
+    public void backfillPositions() {
+        attempt("position backfill", () -> {
+            long updated = warehouseRepository.backfillPositions();
+            if (updated > 0) {
+                log.info("Derived position for {} warehouses", updated);
+            }
+        });
+    }
+
+    // capacity/currentUtilization used to be stored as strings, which the conditional
+    // reservation updates cannot compare or add to
+    @EventListener(ContextRefreshedEvent.class)
+    public void convertCapacityFields() {
+        attempt("capacity conversion", () -> {
+            long converted = warehouseRepository.convertDecimalStrings();
+            if (converted > 0) {
+                log.info("Converted {} warehouse capacity fields to Decimal128", converted);
+            }
+        });
+    }
+
+    private void attempt(String step, Runnable work) {
+        try {
+            work.run();
+        } catch (RuntimeException e) {
+            log.warn("Mongo schema step '{}' failed, retrying in {}: {}", step, retryInterval, e.getMessage());
+            taskScheduler.schedule(() -> attempt(step, work), Instant.now().plus(retryInterval));
+        }
+    }
+}
@@ -1,32 +1,161 @@
 package com.sparrow.warehouse_service.consumer;
 
 
-import com.sparrow.warehouse_service.model.Warehouse;
-import com.sparrow.warehouse_service.service.WarehouseService;
+import com.sparrow.warehouse_service.model.ParcelConsolidatedEvent;
+import com.sparrow.warehouse_service.model.ParcelCreatedEvent;
+import com.sparrow.warehouse_service.service.ParcelAssignmentService;
+import com.sparrow.warehouse_service.service.ParcelIntakeService;
+import com.sparrow.warehouse_service.service.WarehouseCapacityIndex;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
-import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToIntFunction;
 
 @Slf4j
 @Component
 @RequiredArgsConstructor
 public class ParcelEventListener {
 
-    private final WarehouseService warehouseService;
+    private static final String ASSIGNMENT_LISTENER = "parcel-assignment";
 
-    @KafkaListener(topics = "parcel-created", groupId = "warehouse-service-group")
-    public void handleParcelCreated(Map<String, Object> parcelEvent) {
-        log.info("Received parcel created event: {}", parcelEvent);
-        // Logic to assign warehouse to parcel based on location and capacity
+    private final ParcelIntakeService parcelIntakeService;
+    private final ParcelAssignmentService parcelAssignmentService;
+    private final WarehouseCapacityIndex capacityIndex;
+    private final KafkaListenerEndpointRegistry listenerRegistry;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, AtomicLong> lagByPartition = new ConcurrentHashMap<>();
+
+    // Deserialization failures arrive as null values (ErrorHandlingDeserializer) and are skipped
+    @KafkaListener(topics = "parcel-created", groupId = "warehouse-service-group",
+            containerFactory = "batchListenerContainerFactory",
+            properties = {
+                    "value.deserializer=org.springframework.kafka.support.serializer.ErrorHandlingDeserializer",
+                    "spring.deserializer.value.delegate.class=com.sparrow.warehouse_service.config.ParcelEventDeserializer",
+                    "parcel.event.value.type=com.sparrow.warehouse_service.model.ParcelCreatedEvent"
+            })
+    public void handleParcelCreated(List<ConsumerRecord<String, ParcelCreatedEvent>> records,
+                                    Acknowledgment acknowledgment, Consumer<?, ?> consumer) {
+        processBatch("parcel-created", records, parcelIntakeService::recordReceived, acknowledgment, consumer);
+    }
+
+    @KafkaListener(topics = "parcel-consolidated", groupId = "warehouse-service-group",
+            containerFactory = "batchListenerContainerFactory",
+            properties = {
+                    "value.deserializer=org.springframework.kafka.support.serializer.ErrorHandlingDeserializer",
+                    "spring.deserializer.value.delegate.class=org.springframework.kafka.support.serializer.JsonDeserializer",
+                    "spring.json.value.default.type=com.sparrow.warehouse_service.model.ParcelConsolidatedEvent",
+                    "spring.json.use.type.headers=false"
+            })
+    public void handleParcelConsolidated(List<ConsumerRecord<String, ParcelConsolidatedEvent>> records,
+                                         Acknowledgment acknowledgment, Consumer<?, ?> consumer) {
+        processBatch("parcel-consolidated", records, parcelIntakeService::recordConsolidated, acknowledgment, consumer);
+    }
+
+    // A separate consumer group, so assignment and intake each see every parcel-created record.
+    // Backpressure comes from the pull model: a batch (at most batch-size records) is planned, reserved
+    // and published before the next poll, so a slow Mongo or broker slows consumption instead of
+    // building up work in memory.
+    @KafkaListener(id = ASSIGNMENT_LISTENER, topics = "parcel-created", groupId = "warehouse-assignment-group",
+            containerFactory = "batchListenerContainerFactory", autoStartup = "false",
+            properties = {
+                    "value.deserializer=org.springframework.kafka.support.serializer.ErrorHandlingDeserializer",
+                    "spring.deserializer.value.delegate.class=com.sparrow.warehouse_service.config.ParcelEventDeserializer",
+                    "parcel.event.value.type=com.sparrow.warehouse_service.model.ParcelCreatedEvent",
+                    "max.poll.records=${warehouse.assignment.batch-size:500}"
+            })
+    public void handleParcelAssignment(List<ConsumerRecord<String, ParcelCreatedEvent>> records,
+                                       Acknowledgment acknowledgment, Consumer<?, ?> consumer) {
+        processBatch("parcel-created", records, parcelAssignmentService::assign, acknowledgment, consumer);
+    }
+
+    // Assignment decisions come from the capacity index, so consuming starts only once it has loaded.
+    // If Mongo was unreachable when the application became ready, the load is retried here until it succeeds.
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @Scheduled(initialDelayString = "${warehouse.assignment.start-retry-ms:30000}",
+            fixedDelayString = "${warehouse.assignment.start-retry-ms:30000}")
+    public void startAssignment() {
+        MessageListenerContainer container = listenerRegistry.getListenerContainer(ASSIGNMENT_LISTENER);
+        if (container.isRunning()) {
+            return;
+        }
+        if (!capacityIndex.isLoaded()) {
+            capacityIndex.rebuild();
+        }
+        if (capacityIndex.isLoaded()) {
+            container.start();
+        }
+    }
+
+    // Offsets are committed only after the bulk write succeeds. A thrown exception leaves the batch
+    // uncommitted; batchErrorHandler redelivers it a bounded number of times (the idempotent upserts
+    // absorb the repeats) and then dead-letters its records to <topic>.DLT and moves on
+    private <T> void processBatch(String topic, List<ConsumerRecord<String, T>> records,
+                                  ToIntFunction<List<T>> writer, Acknowledgment acknowledgment, Consumer<?, ?> consumer) {
+        long start = System.nanoTime();
+        String group = consumer.groupMetadata().groupId();
+        List<T> events = new ArrayList<>(records.size());
+        for (ConsumerRecord<String, T> record : records) {
+            if (record.value() == null) {
+                log.warn("Skipping undecodable record on {} at partition {} offset {}", topic, record.partition(), record.offset());
+                continue;
+            }
+            events.add(record.value());
+        }
+
+        int written = events.isEmpty() ? 0 : writer.applyAsInt(events);
+        acknowledgment.acknowledge();
+
+        Timer.builder("warehouse.consumer.batch")
+                .description("Time to process and commit one batch of records")
+                .tag("topic", topic)
+                .tag("group", group)
+                .register(meterRegistry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        meterRegistry.counter("warehouse.consumer.records", "topic", topic, "group", group).increment(records.size());
+        recordLag(group, consumer);
+        log.debug("Processed {} records from {} ({} parcels written)", records.size(), topic, written);
+    }
+
+    // Intake and assignment read the same partitions in different groups, so lag is tracked per group
+    private void recordLag(String group, Consumer<?, ?> consumer) {
+        for (TopicPartition partition : consumer.assignment()) {
+            consumer.currentLag(partition).ifPresent(lag -> lagFor(group, partition).set(lag));
+        }
     }
 
-    @KafkaListener(topics = "parcel-consolidated", groupId = "warehouse-service-group")
-    public void handleParcelConsolidated(Map<String, Object> consolidationEvent) {
-        log.info("Received parcel consolidated event: {}", consolidationEvent);
-        // Update warehouse capacity when parcels are consolidated
+    private AtomicLong lagFor(String group, TopicPartition partition) {
+        return lagByPartition.computeIfAbsent(group + "/" + partition, key -> {
+            AtomicLong lag = new AtomicLong();
+            Gauge.builder("warehouse.consumer.lag", lag, AtomicLong::get)
+                    .description("Records between the last fetched offset and the partition end")
+                    .tag("topic", partition.topic())
+                    .tag("partition", String.valueOf(partition.partition()))
+                    .tag("group", group)
+                    .register(meterRegistry);
+            return lag;
+        });
     }
 }
@@ -0,0 +1,31 @@
+package com.sparrow.warehouse_service.consumer;
+
+import com.sparrow.warehouse_service.service.WarehouseCapacityIndex;
+import lombok.RequiredArgsConstructor;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+
+// Keeps every replica's capacity index in step with writes made elsewhere. Each replica joins its
+// own consumer group so it sees all partitions, and starts from the latest offset because the
+// index is fully loaded from Mongo at startup. Only the key (the warehouse id) is used: the
+// current document is re-read rather than trusting the event payload.
+@Component
+@RequiredArgsConstructor
+public class WarehouseIndexListener {
+
+    private final WarehouseCapacityIndex capacityIndex;
+
+    @KafkaListener(topics = {"warehouse-capacity-events", "warehouse-status-events", "warehouse-events"},
+            groupId = "warehouse-index-#{T(java.util.UUID).randomUUID()}",
+            properties = {
+                    "value.deserializer=org.apache.kafka.common.serialization.StringDeserializer",
+                    "auto.offset.reset=latest",
+                    "enable.auto.commit=true"
+            })
+    public void handleWarehouseChange(ConsumerRecord<String, String> record) {
+        if (record.key() != null) {
+            capacityIndex.refresh(record.key());
+        }
+    }
+}
@@ -1,18 +1,31 @@
 package com.sparrow.warehouse_service.controller;
 
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sparrow.warehouse_service.dto.CapacityCurve;
+import com.sparrow.warehouse_service.dto.CapacityForecast;
+import com.sparrow.warehouse_service.dto.CursorPage;
+import com.sparrow.warehouse_service.dto.NearbyWarehouse;
 import com.sparrow.warehouse_service.model.Warehouse;
+import com.sparrow.warehouse_service.service.CapacityHistoryService;
 import com.sparrow.warehouse_service.service.WarehouseService;
+import com.sparrow.warehouse_service.util.ListingResponses;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api/warehouses")
@@ -21,6 +34,8 @@ import java.util.Optional;
 public class WarehouseController {
 
     private final WarehouseService warehouseService;
+    private final CapacityHistoryService capacityHistoryService;
+    private final ObjectMapper objectMapper;
 
     @PostMapping
     @Operation(summary = "Create a new warehouse")
@@ -29,9 +44,21 @@ public class WarehouseController {
     }
 
     @GetMapping
-    @Operation(summary = "Get all warehouses")
-    public ResponseEntity<List<Warehouse>> getAllWarehouses() {
-        return ResponseEntity.ok(warehouseService.getAllWarehouses());
+    @Operation(summary = "Get all warehouses", description = "Pages through all warehouses in id order; pass nextCursor back as cursor. fields limits the returned properties.")
+    public ResponseEntity<CursorPage<Object>> getAllWarehouses(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") int limit,
+            @RequestParam(required = false) String fields) {
+        Set<String> projection = ListingResponses.fields(fields);
+        return ResponseEntity.ok(warehouseService.getAllWarehouses(cursor, limit, projection)
+                .map(item -> ListingResponses.project(objectMapper, item, projection)));
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Stream all warehouses", description = "Streams all warehouses as NDJSON")
+    public ResponseEntity<StreamingResponseBody> streamAllWarehouses(@RequestParam(required = false) String fields) {
+        Set<String> projection = ListingResponses.fields(fields);
+        return ListingResponses.ndjson(objectMapper, () -> warehouseService.streamAllWarehouses(projection), projection);
     }
 
     @GetMapping("/{id}")
@@ -71,6 +98,22 @@ public class WarehouseController {
         return ResponseEntity.ok(warehouseService.updateWarehouseCapacity(id, utilization));
     }
 
+    @PostMapping("/{id}/reserve")
+    @Operation(summary = "Reserve warehouse capacity", description = "Atomically adds amount m³ to utilization; 409 if it does not fit")
+    public ResponseEntity<Warehouse> reserveCapacity(
+            @PathVariable String id,
+            @RequestParam BigDecimal amount) {
+        return ResponseEntity.ok(warehouseService.reserveCapacity(id, amount));
+    }
+
+    @PostMapping("/{id}/release")
+    @Operation(summary = "Release warehouse capacity", description = "Atomically returns amount m³ of previously reserved capacity")
+    public ResponseEntity<Warehouse> releaseCapacity(
+            @PathVariable String id,
+            @RequestParam BigDecimal amount) {
+        return ResponseEntity.ok(warehouseService.releaseCapacity(id, amount));
+    }
+
     @PatchMapping("/{id}/status/{status}")
     @Operation(summary = "Update warehouse status")
     public ResponseEntity<Warehouse> updateWarehouseStatus(
@@ -80,10 +123,53 @@ public class WarehouseController {
     }
 
     @GetMapping("/available")
-    @Operation(summary = "Find available warehouses with capacity")
+    @Operation(summary = "Find available warehouses with capacity", description = "Active warehouses with at least requiredCapacity m³ free, most free first")
     public ResponseEntity<List<Warehouse>> findAvailableWarehouses(
             @RequestParam(required = false) BigDecimal requiredCapacity,
             @RequestParam(required = false) String city) {
         return ResponseEntity.ok(warehouseService.findAvailableWarehouses(requiredCapacity, city));
     }
-}
\ No newline at end of file
+
+    @GetMapping("/nearest")
+    @Operation(summary = "Find nearest warehouses with capacity", description = "Active warehouses with at least requiredCapacity m³ free, nearest first; maxDistanceKm is optional")
+    public ResponseEntity<List<NearbyWarehouse>> findNearestAvailableWarehouses(
+            @RequestParam double latitude,
+            @RequestParam double longitude,
+            @RequestParam(required = false) BigDecimal requiredCapacity,
+            @RequestParam(defaultValue = "5") int limit,
+            @RequestParam(defaultValue = "0") double maxDistanceKm) {
+        return ResponseEntity.ok(warehouseService.findNearestAvailableWarehouses(
+                latitude, longitude, requiredCapacity, limit, maxDistanceKm));
+    }
+
+    @GetMapping("/capacity-history")
+    @Operation(summary = "Utilization curves for all warehouses", description = "Downsampled min/max/close utilization per warehouse over [from, to); defaults to the last 7 days. The bucket is widened to at most points buckets per curve.")
+    public ResponseEntity<List<CapacityCurve>> getFleetCapacityHistory(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+            @RequestParam(required = false) Duration bucket,
+            @RequestParam(defaultValue = "" + CapacityHistoryService.MAX_FLEET_POINTS) int points) {
+        Instant end = to != null ? to : Instant.now();
+        Instant start = from != null ? from : end.minus(Duration.ofDays(7));
+        return ResponseEntity.ok(capacityHistoryService.fleetCurves(start, end, bucket, points));
+    }
+
+    @GetMapping("/{id}/capacity-history")
+    @Operation(summary = "Utilization curve of a warehouse", description = "Downsampled min/max/close utilization over [from, to); defaults to the last 7 days")
+    public ResponseEntity<CapacityCurve> getCapacityHistory(
+            @PathVariable String id,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+            @RequestParam(required = false) Duration bucket,
+            @RequestParam(defaultValue = "500") int points) {
+        Instant end = to != null ? to : Instant.now();
+        Instant start = from != null ? from : end.minus(Duration.ofDays(7));
+        return ResponseEntity.ok(capacityHistoryService.curve(id, start, end, bucket, points));
+    }
+
+    @GetMapping("/{id}/capacity-forecast")
+    @Operation(summary = "Forecast when a warehouse becomes full", description = "Linear trend of recent utilization; fullAt is null when utilization is not rising")
+    public ResponseEntity<CapacityForecast> getCapacityForecast(@PathVariable String id) {
+        return ResponseEntity.ok(capacityHistoryService.forecast(id));
+    }
+}
@@ -0,0 +1,30 @@
+package com.sparrow.warehouse_service.dto;
+
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CapacityCurve {
+    private String warehouseId;
+    private Duration bucket;
+    private List<Point> points;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Point {
+        private Instant timestamp; // bucket start
+        private double capacity;
+        private double min;
+        private double max;
+        private double close; // utilization at the end of the bucket
+    }
+}
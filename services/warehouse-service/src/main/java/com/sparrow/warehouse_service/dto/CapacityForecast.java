@@ -0,0 +1,25 @@
+package com.sparrow.warehouse_service.dto;
+
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CapacityForecast {
+    private String warehouseId;
+    private double capacity;
+    private double currentUtilization;
+
+    // Least-squares utilization trend in m³ per hour over the forecast window
+    private double trendPerHour;
+
+    // When the trend reaches capacity; null if utilization is flat or falling, now if already full
+    private Instant fullAt;
+
+    private int samples;
+}
@@ -0,0 +1,17 @@
+package com.sparrow.warehouse_service.dto;
+
+
+import com.sparrow.warehouse_service.model.Warehouse;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NearbyWarehouse {
+    private Warehouse warehouse;
+
+    // Great-circle distance from the requested point
+    private double distanceKm;
+}
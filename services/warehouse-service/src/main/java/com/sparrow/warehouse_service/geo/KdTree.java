@@ -0,0 +1,213 @@
+package com.sparrow.warehouse_service.geo;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Predicate;
+
+// Immutable 3-d tree over points on the earth's surface. Latitude/longitude are mapped to unit
+// vectors so the straight-line (chord) distance orders points exactly like great-circle distance,
+// with no special cases at the poles or the antimeridian. The tree is stored implicitly: the node
+// of the range [lo, hi) sits at its midpoint, and its children are the two halves.
+public final class KdTree {
+
+    public static final double EARTH_RADIUS_KM = 6371.0088;
+
+    private static final KdTree EMPTY = new KdTree(new String[0], new double[0]);
+
+    private final String[] ids;
+    private final double[] coords; // x, y, z per point, in tree order
+
+    public record Point(String id, double latitude, double longitude) {
+    }
+
+    public record Neighbour(String id, double distanceKm) {
+    }
+
+    private KdTree(String[] ids, double[] coords) {
+        this.ids = ids;
+        this.coords = coords;
+    }
+
+    public static KdTree empty() {
+        return EMPTY;
+    }
+
+    public static KdTree build(List<Point> points) {
+        int n = points.size();
+        double[] unsorted = new double[n * 3];
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            Point point = points.get(i);
+            toUnitVector(point.latitude(), point.longitude(), unsorted, i * 3);
+            order[i] = i;
+        }
+
+        partition(order, unsorted, 0, n, 0);
+
+        String[] ids = new String[n];
+        double[] coords = new double[n * 3];
+        for (int i = 0; i < n; i++) {
+            ids[i] = points.get(order[i]).id();
+            System.arraycopy(unsorted, order[i] * 3, coords, i * 3, 3);
+        }
+        return new KdTree(ids, coords);
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    // Up to k accepted points closest to (latitude, longitude), nearest first. maxDistanceKm <= 0 means unbounded.
+    public List<Neighbour> nearest(double latitude, double longitude, int k, double maxDistanceKm,
+                                   Predicate<String> accept) {
+        if (k <= 0 || ids.length == 0) {
+            return List.of();
+        }
+        double[] target = new double[3];
+        toUnitVector(latitude, longitude, target, 0);
+
+        Search search = new Search(target, k, maxDistanceKm > 0 ? squaredChord(maxDistanceKm) : Double.MAX_VALUE, accept);
+        search.visit(0, ids.length, 0);
+
+        List<Neighbour> result = new ArrayList<>(search.best.size());
+        while (!search.best.isEmpty()) {
+            Candidate candidate = search.best.poll();
+            result.add(new Neighbour(ids[candidate.index()], toKilometres(candidate.squaredDistance())));
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    public static double distanceKm(double latitude1, double longitude1, double latitude2, double longitude2) {
+        double[] a = new double[6];
+        toUnitVector(latitude1, longitude1, a, 0);
+        toUnitVector(latitude2, longitude2, a, 3);
+        double dx = a[0] - a[3];
+        double dy = a[1] - a[4];
+        double dz = a[2] - a[5];
+        return toKilometres(dx * dx + dy * dy + dz * dz);
+    }
+
+    private record Candidate(int index, double squaredDistance) {
+    }
+
+    private final class Search {
+        private final double[] target;
+        private final int k;
+        private final double limit;
+        private final Predicate<String> accept;
+        // Max-heap, so the current worst of the k best is at the head
+        private final PriorityQueue<Candidate> best;
+
+        private Search(double[] target, int k, double limit, Predicate<String> accept) {
+            this.target = target;
+            this.k = k;
+            this.limit = limit;
+            this.accept = accept;
+            this.best = new PriorityQueue<>(k + 1, (a, b) -> Double.compare(b.squaredDistance(), a.squaredDistance()));
+        }
+
+        private double bound() {
+            return best.size() < k ? limit : Math.min(limit, best.peek().squaredDistance());
+        }
+
+        private void visit(int lo, int hi, int axis) {
+            if (lo >= hi) {
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            double squared = squaredDistance(mid);
+            if (squared <= bound() && accept.test(ids[mid])) {
+                best.add(new Candidate(mid, squared));
+                if (best.size() > k) {
+                    best.poll();
+                }
+            }
+
+            double delta = target[axis] - coords[mid * 3 + axis];
+            int next = (axis + 1) % 3;
+            if (delta < 0) {
+                visit(lo, mid, next);
+                if (delta * delta <= bound()) {
+                    visit(mid + 1, hi, next);
+                }
+            } else {
+                visit(mid + 1, hi, next);
+                if (delta * delta <= bound()) {
+                    visit(lo, mid, next);
+                }
+            }
+        }
+
+        private double squaredDistance(int index) {
+            double dx = coords[index * 3] - target[0];
+            double dy = coords[index * 3 + 1] - target[1];
+            double dz = coords[index * 3 + 2] - target[2];
+            return dx * dx + dy * dy + dz * dz;
+        }
+    }
+
+    // Places the median of order[lo, hi) along axis at the midpoint, then recurses into both halves
+    private static void partition(int[] order, double[] coords, int lo, int hi, int axis) {
+        if (hi - lo <= 1) {
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        select(order, coords, lo, hi - 1, mid, axis);
+        int next = (axis + 1) % 3;
+        partition(order, coords, lo, mid, next);
+        partition(order, coords, mid + 1, hi, next);
+    }
+
+    // Quickselect on order[left..right] (inclusive) keyed by the axis coordinate
+    private static void select(int[] order, double[] coords, int left, int right, int nth, int axis) {
+        while (right > left) {
+            double pivot = coords[order[(left + right) >>> 1] * 3 + axis];
+            int i = left;
+            int j = right;
+            while (i <= j) {
+                while (coords[order[i] * 3 + axis] < pivot) {
+                    i++;
+                }
+                while (coords[order[j] * 3 + axis] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    int swap = order[i];
+                    order[i] = order[j];
+                    order[j] = swap;
+                    i++;
+                    j--;
+                }
+            }
+            if (nth <= j) {
+                right = j;
+            } else if (nth >= i) {
+                left = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private static void toUnitVector(double latitude, double longitude, double[] out, int offset) {
+        double lat = Math.toRadians(latitude);
+        double lon = Math.toRadians(longitude);
+        double cosLat = Math.cos(lat);
+        out[offset] = cosLat * Math.cos(lon);
+        out[offset + 1] = cosLat * Math.sin(lon);
+        out[offset + 2] = Math.sin(lat);
+    }
+
+    private static double squaredChord(double distanceKm) {
+        double chord = 2 * Math.sin(Math.min(distanceKm / EARTH_RADIUS_KM, Math.PI) / 2);
+        return chord * chord;
+    }
+
+    private static double toKilometres(double squaredChord) {
+        double chord = Math.sqrt(squaredChord);
+        return 2 * Math.asin(Math.min(1, chord / 2)) * EARTH_RADIUS_KM;
+    }
+}
@@ -0,0 +1,4 @@
+package com.sparrow.warehouse_service.geo;
+
+public record LatLng(double latitude, double longitude) {
+}
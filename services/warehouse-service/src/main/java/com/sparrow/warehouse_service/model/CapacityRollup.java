@@ -0,0 +1,36 @@
+package com.sparrow.warehouse_service.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+// Hourly and daily min/max/close of a warehouse's utilization, merged from the minute snapshots as
+// they are flushed. Long-range curves read these instead of the raw time series.
+@Data
+@Document(collection = "warehouse_capacity_rollups")
+@CompoundIndexes({
+        @CompoundIndex(name = "level_bucket_idx", def = "{ 'level': 1, 'bucketStart': 1 }"),
+        @CompoundIndex(name = "level_warehouse_bucket_idx", def = "{ 'level': 1, 'warehouseId': 1, 'bucketStart': 1 }")
+})
+public class CapacityRollup {
+    @Id
+    private String id; // warehouseId|level|bucketStart millis
+
+    private String warehouseId;
+    private Level level;
+    private Instant bucketStart;
+    private double capacity;
+    private double min;
+    private double max;
+    private double close;
+    private Instant closeAt; // minute the close was taken from
+    private long closeRevision; // warehouse capacityRevision of the close
+
+    public enum Level {
+        HOUR, DAY
+    }
+}
@@ -0,0 +1,32 @@
+package com.sparrow.warehouse_service.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.TimeSeries;
+import org.springframework.data.mongodb.core.timeseries.Granularity;
+
+import java.time.Instant;
+
+// Utilization of one warehouse over one minute in which it changed. Minutes without a change have
+// no snapshot: utilization only moves on writes, so the previous close still holds.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "warehouse_capacity_history")
+@TimeSeries(timeField = "timestamp", metaField = "warehouseId", granularity = Granularity.MINUTES,
+        expireAfter = "90d") // curves beyond this come from the rollups
+public class CapacitySnapshot {
+    @Id
+    private String id;
+
+    private String warehouseId;
+    private Instant timestamp; // start of the minute
+    private double capacity;
+    private double min;
+    private double max;
+    private double close; // utilization at the last change within the minute
+    private long closeRevision; // warehouse capacityRevision of that change
+}
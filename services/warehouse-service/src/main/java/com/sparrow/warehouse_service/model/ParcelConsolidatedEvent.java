@@ -0,0 +1,21 @@
+package com.sparrow.warehouse_service.model;
+
+import lombok.Data;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Payload of the parcel-consolidated topic published by consolidation-service
+@Data
+public class ParcelConsolidatedEvent {
+    private String id;
+    private String consolidationId;
+    private List<String> parcelIds;
+    private String customerId;
+    private BigDecimal totalWeight;
+    private BigDecimal totalVolume;
+    private String origin;
+    private String destination;
+    private String status;
+    private LocalDateTime updatedAt;
+}
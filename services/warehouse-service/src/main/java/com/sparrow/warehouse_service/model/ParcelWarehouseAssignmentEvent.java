@@ -0,0 +1,24 @@
+package com.sparrow.warehouse_service.model;
+
+import lombok.Data;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Payload of the parcel-warehouse-assignment topic, keyed by parcel id
+@Data
+public class ParcelWarehouseAssignmentEvent {
+    private String eventId;
+    private String parcelId;
+    private String trackingNumber;
+    private String status; // ASSIGNED or UNASSIGNED
+    private String warehouseId;
+    private String warehouseCode;
+    private Double distanceKm; // from the origin city; null when replaying an earlier assignment
+    private BigDecimal reservedVolume;
+    private String reason; // why an UNASSIGNED parcel could not be placed
+    private LocalDateTime assignedAt;
+
+    public enum Status {
+        ASSIGNED, UNASSIGNED
+    }
+}
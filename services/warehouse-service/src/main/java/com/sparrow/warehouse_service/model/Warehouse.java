@@ -1,9 +1,17 @@
 package com.sparrow.warehouse_service.model;
 
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
+import org.springframework.data.mongodb.core.index.GeoSpatialIndexType;
+import org.springframework.data.mongodb.core.index.GeoSpatialIndexed;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+import org.springframework.data.mongodb.core.mapping.FieldType;
+import jakarta.validation.Valid;
 import jakarta.validation.constraints.*;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -39,27 +47,51 @@ public class Warehouse {
 
     @NotNull(message = "Capacity is required")
     @Positive(message = "Capacity must be positive")
+    @Field(targetType = FieldType.DECIMAL128)
     private BigDecimal capacity; // in cubic meters
 
     @NotNull(message = "Current utilization is required")
     @DecimalMin(value = "0.0", message = "Current utilization cannot be negative")
-    private BigDecimal currentUtilization;
+    @Field(targetType = FieldType.DECIMAL128) // numeric so reservations can $inc it atomically
+    private BigDecimal currentUtilization; // in cubic meters
 
     private List<String> supportedParcelTypes;
     private List<String> availableServices;
 
+    // Parcels whose volume is already in currentUtilization but whose assignment is not recorded yet.
+    // Lets a replayed assignment find its earlier reservation instead of reserving a second time.
+    @JsonIgnore
+    @Indexed(sparse = true)
+    private List<String> heldParcels;
+
+    // Bumped by every update that changes currentUtilization, in the same write, so the capacity
+    // history can tell which of two changes recorded on different instances came last
+    @JsonIgnore
+    private Long capacityRevision;
+
     private WarehouseStatus status;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
 
     @Data
     public static class Location {
+        @DecimalMin(value = "-90.0", message = "Latitude must be between -90 and 90")
+        @DecimalMax(value = "90.0", message = "Latitude must be between -90 and 90")
         private BigDecimal latitude;
+
+        @DecimalMin(value = "-180.0", message = "Longitude must be between -180 and 180")
+        @DecimalMax(value = "180.0", message = "Longitude must be between -180 and 180")
         private BigDecimal longitude;
     }
 
+    @Valid
     private Location location;
 
+    // GeoJSON copy of location, kept in step on every save by WarehousePositionCallback
+    @JsonIgnore
+    @GeoSpatialIndexed(name = "position_2dsphere", type = GeoSpatialIndexType.GEO_2DSPHERE)
+    private GeoJsonPoint position;
+
     public enum WarehouseStatus {
         ACTIVE, INACTIVE, MAINTENANCE, FULL
     }
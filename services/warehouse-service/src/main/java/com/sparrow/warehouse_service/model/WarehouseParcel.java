@@ -0,0 +1,31 @@
+package com.sparrow.warehouse_service.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import java.time.LocalDateTime;
+
+// Warehouse-side view of a parcel, built from parcel and consolidation events
+@Data
+@Document(collection = "warehouse_parcels")
+public class WarehouseParcel {
+    @Id
+    private String id; // parcel id from parcel-service
+
+    private String trackingNumber;
+    private String origin;
+    private String destination;
+    private Double weight;
+    private Double volume;
+    private String consolidationId;
+    private String warehouseId; // set once by ParcelAssignmentService
+    private LocalDateTime assignedAt;
+
+    private ParcelStatus status;
+    private LocalDateTime receivedAt;
+    private LocalDateTime updatedAt;
+
+    public enum ParcelStatus {
+        PENDING_ASSIGNMENT, ASSIGNED, CONSOLIDATED
+    }
+}
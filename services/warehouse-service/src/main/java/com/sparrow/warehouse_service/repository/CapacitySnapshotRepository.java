@@ -0,0 +1,9 @@
+package com.sparrow.warehouse_service.repository;
+
+import com.sparrow.warehouse_service.model.CapacitySnapshot;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface CapacitySnapshotRepository extends MongoRepository<CapacitySnapshot, String>, CapacitySnapshotRepositoryCustom {
+}
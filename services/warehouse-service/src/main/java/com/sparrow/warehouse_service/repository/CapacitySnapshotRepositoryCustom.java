@@ -0,0 +1,15 @@
+package com.sparrow.warehouse_service.repository;
+
+import com.sparrow.warehouse_service.model.CapacitySnapshot;
+
+import java.util.List;
+
+public interface CapacitySnapshotRepositoryCustom {
+
+    // Creates the snapshot collection as a time series unless it exists (a first insert would create a
+    // plain one). Returns true when it was created.
+    boolean ensureTimeSeries();
+
+    // Appends the minute snapshots to the time series and merges them into the hourly and daily rollups
+    void store(List<CapacitySnapshot> snapshots);
+}
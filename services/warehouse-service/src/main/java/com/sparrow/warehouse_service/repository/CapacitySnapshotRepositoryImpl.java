@@ -0,0 +1,110 @@
+package com.sparrow.warehouse_service.repository;
+
+import com.sparrow.warehouse_service.model.CapacityRollup;
+import com.sparrow.warehouse_service.model.CapacitySnapshot;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+@RequiredArgsConstructor
+public class CapacitySnapshotRepositoryImpl implements CapacitySnapshotRepositoryCustom {
+
+    private static final long HOUR_MILLIS = Duration.ofHours(1).toMillis();
+    private static final long DAY_MILLIS = Duration.ofDays(1).toMillis();
+
+    private final MongoTemplate mongoTemplate;
+    private volatile boolean timeSeriesReady;
+
+    @Override
+    public boolean ensureTimeSeries() {
+        if (timeSeriesReady) {
+            return false;
+        }
+        boolean created = !mongoTemplate.collectionExists(CapacitySnapshot.class);
+        if (created) {
+            mongoTemplate.createCollection(CapacitySnapshot.class);
+        }
+        timeSeriesReady = true;
+        return created;
+    }
+
+    @Override
+    public void store(List<CapacitySnapshot> snapshots) {
+        if (snapshots.isEmpty()) {
+            return;
+        }
+        // Startup may have run while Mongo was unreachable
+        ensureTimeSeries();
+        List<CapacitySnapshot> unstored = withoutStored(snapshots);
+        if (!unstored.isEmpty()) {
+            mongoTemplate.insertAll(unstored);
+        }
+
+        BulkOperations bulkOps = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, CapacityRollup.class);
+        for (CapacitySnapshot snapshot : snapshots) {
+            upsertRollup(bulkOps, snapshot, CapacityRollup.Level.HOUR, HOUR_MILLIS);
+            upsertRollup(bulkOps, snapshot, CapacityRollup.Level.DAY, DAY_MILLIS);
+        }
+        bulkOps.execute();
+    }
+
+    // A time-series collection cannot enforce a unique key, so a flush retried after a partial write
+    // looks up which of its snapshots made it. A warehouse and revision name one snapshot, and only the
+    // instance that recorded the change ever writes it, so nothing inserts the same one concurrently.
+    private List<CapacitySnapshot> withoutStored(List<CapacitySnapshot> snapshots) {
+        Set<String> warehouseIds = new HashSet<>();
+        Instant earliest = Instant.MAX;
+        Instant latest = Instant.MIN;
+        for (CapacitySnapshot snapshot : snapshots) {
+            warehouseIds.add(snapshot.getWarehouseId());
+            earliest = snapshot.getTimestamp().isBefore(earliest) ? snapshot.getTimestamp() : earliest;
+            latest = snapshot.getTimestamp().isAfter(latest) ? snapshot.getTimestamp() : latest;
+        }
+        Query query = Query.query(Criteria.where("warehouseId").in(warehouseIds)
+                .and("timestamp").gte(earliest).lte(latest));
+        query.fields().include("warehouseId", "closeRevision");
+
+        Set<String> stored = new HashSet<>();
+        for (CapacitySnapshot existing : mongoTemplate.find(query, CapacitySnapshot.class)) {
+            stored.add(existing.getWarehouseId() + "|" + existing.getCloseRevision());
+        }
+        return snapshots.stream()
+                .filter(snapshot -> !stored.contains(snapshot.getWarehouseId() + "|" + snapshot.getCloseRevision()))
+                .toList();
+    }
+
+    // Replaying a snapshot leaves the rollup unchanged: min/max are idempotent and the close only
+    // moves to a later warehouse revision, whichever instance's snapshot arrives first
+    private void upsertRollup(BulkOperations bulkOps, CapacitySnapshot snapshot, CapacityRollup.Level level, long bucketMillis) {
+        long timestamp = snapshot.getTimestamp().toEpochMilli();
+        long bucketStart = timestamp - Math.floorMod(timestamp, bucketMillis);
+        String id = snapshot.getWarehouseId() + "|" + level + "|" + bucketStart;
+
+        Date at = Date.from(snapshot.getTimestamp());
+        Document newer = new Document("$gte", List.of(snapshot.getCloseRevision(),
+                new Document("$ifNull", List.of("$closeRevision", Long.MIN_VALUE))));
+        // Stages run in order, so closeRevision is updated last, after the fields that compare against it
+        AggregationUpdate update = AggregationUpdate.update()
+                .set("warehouseId").toValue(snapshot.getWarehouseId())
+                .set("level").toValue(level.name())
+                .set("bucketStart").toValue(Date.from(Instant.ofEpochMilli(bucketStart)))
+                .set("min").toValue(new Document("$min", List.of("$min", snapshot.getMin())))
+                .set("max").toValue(new Document("$max", List.of("$max", snapshot.getMax())))
+                .set("close").toValue(new Document("$cond", List.of(newer, snapshot.getClose(), "$close")))
+                .set("capacity").toValue(new Document("$cond", List.of(newer, snapshot.getCapacity(), "$capacity")))
+                .set("closeAt").toValue(new Document("$cond", List.of(newer, at, "$closeAt")))
+                .set("closeRevision").toValue(new Document("$cond", List.of(newer, snapshot.getCloseRevision(), "$closeRevision")));
+        bulkOps.upsert(Query.query(Criteria.where("_id").is(id)), update);
+    }
+}
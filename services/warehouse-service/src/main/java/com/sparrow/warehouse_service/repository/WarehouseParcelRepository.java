@@ -0,0 +1,12 @@
+package com.sparrow.warehouse_service.repository;
+
+import com.sparrow.warehouse_service.model.WarehouseParcel;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface WarehouseParcelRepository extends MongoRepository<WarehouseParcel, String>, WarehouseParcelRepositoryCustom {
+    List<WarehouseParcel> findByConsolidationId(String consolidationId);
+}
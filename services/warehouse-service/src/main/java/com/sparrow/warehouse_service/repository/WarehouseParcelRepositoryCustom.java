@@ -0,0 +1,23 @@
+package com.sparrow.warehouse_service.repository;
+
+import com.sparrow.warehouse_service.model.ParcelConsolidatedEvent;
+import com.sparrow.warehouse_service.model.ParcelCreatedEvent;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+
+public interface WarehouseParcelRepositoryCustom {
+
+    // Both writes are upserts keyed by parcel id, so replaying a batch leaves the collection unchanged
+    int upsertReceived(Collection<ParcelCreatedEvent> events);
+
+    int markConsolidated(Collection<ParcelConsolidatedEvent> events);
+
+    // parcel id -> warehouse id for those parcels that already have an assignment
+    Map<String, String> findAssignedWarehouses(Collection<String> parcelIds);
+
+    // Stores parcel id -> warehouse id assignments, first writer wins. Returns the parcel ids
+    // that turned out to be assigned already and were left unchanged.
+    Set<String> recordAssignments(Map<String, String> warehouseByParcel);
+}
@@ -0,0 +1,139 @@
+package com.sparrow.warehouse_service.repository;
+
+import com.mongodb.ErrorCategory;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.sparrow.warehouse_service.model.ParcelConsolidatedEvent;
+import com.sparrow.warehouse_service.model.ParcelCreatedEvent;
+import com.sparrow.warehouse_service.model.WarehouseParcel;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.aggregation.ComparisonOperators;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+@RequiredArgsConstructor
+public class WarehouseParcelRepositoryImpl implements WarehouseParcelRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public int upsertReceived(Collection<ParcelCreatedEvent> events) {
+        if (events.isEmpty()) {
+            return 0;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        BulkOperations bulkOps = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, WarehouseParcel.class);
+        for (ParcelCreatedEvent event : events) {
+            // Status is only set on insert so a consolidated event that arrived first is not overwritten
+            Update update = new Update()
+                    .set("trackingNumber", event.getTrackingNumber())
+                    .set("origin", event.getOrigin())
+                    .set("destination", event.getDestination())
+                    .set("weight", event.getWeight())
+                    .set("volume", event.getVolume())
+                    .setOnInsert("status", WarehouseParcel.ParcelStatus.PENDING_ASSIGNMENT)
+                    .setOnInsert("receivedAt", now)
+                    .set("updatedAt", now);
+            bulkOps.upsert(Query.query(Criteria.where("_id").is(event.getParcelId())), update);
+        }
+
+        BulkWriteResult result = bulkOps.execute();
+        return result.getUpserts().size() + result.getMatchedCount();
+    }
+
+    @Override
+    public int markConsolidated(Collection<ParcelConsolidatedEvent> events) {
+        LocalDateTime now = LocalDateTime.now();
+        BulkOperations bulkOps = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, WarehouseParcel.class);
+        int operations = 0;
+        for (ParcelConsolidatedEvent event : events) {
+            if (event.getParcelIds() == null) {
+                continue;
+            }
+            for (String parcelId : event.getParcelIds()) {
+                Update update = new Update()
+                        .set("consolidationId", event.getConsolidationId())
+                        .set("status", WarehouseParcel.ParcelStatus.CONSOLIDATED)
+                        .setOnInsert("receivedAt", now)
+                        .set("updatedAt", now);
+                bulkOps.upsert(Query.query(Criteria.where("_id").is(parcelId)), update);
+                operations++;
+            }
+        }
+
+        if (operations == 0) {
+            return 0;
+        }
+        BulkWriteResult result = bulkOps.execute();
+        return result.getUpserts().size() + result.getMatchedCount();
+    }
+
+    @Override
+    public Map<String, String> findAssignedWarehouses(Collection<String> parcelIds) {
+        Query query = Query.query(Criteria.where("_id").in(parcelIds).and("warehouseId").exists(true));
+        query.fields().include("warehouseId");
+
+        Map<String, String> assigned = new HashMap<>();
+        for (WarehouseParcel parcel : mongoTemplate.find(query, WarehouseParcel.class)) {
+            assigned.put(parcel.getId(), parcel.getWarehouseId());
+        }
+        return assigned;
+    }
+
+    @Override
+    public Set<String> recordAssignments(Map<String, String> warehouseByParcel) {
+        if (warehouseByParcel.isEmpty()) {
+            return Set.of();
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        List<String> parcelIds = new ArrayList<>(warehouseByParcel.keySet());
+        BulkOperations bulkOps = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, WarehouseParcel.class);
+        for (String parcelId : parcelIds) {
+            // A pipeline update so the status can depend on the current one: a parcel that was
+            // consolidated before its assignment landed stays CONSOLIDATED
+            AggregationUpdate update = AggregationUpdate.update()
+                    .set("warehouseId").toValue(warehouseByParcel.get(parcelId))
+                    .set("assignedAt").toValue(now)
+                    .set("updatedAt").toValue(now)
+                    .set("receivedAt").toValue(ConditionalOperators.ifNull("receivedAt").then(now))
+                    .set("status").toValue(ConditionalOperators
+                            .when(ComparisonOperators.valueOf("status").equalToValue(WarehouseParcel.ParcelStatus.CONSOLIDATED.name()))
+                            .thenValueOf("status")
+                            .otherwise(WarehouseParcel.ParcelStatus.ASSIGNED.name()));
+            // An already assigned parcel doesn't match, so the upsert tries to insert its _id again
+            // and fails with a duplicate key error, which marks it as a conflict
+            bulkOps.upsert(Query.query(Criteria.where("_id").is(parcelId).and("warehouseId").exists(false)), update);
+        }
+
+        try {
+            bulkOps.execute();
+            return Set.of();
+        } catch (BulkOperationException e) {
+            Set<String> conflicts = new HashSet<>();
+            for (BulkWriteError error : e.getErrors()) {
+                if (ErrorCategory.fromErrorCode(error.getCode()) != ErrorCategory.DUPLICATE_KEY) {
+                    throw e;
+                }
+                conflicts.add(parcelIds.get(error.getIndex()));
+            }
+            return conflicts;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.sparrow.warehouse_service.repository;
+
+import com.sparrow.warehouse_service.model.Warehouse;
+import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
+import org.springframework.data.mongodb.core.mapping.event.BeforeConvertCallback;
+import org.springframework.stereotype.Component;
+
+// Location keeps latitude/longitude as BigDecimal for the API, which Mongo cannot index
+// geospatially, so every saved warehouse also carries the same point as GeoJSON
+@Component
+public class WarehousePositionCallback implements BeforeConvertCallback<Warehouse> {
+
+    @Override
+    public Warehouse onBeforeConvert(Warehouse warehouse, String collection) {
+        Warehouse.Location location = warehouse.getLocation();
+        if (location == null || location.getLatitude() == null || location.getLongitude() == null) {
+            warehouse.setPosition(null);
+        } else {
+            warehouse.setPosition(new GeoJsonPoint(location.getLongitude().doubleValue(), location.getLatitude().doubleValue()));
+        }
+        return warehouse;
+    }
+}
@@ -0,0 +1,54 @@
+package com.sparrow.warehouse_service.repository;
+
+import com.sparrow.warehouse_service.model.Warehouse;
+import org.springframework.data.geo.GeoResults;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+
+public interface WarehouseRepositoryCustom {
+
+    // Adds amount to the utilization of an ACTIVE warehouse only if it still fits under capacity,
+    // flipping the status to FULL when it reaches capacity. Empty when the warehouse is missing,
+    // not ACTIVE or lacks the space.
+    Optional<Warehouse> reserveCapacity(String warehouseId, BigDecimal amount);
+
+    // As above, and marks parcelIds as held by the warehouse in the same update. Matches nothing if
+    // any of them is held there already, so a parcel's volume is never reserved twice in one warehouse.
+    Optional<Warehouse> reserveCapacity(String warehouseId, BigDecimal amount, Collection<String> parcelIds);
+
+    // Returns amount to the warehouse, never going below zero; a FULL warehouse becomes ACTIVE again
+    Optional<Warehouse> releaseCapacity(String warehouseId, BigDecimal amount);
+
+    // Returns the volume of held parcels and drops their holds in one update. Matches nothing unless
+    // all of them are still held, so a replayed release gives nothing back twice.
+    Optional<Warehouse> releaseHeldCapacity(String warehouseId, BigDecimal amount, Collection<String> parcelIds);
+
+    // Drops holds whose assignments are recorded; the reserved volume stays in use
+    void clearHolds(String warehouseId, Collection<String> parcelIds);
+
+    // parcel id -> warehouse id for those of parcelIds that are currently held
+    Map<String, String> findHeldParcels(Collection<String> parcelIds);
+
+    // Overwrites utilization in place, deriving FULL/ACTIVE from it as the reservations do, and bumps
+    // capacityRevision. Only currentUtilization, status, capacityRevision and updatedAt are written, so
+    // other fields saved concurrently survive; a reserve or release that lands just before it is
+    // overwritten like any other utilization. Returns the document as it was before the update.
+    Optional<Warehouse> setUtilization(String warehouseId, BigDecimal utilization);
+
+    // Sets status and updatedAt only; returns the document as it was before the update
+    Optional<Warehouse> setStatus(String warehouseId, Warehouse.WarehouseStatus status);
+
+    // $geoNear over the 2dsphere index: ACTIVE warehouses with at least required m³ free, nearest first.
+    // maxDistanceKm <= 0 means unbounded.
+    GeoResults<Warehouse> findNearestAvailable(double latitude, double longitude, BigDecimal required,
+                                               int limit, double maxDistanceKm);
+
+    // Fills position for warehouses saved before it existed
+    long backfillPositions();
+
+    // Rewrites capacity/currentUtilization stored as strings (the BigDecimal default) as Decimal128
+    long convertDecimalStrings();
+}
@@ -0,0 +1,199 @@
+package com.sparrow.warehouse_service.repository;
+
+import com.sparrow.warehouse_service.model.Warehouse;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.bson.types.Decimal128;
+import org.springframework.data.geo.Distance;
+import org.springframework.data.geo.GeoResults;
+import org.springframework.data.geo.Metrics;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationExpression;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.aggregation.ArithmeticOperators;
+import org.springframework.data.mongodb.core.aggregation.ComparisonOperators;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
+import org.springframework.data.mongodb.core.aggregation.ConvertOperators;
+import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
+import org.springframework.data.mongodb.core.query.NearQuery;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.core.schema.JsonSchemaObject;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+@RequiredArgsConstructor
+public class WarehouseRepositoryImpl implements WarehouseRepositoryCustom {
+
+    private static final String FULL = Warehouse.WarehouseStatus.FULL.name();
+    private static final String ACTIVE = Warehouse.WarehouseStatus.ACTIVE.name();
+    private static final AggregationExpression NEXT_REVISION =
+            ArithmeticOperators.Add.valueOf(ConditionalOperators.ifNull("capacityRevision").then(0L)).add(1L);
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public Optional<Warehouse> reserveCapacity(String warehouseId, BigDecimal amount) {
+        return reserveCapacity(warehouseId, amount, List.of());
+    }
+
+    @Override
+    public Optional<Warehouse> reserveCapacity(String warehouseId, BigDecimal amount, Collection<String> parcelIds) {
+        AggregationExpression reserved = ArithmeticOperators.Add.valueOf("currentUtilization").add(new Decimal128(amount));
+
+        // The fit check and the increment happen in one findAndModify, so concurrent reservations
+        // are serialised by the server and can never push utilization past capacity
+        Criteria criteria = Criteria.where("_id").is(warehouseId)
+                .and("status").is(ACTIVE)
+                .andOperator(Criteria.expr(ComparisonOperators.valueOf(reserved).lessThanEqualTo("capacity")));
+        // Each set is its own pipeline stage, so status is derived before utilization changes
+        AggregationUpdate update = AggregationUpdate.update()
+                .set("status").toValue(ConditionalOperators
+                        .when(ComparisonOperators.valueOf(reserved).greaterThanEqualTo("capacity"))
+                        .then(FULL)
+                        .otherwiseValueOf("status"))
+                .set("currentUtilization").toValue(reserved)
+                .set("capacityRevision").toValue(NEXT_REVISION)
+                .set("updatedAt").toValue(LocalDateTime.now());
+        if (!parcelIds.isEmpty()) {
+            criteria.and("heldParcels").nin(parcelIds);
+            update.set("heldParcels").toValue(new Document("$concatArrays", List.of(
+                    new Document("$ifNull", List.of("$heldParcels", List.of())), List.copyOf(parcelIds))));
+        }
+
+        return Optional.ofNullable(mongoTemplate.findAndModify(Query.query(criteria), update,
+                FindAndModifyOptions.options().returnNew(true), Warehouse.class));
+    }
+
+    @Override
+    public Optional<Warehouse> releaseCapacity(String warehouseId, BigDecimal amount) {
+        return release(Criteria.where("_id").is(warehouseId), amount, List.of());
+    }
+
+    @Override
+    public Optional<Warehouse> releaseHeldCapacity(String warehouseId, BigDecimal amount, Collection<String> parcelIds) {
+        return release(Criteria.where("_id").is(warehouseId).and("heldParcels").all(parcelIds), amount, parcelIds);
+    }
+
+    private Optional<Warehouse> release(Criteria criteria, BigDecimal amount, Collection<String> parcelIds) {
+        AggregationExpression released = ArithmeticOperators.Subtract.valueOf("currentUtilization").subtract(new Decimal128(amount));
+
+        criteria.and("currentUtilization").gte(new Decimal128(amount));
+        AggregationUpdate update = AggregationUpdate.update()
+                .set("status").toValue(ConditionalOperators
+                        .when(ComparisonOperators.valueOf("status").equalToValue(FULL))
+                        .then(ACTIVE)
+                        .otherwiseValueOf("status"))
+                .set("currentUtilization").toValue(released)
+                .set("capacityRevision").toValue(NEXT_REVISION)
+                .set("updatedAt").toValue(LocalDateTime.now());
+        if (!parcelIds.isEmpty()) {
+            update.set("heldParcels").toValue(new Document("$setDifference", List.of("$heldParcels", List.copyOf(parcelIds))));
+        }
+
+        return Optional.ofNullable(mongoTemplate.findAndModify(Query.query(criteria), update,
+                FindAndModifyOptions.options().returnNew(true), Warehouse.class));
+    }
+
+    @Override
+    public void clearHolds(String warehouseId, Collection<String> parcelIds) {
+        if (!parcelIds.isEmpty()) {
+            mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(warehouseId)),
+                    new Update().pullAll("heldParcels", parcelIds.toArray()), Warehouse.class);
+        }
+    }
+
+    @Override
+    public Map<String, String> findHeldParcels(Collection<String> parcelIds) {
+        Query query = Query.query(Criteria.where("heldParcels").in(parcelIds));
+        query.fields().include("heldParcels");
+
+        Set<String> wanted = Set.copyOf(parcelIds);
+        Map<String, String> held = new HashMap<>();
+        for (Warehouse warehouse : mongoTemplate.find(query, Warehouse.class)) {
+            warehouse.getHeldParcels().stream()
+                    .filter(wanted::contains)
+                    .forEach(parcelId -> held.put(parcelId, warehouse.getId()));
+        }
+        return held;
+    }
+
+    @Override
+    public Optional<Warehouse> setUtilization(String warehouseId, BigDecimal utilization) {
+        Decimal128 value = new Decimal128(utilization);
+        AggregationUpdate update = AggregationUpdate.update()
+                .set("status").toValue(ConditionalOperators
+                        .when(ComparisonOperators.valueOf("capacity").lessThanEqualToValue(value))
+                        .then(FULL)
+                        .otherwise(ConditionalOperators
+                                .when(ComparisonOperators.valueOf("status").equalToValue(FULL))
+                                .then(ACTIVE)
+                                .otherwiseValueOf("status")))
+                .set("currentUtilization").toValue(value)
+                .set("capacityRevision").toValue(NEXT_REVISION)
+                .set("updatedAt").toValue(LocalDateTime.now());
+
+        return Optional.ofNullable(mongoTemplate.findAndModify(Query.query(Criteria.where("_id").is(warehouseId)),
+                update, Warehouse.class));
+    }
+
+    @Override
+    public Optional<Warehouse> setStatus(String warehouseId, Warehouse.WarehouseStatus status) {
+        Update update = new Update()
+                .set("status", status)
+                .set("updatedAt", LocalDateTime.now());
+
+        return Optional.ofNullable(mongoTemplate.findAndModify(Query.query(Criteria.where("_id").is(warehouseId)),
+                update, Warehouse.class));
+    }
+
+    @Override
+    public GeoResults<Warehouse> findNearestAvailable(double latitude, double longitude, BigDecimal required,
+                                                      int limit, double maxDistanceKm) {
+        AggregationExpression free = ArithmeticOperators.Subtract.valueOf("capacity").subtract("currentUtilization");
+        Query filter = Query.query(Criteria.where("status").is(ACTIVE)
+                .andOperator(Criteria.expr(ComparisonOperators.valueOf(free).greaterThanEqualToValue(new Decimal128(required)))));
+
+        NearQuery near = NearQuery.near(new GeoJsonPoint(longitude, latitude), Metrics.KILOMETERS)
+                .spherical(true)
+                .query(filter)
+                .limit(limit);
+        if (maxDistanceKm > 0) {
+            near.maxDistance(new Distance(maxDistanceKm, Metrics.KILOMETERS));
+        }
+        return mongoTemplate.geoNear(near, Warehouse.class);
+    }
+
+    @Override
+    public long backfillPositions() {
+        Query query = Query.query(Criteria.where("position").exists(false)
+                .and("location.latitude").exists(true)
+                .and("location.longitude").exists(true));
+        AggregationUpdate update = AggregationUpdate.update()
+                .set("position").toValue(new Document("type", "Point").append("coordinates", List.of(
+                        new Document("$toDouble", "$location.longitude"),
+                        new Document("$toDouble", "$location.latitude"))));
+        return mongoTemplate.updateMulti(query, update, Warehouse.class).getModifiedCount();
+    }
+
+    @Override
+    public long convertDecimalStrings() {
+        long converted = 0;
+        for (String field : new String[]{"capacity", "currentUtilization"}) {
+            Query query = Query.query(Criteria.where(field).type(JsonSchemaObject.Type.stringType()));
+            AggregationUpdate update = AggregationUpdate.update()
+                    .set(field).toValue(ConvertOperators.ToDecimal.toDecimal("$" + field));
+            converted += mongoTemplate.updateMulti(query, update, Warehouse.class).getModifiedCount();
+        }
+        return converted;
+    }
+}
@@ -0,0 +1,96 @@
+package com.sparrow.warehouse_service.service;
+
+import com.sparrow.warehouse_service.model.CapacitySnapshot;
+import com.sparrow.warehouse_service.model.Warehouse;
+import com.sparrow.warehouse_service.repository.CapacitySnapshotRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Collects every utilization change made through this instance into per-warehouse rings of minute
+// snapshots and periodically writes the completed minutes to the capacity history in one batch.
+// Each instance records only its own writes, each with the levels before and after it and the
+// revision taken from the atomic update itself, so when several replicas change a warehouse in the
+// same minute their snapshots merge into one minute with the close of the latest revision.
+@Slf4j
+@Component
+public class CapacityHistoryRecorder {
+
+    private final CapacitySnapshotRepository snapshotRepository;
+    private final Map<String, SnapshotRing> rings = new ConcurrentHashMap<>();
+
+    @Value("${warehouse.capacity-history.ring-minutes:60}")
+    private int ringMinutes;
+
+    public CapacityHistoryRecorder(CapacitySnapshotRepository snapshotRepository, MeterRegistry meterRegistry) {
+        this.snapshotRepository = snapshotRepository;
+        FunctionCounter.builder("warehouse.capacity.history.dropped", rings,
+                        all -> all.values().stream().mapToLong(SnapshotRing::dropped).sum())
+                .description("Minute snapshots overwritten before they could be flushed")
+                .register(meterRegistry);
+    }
+
+    // warehouse is the document as the update left it, previous its utilization just before
+    public void record(Warehouse warehouse, BigDecimal previous) {
+        if (warehouse.getId() == null || warehouse.getCapacity() == null) {
+            return;
+        }
+        BigDecimal utilization = warehouse.getCurrentUtilization() == null ? BigDecimal.ZERO : warehouse.getCurrentUtilization();
+        BigDecimal before = previous == null ? utilization : previous;
+        long revision = warehouse.getCapacityRevision() == null ? 0 : warehouse.getCapacityRevision();
+        rings.computeIfAbsent(warehouse.getId(), id -> new SnapshotRing(ringMinutes))
+                .record(currentMinute(), warehouse.getCapacity().doubleValue(), before.doubleValue(),
+                        utilization.doubleValue(), revision);
+    }
+
+    // Minutes are only flushed once they are over, so a snapshot is written exactly once per minute
+    @Scheduled(fixedDelayString = "${warehouse.capacity-history.flush-interval-ms:15000}")
+    public void flush() {
+        flushBefore(currentMinute());
+    }
+
+    // Writes out the minute in progress as well, so a clean shutdown loses nothing
+    @PreDestroy
+    public void flushAll() {
+        flushBefore(Long.MAX_VALUE);
+    }
+
+    private synchronized void flushBefore(long minute) {
+        Map<SnapshotRing, Long> flushed = new HashMap<>();
+        List<CapacitySnapshot> batch = new ArrayList<>();
+        rings.forEach((warehouseId, ring) -> {
+            SnapshotRing.Pending pending = ring.pending(warehouseId, minute);
+            if (!pending.snapshots().isEmpty()) {
+                batch.addAll(pending.snapshots());
+                flushed.put(ring, pending.upToSequence());
+            }
+        });
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        try {
+            snapshotRepository.store(batch);
+            flushed.forEach(SnapshotRing::commit);
+        } catch (RuntimeException e) {
+            // Left in the rings and retried on the next flush; store skips snapshots it already wrote
+            log.warn("Failed to store {} capacity snapshots", batch.size(), e);
+        }
+    }
+
+    private static long currentMinute() {
+        return Instant.now().getEpochSecond() / 60;
+    }
+}
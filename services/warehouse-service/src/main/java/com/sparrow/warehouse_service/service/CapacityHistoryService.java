@@ -0,0 +1,263 @@
+package com.sparrow.warehouse_service.service;
+
+import com.sparrow.warehouse_service.dto.CapacityCurve;
+import com.sparrow.warehouse_service.dto.CapacityForecast;
+import com.sparrow.warehouse_service.model.CapacityRollup;
+import com.sparrow.warehouse_service.model.CapacitySnapshot;
+import com.sparrow.warehouse_service.model.Warehouse;
+import com.sparrow.warehouse_service.repository.WarehouseRepository;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+import org.springframework.data.mongodb.core.aggregation.ArithmeticOperators;
+import org.springframework.data.mongodb.core.aggregation.ConvertOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+// Downsampled utilization curves and time-to-full forecasts from the capacity history.
+// Each query reads the coarsest store that can produce the requested bucket: the daily or hourly
+// rollups for buckets that are whole days or hours, the minute time series only for finer ones.
+// Buckets are aligned to the epoch (UTC), and widened so a curve never exceeds the point limit.
+@Service
+@RequiredArgsConstructor
+public class CapacityHistoryService {
+
+    public static final int MAX_POINTS = 2000;
+    public static final int MAX_FLEET_POINTS = 100;
+    private static final Duration MAX_RANGE = Duration.ofDays(400);
+
+    private static final List<Duration> BUCKETS = List.of(Duration.ofMinutes(1), Duration.ofMinutes(5),
+            Duration.ofMinutes(15), Duration.ofMinutes(30), Duration.ofHours(1), Duration.ofHours(3),
+            Duration.ofHours(6), Duration.ofHours(12), Duration.ofDays(1), Duration.ofDays(7), Duration.ofDays(30));
+    // Fleet-wide curves stick to buckets that map one-to-one or one-to-few onto rollup documents,
+    // which keeps a 90-day query for every warehouse to about one document per warehouse per day
+    private static final List<Duration> FLEET_BUCKETS = List.of(Duration.ofHours(1), Duration.ofDays(1),
+            Duration.ofDays(7), Duration.ofDays(30));
+
+    private final MongoTemplate mongoTemplate;
+    private final WarehouseCapacityIndex capacityIndex;
+    private final WarehouseRepository warehouseRepository;
+
+    @Value("${warehouse.capacity-history.forecast-window:P7D}")
+    private Duration forecastWindow;
+
+    public CapacityCurve curve(String warehouseId, Instant from, Instant to, Duration bucket, int points) {
+        findWarehouse(warehouseId);
+        List<CapacityCurve> curves = curves(warehouseId, from, to, bucket, points, MAX_POINTS, BUCKETS);
+        Duration chosen = chooseBucket(from, to, bucket, points, BUCKETS);
+        return curves.isEmpty() ? new CapacityCurve(warehouseId, chosen, List.of()) : curves.get(0);
+    }
+
+    public List<CapacityCurve> fleetCurves(Instant from, Instant to, Duration bucket, int points) {
+        return curves(null, from, to, bucket, points, MAX_FLEET_POINTS, FLEET_BUCKETS);
+    }
+
+    private List<CapacityCurve> curves(String warehouseId, Instant from, Instant to, Duration bucket, int points,
+                                       int maxPoints, List<Duration> buckets) {
+        if (!from.isBefore(to) || Duration.between(from, to).compareTo(MAX_RANGE) > 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "from must be before to, at most " + MAX_RANGE.toDays() + " days apart");
+        }
+        if (points < 1 || points > maxPoints) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "points must be between 1 and " + maxPoints);
+        }
+        Duration chosen = chooseBucket(from, to, bucket, points, buckets);
+
+        String collection;
+        String timeField;
+        Criteria criteria;
+        if (chosen.toMillis() % Duration.ofDays(1).toMillis() == 0) {
+            collection = mongoTemplate.getCollectionName(CapacityRollup.class);
+            timeField = "bucketStart";
+            criteria = Criteria.where("level").is(CapacityRollup.Level.DAY.name());
+        } else if (chosen.toMillis() % Duration.ofHours(1).toMillis() == 0) {
+            collection = mongoTemplate.getCollectionName(CapacityRollup.class);
+            timeField = "bucketStart";
+            criteria = Criteria.where("level").is(CapacityRollup.Level.HOUR.name());
+        } else {
+            collection = mongoTemplate.getCollectionName(CapacitySnapshot.class);
+            timeField = "timestamp";
+            criteria = new Criteria();
+        }
+        if (warehouseId != null) {
+            criteria = criteria.and("warehouseId").is(warehouseId);
+        }
+        Map<String, CapacityCurve.Point> carried = carriedIn(collection, criteria, timeField, from);
+        criteria = criteria.and(timeField).gte(Date.from(from)).lt(Date.from(to));
+
+        long bucketMillis = chosen.toMillis();
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(criteria),
+                // Sorted so $last picks the latest close in each bucket; several instances can store
+                // a snapshot for the same minute, and the one with the later revision has the close
+                Aggregation.sort(Sort.by("warehouseId", timeField, "closeRevision")),
+                Aggregation.project("warehouseId", "capacity", "min", "max", "close")
+                        .and(ArithmeticOperators.Subtract.valueOf(ConvertOperators.ToLong.toLong("$" + timeField))
+                                .subtract(ArithmeticOperators.Mod.valueOf(ConvertOperators.ToLong.toLong("$" + timeField))
+                                        .mod(bucketMillis))).as("bucket"),
+                Aggregation.group("warehouseId", "bucket")
+                        .min("min").as("min")
+                        .max("max").as("max")
+                        .last("close").as("close")
+                        .last("capacity").as("capacity"),
+                Aggregation.project("warehouseId", "bucket", "min", "max", "close", "capacity").andExclude("_id"),
+                Aggregation.sort(Sort.by("warehouseId", "bucket"))
+        ).withOptions(AggregationOptions.builder().allowDiskUse(true).build());
+
+        Map<String, List<CapacityCurve.Point>> byWarehouse = new LinkedHashMap<>();
+        for (Document row : mongoTemplate.aggregate(aggregation, collection, Document.class)) {
+            byWarehouse.computeIfAbsent(row.getString("warehouseId"), id -> new ArrayList<>()).add(new CapacityCurve.Point(
+                    Instant.ofEpochMilli(((Number) row.get("bucket")).longValue()),
+                    ((Number) row.get("capacity")).doubleValue(),
+                    ((Number) row.get("min")).doubleValue(),
+                    ((Number) row.get("max")).doubleValue(),
+                    ((Number) row.get("close")).doubleValue()));
+        }
+
+        Instant start = Instant.ofEpochMilli(from.toEpochMilli() - Math.floorMod(from.toEpochMilli(), bucketMillis));
+        Set<String> warehouseIds = new TreeSet<>(byWarehouse.keySet());
+        warehouseIds.addAll(carried.keySet());
+        List<CapacityCurve> curves = new ArrayList<>(warehouseIds.size());
+        for (String id : warehouseIds) {
+            curves.add(new CapacityCurve(id, chosen,
+                    fillGaps(byWarehouse.getOrDefault(id, List.of()), chosen, start, to, carried.get(id))));
+        }
+        return curves;
+    }
+
+    // The last close before from, per warehouse, read from the same store as the curve. Sorting both
+    // keys descending lets the rollups' level/warehouse/bucket index hand each group its newest document
+    // without a scan; only minute snapshots can share a timestamp and need the revision to break ties.
+    private Map<String, CapacityCurve.Point> carriedIn(String collection, Criteria criteria, String timeField, Instant from) {
+        Sort newestFirst = Sort.by(Sort.Direction.DESC, "warehouseId", timeField);
+        if (collection.equals(mongoTemplate.getCollectionName(CapacitySnapshot.class))) {
+            newestFirst = newestFirst.and(Sort.by(Sort.Direction.DESC, "closeRevision"));
+        }
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where(timeField).lt(Date.from(from)).andOperator(criteria)),
+                Aggregation.sort(newestFirst),
+                Aggregation.group("warehouseId")
+                        .first("close").as("close")
+                        .first("capacity").as("capacity")
+        ).withOptions(AggregationOptions.builder().allowDiskUse(true).build());
+
+        Map<String, CapacityCurve.Point> carried = new HashMap<>();
+        for (Document row : mongoTemplate.aggregate(aggregation, collection, Document.class)) {
+            double close = ((Number) row.get("close")).doubleValue();
+            carried.put(row.getString("_id"), new CapacityCurve.Point(from,
+                    ((Number) row.get("capacity")).doubleValue(), close, close, close));
+        }
+        return carried;
+    }
+
+    // Buckets without a snapshot had no change, so they carry the previous close forward, starting
+    // with the level carried in from before the range when there is one
+    static List<CapacityCurve.Point> fillGaps(List<CapacityCurve.Point> rows, Duration bucket, Instant start, Instant to,
+                                              CapacityCurve.Point carried) {
+        List<CapacityCurve.Point> points = new ArrayList<>();
+        CapacityCurve.Point previous = carried == null ? null : flat(start.minus(bucket), carried);
+        for (CapacityCurve.Point row : rows) {
+            if (previous != null) {
+                for (Instant t = previous.getTimestamp().plus(bucket); t.isBefore(row.getTimestamp()); t = t.plus(bucket)) {
+                    points.add(flat(t, previous));
+                }
+            }
+            points.add(row);
+            previous = row;
+        }
+        if (previous != null) {
+            for (Instant t = previous.getTimestamp().plus(bucket); t.isBefore(to); t = t.plus(bucket)) {
+                points.add(flat(t, previous));
+            }
+        }
+        return points;
+    }
+
+    private static CapacityCurve.Point flat(Instant timestamp, CapacityCurve.Point previous) {
+        return new CapacityCurve.Point(timestamp, previous.getCapacity(), previous.getClose(), previous.getClose(), previous.getClose());
+    }
+
+    static Duration chooseBucket(Instant from, Instant to, Duration requested, int points, List<Duration> buckets) {
+        long minimum = Math.max(Duration.between(from, to).toMillis() / points, requested == null ? 0 : requested.toMillis());
+        for (Duration bucket : buckets) {
+            if (bucket.toMillis() >= minimum) {
+                return bucket;
+            }
+        }
+        return buckets.get(buckets.size() - 1);
+    }
+
+    // Straight-line fit of the hourly closes over the forecast window plus the current utilization
+    public CapacityForecast forecast(String warehouseId) {
+        Warehouse warehouse = findWarehouse(warehouseId);
+        Instant now = Instant.now();
+        double capacity = warehouse.getCapacity().doubleValue();
+        double current = warehouse.getCurrentUtilization() == null ? 0 : warehouse.getCurrentUtilization().doubleValue();
+
+        Query query = Query.query(Criteria.where("level").is(CapacityRollup.Level.HOUR)
+                        .and("warehouseId").is(warehouseId)
+                        .and("bucketStart").gte(now.minus(forecastWindow)))
+                .with(Sort.by("bucketStart"));
+        query.fields().include("close", "closeAt");
+
+        List<double[]> samples = new ArrayList<>();
+        for (CapacityRollup rollup : mongoTemplate.find(query, CapacityRollup.class)) {
+            samples.add(new double[]{hoursSince(rollup.getCloseAt(), now), rollup.getClose()});
+        }
+        samples.add(new double[]{0, current});
+
+        double trend = slope(samples);
+        Instant fullAt = null;
+        if (current >= capacity) {
+            fullAt = now;
+        } else if (trend > 0) {
+            fullAt = now.plusSeconds((long) ((capacity - current) / trend * 3600));
+        }
+        return new CapacityForecast(warehouseId, capacity, current, trend, fullAt, samples.size());
+    }
+
+    private Warehouse findWarehouse(String warehouseId) {
+        return capacityIndex.get(warehouseId)
+                .or(() -> warehouseRepository.findById(warehouseId))
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Warehouse not found with id: " + warehouseId));
+    }
+
+    private static double hoursSince(Instant at, Instant now) {
+        return -Duration.between(at, now).toMillis() / 3_600_000.0;
+    }
+
+    // Least-squares slope of y over x; zero with fewer than two distinct x values
+    static double slope(List<double[]> samples) {
+        int n = samples.size();
+        double meanX = 0;
+        double meanY = 0;
+        for (double[] sample : samples) {
+            meanX += sample[0] / n;
+            meanY += sample[1] / n;
+        }
+        double covariance = 0;
+        double variance = 0;
+        for (double[] sample : samples) {
+            covariance += (sample[0] - meanX) * (sample[1] - meanY);
+            variance += (sample[0] - meanX) * (sample[0] - meanX);
+        }
+        return variance == 0 ? 0 : covariance / variance;
+    }
+}
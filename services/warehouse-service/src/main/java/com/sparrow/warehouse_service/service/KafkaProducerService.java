@@ -0,0 +1,37 @@
+package com.sparrow.warehouse_service.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class KafkaProducerService {
+
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final MeterRegistry meterRegistry;
+
+    // Records send-to-ack latency per topic and outcome, and logs failures instead of dropping them silently
+    public CompletableFuture<SendResult<String, Object>> send(String topic, String key, Object event) {
+        long start = System.nanoTime();
+        return kafkaTemplate.send(topic, key, event).whenComplete((result, ex) -> {
+            Timer.builder("kafka.producer.send")
+                    .description("Time from send to broker acknowledgement")
+                    .tag("topic", topic)
+                    .tag("outcome", ex == null ? "success" : "failure")
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            if (ex != null) {
+                log.error("Failed to send event with key {} to {}: {}", key, topic, ex.getMessage());
+            }
+        });
+    }
+}
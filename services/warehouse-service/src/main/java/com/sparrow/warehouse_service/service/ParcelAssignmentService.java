@@ -0,0 +1,278 @@
+package com.sparrow.warehouse_service.service;
+
+import com.sparrow.warehouse_service.dto.NearbyWarehouse;
+import com.sparrow.warehouse_service.geo.LatLng;
+import com.sparrow.warehouse_service.model.ParcelCreatedEvent;
+import com.sparrow.warehouse_service.model.ParcelWarehouseAssignmentEvent;
+import com.sparrow.warehouse_service.model.Warehouse;
+import com.sparrow.warehouse_service.repository.WarehouseParcelRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+// Assigns newly created parcels to the nearest active warehouse that accepts their type and has room.
+// A batch is planned in memory against the capacity index, then each chosen warehouse gets a single
+// conditional reservation for the combined volume of its parcels, so the Mongo round trips per batch
+// grow with the number of warehouses involved rather than the number of parcels. Capacity is only
+// ever taken through those reservations, so a stale index can cost a retry but never an overbooking.
+// A reservation also holds its parcel ids in the warehouse until the assignments are recorded, so a
+// batch replayed after a crash in between picks up the earlier reservation rather than taking another.
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ParcelAssignmentService {
+
+    private static final String TOPIC = "parcel-warehouse-assignment";
+
+    private final WarehouseCapacityIndex capacityIndex;
+    private final WarehouseService warehouseService;
+    private final WarehouseParcelRepository warehouseParcelRepository;
+    private final KafkaProducerService kafkaProducerService;
+    private final MeterRegistry meterRegistry;
+
+    // How many of the nearest fitting warehouses to try when a parcel's first choice fills up
+    @Value("${warehouse.assignment.candidates:8}")
+    private int candidates;
+
+    @Value("${warehouse.assignment.max-distance-km:0}")
+    private double maxDistanceKm;
+
+    private record Planned(ParcelCreatedEvent parcel, LatLng origin, BigDecimal volume, String warehouseId,
+                           Double distanceKm) {
+    }
+
+    // Blocks until every assignment of the batch is acknowledged by Kafka, so the caller only commits
+    // offsets for published work. Replaying a batch republishes existing assignments and records held
+    // ones without reserving again.
+    public int assign(List<ParcelCreatedEvent> events) {
+        Map<String, ParcelCreatedEvent> parcels = new LinkedHashMap<>();
+        for (ParcelCreatedEvent event : events) {
+            if (event.getParcelId() != null) {
+                parcels.put(event.getParcelId(), event);
+            }
+        }
+        if (parcels.isEmpty()) {
+            return 0;
+        }
+
+        List<ParcelWarehouseAssignmentEvent> results = new ArrayList<>(parcels.size());
+        Map<String, String> existing = warehouseParcelRepository.findAssignedWarehouses(parcels.keySet());
+        existing.forEach((parcelId, warehouseId) -> results.add(replayed(parcels.get(parcelId), warehouseId)));
+
+        List<Planned> resumed = resumeHeld(parcels, existing);
+        Set<String> skip = new HashSet<>(existing.keySet());
+        resumed.forEach(planned -> skip.add(planned.parcel().getParcelId()));
+
+        Map<String, List<Planned>> byWarehouse = plan(parcels, skip, results);
+        List<Planned> reserved = reserve(byWarehouse, results);
+        reserved.addAll(resumed);
+        results.addAll(record(reserved));
+
+        publish(results);
+        return results.size();
+    }
+
+    // Parcels still held from a run that stopped before recording them: those not assigned since keep
+    // that reservation, the others are settled against the assignment that was recorded
+    private List<Planned> resumeHeld(Map<String, ParcelCreatedEvent> parcels, Map<String, String> existing) {
+        List<Planned> resumed = new ArrayList<>();
+        warehouseService.findHeldParcels(parcels.keySet()).forEach((parcelId, warehouseId) -> {
+            ParcelCreatedEvent parcel = parcels.get(parcelId);
+            if (existing.containsKey(parcelId)) {
+                settleHold(parcelId, warehouseId, existing.get(parcelId), volumeOf(parcel));
+            } else {
+                resumed.add(new Planned(parcel, null, volumeOf(parcel), warehouseId, null));
+            }
+        });
+        return resumed;
+    }
+
+    // Picks a warehouse for each parcel, tracking the volume already planned into each warehouse
+    // so one batch doesn't plan more into a site than its indexed free space
+    private Map<String, List<Planned>> plan(Map<String, ParcelCreatedEvent> parcels, Set<String> skip,
+                                            List<ParcelWarehouseAssignmentEvent> results) {
+        Map<String, Double> planned = new HashMap<>();
+        Map<String, List<Planned>> byWarehouse = new LinkedHashMap<>();
+
+        for (ParcelCreatedEvent parcel : parcels.values()) {
+            if (skip.contains(parcel.getParcelId())) {
+                continue;
+            }
+            LatLng origin = capacityIndex.cityCentre(parcel.getOrigin()).orElse(null);
+            if (origin == null) {
+                results.add(unassigned(parcel, "No located warehouse in origin city " + parcel.getOrigin()));
+                continue;
+            }
+
+            BigDecimal volume = volumeOf(parcel);
+            double needed = volume.doubleValue();
+            List<NearbyWarehouse> nearest = capacityIndex.findNearest(origin.latitude(), origin.longitude(), 1,
+                    maxDistanceKm, warehouse -> fits(warehouse, parcel.getParcelType(),
+                            needed + planned.getOrDefault(warehouse.getId(), 0.0)));
+            if (nearest.isEmpty()) {
+                results.add(unassigned(parcel, "No warehouse with enough capacity"));
+                continue;
+            }
+
+            NearbyWarehouse choice = nearest.get(0);
+            String warehouseId = choice.getWarehouse().getId();
+            planned.merge(warehouseId, needed, Double::sum);
+            byWarehouse.computeIfAbsent(warehouseId, id -> new ArrayList<>())
+                    .add(new Planned(parcel, origin, volume, warehouseId, choice.getDistanceKm()));
+        }
+        return byWarehouse;
+    }
+
+    private List<Planned> reserve(Map<String, List<Planned>> byWarehouse, List<ParcelWarehouseAssignmentEvent> results) {
+        List<Planned> reserved = new ArrayList<>();
+        for (Map.Entry<String, List<Planned>> group : byWarehouse.entrySet()) {
+            BigDecimal total = group.getValue().stream().map(Planned::volume).reduce(BigDecimal.ZERO, BigDecimal::add);
+            List<String> parcelIds = group.getValue().stream().map(planned -> planned.parcel().getParcelId()).toList();
+            if (total.signum() == 0 || warehouseService.tryReserveCapacity(group.getKey(), total, parcelIds).isPresent()) {
+                reserved.addAll(group.getValue());
+                continue;
+            }
+            // Another assignment got there first; the failed reservation refreshed the index entry,
+            // so place these parcels one at a time against the current figures
+            for (Planned planned : group.getValue()) {
+                Planned placed = reserveSingly(planned);
+                if (placed != null) {
+                    reserved.add(placed);
+                } else {
+                    results.add(unassigned(planned.parcel(), "No warehouse with enough capacity"));
+                }
+            }
+        }
+        return reserved;
+    }
+
+    private Planned reserveSingly(Planned planned) {
+        double needed = planned.volume().doubleValue();
+        List<NearbyWarehouse> nearest = capacityIndex.findNearest(planned.origin().latitude(), planned.origin().longitude(),
+                candidates, maxDistanceKm, warehouse -> fits(warehouse, planned.parcel().getParcelType(), needed));
+        for (NearbyWarehouse candidate : nearest) {
+            String warehouseId = candidate.getWarehouse().getId();
+            if (warehouseService.tryReserveCapacity(warehouseId, planned.volume(),
+                    List.of(planned.parcel().getParcelId())).isPresent()) {
+                return new Planned(planned.parcel(), planned.origin(), planned.volume(), warehouseId,
+                        candidate.getDistanceKm());
+            }
+        }
+        return null;
+    }
+
+    // A parcel assigned concurrently elsewhere keeps that assignment and our reservation is returned
+    private List<ParcelWarehouseAssignmentEvent> record(List<Planned> reserved) {
+        Map<String, String> warehouseByParcel = new LinkedHashMap<>();
+        reserved.forEach(planned -> warehouseByParcel.put(planned.parcel().getParcelId(), planned.warehouseId()));
+        Set<String> conflicts = warehouseParcelRepository.recordAssignments(warehouseByParcel);
+
+        List<ParcelWarehouseAssignmentEvent> results = new ArrayList<>(reserved.size());
+        Map<String, List<String>> recorded = new LinkedHashMap<>();
+        Map<String, String> winners = conflicts.isEmpty() ? Map.of() : warehouseParcelRepository.findAssignedWarehouses(conflicts);
+        for (Planned planned : reserved) {
+            String parcelId = planned.parcel().getParcelId();
+            if (!conflicts.contains(parcelId)) {
+                recorded.computeIfAbsent(planned.warehouseId(), id -> new ArrayList<>()).add(parcelId);
+                results.add(assigned(planned));
+                continue;
+            }
+            settleHold(parcelId, planned.warehouseId(), winners.get(parcelId), planned.volume());
+            results.add(replayed(planned.parcel(), winners.get(parcelId)));
+        }
+        // A crash before this only leaves holds that the next replay of the batch clears
+        recorded.forEach(warehouseService::clearHolds);
+        return results;
+    }
+
+    // A hold in the warehouse the parcel ended up in is the reservation behind that assignment; one
+    // anywhere else was never used and its volume goes back. Both are no-ops if already settled.
+    private void settleHold(String parcelId, String heldIn, String assignedTo, BigDecimal volume) {
+        if (heldIn.equals(assignedTo) || volume.signum() == 0) {
+            warehouseService.clearHolds(heldIn, List.of(parcelId));
+        } else {
+            warehouseService.releaseHeldCapacity(heldIn, volume, List.of(parcelId));
+        }
+    }
+
+    private void publish(List<ParcelWarehouseAssignmentEvent> results) {
+        CompletableFuture<?>[] sends = new CompletableFuture<?>[results.size()];
+        for (int i = 0; i < results.size(); i++) {
+            ParcelWarehouseAssignmentEvent event = results.get(i);
+            sends[i] = kafkaProducerService.send(TOPIC, event.getParcelId(), event);
+            meterRegistry.counter("warehouse.assignment.parcels", "status", event.getStatus()).increment();
+        }
+        CompletableFuture.allOf(sends).join();
+    }
+
+    private static boolean fits(Warehouse warehouse, String parcelType, double needed) {
+        return warehouse.getStatus() == Warehouse.WarehouseStatus.ACTIVE
+                && WarehouseCapacityIndex.freeCapacity(warehouse) >= needed
+                && supports(warehouse, parcelType);
+    }
+
+    // Warehouses that list no parcel types take any parcel, as do parcels without a type
+    private static boolean supports(Warehouse warehouse, String parcelType) {
+        List<String> supported = warehouse.getSupportedParcelTypes();
+        if (parcelType == null || supported == null || supported.isEmpty()) {
+            return true;
+        }
+        return supported.stream().anyMatch(parcelType::equalsIgnoreCase);
+    }
+
+    // Parcel events carry length × width × height in cm³; warehouse capacity is in m³. Parcels without
+    // a volume reserve nothing.
+    private static BigDecimal volumeOf(ParcelCreatedEvent parcel) {
+        Double volume = parcel.getVolume();
+        return volume == null || volume <= 0 ? BigDecimal.ZERO
+                : BigDecimal.valueOf(volume).movePointLeft(6).stripTrailingZeros();
+    }
+
+    private ParcelWarehouseAssignmentEvent assigned(Planned planned) {
+        ParcelWarehouseAssignmentEvent event = newEvent(planned.parcel(), ParcelWarehouseAssignmentEvent.Status.ASSIGNED);
+        event.setWarehouseId(planned.warehouseId());
+        capacityIndex.get(planned.warehouseId()).ifPresent(warehouse -> event.setWarehouseCode(warehouse.getWarehouseCode()));
+        event.setDistanceKm(planned.distanceKm());
+        event.setReservedVolume(planned.volume());
+        return event;
+    }
+
+    private ParcelWarehouseAssignmentEvent replayed(ParcelCreatedEvent parcel, String warehouseId) {
+        ParcelWarehouseAssignmentEvent event = newEvent(parcel, ParcelWarehouseAssignmentEvent.Status.ASSIGNED);
+        event.setWarehouseId(warehouseId);
+        capacityIndex.get(warehouseId).ifPresent(warehouse -> event.setWarehouseCode(warehouse.getWarehouseCode()));
+        event.setReservedVolume(volumeOf(parcel));
+        return event;
+    }
+
+    private ParcelWarehouseAssignmentEvent unassigned(ParcelCreatedEvent parcel, String reason) {
+        log.debug("Parcel {} not assigned: {}", parcel.getParcelId(), reason);
+        ParcelWarehouseAssignmentEvent event = newEvent(parcel, ParcelWarehouseAssignmentEvent.Status.UNASSIGNED);
+        event.setReason(reason);
+        return event;
+    }
+
+    private ParcelWarehouseAssignmentEvent newEvent(ParcelCreatedEvent parcel, ParcelWarehouseAssignmentEvent.Status status) {
+        ParcelWarehouseAssignmentEvent event = new ParcelWarehouseAssignmentEvent();
+        event.setEventId(UUID.randomUUID().toString());
+        event.setParcelId(parcel.getParcelId());
+        event.setTrackingNumber(parcel.getTrackingNumber());
+        event.setStatus(status.name());
+        event.setAssignedAt(LocalDateTime.now());
+        return event;
+    }
+}
@@ -0,0 +1,33 @@
+package com.sparrow.warehouse_service.service;
+
+import com.sparrow.warehouse_service.model.ParcelConsolidatedEvent;
+import com.sparrow.warehouse_service.model.ParcelCreatedEvent;
+import com.sparrow.warehouse_service.repository.WarehouseParcelRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Service
+@RequiredArgsConstructor
+public class ParcelIntakeService {
+
+    private final WarehouseParcelRepository warehouseParcelRepository;
+
+    public int recordReceived(List<ParcelCreatedEvent> events) {
+        // Redeliveries of the same parcel within a batch collapse to the latest event
+        Map<String, ParcelCreatedEvent> latestByParcel = new LinkedHashMap<>();
+        for (ParcelCreatedEvent event : events) {
+            if (event.getParcelId() != null) {
+                latestByParcel.put(event.getParcelId(), event);
+            }
+        }
+        return warehouseParcelRepository.upsertReceived(latestByParcel.values());
+    }
+
+    public int recordConsolidated(List<ParcelConsolidatedEvent> events) {
+        return warehouseParcelRepository.markConsolidated(events);
+    }
+}
@@ -0,0 +1,97 @@
+package com.sparrow.warehouse_service.service;
+
+import com.sparrow.warehouse_service.model.CapacitySnapshot;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+// Fixed-size ring of one warehouse's unflushed minute snapshots. Writes fold into the newest slot
+// while they fall in the same minute, so a busy warehouse costs one slot per minute however many
+// reservations it takes. If Mongo is unreachable for longer than the ring covers, the oldest
+// minutes are overwritten rather than letting memory grow.
+// Each change brings the level before and after it, and the close is the change with the highest
+// warehouse revision, so the ring never depends on what it saw earlier and snapshots of the same
+// minute from several instances merge to the same figures in any order.
+final class SnapshotRing {
+
+    private final long[] minute;
+    private final long[] sequence;
+    private final double[] capacity;
+    private final double[] min;
+    private final double[] max;
+    private final double[] close;
+    private final long[] closeRevision;
+
+    private int oldest;
+    private int count;
+    private long nextSequence;
+    private long dropped;
+
+    SnapshotRing(int size) {
+        minute = new long[size];
+        sequence = new long[size];
+        capacity = new double[size];
+        min = new double[size];
+        max = new double[size];
+        close = new double[size];
+        closeRevision = new long[size];
+    }
+
+    synchronized void record(long epochMinute, double currentCapacity, double previous, double utilization, long revision) {
+        int newest = (oldest + count - 1) % minute.length;
+        if (count == 0 || minute[newest] != epochMinute) {
+            if (count == minute.length) {
+                oldest = (oldest + 1) % minute.length;
+                count--;
+                dropped++;
+            }
+            newest = (oldest + count) % minute.length;
+            count++;
+            minute[newest] = epochMinute;
+            sequence[newest] = nextSequence++;
+            min[newest] = utilization;
+            max[newest] = utilization;
+            closeRevision[newest] = Long.MIN_VALUE;
+        }
+        // The minute also spans the level the warehouse was at before this change
+        min[newest] = Math.min(min[newest], Math.min(previous, utilization));
+        max[newest] = Math.max(max[newest], Math.max(previous, utilization));
+        if (revision >= closeRevision[newest]) {
+            capacity[newest] = currentCapacity;
+            close[newest] = utilization;
+            closeRevision[newest] = revision;
+        }
+    }
+
+    // Completed minutes (before the given one) oldest first, with the sequence to pass to commit
+    synchronized Pending pending(String warehouseId, long beforeMinute) {
+        List<CapacitySnapshot> snapshots = new ArrayList<>();
+        long last = -1;
+        for (int i = 0; i < count; i++) {
+            int slot = (oldest + i) % minute.length;
+            if (minute[slot] >= beforeMinute) {
+                break;
+            }
+            snapshots.add(new CapacitySnapshot(null, warehouseId, Instant.ofEpochSecond(minute[slot] * 60),
+                    capacity[slot], min[slot], max[slot], close[slot], closeRevision[slot]));
+            last = sequence[slot];
+        }
+        return new Pending(snapshots, last);
+    }
+
+    // Drops the snapshots up to and including the given sequence once they are stored
+    synchronized void commit(long upToSequence) {
+        while (count > 0 && sequence[oldest] <= upToSequence) {
+            oldest = (oldest + 1) % minute.length;
+            count--;
+        }
+    }
+
+    synchronized long dropped() {
+        return dropped;
+    }
+
+    record Pending(List<CapacitySnapshot> snapshots, long upToSequence) {
+    }
+}
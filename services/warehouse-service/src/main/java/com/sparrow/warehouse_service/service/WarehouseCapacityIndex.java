@@ -0,0 +1,272 @@
+package com.sparrow.warehouse_service.service;
+
+import com.sparrow.warehouse_service.dto.NearbyWarehouse;
+import com.sparrow.warehouse_service.geo.KdTree;
+import com.sparrow.warehouse_service.geo.LatLng;
+import com.sparrow.warehouse_service.model.Warehouse;
+import com.sparrow.warehouse_service.repository.WarehouseRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+// In-memory view of every warehouse's free capacity and location so availability and nearest-warehouse
+// lookups never hit Mongo.
+// Mongo stays the source of truth: reservations are decided there and the index only mirrors
+// the result, so a stale entry can cause a failed reservation but never an overbooking.
+// Entries are refreshed by the service after its own writes, by WarehouseIndexListener for
+// writes made on other replicas, and by a periodic full rebuild as a safety net.
+@Slf4j
+@Component
+public class WarehouseCapacityIndex {
+
+    private static final Comparator<Entry> MOST_FREE_FIRST = Comparator.comparingDouble(Entry::free).reversed();
+
+    private final WarehouseRepository warehouseRepository;
+    private final Map<String, Entry> byId = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> idsByCity = new ConcurrentHashMap<>();
+    // Replaced wholesale when a warehouse is added, moved or removed; capacity changes don't touch it
+    private volatile KdTree spatial = KdTree.empty();
+    private volatile boolean loaded;
+
+    public WarehouseCapacityIndex(WarehouseRepository warehouseRepository, MeterRegistry meterRegistry) {
+        this.warehouseRepository = warehouseRepository;
+        Gauge.builder("warehouse.capacity.index.size", byId, Map::size)
+                .description("Warehouses held in the in-memory capacity index")
+                .register(meterRegistry);
+    }
+
+    // Snapshot of one warehouse; the Warehouse it holds is never modified after it is indexed
+    record Entry(Warehouse warehouse, String city, double free, Double latitude, Double longitude) {
+
+        static Entry of(Warehouse warehouse) {
+            Warehouse.Location location = warehouse.getLocation();
+            boolean located = location != null && location.getLatitude() != null && location.getLongitude() != null;
+            return new Entry(warehouse, cityKey(warehouse.getCity()), freeCapacity(warehouse),
+                    located ? location.getLatitude().doubleValue() : null,
+                    located ? location.getLongitude().doubleValue() : null);
+        }
+
+        boolean sameLocation(Entry other) {
+            return Objects.equals(latitude, other.latitude) && Objects.equals(longitude, other.longitude);
+        }
+
+        boolean available(double required) {
+            return warehouse.getStatus() == Warehouse.WarehouseStatus.ACTIVE && free >= required;
+        }
+    }
+
+    // Active warehouses with at least required m³ free, most free first; city is optional
+    public List<Warehouse> findAvailable(String city, BigDecimal required) {
+        double minimum = required == null ? 0 : required.doubleValue();
+
+        Collection<Entry> candidates;
+        if (city == null) {
+            candidates = byId.values();
+        } else {
+            Set<String> ids = idsByCity.getOrDefault(cityKey(city), Set.of());
+            candidates = new ArrayList<>(ids.size());
+            for (String id : ids) {
+                Entry entry = byId.get(id);
+                if (entry != null) {
+                    candidates.add(entry);
+                }
+            }
+        }
+
+        return candidates.stream()
+                .filter(entry -> entry.available(minimum))
+                .sorted(MOST_FREE_FIRST)
+                .map(Entry::warehouse)
+                .toList();
+    }
+
+    // Active warehouses with at least required m³ free, nearest to the point first
+    public List<NearbyWarehouse> findNearestAvailable(double latitude, double longitude, BigDecimal required,
+                                             int limit, double maxDistanceKm) {
+        double minimum = required == null ? 0 : required.doubleValue();
+        return nearest(latitude, longitude, limit, maxDistanceKm, entry -> entry.available(minimum));
+    }
+
+    // Nearest warehouses passing accept, which is evaluated during the search against the indexed snapshot
+    public List<NearbyWarehouse> findNearest(double latitude, double longitude, int limit, double maxDistanceKm,
+                                             Predicate<Warehouse> accept) {
+        return nearest(latitude, longitude, limit, maxDistanceKm, entry -> accept.test(entry.warehouse()));
+    }
+
+    private List<NearbyWarehouse> nearest(double latitude, double longitude, int limit, double maxDistanceKm,
+                                          Predicate<Entry> accept) {
+        List<KdTree.Neighbour> neighbours = spatial.nearest(latitude, longitude, limit, maxDistanceKm, id -> {
+            Entry entry = byId.get(id);
+            return entry != null && accept.test(entry);
+        });
+
+        List<NearbyWarehouse> result = new ArrayList<>(neighbours.size());
+        for (KdTree.Neighbour neighbour : neighbours) {
+            Entry entry = byId.get(neighbour.id());
+            if (entry != null) {
+                result.add(new NearbyWarehouse(entry.warehouse(), neighbour.distanceKm()));
+            }
+        }
+        return result;
+    }
+
+    public Optional<Warehouse> get(String warehouseId) {
+        return Optional.ofNullable(byId.get(warehouseId)).map(Entry::warehouse);
+    }
+
+    // Mean position of the city's located warehouses; the only geography known for a parcel is its city
+    public Optional<LatLng> cityCentre(String city) {
+        if (city == null) {
+            return Optional.empty();
+        }
+        double latitude = 0;
+        double longitude = 0;
+        int located = 0;
+        for (String id : idsByCity.getOrDefault(cityKey(city), Set.of())) {
+            Entry entry = byId.get(id);
+            if (entry != null && entry.latitude() != null) {
+                latitude += entry.latitude();
+                longitude += entry.longitude();
+                located++;
+            }
+        }
+        return located == 0 ? Optional.empty() : Optional.of(new LatLng(latitude / located, longitude / located));
+    }
+
+    // False until the first full load has finished
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public void put(Warehouse warehouse) {
+        if (index(warehouse)) {
+            rebuildSpatial();
+        }
+    }
+
+    // Bulk load that rebuilds the spatial tree once rather than per warehouse
+    public void putAll(Collection<Warehouse> warehouses) {
+        warehouses.forEach(this::index);
+        rebuildSpatial();
+    }
+
+    public void remove(String warehouseId) {
+        if (unindex(warehouseId)) {
+            rebuildSpatial();
+        }
+    }
+
+    // Returns true when the spatial tree needs rebuilding. A copy older than the indexed one (a full reload
+    // that read the warehouse before a reservation's event arrived) is ignored; equal revisions replace it,
+    // since status and detail changes don't move the revision.
+    private boolean index(Warehouse warehouse) {
+        Entry entry = Entry.of(warehouse);
+        Entry[] replaced = new Entry[1];
+        Entry current = byId.compute(warehouse.getId(), (id, existing) -> {
+            replaced[0] = existing;
+            return existing != null && revision(existing.warehouse()) > revision(warehouse) ? existing : entry;
+        });
+        if (current != entry) {
+            return false;
+        }
+        Entry previous = replaced[0];
+        if (previous != null && !previous.city().equals(entry.city())) {
+            removeFromCity(previous.city(), warehouse.getId());
+        }
+        idsByCity.computeIfAbsent(entry.city(), key -> ConcurrentHashMap.newKeySet()).add(warehouse.getId());
+        return previous == null ? entry.latitude() != null : !previous.sameLocation(entry);
+    }
+
+    private boolean unindex(String warehouseId) {
+        Entry previous = byId.remove(warehouseId);
+        if (previous == null) {
+            return false;
+        }
+        removeFromCity(previous.city(), warehouseId);
+        return previous.latitude() != null;
+    }
+
+    // Synchronized so a build that started before a concurrent move can't overwrite the newer tree
+    private synchronized void rebuildSpatial() {
+        List<KdTree.Point> points = new ArrayList<>(byId.size());
+        for (Entry entry : byId.values()) {
+            if (entry.latitude() != null) {
+                points.add(new KdTree.Point(entry.warehouse().getId(), entry.latitude(), entry.longitude()));
+            }
+        }
+        spatial = KdTree.build(points);
+    }
+
+    // Reloads one warehouse from Mongo, dropping it if it no longer exists
+    public void refresh(String warehouseId) {
+        warehouseRepository.findById(warehouseId).ifPresentOrElse(this::put, () -> remove(warehouseId));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @Scheduled(initialDelayString = "${warehouse.capacity-index.rebuild-interval-ms:300000}",
+            fixedDelayString = "${warehouse.capacity-index.rebuild-interval-ms:300000}")
+    public void rebuild() {
+        Map<String, Warehouse> current = new HashMap<>();
+        try {
+            for (Warehouse warehouse : warehouseRepository.findAll()) {
+                current.put(warehouse.getId(), warehouse);
+            }
+        } catch (RuntimeException e) {
+            // Startup carries on without Mongo; the next scheduled rebuild loads the index
+            log.error("Failed to load warehouses into the capacity index", e);
+            return;
+        }
+
+        byId.keySet().stream()
+                .filter(id -> !current.containsKey(id))
+                .toList()
+                .forEach(this::unindex);
+        putAll(current.values());
+        loaded = true;
+        log.info("Capacity index rebuilt with {} warehouses", current.size());
+    }
+
+    private void removeFromCity(String city, String warehouseId) {
+        idsByCity.computeIfPresent(city, (key, ids) -> {
+            ids.remove(warehouseId);
+            return ids.isEmpty() ? null : ids;
+        });
+    }
+
+    private static long revision(Warehouse warehouse) {
+        return warehouse.getCapacityRevision() == null ? -1 : warehouse.getCapacityRevision();
+    }
+
+    private static String cityKey(String city) {
+        return city == null ? "" : city.trim().toLowerCase(Locale.ROOT);
+    }
+
+    static double freeCapacity(Warehouse warehouse) {
+        if (warehouse.getCapacity() == null) {
+            return 0;
+        }
+        BigDecimal used = warehouse.getCurrentUtilization() == null ? BigDecimal.ZERO : warehouse.getCurrentUtilization();
+        return warehouse.getCapacity().subtract(used).doubleValue();
+    }
+}
@@ -1,26 +1,37 @@
 package com.sparrow.warehouse_service.service;
 
+import com.sparrow.warehouse_service.dto.CursorPage;
+import com.sparrow.warehouse_service.dto.NearbyWarehouse;
 import com.sparrow.warehouse_service.model.Warehouse;
 import com.sparrow.warehouse_service.model.WarehouseCapacityEvent;
 import com.sparrow.warehouse_service.repository.WarehouseRepository;
 import lombok.RequiredArgsConstructor;
-import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 import java.util.HashMap;
 import java.util.Map; // Add this import
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 public class WarehouseService {
 
+    private static final int MAX_NEAREST = 100;
+
     private final WarehouseRepository warehouseRepository;
-    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final KafkaProducerService kafkaProducerService;
+    private final ListingService listingService;
+    private final WarehouseCapacityIndex capacityIndex;
+    private final CapacityHistoryRecorder historyRecorder;
 
     public Warehouse createWarehouse(Warehouse warehouse) {
         warehouse.setCreatedAt(LocalDateTime.now());
@@ -30,14 +41,21 @@ public class WarehouseService {
         if (warehouse.getCurrentUtilization() == null) {
             warehouse.setCurrentUtilization(BigDecimal.ZERO);
         }
+        warehouse.setCapacityRevision(0L);
 
         Warehouse savedWarehouse = warehouseRepository.save(warehouse);
+        capacityIndex.put(savedWarehouse);
+        historyRecorder.record(savedWarehouse, savedWarehouse.getCurrentUtilization());
         sendWarehouseEvent(savedWarehouse, "CREATED");
         return savedWarehouse;
     }
 
-    public List<Warehouse> getAllWarehouses() {
-        return warehouseRepository.findAll();
+    public CursorPage<Warehouse> getAllWarehouses(String cursor, int limit, Set<String> fields) {
+        return listingService.page(Warehouse.class, cursor, limit, fields);
+    }
+
+    public Stream<Warehouse> streamAllWarehouses(Set<String> fields) {
+        return listingService.stream(Warehouse.class, fields);
     }
 
     public Optional<Warehouse> getWarehouseById(String id) {
@@ -56,50 +74,146 @@ public class WarehouseService {
         return warehouseRepository.findByCity(city);
     }
 
+    // Targeted updates rather than findById/save, which would write back a stale currentUtilization
+    // over any reservation made in between. The returned pre-image only differs from the stored
+    // document in the fields written here.
     public Warehouse updateWarehouseCapacity(String id, BigDecimal newUtilization) {
-        return warehouseRepository.findById(id).map(warehouse -> {
+        return warehouseRepository.setUtilization(id, newUtilization).map(warehouse -> {
             WarehouseCapacityEvent event = createCapacityEvent(warehouse, newUtilization);
+            BigDecimal previous = warehouse.getCurrentUtilization();
 
             warehouse.setCurrentUtilization(newUtilization);
+            warehouse.setCapacityRevision(warehouse.getCapacityRevision() == null ? 1 : warehouse.getCapacityRevision() + 1);
             warehouse.setUpdatedAt(LocalDateTime.now());
 
-            // Update status based on utilization
+            // Same rule the update applied to the stored status
             if (newUtilization.compareTo(warehouse.getCapacity()) >= 0) {
                 warehouse.setStatus(Warehouse.WarehouseStatus.FULL);
             } else if (warehouse.getStatus() == Warehouse.WarehouseStatus.FULL) {
                 warehouse.setStatus(Warehouse.WarehouseStatus.ACTIVE);
             }
 
-            Warehouse updated = warehouseRepository.save(warehouse);
+            capacityIndex.put(warehouse);
+            historyRecorder.record(warehouse, previous);
             sendCapacityEvent(event);
-            return updated;
+            return warehouse;
         }).orElseThrow(() -> new RuntimeException("Warehouse not found with id: " + id));
     }
 
     public Warehouse updateWarehouseStatus(String id, Warehouse.WarehouseStatus status) {
-        return warehouseRepository.findById(id).map(warehouse -> {
+        return warehouseRepository.setStatus(id, status).map(warehouse -> {
             String previousStatus = warehouse.getStatus().name();
             warehouse.setStatus(status);
             warehouse.setUpdatedAt(LocalDateTime.now());
 
-            Warehouse updated = warehouseRepository.save(warehouse);
+            capacityIndex.put(warehouse);
             sendStatusChangeEvent(warehouse, previousStatus, status.name());
-            return updated;
+            return warehouse;
         }).orElseThrow(() -> new RuntimeException("Warehouse not found with id: " + id));
     }
 
+    // requiredCapacity is in m³ of free space; answered from the in-memory index
     public List<Warehouse> findAvailableWarehouses(BigDecimal requiredCapacity, String city) {
-        BigDecimal utilizationThreshold = new BigDecimal("0.8"); // 80% utilization threshold
+        return capacityIndex.findAvailable(city, requiredCapacity);
+    }
 
-        if (city != null) {
-            // Use the correct repository method
-            return warehouseRepository.findByCityAndCurrentUtilizationLessThan(city, utilizationThreshold);
+    public List<NearbyWarehouse> findNearestAvailableWarehouses(double latitude, double longitude,
+                                                                BigDecimal requiredCapacity, int limit,
+                                                                double maxDistanceKm) {
+        if (latitude < -90 || latitude > 90 || longitude < -180 || longitude > 180) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Latitude/longitude out of range");
         }
-        // Use the correct repository method
-        return warehouseRepository.findByCurrentUtilizationLessThan(utilizationThreshold);
+        if (limit < 1 || limit > MAX_NEAREST) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be between 1 and " + MAX_NEAREST);
+        }
+        BigDecimal required = requiredCapacity == null ? BigDecimal.ZERO : requiredCapacity;
+
+        if (capacityIndex.isLoaded()) {
+            return capacityIndex.findNearestAvailable(latitude, longitude, required, limit, maxDistanceKm);
+        }
+        // Requests can arrive before the index has finished its first load
+        return warehouseRepository.findNearestAvailable(latitude, longitude, required, limit, maxDistanceKm)
+                .getContent().stream()
+                .map(result -> new NearbyWarehouse(result.getContent(), result.getDistance().getValue()))
+                .toList();
+    }
+
+    public Warehouse reserveCapacity(String id, BigDecimal amount) {
+        requirePositive(amount);
+        return tryReserveCapacity(id, amount)
+                .orElseThrow(() -> capacityConflict(id, "Insufficient capacity to reserve " + amount + " m³"));
+    }
+
+    // Empty when the warehouse is missing, not ACTIVE or lacks the space
+    public Optional<Warehouse> tryReserveCapacity(String id, BigDecimal amount) {
+        return tryReserveCapacity(id, amount, List.of());
+    }
+
+    // Also holds parcelIds in the warehouse until clearHolds; empty as well when one of them is held there already
+    public Optional<Warehouse> tryReserveCapacity(String id, BigDecimal amount, Collection<String> parcelIds) {
+        Optional<Warehouse> updated = warehouseRepository.reserveCapacity(id, amount, parcelIds);
+        updated.ifPresentOrElse(warehouse -> {
+            BigDecimal previous = warehouse.getCurrentUtilization().subtract(amount);
+            capacityIndex.put(warehouse);
+            historyRecorder.record(warehouse, previous);
+            sendCapacityEvent(createCapacityEvent(warehouse, previous, warehouse.getCurrentUtilization()));
+        }, () -> capacityIndex.refresh(id));
+        return updated;
+    }
+
+    public Warehouse releaseCapacity(String id, BigDecimal amount) {
+        requirePositive(amount);
+        Warehouse updated = warehouseRepository.releaseCapacity(id, amount)
+                .orElseThrow(() -> capacityConflict(id, "Cannot release " + amount + " m³, more than is utilised"));
+        released(updated, amount);
+        return updated;
+    }
+
+    // Empty when the parcels are no longer held there, i.e. their volume was already given back
+    public Optional<Warehouse> releaseHeldCapacity(String id, BigDecimal amount, Collection<String> parcelIds) {
+        Optional<Warehouse> updated = warehouseRepository.releaseHeldCapacity(id, amount, parcelIds);
+        updated.ifPresent(warehouse -> released(warehouse, amount));
+        return updated;
+    }
+
+    public void clearHolds(String id, Collection<String> parcelIds) {
+        warehouseRepository.clearHolds(id, parcelIds);
+    }
+
+    public Map<String, String> findHeldParcels(Collection<String> parcelIds) {
+        return warehouseRepository.findHeldParcels(parcelIds);
+    }
+
+    private void released(Warehouse updated, BigDecimal amount) {
+        BigDecimal previous = updated.getCurrentUtilization().add(amount);
+        capacityIndex.put(updated);
+        historyRecorder.record(updated, previous);
+        sendCapacityEvent(createCapacityEvent(updated, previous, updated.getCurrentUtilization()));
+    }
+
+    private void requirePositive(BigDecimal amount) {
+        if (amount == null || amount.signum() <= 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Amount must be positive");
+        }
+    }
+
+    // The conditional update does not say why it matched nothing, so tell a missing warehouse apart
+    private ResponseStatusException capacityConflict(String id, String reason) {
+        Optional<Warehouse> current = warehouseRepository.findById(id);
+        if (current.isEmpty()) {
+            capacityIndex.remove(id);
+            return new ResponseStatusException(HttpStatus.NOT_FOUND, "Warehouse not found with id: " + id);
+        }
+        capacityIndex.put(current.get());
+        return new ResponseStatusException(HttpStatus.CONFLICT, reason);
     }
 
     private WarehouseCapacityEvent createCapacityEvent(Warehouse warehouse, BigDecimal newUtilization) {
+        return createCapacityEvent(warehouse, warehouse.getCurrentUtilization(), newUtilization);
+    }
+
+    private WarehouseCapacityEvent createCapacityEvent(Warehouse warehouse, BigDecimal previousUtilization,
+                                                       BigDecimal newUtilization) {
         WarehouseCapacityEvent event = new WarehouseCapacityEvent();
         event.setEventId(UUID.randomUUID().toString());
         event.setWarehouseId(warehouse.getId());
@@ -107,14 +221,14 @@ public class WarehouseService {
         event.setEventType(WarehouseCapacityEvent.EventType.CAPACITY_UPDATE.name());
         event.setPreviousCapacity(warehouse.getCapacity());
         event.setNewCapacity(warehouse.getCapacity());
-        event.setPreviousUtilization(warehouse.getCurrentUtilization());
+        event.setPreviousUtilization(previousUtilization);
         event.setNewUtilization(newUtilization);
         event.setEventTimestamp(LocalDateTime.now());
         return event;
     }
 
     private void sendCapacityEvent(WarehouseCapacityEvent event) {
-        kafkaTemplate.send("warehouse-capacity-events", event.getWarehouseId(), event);
+        kafkaProducerService.send("warehouse-capacity-events", event.getWarehouseId(), event);
     }
 
     private void sendStatusChangeEvent(Warehouse warehouse, String previousStatus, String newStatus) {
@@ -126,7 +240,7 @@ public class WarehouseService {
         event.setPreviousStatus(previousStatus);
         event.setNewStatus(newStatus);
         event.setEventTimestamp(LocalDateTime.now());
-        kafkaTemplate.send("warehouse-status-events", warehouse.getId(), event);
+        kafkaProducerService.send("warehouse-status-events", warehouse.getId(), event);
     }
 
     private void sendWarehouseEvent(Warehouse warehouse, String action) {
@@ -136,6 +250,6 @@ public class WarehouseService {
         eventData.put("warehouse", warehouse);
         eventData.put("timestamp", LocalDateTime.now());
 
-        kafkaTemplate.send("warehouse-events", warehouse.getId(), eventData);
+        kafkaProducerService.send("warehouse-events", warehouse.getId(), eventData);
     }
 }
\ No newline at end of file
@@ -0,0 +1,63 @@
+package com.sparrow.warehouse_service.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Response side of the listing contract: ?fields= projection and NDJSON streaming
+public final class ListingResponses {
+
+    private ListingResponses() {
+    }
+
+    // Parses ?fields=a,b,c; an empty result means every field. The id is always kept so clients can page.
+    public static Set<String> fields(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return Set.of();
+        }
+        Set<String> parsed = Arrays.stream(fields.split(","))
+                .map(String::trim)
+                .filter(field -> !field.isEmpty())
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        parsed.add("id");
+        return parsed;
+    }
+
+    // Drops properties outside the requested fields, so defaults of unfetched fields are not reported
+    public static Object project(ObjectMapper objectMapper, Object item, Set<String> fields) {
+        if (fields.isEmpty()) {
+            return item;
+        }
+        ObjectNode node = objectMapper.valueToTree(item);
+        node.retain(fields);
+        return node;
+    }
+
+    // Writes one JSON document per line as documents come off the Mongo cursor
+    public static <T> ResponseEntity<StreamingResponseBody> ndjson(ObjectMapper objectMapper,
+                                                                  Supplier<Stream<T>> source, Set<String> fields) {
+        StreamingResponseBody body = out -> {
+            try (Stream<T> items = source.get()) {
+                Iterator<T> iterator = items.iterator();
+                while (iterator.hasNext()) {
+                    out.write(objectMapper.writeValueAsBytes(project(objectMapper, iterator.next(), fields)));
+                    out.write('\n');
+                }
+            }
+            out.flush();
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+}
@@ -0,0 +1,145 @@
+package com.sparrow.warehouse_service.consumer;
+
+import com.sparrow.warehouse_service.model.ParcelCreatedEvent;
+import com.sparrow.warehouse_service.service.ParcelAssignmentService;
+import com.sparrow.warehouse_service.service.ParcelIntakeService;
+import com.sparrow.warehouse_service.service.WarehouseCapacityIndex;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerGroupMetadata;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.kafka.support.Acknowledgment;
+
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ParcelEventListenerTests {
+
+	private static final TopicPartition PARTITION = new TopicPartition("parcel-created", 0);
+
+	@Mock
+	private ParcelIntakeService parcelIntakeService;
+
+	@Mock
+	private ParcelAssignmentService parcelAssignmentService;
+
+	@Mock
+	private WarehouseCapacityIndex capacityIndex;
+
+	@Mock
+	private KafkaListenerEndpointRegistry listenerRegistry;
+
+	@Mock
+	private MessageListenerContainer assignmentContainer;
+
+	@Mock
+	private Acknowledgment acknowledgment;
+
+	@Mock
+	private Consumer<String, Object> consumer;
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	private ParcelEventListener listener;
+
+	@BeforeEach
+	void setUp() {
+		listener = new ParcelEventListener(parcelIntakeService, parcelAssignmentService, capacityIndex,
+				listenerRegistry, meterRegistry);
+		lenient().when(consumer.groupMetadata()).thenReturn(new ConsumerGroupMetadata("warehouse-service-group"));
+		lenient().when(consumer.assignment()).thenReturn(Set.of(PARTITION));
+		lenient().when(consumer.currentLag(PARTITION)).thenReturn(OptionalLong.of(7));
+	}
+
+	@Test
+	void acknowledgesOnlyAfterTheBatchIsWritten() {
+		ParcelCreatedEvent first = event("p-1");
+		ParcelCreatedEvent second = event("p-2");
+		when(parcelIntakeService.recordReceived(List.of(first, second))).thenReturn(2);
+
+		listener.handleParcelCreated(List.of(record(0, first), record(1, second)), acknowledgment, consumer);
+
+		InOrder order = inOrder(parcelIntakeService, acknowledgment);
+		order.verify(parcelIntakeService).recordReceived(List.of(first, second));
+		order.verify(acknowledgment).acknowledge();
+		assertEquals(2, meterRegistry.counter("warehouse.consumer.records",
+				"topic", "parcel-created", "group", "warehouse-service-group").count());
+		assertEquals(7, meterRegistry.get("warehouse.consumer.lag").tag("group", "warehouse-service-group").gauge().value());
+	}
+
+	@Test
+	void skipsUndecodableRecords() {
+		ParcelCreatedEvent decoded = event("p-1");
+
+		listener.handleParcelCreated(List.of(record(0, null), record(1, decoded)), acknowledgment, consumer);
+
+		verify(parcelIntakeService).recordReceived(List.of(decoded));
+		verify(acknowledgment).acknowledge();
+	}
+
+	@Test
+	void acknowledgesABatchWithNothingToWrite() {
+		listener.handleParcelCreated(List.of(record(0, null)), acknowledgment, consumer);
+
+		verifyNoInteractions(parcelIntakeService);
+		verify(acknowledgment).acknowledge();
+	}
+
+	@Test
+	void leavesAFailedBatchUncommittedForTheErrorHandler() {
+		when(parcelIntakeService.recordReceived(anyList())).thenThrow(new IllegalStateException("mongo down"));
+
+		assertThrows(IllegalStateException.class,
+				() -> listener.handleParcelCreated(List.of(record(0, event("p-1"))), acknowledgment, consumer));
+
+		verify(acknowledgment, never()).acknowledge();
+	}
+
+	@Test
+	void assignmentWaitsForTheCapacityIndexToLoad() {
+		when(listenerRegistry.getListenerContainer("parcel-assignment")).thenReturn(assignmentContainer);
+
+		listener.startAssignment();
+
+		verify(capacityIndex).rebuild();
+		verify(assignmentContainer, never()).start();
+
+		when(capacityIndex.isLoaded()).thenReturn(true);
+		listener.startAssignment();
+
+		verify(assignmentContainer).start();
+	}
+
+	private static ConsumerRecord<String, ParcelCreatedEvent> record(long offset, ParcelCreatedEvent event) {
+		return new ConsumerRecord<>(PARTITION.topic(), PARTITION.partition(), offset,
+				event != null ? event.getParcelId() : null, event);
+	}
+
+	private static ParcelCreatedEvent event(String parcelId) {
+		ParcelCreatedEvent event = new ParcelCreatedEvent();
+		event.setParcelId(parcelId);
+		event.setTrackingNumber("TRK-" + parcelId);
+		return event;
+	}
+}
@@ -0,0 +1,59 @@
+package com.sparrow.warehouse_service.geo;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class KdTreeTests {
+
+	@Test
+	void matchesBruteForceWithFilterAndRadius() {
+		Random random = new Random(7);
+		List<KdTree.Point> points = new ArrayList<>();
+		for (int i = 0; i < 5_000; i++) {
+			points.add(new KdTree.Point("w" + i, random.nextDouble() * 180 - 90, random.nextDouble() * 360 - 180));
+		}
+		KdTree tree = KdTree.build(points);
+		Predicate<String> evenOnly = id -> Integer.parseInt(id.substring(1)) % 2 == 0;
+
+		for (int query = 0; query < 200; query++) {
+			double latitude = random.nextDouble() * 180 - 90;
+			double longitude = random.nextDouble() * 360 - 180;
+			double radius = query % 2 == 0 ? 0 : 1_500;
+
+			List<KdTree.Neighbour> expected = points.stream()
+					.filter(point -> evenOnly.test(point.id()))
+					.map(point -> new KdTree.Neighbour(point.id(),
+							KdTree.distanceKm(latitude, longitude, point.latitude(), point.longitude())))
+					.filter(neighbour -> radius <= 0 || neighbour.distanceKm() <= radius)
+					.sorted(Comparator.comparingDouble(KdTree.Neighbour::distanceKm))
+					.limit(10)
+					.toList();
+
+			List<KdTree.Neighbour> actual = tree.nearest(latitude, longitude, 10, radius, evenOnly);
+
+			assertEquals(expected.stream().map(KdTree.Neighbour::id).toList(),
+					actual.stream().map(KdTree.Neighbour::id).toList());
+		}
+	}
+
+	@Test
+	void findsNeighboursAcrossTheAntimeridian() {
+		KdTree tree = KdTree.build(List.of(
+				new KdTree.Point("fiji", -17.7, 178.0),
+				new KdTree.Point("samoa", -13.8, -172.1),
+				new KdTree.Point("sydney", -33.9, 151.2)));
+
+		List<KdTree.Neighbour> nearest = tree.nearest(-16.0, -179.9, 2, 0, id -> true);
+
+		assertEquals(List.of("fiji", "samoa"), nearest.stream().map(KdTree.Neighbour::id).toList());
+		assertTrue(nearest.get(0).distanceKm() < 300);
+	}
+}
@@ -0,0 +1,87 @@
+package com.sparrow.warehouse_service.repository;
+
+import com.sparrow.warehouse_service.model.CapacityRollup;
+import com.sparrow.warehouse_service.model.CapacitySnapshot;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CapacitySnapshotRepositoryImplTests {
+
+	private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+	private final BulkOperations bulkOps = mock(BulkOperations.class);
+	private final CapacitySnapshotRepositoryImpl repository = new CapacitySnapshotRepositoryImpl(mongoTemplate);
+
+	@BeforeEach
+	void setUp() {
+		when(mongoTemplate.bulkOps(any(BulkOperations.BulkMode.class), eq(CapacityRollup.class))).thenReturn(bulkOps);
+	}
+
+	@Test
+	void aRetriedFlushOnlyInsertsTheSnapshotsThatAreNotStoredYet() {
+		when(mongoTemplate.find(any(Query.class), eq(CapacitySnapshot.class))).thenReturn(List.of(snapshot(60, 7)));
+
+		repository.store(List.of(snapshot(60, 7), snapshot(120, 8)));
+
+		@SuppressWarnings("unchecked")
+		ArgumentCaptor<Collection<CapacitySnapshot>> inserted = ArgumentCaptor.forClass(Collection.class);
+		verify(mongoTemplate).insertAll(inserted.capture());
+		assertEquals(List.of(8L), inserted.getValue().stream().map(CapacitySnapshot::getCloseRevision).toList());
+		// Rollups are merged for every snapshot, which the merge tolerates
+		verify(bulkOps, times(4)).upsert(any(Query.class), any(UpdateDefinition.class));
+	}
+
+	@Test
+	void aFullyStoredBatchInsertsNothing() {
+		when(mongoTemplate.find(any(Query.class), eq(CapacitySnapshot.class))).thenReturn(List.of(snapshot(60, 7)));
+
+		repository.store(List.of(snapshot(60, 7)));
+
+		verify(mongoTemplate, never()).insertAll(anyCollection());
+	}
+
+	@Test
+	void rollupCloseFollowsTheWarehouseRevision() {
+		repository.store(List.of(snapshot(60, 7)));
+
+		ArgumentCaptor<UpdateDefinition> update = ArgumentCaptor.forClass(UpdateDefinition.class);
+		verify(bulkOps, times(2)).upsert(any(Query.class), update.capture());
+		Document close = stage((AggregationUpdate) update.getValue(), "close");
+		Document newer = (Document) close.getList("$cond", Object.class).get(0);
+		assertEquals(7L, newer.getList("$gte", Object.class).get(0));
+	}
+
+	private static Document stage(AggregationUpdate update, String field) {
+		return update.toPipeline(Aggregation.DEFAULT_CONTEXT).stream()
+				.map(stage -> stage.get("$set", Document.class))
+				.filter(set -> set.containsKey(field))
+				.map(set -> set.get(field, Document.class))
+				.findFirst()
+				.orElseThrow();
+	}
+
+	private static CapacitySnapshot snapshot(long epochSecond, long revision) {
+		return new CapacitySnapshot(null, "w", Instant.ofEpochSecond(epochSecond), 100, 10, 20, 15, revision);
+	}
+}
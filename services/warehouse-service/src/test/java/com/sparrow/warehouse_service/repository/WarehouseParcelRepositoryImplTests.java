@@ -0,0 +1,102 @@
+package com.sparrow.warehouse_service.repository;
+
+import com.sparrow.warehouse_service.model.ParcelConsolidatedEvent;
+import com.sparrow.warehouse_service.model.ParcelCreatedEvent;
+import com.sparrow.warehouse_service.model.WarehouseParcel;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DataMongoTest
+class WarehouseParcelRepositoryImplTests {
+
+	@Autowired
+	private MongoTemplate mongoTemplate;
+
+	@Autowired
+	private WarehouseParcelRepository warehouseParcelRepository;
+
+	@BeforeEach
+	void setUp() {
+		mongoTemplate.dropCollection(WarehouseParcel.class);
+	}
+
+	@Test
+	void replayingAReceivedBatchLeavesTheParcelsAsTheyWere() {
+		List<ParcelCreatedEvent> batch = List.of(created("p-1", 2.0), created("p-2", 3.5));
+		warehouseParcelRepository.upsertReceived(batch);
+		WarehouseParcel first = warehouseParcelRepository.findById("p-1").orElseThrow();
+
+		assertEquals(2, warehouseParcelRepository.upsertReceived(batch));
+
+		assertEquals(2, warehouseParcelRepository.count());
+		WarehouseParcel replayed = warehouseParcelRepository.findById("p-1").orElseThrow();
+		assertEquals(first.getReceivedAt(), replayed.getReceivedAt());
+		assertEquals(WarehouseParcel.ParcelStatus.PENDING_ASSIGNMENT, replayed.getStatus());
+		assertEquals(2.0, replayed.getWeight());
+	}
+
+	@Test
+	void aLateReceivedEventKeepsTheConsolidatedStatus() {
+		warehouseParcelRepository.markConsolidated(List.of(consolidated("c-1", "p-1")));
+
+		warehouseParcelRepository.upsertReceived(List.of(created("p-1", 2.0)));
+
+		WarehouseParcel parcel = warehouseParcelRepository.findById("p-1").orElseThrow();
+		assertEquals(WarehouseParcel.ParcelStatus.CONSOLIDATED, parcel.getStatus());
+		assertEquals("c-1", parcel.getConsolidationId());
+		assertEquals("TRK-p-1", parcel.getTrackingNumber());
+	}
+
+	@Test
+	void replayingAConsolidationLeavesTheParcelsAsTheyWere() {
+		warehouseParcelRepository.upsertReceived(List.of(created("p-1", 2.0)));
+		List<ParcelConsolidatedEvent> batch = List.of(consolidated("c-1", "p-1", "p-2"));
+		warehouseParcelRepository.markConsolidated(batch);
+
+		assertEquals(2, warehouseParcelRepository.markConsolidated(batch));
+
+		assertEquals(2, warehouseParcelRepository.count());
+		for (WarehouseParcel parcel : warehouseParcelRepository.findAll()) {
+			assertEquals(WarehouseParcel.ParcelStatus.CONSOLIDATED, parcel.getStatus());
+			assertEquals("c-1", parcel.getConsolidationId());
+		}
+	}
+
+	@Test
+	void theFirstAssignmentWinsAndReplaysReportConflicts() {
+		warehouseParcelRepository.upsertReceived(List.of(created("p-1", 2.0)));
+
+		assertEquals(Set.of(), warehouseParcelRepository.recordAssignments(Map.of("p-1", "w-1", "p-2", "w-1")));
+		assertEquals(Set.of("p-1", "p-2"), warehouseParcelRepository.recordAssignments(Map.of("p-1", "w-2", "p-2", "w-1")));
+
+		assertEquals(Map.of("p-1", "w-1", "p-2", "w-1"), warehouseParcelRepository.findAssignedWarehouses(List.of("p-1", "p-2")));
+		assertEquals(WarehouseParcel.ParcelStatus.ASSIGNED, warehouseParcelRepository.findById("p-1").orElseThrow().getStatus());
+	}
+
+	private static ParcelCreatedEvent created(String parcelId, double weight) {
+		ParcelCreatedEvent event = new ParcelCreatedEvent();
+		event.setParcelId(parcelId);
+		event.setTrackingNumber("TRK-" + parcelId);
+		event.setOrigin("Colombo");
+		event.setDestination("Galle");
+		event.setWeight(weight);
+		event.setVolume(6000.0);
+		return event;
+	}
+
+	private static ParcelConsolidatedEvent consolidated(String consolidationId, String... parcelIds) {
+		ParcelConsolidatedEvent event = new ParcelConsolidatedEvent();
+		event.setConsolidationId(consolidationId);
+		event.setParcelIds(List.of(parcelIds));
+		return event;
+	}
+}
@@ -0,0 +1,97 @@
+package com.sparrow.warehouse_service.repository;
+
+import com.sparrow.warehouse_service.model.Warehouse;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+class WarehouseRepositoryImplTests {
+
+	private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+	private final WarehouseRepositoryImpl repository = new WarehouseRepositoryImpl(mongoTemplate);
+
+	@Test
+	void utilizationUpdateWritesOnlyUtilizationStatusRevisionAndTimestamp() {
+		repository.setUtilization("w1", new BigDecimal("40"));
+
+		ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+		ArgumentCaptor<UpdateDefinition> update = ArgumentCaptor.forClass(UpdateDefinition.class);
+		verify(mongoTemplate).findAndModify(query.capture(), update.capture(), eq(Warehouse.class));
+		assertEquals(new Document("_id", "w1"), query.getValue().getQueryObject());
+		assertEquals(Set.of("status", "currentUtilization", "capacityRevision", "updatedAt"), setFields(update.getValue()));
+	}
+
+	@Test
+	void statusUpdateWritesOnlyStatusAndTimestamp() {
+		repository.setStatus("w1", Warehouse.WarehouseStatus.MAINTENANCE);
+
+		ArgumentCaptor<UpdateDefinition> update = ArgumentCaptor.forClass(UpdateDefinition.class);
+		verify(mongoTemplate).findAndModify(eq(Query.query(Criteria.where("_id").is("w1"))),
+				update.capture(), eq(Warehouse.class));
+		assertEquals(Set.of("status", "updatedAt"), setFields(update.getValue()));
+	}
+
+	@Test
+	void reservationForParcelsSkipsWarehousesThatAlreadyHoldThem() {
+		repository.reserveCapacity("w1", new BigDecimal("2"), List.of("p1", "p2"));
+
+		ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+		ArgumentCaptor<UpdateDefinition> update = ArgumentCaptor.forClass(UpdateDefinition.class);
+		verify(mongoTemplate).findAndModify(query.capture(), update.capture(), any(FindAndModifyOptions.class), eq(Warehouse.class));
+		assertEquals(new Document("$nin", List.of("p1", "p2")), query.getValue().getQueryObject().get("heldParcels"));
+		assertTrue(setFields(update.getValue()).contains("heldParcels"));
+	}
+
+	@Test
+	void plainReservationLeavesHoldsAlone() {
+		repository.reserveCapacity("w1", new BigDecimal("2"));
+
+		ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+		ArgumentCaptor<UpdateDefinition> update = ArgumentCaptor.forClass(UpdateDefinition.class);
+		verify(mongoTemplate).findAndModify(query.capture(), update.capture(), any(FindAndModifyOptions.class), eq(Warehouse.class));
+		assertFalse(query.getValue().getQueryObject().containsKey("heldParcels"));
+		assertFalse(setFields(update.getValue()).contains("heldParcels"));
+	}
+
+	@Test
+	void heldReleaseOnlyMatchesWhileAllParcelsAreStillHeld() {
+		repository.releaseHeldCapacity("w1", new BigDecimal("2"), List.of("p1"));
+
+		ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+		ArgumentCaptor<UpdateDefinition> update = ArgumentCaptor.forClass(UpdateDefinition.class);
+		verify(mongoTemplate).findAndModify(query.capture(), update.capture(), any(FindAndModifyOptions.class), eq(Warehouse.class));
+		assertEquals(new Document("$all", List.of("p1")), query.getValue().getQueryObject().get("heldParcels"));
+		assertEquals(Set.of("status", "currentUtilization", "capacityRevision", "updatedAt", "heldParcels"),
+				setFields(update.getValue()));
+	}
+
+	// Field names written by either a classic $set or an aggregation pipeline of $set stages
+	private static Set<String> setFields(UpdateDefinition update) {
+		List<Document> stages = update instanceof AggregationUpdate pipeline
+				? pipeline.toPipeline(Aggregation.DEFAULT_CONTEXT)
+				: List.of(update.getUpdateObject());
+		return stages.stream()
+				.flatMap(stage -> stage.get("$set", Document.class).keySet().stream())
+				.collect(Collectors.toSet());
+	}
+}
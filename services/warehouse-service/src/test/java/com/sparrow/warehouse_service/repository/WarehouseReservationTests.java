@@ -0,0 +1,102 @@
+package com.sparrow.warehouse_service.repository;
+
+import com.sparrow.warehouse_service.model.Warehouse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// The reservation updates against a real Mongo: the fit check and the $nin/$all guards are evaluated by the server
+@DataMongoTest
+class WarehouseReservationTests {
+
+	@Autowired
+	private MongoTemplate mongoTemplate;
+
+	@Autowired
+	private WarehouseRepository warehouseRepository;
+
+	@BeforeEach
+	void setUp() {
+		mongoTemplate.dropCollection(Warehouse.class);
+		mongoTemplate.insert(warehouse("w-1", "10"));
+	}
+
+	@Test
+	void concurrentReservationsNeverExceedCapacity() throws Exception {
+		List<Callable<Boolean>> reservations = new ArrayList<>();
+		for (int i = 0; i < 25; i++) {
+			String parcelId = "p-" + i;
+			reservations.add(() -> warehouseRepository.reserveCapacity("w-1", new BigDecimal("0.5"), List.of(parcelId)).isPresent());
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		int reserved = 0;
+		try {
+			for (Future<Boolean> result : executor.invokeAll(reservations)) {
+				reserved += result.get() ? 1 : 0;
+			}
+		} finally {
+			executor.shutdown();
+		}
+
+		Warehouse warehouse = warehouseRepository.findById("w-1").orElseThrow();
+		assertEquals(20, reserved);
+		assertEquals(0, new BigDecimal("10").compareTo(warehouse.getCurrentUtilization()));
+		assertEquals(Warehouse.WarehouseStatus.FULL, warehouse.getStatus());
+		assertEquals(20, warehouse.getHeldParcels().size());
+	}
+
+	@Test
+	void aReplayedReservationChangesNothing() {
+		assertTrue(warehouseRepository.reserveCapacity("w-1", new BigDecimal("2.5"), List.of("p-1", "p-2")).isPresent());
+
+		assertFalse(warehouseRepository.reserveCapacity("w-1", new BigDecimal("2.5"), List.of("p-1", "p-2")).isPresent());
+		// One parcel already held is enough to refuse the whole reservation
+		assertFalse(warehouseRepository.reserveCapacity("w-1", new BigDecimal("2.5"), List.of("p-2", "p-3")).isPresent());
+
+		Warehouse warehouse = warehouseRepository.findById("w-1").orElseThrow();
+		assertEquals(0, new BigDecimal("2.5").compareTo(warehouse.getCurrentUtilization()));
+		assertEquals(List.of("p-1", "p-2"), warehouse.getHeldParcels());
+		assertEquals(Map.of("p-1", "w-1", "p-2", "w-1"), warehouseRepository.findHeldParcels(List.of("p-1", "p-2", "p-3")));
+	}
+
+	@Test
+	void aReplayedReleaseGivesNothingBackTwice() {
+		warehouseRepository.reserveCapacity("w-1", new BigDecimal("4"), List.of("p-1"));
+
+		assertTrue(warehouseRepository.releaseHeldCapacity("w-1", new BigDecimal("4"), List.of("p-1")).isPresent());
+		assertFalse(warehouseRepository.releaseHeldCapacity("w-1", new BigDecimal("4"), List.of("p-1")).isPresent());
+
+		Warehouse warehouse = warehouseRepository.findById("w-1").orElseThrow();
+		assertEquals(0, BigDecimal.ZERO.compareTo(warehouse.getCurrentUtilization()));
+		assertEquals(List.of(), warehouse.getHeldParcels());
+		assertEquals(2L, warehouse.getCapacityRevision());
+	}
+
+	private static Warehouse warehouse(String id, String capacity) {
+		Warehouse warehouse = new Warehouse();
+		warehouse.setId(id);
+		warehouse.setWarehouseCode("WH-" + id);
+		warehouse.setCity("Colombo");
+		warehouse.setCapacity(new BigDecimal(capacity));
+		warehouse.setCurrentUtilization(BigDecimal.ZERO);
+		warehouse.setStatus(Warehouse.WarehouseStatus.ACTIVE);
+		warehouse.setCapacityRevision(0L);
+		return warehouse;
+	}
+}
@@ -0,0 +1,126 @@
+package com.sparrow.warehouse_service.service;
+
+import com.sparrow.warehouse_service.dto.CapacityCurve;
+import com.sparrow.warehouse_service.model.CapacitySnapshot;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CapacityHistoryTests {
+
+	@Test
+	void foldsChangesWithinAMinuteIncludingTheLevelBeforeEachChange() {
+		SnapshotRing ring = new SnapshotRing(4);
+		ring.record(10, 100, 30, 40, 1);
+		ring.record(10, 100, 40, 70, 2);
+		ring.record(10, 100, 70, 55, 3);
+		ring.record(11, 100, 55, 20, 4);
+
+		SnapshotRing.Pending pending = ring.pending("w", 12);
+		assertEquals(2, pending.snapshots().size());
+		CapacitySnapshot first = pending.snapshots().get(0);
+		assertEquals(Instant.ofEpochSecond(600), first.getTimestamp());
+		assertEquals(30, first.getMin());
+		assertEquals(70, first.getMax());
+		assertEquals(55, first.getClose());
+		assertEquals(3, first.getCloseRevision());
+		CapacitySnapshot second = pending.snapshots().get(1);
+		assertEquals(20, second.getMin());
+		assertEquals(55, second.getMax());
+		assertEquals(20, second.getClose());
+	}
+
+	@Test
+	void leavesTheCurrentMinuteUntilCommittedAndCommitDropsOnlyStoredMinutes() {
+		SnapshotRing ring = new SnapshotRing(4);
+		ring.record(10, 100, 10, 10, 1);
+		ring.record(11, 100, 10, 20, 2);
+
+		SnapshotRing.Pending pending = ring.pending("w", 11);
+		assertEquals(1, pending.snapshots().size());
+		ring.record(12, 100, 20, 30, 3);
+		ring.commit(pending.upToSequence());
+
+		List<CapacitySnapshot> rest = ring.pending("w", 13).snapshots();
+		assertEquals(2, rest.size());
+		assertEquals(Instant.ofEpochSecond(660), rest.get(0).getTimestamp());
+	}
+
+	@Test
+	void overwritesTheOldestMinuteWhenFull() {
+		SnapshotRing ring = new SnapshotRing(2);
+		ring.record(1, 100, 1, 1, 1);
+		ring.record(2, 100, 1, 2, 2);
+		ring.record(3, 100, 2, 3, 3);
+
+		List<CapacitySnapshot> pending = ring.pending("w", 4).snapshots();
+		assertEquals(2, pending.size());
+		assertEquals(Instant.ofEpochSecond(120), pending.get(0).getTimestamp());
+		assertEquals(1, ring.dropped());
+	}
+
+	@Test
+	void closesAtTheLatestRevisionWhateverOrderChangesArriveIn() {
+		SnapshotRing ring = new SnapshotRing(4);
+		ring.record(10, 100, 40, 70, 5);
+		ring.record(10, 100, 30, 40, 4);
+
+		CapacitySnapshot snapshot = ring.pending("w", 11).snapshots().get(0);
+		assertEquals(70, snapshot.getClose());
+		assertEquals(5, snapshot.getCloseRevision());
+		assertEquals(30, snapshot.getMin());
+		assertEquals(70, snapshot.getMax());
+	}
+
+	@Test
+	void startsTheCurveAtTheLevelCarriedInFromBeforeTheRange() {
+		Duration hour = Duration.ofHours(1);
+		Instant start = Instant.parse("2026-10-01T00:00:00Z");
+		CapacityCurve.Point carried = new CapacityCurve.Point(start, 100, 40, 40, 40);
+		CapacityCurve.Point change = new CapacityCurve.Point(start.plus(hour.multipliedBy(2)), 100, 40, 60, 60);
+
+		List<CapacityCurve.Point> points = CapacityHistoryService.fillGaps(List.of(change), hour, start,
+				start.plus(hour.multipliedBy(4)), carried);
+
+		assertEquals(List.of(start, start.plus(hour), start.plus(hour.multipliedBy(2)), start.plus(hour.multipliedBy(3))),
+				points.stream().map(CapacityCurve.Point::getTimestamp).toList());
+		assertEquals(List.of(40.0, 40.0, 60.0, 60.0), points.stream().map(CapacityCurve.Point::getClose).toList());
+	}
+
+	@Test
+	void aWarehouseWithoutChangesInTheRangeStaysAtItsCarriedLevel() {
+		Duration hour = Duration.ofHours(1);
+		Instant start = Instant.parse("2026-10-01T00:00:00Z");
+
+		List<CapacityCurve.Point> points = CapacityHistoryService.fillGaps(List.of(), hour, start,
+				start.plus(hour.multipliedBy(3)), new CapacityCurve.Point(start, 100, 25, 25, 25));
+
+		assertEquals(3, points.size());
+		assertTrue(points.stream().allMatch(point -> point.getMin() == 25 && point.getMax() == 25 && point.getClose() == 25));
+		assertTrue(CapacityHistoryService.fillGaps(List.of(), hour, start, start.plus(hour), null).isEmpty());
+	}
+
+	@Test
+	void choosesTheSmallestBucketThatKeepsThePointLimit() {
+		List<Duration> buckets = List.of(Duration.ofMinutes(1), Duration.ofHours(1), Duration.ofDays(1));
+		Instant to = Instant.parse("2026-10-01T00:00:00Z");
+
+		assertEquals(Duration.ofMinutes(1), CapacityHistoryService.chooseBucket(to.minus(Duration.ofHours(6)), to, null, 500, buckets));
+		assertEquals(Duration.ofHours(1), CapacityHistoryService.chooseBucket(to.minus(Duration.ofDays(7)), to, null, 500, buckets));
+		assertEquals(Duration.ofDays(1), CapacityHistoryService.chooseBucket(to.minus(Duration.ofDays(90)), to, null, 100, buckets));
+		assertEquals(Duration.ofDays(1), CapacityHistoryService.chooseBucket(to.minus(Duration.ofHours(1)), to, Duration.ofHours(2), 500, buckets));
+	}
+
+	@Test
+	void fitsTheTrendPerHour() {
+		List<double[]> samples = List.of(new double[]{-3, 10}, new double[]{-2, 12}, new double[]{-1, 14}, new double[]{0, 16});
+		assertEquals(2, CapacityHistoryService.slope(samples), 1e-9);
+		assertEquals(0, CapacityHistoryService.slope(List.<double[]>of(new double[]{0, 5})));
+		assertTrue(CapacityHistoryService.slope(List.of(new double[]{-1, 9}, new double[]{0, 3})) < 0);
+	}
+}
@@ -0,0 +1,188 @@
+package com.sparrow.warehouse_service.service;
+
+import com.sparrow.warehouse_service.model.ParcelCreatedEvent;
+import com.sparrow.warehouse_service.model.ParcelWarehouseAssignmentEvent;
+import com.sparrow.warehouse_service.model.Warehouse;
+import com.sparrow.warehouse_service.repository.WarehouseParcelRepository;
+import com.sparrow.warehouse_service.repository.WarehouseRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ParcelAssignmentServiceTests {
+
+	private WarehouseCapacityIndex index;
+	private WarehouseService warehouseService;
+	private WarehouseParcelRepository parcelRepository;
+	private KafkaProducerService producer;
+	private ParcelAssignmentService service;
+
+	@BeforeEach
+	void setUp() {
+		index = new WarehouseCapacityIndex(mock(WarehouseRepository.class), new SimpleMeterRegistry());
+		index.putAll(List.of(
+				warehouse("colombo", "Colombo", 6.93, 79.85, "10", List.of("STANDARD")),
+				warehouse("negombo", "Negombo", 7.21, 79.84, "10", List.of("STANDARD")),
+				warehouse("cold", "Kandy", 7.29, 80.63, "10", List.of("REFRIGERATED"))));
+
+		warehouseService = mock(WarehouseService.class);
+		parcelRepository = mock(WarehouseParcelRepository.class);
+		producer = mock(KafkaProducerService.class);
+		when(producer.send(anyString(), anyString(), any())).thenReturn(CompletableFuture.completedFuture(null));
+		when(parcelRepository.findAssignedWarehouses(any())).thenReturn(Map.of());
+		when(parcelRepository.recordAssignments(anyMap())).thenReturn(Set.of());
+		when(warehouseService.tryReserveCapacity(anyString(), any(), any())).thenReturn(Optional.of(new Warehouse()));
+
+		service = new ParcelAssignmentService(index, warehouseService, parcelRepository, producer, new SimpleMeterRegistry());
+		ReflectionTestUtils.setField(service, "candidates", 8);
+	}
+
+	@Test
+	void reservesOncePerWarehouseForTheWholeBatch() {
+		int published = service.assign(List.of(parcel("p1", "Colombo", 2_000_000.0, null), parcel("p2", "Colombo", 3_000_000.0, null),
+				parcel("p3", "Colombo", 1_000_000.0, "REFRIGERATED")));
+
+		assertEquals(3, published);
+		verify(warehouseService).tryReserveCapacity("colombo", new BigDecimal("5"), List.of("p1", "p2"));
+		verify(warehouseService).tryReserveCapacity("cold", new BigDecimal("1"), List.of("p3"));
+		assertEquals(Map.of("p1", "colombo", "p2", "colombo", "p3", "cold"), assignments());
+	}
+
+	@Test
+	void overflowsToTheNextNearestWarehouseWithinABatch() {
+		service.assign(List.of(parcel("p1", "Colombo", 8_000_000.0, null), parcel("p2", "Colombo", 8_000_000.0, null)));
+
+		assertEquals(Map.of("p1", "colombo", "p2", "negombo"), assignments());
+	}
+
+	@Test
+	void placesParcelsSinglyWhenTheGroupReservationFails() {
+		when(warehouseService.tryReserveCapacity(eq("colombo"), any(), any())).thenReturn(Optional.empty());
+
+		service.assign(List.of(parcel("p1", "Colombo", 2_000_000.0, null)));
+
+		assertEquals(Map.of("p1", "negombo"), assignments());
+	}
+
+	@Test
+	void republishesExistingAssignmentsWithoutReserving() {
+		when(parcelRepository.findAssignedWarehouses(any())).thenReturn(Map.of("p1", "negombo"));
+
+		service.assign(List.of(parcel("p1", "Colombo", 2_000_000.0, null)));
+
+		verify(warehouseService, never()).tryReserveCapacity(anyString(), any(), any());
+		assertEquals("negombo", published().get(0).getWarehouseId());
+	}
+
+	@Test
+	void reservesParcelVolumesInCubicMetres() {
+		// 40 × 30 × 20 cm
+		service.assign(List.of(parcel("p1", "Colombo", 24_000.0, null)));
+
+		verify(warehouseService).tryReserveCapacity("colombo", new BigDecimal("0.024"), List.of("p1"));
+		assertEquals(new BigDecimal("0.024"), published().get(0).getReservedVolume());
+	}
+
+	@Test
+	void recordsAHeldReservationFromAnEarlierRunWithoutReservingAgain() {
+		when(warehouseService.findHeldParcels(any())).thenReturn(Map.of("p1", "negombo"));
+
+		service.assign(List.of(parcel("p1", "Colombo", 2_000_000.0, null)));
+
+		verify(warehouseService, never()).tryReserveCapacity(anyString(), any(), any());
+		assertEquals(Map.of("p1", "negombo"), assignments());
+		verify(warehouseService).clearHolds("negombo", List.of("p1"));
+	}
+
+	@Test
+	void givesBackAHoldLeftInAnotherWarehouseOnceTheParcelIsAssigned() {
+		when(parcelRepository.findAssignedWarehouses(any())).thenReturn(Map.of("p1", "colombo"));
+		when(warehouseService.findHeldParcels(any())).thenReturn(Map.of("p1", "negombo"));
+
+		service.assign(List.of(parcel("p1", "Colombo", 2_000_000.0, null)));
+
+		verify(warehouseService).releaseHeldCapacity("negombo", new BigDecimal("2"), List.of("p1"));
+		verify(warehouseService, never()).tryReserveCapacity(anyString(), any(), any());
+	}
+
+	@Test
+	void givesBackTheReservationWhenTheParcelWasAssignedConcurrently() {
+		when(parcelRepository.findAssignedWarehouses(any())).thenReturn(Map.of()).thenReturn(Map.of("p1", "negombo"));
+		when(parcelRepository.recordAssignments(anyMap())).thenReturn(Set.of("p1"));
+
+		service.assign(List.of(parcel("p1", "Colombo", 2_000_000.0, null)));
+
+		verify(warehouseService).releaseHeldCapacity("colombo", new BigDecimal("2"), List.of("p1"));
+		verify(warehouseService, never()).clearHolds(eq("colombo"), any());
+		assertEquals("negombo", published().get(0).getWarehouseId());
+	}
+
+	@Test
+	void reportsParcelsFromCitiesWithoutWarehouses() {
+		service.assign(List.of(parcel("p1", "Jaffna", 2_000_000.0, null)));
+
+		ParcelWarehouseAssignmentEvent event = published().get(0);
+		assertEquals(ParcelWarehouseAssignmentEvent.Status.UNASSIGNED.name(), event.getStatus());
+	}
+
+	@SuppressWarnings("unchecked")
+	private Map<String, String> assignments() {
+		ArgumentCaptor<Map<String, String>> captor = ArgumentCaptor.forClass(Map.class);
+		verify(parcelRepository).recordAssignments(captor.capture());
+		return captor.getValue();
+	}
+
+	private List<ParcelWarehouseAssignmentEvent> published() {
+		ArgumentCaptor<Object> captor = ArgumentCaptor.forClass(Object.class);
+		verify(producer, times(1)).send(eq("parcel-warehouse-assignment"), anyString(), captor.capture());
+		return captor.getAllValues().stream()
+				.map(ParcelWarehouseAssignmentEvent.class::cast)
+				.collect(Collectors.toList());
+	}
+
+	private static ParcelCreatedEvent parcel(String id, String origin, Double volume, String type) {
+		ParcelCreatedEvent event = new ParcelCreatedEvent();
+		event.setParcelId(id);
+		event.setOrigin(origin);
+		event.setVolume(volume);
+		event.setParcelType(type);
+		return event;
+	}
+
+	private static Warehouse warehouse(String id, String city, double latitude, double longitude, String capacity,
+									   List<String> types) {
+		Warehouse warehouse = new Warehouse();
+		warehouse.setId(id);
+		warehouse.setCity(city);
+		warehouse.setCapacity(new BigDecimal(capacity));
+		warehouse.setCurrentUtilization(BigDecimal.ZERO);
+		warehouse.setStatus(Warehouse.WarehouseStatus.ACTIVE);
+		warehouse.setSupportedParcelTypes(types);
+		Warehouse.Location location = new Warehouse.Location();
+		location.setLatitude(BigDecimal.valueOf(latitude));
+		location.setLongitude(BigDecimal.valueOf(longitude));
+		warehouse.setLocation(location);
+		return warehouse;
+	}
+}
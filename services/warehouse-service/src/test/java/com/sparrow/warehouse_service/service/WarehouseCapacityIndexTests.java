@@ -0,0 +1,107 @@
+package com.sparrow.warehouse_service.service;
+
+import com.sparrow.warehouse_service.model.Warehouse;
+import com.sparrow.warehouse_service.repository.WarehouseRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+class WarehouseCapacityIndexTests {
+
+	private WarehouseCapacityIndex index;
+
+	@BeforeEach
+	void setUp() {
+		index = new WarehouseCapacityIndex(mock(WarehouseRepository.class), new SimpleMeterRegistry());
+	}
+
+	@Test
+	void findsActiveWarehousesWithEnoughFreeSpaceMostFreeFirst() {
+		index.put(warehouse("a", "Colombo", "100", "90", Warehouse.WarehouseStatus.ACTIVE));
+		index.put(warehouse("b", "colombo", "100", "20", Warehouse.WarehouseStatus.ACTIVE));
+		index.put(warehouse("c", "Colombo", "100", "50", Warehouse.WarehouseStatus.ACTIVE));
+		index.put(warehouse("d", "Colombo", "100", "0", Warehouse.WarehouseStatus.MAINTENANCE));
+		index.put(warehouse("e", "Kandy", "500", "0", Warehouse.WarehouseStatus.ACTIVE));
+
+		List<Warehouse> found = index.findAvailable(" COLOMBO ", new BigDecimal("30"));
+
+		assertEquals(List.of("b", "c"), found.stream().map(Warehouse::getId).toList());
+		assertEquals(4, index.findAvailable(null, null).size());
+	}
+
+	@Test
+	void reindexesWarehouseThatMovesCity() {
+		index.put(warehouse("a", "Colombo", "100", "0", Warehouse.WarehouseStatus.ACTIVE));
+		index.put(warehouse("a", "Galle", "100", "0", Warehouse.WarehouseStatus.ACTIVE));
+
+		assertTrue(index.findAvailable("Colombo", BigDecimal.ONE).isEmpty());
+		assertEquals(1, index.findAvailable("Galle", BigDecimal.ONE).size());
+
+		index.remove("a");
+		assertTrue(index.findAvailable("Galle", BigDecimal.ONE).isEmpty());
+	}
+
+	@Test
+	void nearestSkipsFullWarehousesAndFollowsMoves() {
+		index.put(located(warehouse("colombo", "Colombo", "100", "100", Warehouse.WarehouseStatus.FULL), 6.93, 79.85));
+		index.put(located(warehouse("negombo", "Negombo", "100", "10", Warehouse.WarehouseStatus.ACTIVE), 7.21, 79.84));
+		index.put(located(warehouse("kandy", "Kandy", "100", "10", Warehouse.WarehouseStatus.ACTIVE), 7.29, 80.63));
+
+		assertEquals(List.of("negombo", "kandy"), nearestIds(6.92, 79.86));
+
+		index.put(located(warehouse("kandy", "Colombo", "100", "10", Warehouse.WarehouseStatus.ACTIVE), 6.90, 79.86));
+		assertEquals(List.of("kandy", "negombo"), nearestIds(6.92, 79.86));
+	}
+
+	@Test
+	void keepsTheEntryWithTheHigherCapacityRevision() {
+		index.put(revision(warehouse("a", "Colombo", "100", "80", Warehouse.WarehouseStatus.ACTIVE), 5));
+		// A full reload that read the warehouse before the reservation at revision 5
+		index.put(revision(warehouse("a", "Colombo", "100", "20", Warehouse.WarehouseStatus.ACTIVE), 4));
+
+		assertTrue(index.findAvailable("Colombo", new BigDecimal("30")).isEmpty());
+
+		index.put(revision(warehouse("a", "Colombo", "100", "80", Warehouse.WarehouseStatus.MAINTENANCE), 5));
+		assertTrue(index.findAvailable("Colombo", BigDecimal.ONE).isEmpty());
+
+		index.put(revision(warehouse("a", "Colombo", "100", "10", Warehouse.WarehouseStatus.ACTIVE), 6));
+		assertEquals(1, index.findAvailable("Colombo", new BigDecimal("30")).size());
+	}
+
+	private List<String> nearestIds(double latitude, double longitude) {
+		return index.findNearestAvailable(latitude, longitude, BigDecimal.ONE, 5, 0).stream()
+				.map(nearby -> nearby.getWarehouse().getId())
+				.toList();
+	}
+
+	private static Warehouse revision(Warehouse warehouse, long capacityRevision) {
+		warehouse.setCapacityRevision(capacityRevision);
+		return warehouse;
+	}
+
+	private static Warehouse located(Warehouse warehouse, double latitude, double longitude) {
+		Warehouse.Location location = new Warehouse.Location();
+		location.setLatitude(BigDecimal.valueOf(latitude));
+		location.setLongitude(BigDecimal.valueOf(longitude));
+		warehouse.setLocation(location);
+		return warehouse;
+	}
+
+	private static Warehouse warehouse(String id, String city, String capacity, String used,
+									   Warehouse.WarehouseStatus status) {
+		Warehouse warehouse = new Warehouse();
+		warehouse.setId(id);
+		warehouse.setCity(city);
+		warehouse.setCapacity(new BigDecimal(capacity));
+		warehouse.setCurrentUtilization(new BigDecimal(used));
+		warehouse.setStatus(status);
+		return warehouse;
+	}
+}
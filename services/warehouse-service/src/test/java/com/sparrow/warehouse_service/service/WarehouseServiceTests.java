@@ -0,0 +1,103 @@
+package com.sparrow.warehouse_service.service;
+
+import com.sparrow.warehouse_service.model.Warehouse;
+import com.sparrow.warehouse_service.model.WarehouseCapacityEvent;
+import com.sparrow.warehouse_service.repository.WarehouseRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class WarehouseServiceTests {
+
+	@Mock
+	private WarehouseRepository warehouseRepository;
+
+	@Mock
+	private KafkaProducerService kafkaProducerService;
+
+	@Mock
+	private ListingService listingService;
+
+	@Mock
+	private WarehouseCapacityIndex capacityIndex;
+
+	@Mock
+	private CapacityHistoryRecorder historyRecorder;
+
+	@InjectMocks
+	private WarehouseService warehouseService;
+
+	@Test
+	void setsUtilizationInPlaceAndReportsThePreviousValue() {
+		when(warehouseRepository.setUtilization("w1", new BigDecimal("100")))
+				.thenReturn(Optional.of(warehouse("100", "40", Warehouse.WarehouseStatus.ACTIVE)));
+
+		Warehouse updated = warehouseService.updateWarehouseCapacity("w1", new BigDecimal("100"));
+
+		assertEquals(new BigDecimal("100"), updated.getCurrentUtilization());
+		assertEquals(Warehouse.WarehouseStatus.FULL, updated.getStatus());
+		verify(warehouseRepository, never()).save(any());
+		verify(capacityIndex).put(updated);
+		verify(historyRecorder).record(updated, new BigDecimal("40"));
+		assertEquals(1L, updated.getCapacityRevision());
+
+		ArgumentCaptor<WarehouseCapacityEvent> event = ArgumentCaptor.forClass(WarehouseCapacityEvent.class);
+		verify(kafkaProducerService).send(eq("warehouse-capacity-events"), eq("w1"), event.capture());
+		assertEquals(new BigDecimal("40"), event.getValue().getPreviousUtilization());
+		assertEquals(new BigDecimal("100"), event.getValue().getNewUtilization());
+	}
+
+	@Test
+	void loweringUtilizationReopensAFullWarehouse() {
+		when(warehouseRepository.setUtilization("w1", new BigDecimal("10")))
+				.thenReturn(Optional.of(warehouse("100", "100", Warehouse.WarehouseStatus.FULL)));
+
+		assertEquals(Warehouse.WarehouseStatus.ACTIVE,
+				warehouseService.updateWarehouseCapacity("w1", new BigDecimal("10")).getStatus());
+	}
+
+	@Test
+	void setsStatusWithoutWritingTheWholeDocument() {
+		when(warehouseRepository.setStatus("w1", Warehouse.WarehouseStatus.MAINTENANCE))
+				.thenReturn(Optional.of(warehouse("100", "40", Warehouse.WarehouseStatus.ACTIVE)));
+
+		Warehouse updated = warehouseService.updateWarehouseStatus("w1", Warehouse.WarehouseStatus.MAINTENANCE);
+
+		assertEquals(Warehouse.WarehouseStatus.MAINTENANCE, updated.getStatus());
+		assertEquals(new BigDecimal("40"), updated.getCurrentUtilization());
+		verify(warehouseRepository, never()).save(any());
+		verify(kafkaProducerService).send(eq("warehouse-status-events"), eq("w1"), any());
+	}
+
+	@Test
+	void missingWarehouseIsReported() {
+		when(warehouseRepository.setStatus("nope", Warehouse.WarehouseStatus.ACTIVE)).thenReturn(Optional.empty());
+
+		assertThrows(RuntimeException.class,
+				() -> warehouseService.updateWarehouseStatus("nope", Warehouse.WarehouseStatus.ACTIVE));
+	}
+
+	private static Warehouse warehouse(String capacity, String utilization, Warehouse.WarehouseStatus status) {
+		Warehouse warehouse = new Warehouse();
+		warehouse.setId("w1");
+		warehouse.setCapacity(new BigDecimal(capacity));
+		warehouse.setCurrentUtilization(new BigDecimal(utilization));
+		warehouse.setStatus(status);
+		return warehouse;
+	}
+}